@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+#
+# Compare the tail latency of the read endpoints between the servlet (default) and the reactive profile.
+#
+# Start both modes against the same database first, e.g.
+#   java -jar twitter-clone-api/target/twitter-clone-api-*.jar --server.port=8080
+#   java -jar twitter-clone-api/target/twitter-clone-api-*.jar --server.port=8081 --spring.profiles.active=reactive
+# then run this with a token from /api/v1/login:
+#   TOKEN=... ./benchmarks/read-latency.sh
+#
+# Needs wrk (https://github.com/wg/wrk). Raise the open files limit (ulimit -n) above the connection count.
+
+set -euo pipefail
+
+SERVLET_URL=${SERVLET_URL:-http://localhost:8080}
+REACTIVE_URL=${REACTIVE_URL:-http://localhost:8081}
+CONNECTIONS=${CONNECTIONS:-2000}
+THREADS=${THREADS:-16}
+DURATION=${DURATION:-60s}
+USERNAME=${USERNAME:-test}
+TOKEN=${TOKEN:?"Set TOKEN to a JWT from /api/v1/login"}
+
+PATHS=("/api/v1/tweets" "/api/v1/tweets/user/${USERNAME}" "/api/v1/users/${USERNAME}")
+
+for path in "${PATHS[@]}"; do
+	for mode in servlet reactive; do
+		if [ "$mode" = servlet ]; then base=$SERVLET_URL; else base=$REACTIVE_URL; fi
+
+		echo "== ${mode} ${path} (${CONNECTIONS} connections)"
+		wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency \
+			-H "Authorization: Bearer ${TOKEN}" -H "Accept: application/hal+json" \
+			"${base}${path}" | grep -E "^\s+(50|99)(\.000)?%|Requests/sec|Socket errors|Non-2xx"
+	done
+done
@@ -0,0 +1,21 @@
+package com.mpp.twitterclone.config;
+
+import com.mpp.twitterclone.controllers.v1.NdjsonResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Used to let the streamed exports outlast the default async request timeout, which the other async requests keep
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.registerCallableInterceptors(new NdjsonResponses.TimeoutInterceptor());
+	}
+}
@@ -2,7 +2,10 @@ package com.mpp.twitterclone.config;
 
 import com.mpp.twitterclone.model.User;
 import com.mpp.twitterclone.services.mongo.MongoUserDetailsService;
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,14 +19,20 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Created by Jonathan on 9/14/2019.
  *
  * Used to handle user token authorization and authentication
+ *
+ * With security.jwt.claims-only the principal is a {@link JwtUserPrincipal} built from the token's claims, so
+ * authenticating a request doesn't read the database. The roles are then those the user had when the token was
+ * issued - changed or removed roles, and removed users, only take effect once it expires.
  */
 
 @Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Component
 public class JwtTokenFilter extends OncePerRequestFilter {
 
@@ -31,9 +40,13 @@ public class JwtTokenFilter extends OncePerRequestFilter {
 
 	private final MongoUserDetailsService mongoUserDetailsService;
 
-	public JwtTokenFilter(@Lazy JwtTokenProvider tokenProvider,@Lazy MongoUserDetailsService mongoUserDetailsService) {
+	private final boolean claimsOnly;
+
+	public JwtTokenFilter(@Lazy JwtTokenProvider tokenProvider,@Lazy MongoUserDetailsService mongoUserDetailsService,
+	                      @Value("${security.jwt.claims-only:false}") boolean claimsOnly) {
 		this.tokenProvider = tokenProvider;
 		this.mongoUserDetailsService = mongoUserDetailsService;
+		this.claimsOnly = claimsOnly;
 	}
 
 	@Override
@@ -42,12 +55,23 @@ public class JwtTokenFilter extends OncePerRequestFilter {
 	                                FilterChain filterChain) throws ServletException, IOException {
 		try {
 			String token = tokenProvider.getTokenFromRequest(httpServletRequest);
+			Optional<Claims> claims = StringUtils.hasText(token) ? tokenProvider.verifyToken(token) : Optional.empty();
+
+			if (claims.isPresent()) {
+				UsernamePasswordAuthenticationToken authenticationToken;
+
+				if (claimsOnly) {
+					JwtUserPrincipal principal = tokenProvider.getPrincipalFromClaims(claims.get());
 
-			if (StringUtils.hasText(token) && tokenProvider.validateToken(token)) {
-				User user = (User) mongoUserDetailsService.loadUserByUsername(tokenProvider.getUsernameFromToken(token));
+					authenticationToken = new UsernamePasswordAuthenticationToken(
+							principal, null, principal.getAuthorities());
+				} else {
+					User user = (User) mongoUserDetailsService.loadUserByUsername(
+							tokenProvider.getUsernameFromClaims(claims.get()));
 
-				UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-						user, null, user.getAuthorities());
+					authenticationToken = new UsernamePasswordAuthenticationToken(
+							user, null, user.getAuthorities());
+				}
 
 				authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(httpServletRequest));
 
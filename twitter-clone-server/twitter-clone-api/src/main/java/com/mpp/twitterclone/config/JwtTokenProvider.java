@@ -1,27 +1,88 @@
 package com.mpp.twitterclone.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.mpp.twitterclone.enums.TokenProvider;
 import com.mpp.twitterclone.model.User;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
 
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Created by Jonathan on 9/14/2019.
+ *
+ * Tokens are verified once per request with {@link #verifyToken(String)}, against a signing key derived once from
+ * the secret. Verified tokens are remembered by their SHA-256 digest, bounded to {@link #CACHE_SIZE} of them, each
+ * for {@link #CACHE_TTL} at most and never past its expiration - so a client sending the same token again is
+ * authenticated without parsing it or checking its signature.
  */
 
 @Slf4j
 @Component
 public class JwtTokenProvider {
+
+	public static final long CACHE_SIZE = 10_000;
+
+	public static final Duration CACHE_TTL = Duration.ofMinutes(5);
+
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	});
+
 	private final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.HS512;
 
+	// The secret is base64 - decoded the way the parser would decode it on every parse
+	private final Key signingKey = new SecretKeySpec(TextCodec.BASE64.decode(TokenProvider.SECRET_KEY.val()),
+			ALGORITHM.getJcaName());
+
+	private final Cache<String, Claims> verifiedTokens = Caffeine.newBuilder()
+			.maximumSize(CACHE_SIZE)
+			.expireAfter(new Expiry<String, Claims>() {
+				@Override
+				public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+					return untilExpiration(claims);
+				}
+
+				@Override
+				public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+					return untilExpiration(claims);
+				}
+
+				@Override
+				public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+					return currentDuration;
+				}
+			})
+			.build();
+
 	public String generateToken(Authentication authentication) {
 		User user = (User) authentication.getPrincipal();
 		Date now = new Date();
@@ -37,14 +98,24 @@ public class JwtTokenProvider {
 				.setClaims(claims)
 				.setIssuedAt(now)
 				.setExpiration(expirationDate)
-				.signWith(ALGORITHM, TokenProvider.SECRET_KEY.val())
+				.signWith(ALGORITHM, signingKey)
 				.compact();
 	}
 
-	public boolean validateToken(String token) {
+	/**
+	 * Used to Verify the given token and Extract its Claims - empty if the token isn't valid
+	 */
+	public Optional<Claims> verifyToken(String token) {
+		String digest = digest(token);
+
+		Claims cached = verifiedTokens.getIfPresent(digest);
+		if (cached != null) return Optional.of(cached);
+
 		try {
-			Jwts.parser().setSigningKey(TokenProvider.SECRET_KEY.val()).parseClaimsJws(token);
-			return true;
+			Claims claims = Jwts.parser().setSigningKey(signingKey).parseClaimsJws(token).getBody();
+			verifiedTokens.put(digest, claims);
+
+			return Optional.of(claims);
 		} catch (SignatureException ex) {
 			log.error("Invalid JWT Signature: " + ex.getLocalizedMessage());
 		} catch (MalformedJwtException ex) {
@@ -57,28 +128,81 @@ public class JwtTokenProvider {
 			log.error("JWT Claims String is Empty: " + ex.getLocalizedMessage());
 		}
 
-		return false;
+		return Optional.empty();
+	}
+
+	public boolean validateToken(String token) {
+		return verifyToken(token).isPresent();
+	}
+
+	/**
+	 * Used to Extract the Username from verified claims
+	 */
+	public String getUsernameFromClaims(Claims claims) {
+		return claims.get("username", String.class);
 	}
 
 	/**
-	 *
-	 * Used to Extract Username from the given token
-	 * @param token
-	 * @return
+	 * Used to Build the Authenticated User from verified claims alone - the roles claim holds the serialized roles
 	 */
-	public String getUsernameFromToken(String token) {
-		Claims claims = Jwts.parser().setSigningKey(TokenProvider.SECRET_KEY.val()).parseClaimsJws(token).getBody();
+	@SuppressWarnings("unchecked")
+	public JwtUserPrincipal getPrincipalFromClaims(Claims claims) {
+		List<Map<String, Object>> roles = claims.get("roles", List.class);
 
-		return (String) claims.get("username");
+		List<GrantedAuthority> authorities = roles == null ? Collections.emptyList() : roles.stream()
+				.map(role -> new SimpleGrantedAuthority(String.valueOf(role.get("name"))))
+				.collect(Collectors.toList());
+
+		return new JwtUserPrincipal(claims.get("id", String.class), getUsernameFromClaims(claims), authorities);
 	}
 
+	/**
+	 * From the Authorization header - or, on a WebSocket handshake, from the "bearer, <token>" subprotocols, since
+	 * browsers can't set headers on the upgrade request
+	 */
 	public String getTokenFromRequest(HttpServletRequest request) {
-		String bearerToken = request.getHeader(TokenProvider.TOKEN_HEADER.val());
+		String token = getTokenFromHeader(request.getHeader(TokenProvider.TOKEN_HEADER.val()));
 
+		if (token == null && "websocket".equalsIgnoreCase(request.getHeader(HttpHeaders.UPGRADE))) {
+			token = getTokenFromSubprotocols(request.getHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL));
+		}
+
+		return token;
+	}
+
+	public String getTokenFromHeader(String bearerToken) {
 		if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(TokenProvider.TOKEN_PREFIX.val())) {
 			return bearerToken.substring(TokenProvider.TOKEN_PREFIX.val().length());
 		}
 
 		return null;
 	}
+
+	public String getTokenFromSubprotocols(String subprotocols) {
+		if (!StringUtils.hasText(subprotocols)) return null;
+
+		String[] protocols = StringUtils.tokenizeToStringArray(subprotocols, ",");
+
+		if (protocols.length == 2 && protocols[0].equals(TokenProvider.TOKEN_SUBPROTOCOL.val())) {
+			return protocols[1];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Kept until the token expires, if that's sooner than the TTL
+	 */
+	private static long untilExpiration(Claims claims) {
+		long ttl = CACHE_TTL.toNanos();
+		if (claims.getExpiration() == null) return ttl;
+
+		long remaining = Duration.ofMillis(claims.getExpiration().getTime() - System.currentTimeMillis()).toNanos();
+
+		return Math.max(0, Math.min(ttl, remaining));
+	}
+
+	private static String digest(String token) {
+		return Base64.getEncoder().encodeToString(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+	}
 }
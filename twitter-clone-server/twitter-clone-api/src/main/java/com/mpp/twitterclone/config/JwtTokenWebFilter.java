@@ -0,0 +1,54 @@
+package com.mpp.twitterclone.config;
+
+import com.mpp.twitterclone.enums.TokenProvider;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Reactive counterpart of {@link JwtTokenFilter}. The principal is built from the token's claims alone,
+ * since the read endpoints don't need the stored user and reactive Mongo can't load its roles.
+ *
+ * Not a bean on purpose - WebFlux would also apply every WebFilter bean outside the security chain.
+ */
+
+@Slf4j
+public class JwtTokenWebFilter implements WebFilter {
+
+	private final JwtTokenProvider tokenProvider;
+
+	public JwtTokenWebFilter(JwtTokenProvider tokenProvider) {
+		this.tokenProvider = tokenProvider;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		String token = tokenProvider.getTokenFromHeader(
+				exchange.getRequest().getHeaders().getFirst(TokenProvider.TOKEN_HEADER.val()));
+
+		Optional<Claims> claims = StringUtils.hasText(token) ? tokenProvider.verifyToken(token) : Optional.empty();
+		if (!claims.isPresent()) return chain.filter(exchange);
+
+		Authentication authenticationToken;
+		try {
+			JwtUserPrincipal principal = tokenProvider.getPrincipalFromClaims(claims.get());
+
+			authenticationToken = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+		} catch (Exception ex) {
+			log.error("Could Not Set User Authentication Token in Security Context", ex);
+			return chain.filter(exchange);
+		}
+
+		return chain.filter(exchange)
+				.subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authenticationToken));
+	}
+}
@@ -0,0 +1,44 @@
+package com.mpp.twitterclone.config;
+
+import lombok.Value;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The authenticated user as its token tells it - ID, username and authorities from the verified claims, without
+ * reading the stored user. Endpoints that need more than that load the user by its username or ID.
+ */
+
+@Value
+public class JwtUserPrincipal implements AuthenticatedPrincipal, Serializable {
+
+	String id;
+
+	String username;
+
+	List<GrantedAuthority> authorities;
+
+	@Override
+	public String getName() {
+		return username;
+	}
+
+	/**
+	 * ID of the authenticated user, if the request was authenticated from the claims of its token
+	 */
+	public static Optional<String> idOf(Principal principal) {
+		if (!(principal instanceof Authentication)) return Optional.empty();
+
+		Object authenticated = ((Authentication) principal).getPrincipal();
+
+		return authenticated instanceof JwtUserPrincipal
+				? Optional.ofNullable(((JwtUserPrincipal) authenticated).getId())
+				: Optional.empty();
+	}
+}
@@ -0,0 +1,78 @@
+package com.mpp.twitterclone.config;
+
+import com.mpp.twitterclone.enums.RoleName;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Security of the "reactive" profile, which only serves the read endpoints - the same rules as
+ * {@link WebSecurityConfig} for those paths
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+	@Bean
+	public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtTokenProvider tokenProvider) {
+		return http
+				.csrf().disable()
+				.httpBasic().disable()
+				.formLogin().disable()
+				.securityContextRepository(NoOpServerSecurityContextRepository.getInstance()) // Stateless
+				.authorizeExchange()
+				.pathMatchers(
+						"/api/v1/users/{username}",
+						"/api/v1/tweets/user/{username}").permitAll()
+				.pathMatchers(
+						"/api/v1/tweets/**",
+						"/api/v1/users/**").access(hasAnyAuthority(RoleName.USER.toString(), RoleName.ADMIN.toString()))
+				.pathMatchers("/actuator/**").access(hasAnyAuthority(RoleName.ADMIN.toString()))
+				.anyExchange().authenticated()
+				.and()
+				.exceptionHandling().authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
+				.and()
+				.addFilterAt(new JwtTokenWebFilter(tokenProvider), SecurityWebFiltersOrder.AUTHENTICATION)
+				.build();
+	}
+
+	/**
+	 * The reactive authorize spec of this Spring Security version only checks a single authority
+	 */
+	private static ReactiveAuthorizationManager<AuthorizationContext> hasAnyAuthority(String... authorities) {
+		List<String> allowed = Arrays.asList(authorities);
+
+		return (authentication, context) -> authentication
+				.filter(Authentication::isAuthenticated)
+				.map(auth -> new AuthorizationDecision(auth.getAuthorities().stream()
+						.map(GrantedAuthority::getAuthority)
+						.anyMatch(allowed::contains)))
+				.defaultIfEmpty(new AuthorizationDecision(false));
+	}
+
+	/**
+	 * Serve on Netty's event loops rather than on the Tomcat that's also on the classpath for the servlet mode
+	 */
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+}
@@ -0,0 +1,35 @@
+package com.mpp.twitterclone.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Used to enable the periodic jobs of the services (e.g. live stream heartbeats), on a pool with a thread for each
+ * of them - a long job (a search segment merge, a leaderboard aggregation, a favorites scan) never holds up the
+ * short ones (the write-behind and counter flushes, the stalled write checks)
+ */
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer {
+
+	public static final int POOL_SIZE = 12;
+
+	@Bean
+	public ThreadPoolTaskScheduler taskScheduler() {
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(POOL_SIZE);
+		taskScheduler.setThreadNamePrefix("scheduling-");
+
+		return taskScheduler;
+	}
+
+	@Override
+	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+		taskRegistrar.setTaskScheduler(taskScheduler());
+	}
+}
@@ -1,5 +1,6 @@
 package com.mpp.twitterclone.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
  */
 
 @EnableSwagger2
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Configuration
 public class SwaggerConfig {
 
@@ -3,6 +3,8 @@ package com.mpp.twitterclone.config;
 import com.mpp.twitterclone.enums.PasswordEncoderStrength;
 import com.mpp.twitterclone.enums.RoleName;
 import com.mpp.twitterclone.services.mongo.MongoUserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -22,10 +24,13 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.util.List;
+
 /**
  * Created by Jonathan on 9/14/2019.
  */
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(
@@ -41,12 +46,16 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
 	private final JwtTokenFilter tokenFilter;
 
+	private final List<String> allowedOrigins;
+
 	public WebSecurityConfig(@Lazy AuthEntryPoint authEntryPoint,
 	                         @Lazy MongoUserDetailsService userDetailService,
-	                         @Lazy JwtTokenFilter tokenFilter) {
+	                         @Lazy JwtTokenFilter tokenFilter,
+	                         @Value("${cors.allowed-origins}") List<String> allowedOrigins) {
 		this.authEntryPoint = authEntryPoint;
 		this.userDetailService = userDetailService;
 		this.tokenFilter = tokenFilter;
+		this.allowedOrigins = allowedOrigins;
 	}
 
 	@Override
@@ -57,6 +66,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 				.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
 				.and()
 				.authorizeRequests()
+				// Ahead of the public profiles, which {username} would match it as
+				.antMatchers("/api/v1/users/suggest")
+						.hasAnyAuthority(RoleName.USER.toString(), RoleName.ADMIN.toString())
 				.antMatchers(
 						"/api/v1/users/{username}",
 						"/api/v1/tweets/user/{username}",
@@ -67,7 +79,12 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 //						"api/v1/users").hasAuthority(RoleName.ADMIN.toString())
 				.antMatchers(
 						"/api/v1/tweets/**",
-						"/api/v1/users/**").hasAnyAuthority(RoleName.USER.toString(), RoleName.ADMIN.toString())
+						"/api/v1/users/**",
+						"/api/v1/timeline/**",
+						"/api/v1/search/**",
+						"/api/v1/trends/**",
+						"/api/v1/leaderboards/**").hasAnyAuthority(RoleName.USER.toString(), RoleName.ADMIN.toString())
+				.antMatchers("/actuator/**").hasAuthority(RoleName.ADMIN.toString())
 				.anyRequest().authenticated()
 				.and()
 				.exceptionHandling().authenticationEntryPoint(authEntryPoint);
@@ -106,7 +123,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
 	/**
 	 *
-	 * Configure Cors
+	 * Configure Cors - credentials are only allowed from the configured origins (cors.allowed-origins)
 	 *
 	 */
 	@Bean
@@ -115,7 +132,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
 		CorsConfiguration configuration = new CorsConfiguration();
 		configuration.setAllowCredentials(true);
-		configuration.addAllowedOrigin("*");
+		configuration.setAllowedOrigins(allowedOrigins);
 		configuration.addAllowedMethod("*"); // Allow all Http Request Methods
 		configuration.addAllowedHeader("*");
 		configuration.setMaxAge(3600L);
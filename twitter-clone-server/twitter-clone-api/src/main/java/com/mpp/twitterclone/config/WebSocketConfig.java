@@ -0,0 +1,43 @@
+package com.mpp.twitterclone.config;
+
+import com.mpp.twitterclone.controllers.v1.CounterWebSocketHandler;
+import com.mpp.twitterclone.enums.TokenProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+/**
+ * Used to register the WebSocket endpoints. The handshakes are authenticated like any other request, and accepted
+ * from the CORS origins only. Browsers, which can't set the Authorization header on them, send the token as the
+ * "bearer, <token>" subprotocols instead - the handshake answers with the "bearer" one, never echoing the token.
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+	private final CounterWebSocketHandler counterWebSocketHandler;
+
+	private final String[] allowedOrigins;
+
+	public WebSocketConfig(CounterWebSocketHandler counterWebSocketHandler,
+	                       @Value("${cors.allowed-origins}") String[] allowedOrigins) {
+		this.counterWebSocketHandler = counterWebSocketHandler;
+		this.allowedOrigins = allowedOrigins;
+	}
+
+	@Override
+	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+		DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+		handshakeHandler.setSupportedProtocols(TokenProvider.TOKEN_SUBPROTOCOL.val());
+
+		registry.addHandler(counterWebSocketHandler, CounterWebSocketHandler.PATH)
+				.setHandshakeHandler(handshakeHandler)
+				.setAllowedOrigins(allowedOrigins);
+	}
+}
@@ -4,6 +4,7 @@ import com.mpp.twitterclone.exceptions.ResourceExistsException;
 import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
 import com.mpp.twitterclone.exceptions.UnauthorizedUserException;
 import com.mpp.twitterclone.exceptions.UserValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -17,6 +18,7 @@ import java.util.Map;
  * Created by Jonathan on 9/13/2019.
  */
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ControllerAdvice
 public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
 
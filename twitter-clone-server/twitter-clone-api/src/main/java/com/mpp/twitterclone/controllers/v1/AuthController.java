@@ -10,6 +10,7 @@ import com.mpp.twitterclone.services.RequestValidationService;
 import com.mpp.twitterclone.services.UserService;
 import com.mpp.twitterclone.validators.UserValidator;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -37,6 +38,7 @@ import java.util.Map;
  * Used for the Authentication of Users
  */
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping(value = AuthController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE,
 		consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -0,0 +1,92 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WebSocket channel of engagement counter deltas.
+ *
+ * Clients send {"subscribe": ["tweet:{id}", "user:{id}", ...]} for what is on screen, and
+ * {"unsubscribe": [...]} once it scrolls away. They receive {"deltas": {"tweet:{id}": {"favoriteCount": 3}}}
+ * messages, at most one per flush window.
+ */
+
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class CounterWebSocketHandler extends TextWebSocketHandler {
+
+	public static final String PATH = "/api/v1/counters";
+
+	private final CounterBroadcastService counterBroadcastService;
+
+	private final ObjectMapper objectMapper;
+
+	public CounterWebSocketHandler(CounterBroadcastService counterBroadcastService, ObjectMapper objectMapper) {
+		this.counterBroadcastService = counterBroadcastService;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void afterConnectionEstablished(WebSocketSession session) {
+		counterBroadcastService.register(session);
+	}
+
+	@Override
+	protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+		JsonNode request;
+
+		try {
+			request = objectMapper.readTree(message.getPayload());
+		} catch (IOException ex) {
+			session.close(CloseStatus.BAD_DATA.withReason("Invalid Message"));
+			return;
+		}
+
+		if (request == null) return;
+
+		List<String> subscribe = topics(request.get("subscribe"));
+		List<String> unsubscribe = topics(request.get("unsubscribe"));
+
+		if (!subscribe.isEmpty()) counterBroadcastService.subscribe(session.getId(), subscribe);
+		if (!unsubscribe.isEmpty()) counterBroadcastService.unsubscribe(session.getId(), unsubscribe);
+	}
+
+	@Override
+	public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+		counterBroadcastService.unregister(session.getId());
+	}
+
+	@Override
+	public void handleTransportError(WebSocketSession session, Throwable exception) {
+		log.debug("Counter Session {} Transport Error", session.getId(), exception);
+		counterBroadcastService.unregister(session.getId());
+	}
+
+	private List<String> topics(JsonNode node) {
+		List<String> topics = new ArrayList<>();
+
+		if (node != null && node.isArray()) {
+			node.forEach(topic -> {
+				String value = topic.asText();
+
+				if (value.startsWith(CounterBroadcastService.TWEET_TOPIC_PREFIX)
+						|| value.startsWith(CounterBroadcastService.USER_TOPIC_PREFIX)) topics.add(value);
+			});
+		}
+
+		return topics;
+	}
+}
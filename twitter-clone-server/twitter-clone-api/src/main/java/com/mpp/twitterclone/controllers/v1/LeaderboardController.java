@@ -0,0 +1,90 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssembler;
+import com.mpp.twitterclone.enums.LeaderboardWindow;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.LeaderboardService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+/**
+ * Most favorited and retweeted tweets and most followed users
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping(value = LeaderboardController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE)
+public class LeaderboardController {
+
+	public static final String BASE_URL = "/api/v1/leaderboards";
+
+	private final LeaderboardService leaderboardService;
+
+	private final TweetResourceAssembler tweetResourceAssembler;
+
+	private final UserResourceAssembler userResourceAssembler;
+
+	public LeaderboardController(LeaderboardService leaderboardService, TweetResourceAssembler tweetResourceAssembler,
+	                             UserResourceAssembler userResourceAssembler) {
+		this.leaderboardService = leaderboardService;
+		this.tweetResourceAssembler = tweetResourceAssembler;
+		this.userResourceAssembler = userResourceAssembler;
+	}
+
+	///> Get Mappings
+	@ApiOperation(value = "Get the Most Favorited Tweets",
+			notes = "Of all time, or by the favorites of the day with window=DAY.")
+	@GetMapping("/tweets/favorites")
+	public Resources<Resource<Tweet>> getMostFavoritedTweets(@RequestParam(defaultValue = "ALL_TIME") LeaderboardWindow window,
+	                                                         @RequestParam(required = false) Integer size) {
+		return new Resources<>(tweets(leaderboardService.findMostFavoritedTweets(window, size(size))),
+				linkTo(methodOn(LeaderboardController.class).getMostFavoritedTweets(window, size)).withSelfRel().expand());
+	}
+
+	@ApiOperation(value = "Get the Most Retweeted Tweets",
+			notes = "Of all time, or by the retweets of the day with window=DAY.")
+	@GetMapping("/tweets/retweets")
+	public Resources<Resource<Tweet>> getMostRetweetedTweets(@RequestParam(defaultValue = "ALL_TIME") LeaderboardWindow window,
+	                                                         @RequestParam(required = false) Integer size) {
+		return new Resources<>(tweets(leaderboardService.findMostRetweetedTweets(window, size(size))),
+				linkTo(methodOn(LeaderboardController.class).getMostRetweetedTweets(window, size)).withSelfRel().expand());
+	}
+
+	@ApiOperation(value = "Get the Most Followed Users",
+			notes = "Of all time, or by the follows of the day with window=DAY.")
+	@GetMapping("/users/followers")
+	public Resources<Resource<User>> getMostFollowedUsers(@RequestParam(defaultValue = "ALL_TIME") LeaderboardWindow window,
+	                                                      @RequestParam(required = false) Integer size) {
+		List<Resource<User>> users = leaderboardService.findMostFollowedUsers(window, size(size)).stream()
+				.map(userResourceAssembler::toResource)
+				.collect(Collectors.toList());
+
+		return new Resources<>(users,
+				linkTo(methodOn(LeaderboardController.class).getMostFollowedUsers(window, size)).withSelfRel().expand());
+	}
+
+	private List<Resource<Tweet>> tweets(List<Tweet> tweets) {
+		return tweets.stream()
+				.map(tweetResourceAssembler::toResource)
+				.collect(Collectors.toList());
+	}
+
+	private static int size(Integer size) {
+		return size == null ? LeaderboardService.DEFAULT_SIZE : size;
+	}
+}
@@ -0,0 +1,94 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Newline delimited JSON (one document per line) responses written straight from a database cursor.
+ *
+ * Documents are serialized one at a time as the cursor yields them, so memory stays bounded by the cursor
+ * batch and the write buffer. Writes block while a slow client drains the socket, and the cursor only
+ * fetches its next batch once the previous one is written.
+ *
+ * An export runs as an async request that may take far longer than the default async timeout, so it gets
+ * {@link #EXPORT_TIMEOUT} of its own - applied by the {@link TimeoutInterceptor} as the body starts being written.
+ */
+
+public final class NdjsonResponses {
+
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+	// Documents written between flushes - the first batch reaches the client without waiting for the rest
+	public static final int FLUSH_INTERVAL = 100;
+
+	public static final Duration EXPORT_TIMEOUT = Duration.ofHours(1);
+
+	public static final String TIMEOUT_ATTRIBUTE = NdjsonResponses.class.getName() + ".timeout";
+
+	private NdjsonResponses() {
+	}
+
+	/**
+	 * The stream is opened when the response starts being written and closed when it's done or the client
+	 * goes away, releasing the underlying cursor.
+	 */
+	public static <T> ResponseEntity<StreamingResponseBody> of(Supplier<Stream<T>> documents,
+	                                                           ObjectMapper objectMapper) {
+		// Flushing after every document would cost a write to the socket each
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		StreamingResponseBody body = outputStream -> {
+			try (Stream<T> stream = documents.get();
+			     JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+				Iterator<T> iterator = stream.iterator();
+
+				for (int written = 1; iterator.hasNext(); written++) {
+					writer.writeValue(generator, iterator.next());
+					generator.writeRaw('\n');
+
+					if (written % FLUSH_INTERVAL == 0) generator.flush();
+				}
+			}
+		};
+
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(TIMEOUT_ATTRIBUTE, EXPORT_TIMEOUT.toMillis(), RequestAttributes.SCOPE_REQUEST);
+		}
+
+		return ResponseEntity.ok()
+				.contentType(APPLICATION_NDJSON)
+				.body(body);
+	}
+
+	/**
+	 * Gives an async request the timeout its handler asked for - the async request is handed to the interceptors
+	 * before it starts, while its timeout can still change. Other async requests keep the default.
+	 */
+	public static class TimeoutInterceptor implements CallableProcessingInterceptor {
+
+		@Override
+		public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+			Long timeout = (Long) request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+			if (timeout != null && request instanceof AsyncWebRequest) ((AsyncWebRequest) request).setTimeout(timeout);
+		}
+	}
+}
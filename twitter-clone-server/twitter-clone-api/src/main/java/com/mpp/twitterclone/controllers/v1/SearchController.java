@@ -0,0 +1,61 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.SearchService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+
+/**
+ * Full-text search of tweets
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping(value = SearchController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE)
+public class SearchController {
+
+	public static final String BASE_URL = "/api/v1/search";
+
+	private final SearchService searchService;
+
+	private final TweetResourceAssembler tweetResourceAssembler;
+
+	public SearchController(SearchService searchService, TweetResourceAssembler tweetResourceAssembler) {
+		this.searchService = searchService;
+		this.tweetResourceAssembler = tweetResourceAssembler;
+	}
+
+	///> Get Mappings
+	@ApiOperation(value = "Search Tweets",
+			notes = "Tweets matching any of the words of the query, best matches first - recent tweets rank " +
+					"higher among equally good matches.")
+	@GetMapping
+	public Resources<Resource<Tweet>> searchTweets(@RequestParam String q,
+	                                               @RequestParam(required = false) Integer size) {
+		List<Resource<Tweet>> tweets = searchService.search(q, size == null ? SearchService.DEFAULT_SIZE : size)
+				.stream()
+				.map(tweetResourceAssembler::toResource)
+				.collect(Collectors.toList());
+
+		// Built rather than expanded from the method, which would encode the free text query twice
+		UriComponentsBuilder self = linkTo(SearchController.class).toUriComponentsBuilder().queryParam("q", q);
+		if (size != null) self.queryParam("size", size);
+
+		return new Resources<>(tweets, new Link(self.build().encode().toUriString()));
+	}
+}
@@ -0,0 +1,45 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.config.JwtUserPrincipal;
+import com.mpp.twitterclone.services.TimelineStreamService;
+import com.mpp.twitterclone.services.UserService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+
+/**
+ * Live home timeline of the authenticated user
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping(TimelineController.BASE_URL)
+public class TimelineController {
+
+	public static final String BASE_URL = "/api/v1/timeline";
+
+	private final TimelineStreamService timelineStreamService;
+
+	private final UserService userService;
+
+	public TimelineController(TimelineStreamService timelineStreamService, UserService userService) {
+		this.timelineStreamService = timelineStreamService;
+		this.userService = userService;
+	}
+
+	///> Get Mappings
+	@ApiOperation(value = "Stream New Tweets of the Home Timeline",
+			notes = "Server-Sent Events: a \"tweet\" event for each new tweet of a followed user, and a \"gap\" " +
+					"event with the number of missed tweets when the client reads too slowly to keep up.")
+	@GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamTimeline(Principal principal) {
+		return timelineStreamService.subscribe(JwtUserPrincipal.idOf(principal)
+				.orElseGet(() -> userService.findUserByUsername(principal.getName()).getId()));
+	}
+}
@@ -0,0 +1,43 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.model.Trend;
+import com.mpp.twitterclone.services.TrendService;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resources;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+/**
+ * Trending hashtags
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping(value = TrendController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE)
+public class TrendController {
+
+	public static final String BASE_URL = "/api/v1/trends";
+
+	private final TrendService trendService;
+
+	public TrendController(TrendService trendService) {
+		this.trendService = trendService;
+	}
+
+	///> Get Mappings
+	@ApiOperation(value = "Get Trending Hashtags",
+			notes = "Hashtags used the most above their usual rate in the last five minutes, highest first. " +
+					"Refreshed every few seconds.")
+	@GetMapping
+	public Resources<Trend> getTrends(@RequestParam(required = false) Integer size) {
+		return new Resources<>(trendService.findTrends(size == null ? TrendService.DEFAULT_SIZE : size),
+				linkTo(methodOn(TrendController.class).getTrends(size)).withSelfRel().expand());
+	}
+}
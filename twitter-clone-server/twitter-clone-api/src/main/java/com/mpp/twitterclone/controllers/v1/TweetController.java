@@ -1,24 +1,30 @@
 package com.mpp.twitterclone.controllers.v1;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpp.twitterclone.config.JwtUserPrincipal;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.model.Conversation;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.ConversationService;
 import com.mpp.twitterclone.services.TweetService;
+import com.mpp.twitterclone.services.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Principal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
@@ -27,6 +33,7 @@ import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
  * Created by Jonathan on 9/8/2019.
  */
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping(value = TweetController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE,
 				consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -34,38 +41,62 @@ public class TweetController {
 
 	public static final String BASE_URL = "/api/v1/tweets";
 
+	public static final int DEFAULT_PAGE_SIZE = 20;
+
 	private final TweetService tweetService;
 
 	private final TweetResourceAssembler tweetResourceAssembler;
 
-	public TweetController(TweetService tweetService, TweetResourceAssembler tweetResourceAssembler) {
+	private final ObjectMapper objectMapper;
+
+	private final ConversationService conversationService;
+
+	private final UserService userService;
+
+	public TweetController(TweetService tweetService, TweetResourceAssembler tweetResourceAssembler,
+	                       ObjectMapper objectMapper, ConversationService conversationService,
+	                       UserService userService) {
 		this.tweetService = tweetService;
 		this.tweetResourceAssembler = tweetResourceAssembler;
+		this.objectMapper = objectMapper;
+		this.conversationService = conversationService;
+		this.userService = userService;
 	}
 
 	///> Get Mappings
 	@ApiOperation(value = "Get all Tweets",
-					notes = "This operation can only be done by an ADMIN.")
+					notes = "This operation can only be done by an ADMIN. Newest first, paginated with the " +
+							"cursors of the next/prev links.")
 	@GetMapping
-	public Resources<Resource<Tweet>> getAllTweets() {
-		List<Resource<Tweet>> tweets = tweetService.findAll().stream()
-				.map(tweetResourceAssembler::toResource)
-				.collect(Collectors.toList());
+	public Resources<Resource<Tweet>> getAllTweets(@RequestParam(required = false) String cursor,
+	                                               @RequestParam(required = false) Integer size) {
+		CursorPage<Tweet> page = tweetService.findPage(cursor, pageSize(size));
 
-		return new Resources<>(tweets,
-				linkTo(methodOn(TweetController.class).getAllTweets()).withSelfRel());
+		return tweetResourceAssembler.toResources(page,
+				linkTo(methodOn(TweetController.class).getAllTweets(cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(TweetController.class).getAllTweets(pageCursor, size)));
+	}
+
+	@ApiOperation(value = "Export all Tweets",
+					notes = "This operation can only be done by an ADMIN. Streams every tweet as newline " +
+							"delimited JSON when requested with Accept: " + NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	@GetMapping(produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAllTweets() {
+		return NdjsonResponses.of(tweetService::streamAll, objectMapper);
 	}
 
 	@ApiOperation(value = "Get Tweets by Username",
-					notes = "It can be done by any user.")
+					notes = "It can be done by any user. Newest first, paginated with the cursors of the " +
+							"next/prev links.")
 	@GetMapping("/user/{username}")
-	public Resources<Resource<Tweet>> getAllTweetsByUsername(@PathVariable String username) {
-		List<Resource<Tweet>> tweets = tweetService.findAllTweetsByUsername(username).stream()
-				.map(tweetResourceAssembler::toResource)
-				.collect(Collectors.toList());
-
-		return new Resources<>(tweets,
-				linkTo(methodOn(TweetController.class).getAllTweetsByUsername(username)).withSelfRel());
+	public Resources<Resource<Tweet>> getAllTweetsByUsername(@PathVariable String username,
+	                                                         @RequestParam(required = false) String cursor,
+	                                                         @RequestParam(required = false) Integer size) {
+		CursorPage<Tweet> page = tweetService.findPageByUsername(username, cursor, pageSize(size));
+
+		return tweetResourceAssembler.toResources(page,
+				linkTo(methodOn(TweetController.class).getAllTweetsByUsername(username, cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(TweetController.class).getAllTweetsByUsername(username, pageCursor, size)));
 	}
 
 	@ApiOperation(value = "Get Tweet by ID")
@@ -74,15 +105,33 @@ public class TweetController {
 		return tweetResourceAssembler.toResource(tweetService.findById(id));
 	}
 
-	@ApiOperation(value = "This will get a list of all replies for a given tweet.")
+	@ApiOperation(value = "This will get a list of all replies for a given tweet.",
+					notes = "Newest first, paginated with the cursors of the next/prev links.")
 	@GetMapping("/{id}/replies")
-	public Resources<Resource<Tweet>> getTweetReplies(@PathVariable String id) {
-		List<Resource<Tweet>> tweets = tweetService.findAllReplies(id).stream()
-				.map(tweetResourceAssembler::toResource)
-				.collect(Collectors.toList());
+	public Resources<Resource<Tweet>> getTweetReplies(@PathVariable String id,
+	                                                  @RequestParam(required = false) String cursor,
+	                                                  @RequestParam(required = false) Integer size) {
+		CursorPage<Tweet> page = tweetService.findRepliesPage(id, cursor, pageSize(size));
+
+		return tweetResourceAssembler.toResources(page,
+				linkTo(methodOn(TweetController.class).getTweetReplies(id, cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(TweetController.class).getTweetReplies(id, pageCursor, size)));
+	}
 
-		return new Resources<>(tweets,
-				linkTo(methodOn(TweetController.class).getTweetReplies(id)).withSelfRel());
+	@ApiOperation(value = "Get the conversation of a Tweet",
+					notes = "The tweets it replies to, root first, and the replies under it down to depth levels, " +
+							"each tweet with its oldest replies up to width.")
+	@GetMapping("/{id}/conversation")
+	public Resource<Conversation> getConversation(@PathVariable String id,
+	                                              @RequestParam(required = false) Integer depth,
+	                                              @RequestParam(required = false) Integer width) {
+		Conversation conversation = conversationService.findConversation(id,
+				depth == null ? ConversationService.DEFAULT_DEPTH : depth,
+				width == null ? ConversationService.DEFAULT_WIDTH : width);
+
+		return new Resource<>(conversation,
+				linkTo(methodOn(TweetController.class).getConversation(id, depth, width)).withSelfRel().expand(),
+				linkTo(methodOn(TweetController.class).getTweetById(id)).withRel("tweet"));
 	}
 
 	// todo: getFavoriteTweets
@@ -111,21 +160,31 @@ public class TweetController {
 				.body(tweetResource);
 	}
 
-//	@PostMapping("/{id}/retweet")
-//	public ResponseEntity<Resource<Tweet>> retweet(@PathVariable String id) throws URISyntaxException {
-//		Resource<Tweet> tweetResource = tweetResourceAssembler.toResource(tweetService.retweetTweet(id, "test"));
-//
-//		return ResponseEntity
-//				.created(new URI(tweetResource.getId().expand().getHref()))
-//				.body(tweetResource);
-//	}
+	@ApiOperation(value = "Retweet a Tweet",
+					notes = "This operation can only be done by an authenticated user. Retweeting a tweet again " +
+							"undoes the retweet.")
+	@PostMapping("/{id}/retweet")
+	public ResponseEntity<Resource<Tweet>> retweet(@PathVariable String id, Principal principal) throws URISyntaxException {
+		// Retweets are recorded by user ID
+		String retweetUserId = JwtUserPrincipal.idOf(principal)
+				.orElseGet(() -> userService.findUserByUsername(principal.getName()).getId());
+
+		Resource<Tweet> tweetResource = tweetResourceAssembler.toResource(tweetService.retweetTweet(id, retweetUserId));
+
+		return ResponseEntity
+				.created(new URI(tweetResource.getId().expand().getHref()))
+				.body(tweetResource);
+	}
 
 	@ApiOperation(value = "Favorite a Tweet",
 					notes = "This operation can only be done by an authenticated user.")
 	@PostMapping("/{id}/favorite")
-	public ResponseEntity<Resource<Tweet>> favorite(@PathVariable String id) throws URISyntaxException {
-		// Todo: change user id to id from principal object
-		Resource<Tweet> tweetResource = tweetResourceAssembler.toResource(tweetService.favoriteTweet(id, "test"));
+	public ResponseEntity<Resource<Tweet>> favorite(@PathVariable String id, Principal principal) throws URISyntaxException {
+		// Favorites are recorded by user ID
+		String favoriteUserId = JwtUserPrincipal.idOf(principal)
+				.orElseGet(() -> userService.findUserByUsername(principal.getName()).getId());
+
+		Resource<Tweet> tweetResource = tweetResourceAssembler.toResource(tweetService.favoriteTweet(id, favoriteUserId));
 
 		return ResponseEntity
 				.created(new URI(tweetResource.getId().expand().getHref()))
@@ -162,4 +221,8 @@ public class TweetController {
 				.contentType(MediaType.APPLICATION_JSON)
 				.body(responseMessage);
 	}
+
+	private int pageSize(Integer size) {
+		return size == null ? DEFAULT_PAGE_SIZE : size;
+	}
 }
@@ -1,16 +1,29 @@
 package com.mpp.twitterclone.controllers.v1;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpp.twitterclone.config.JwtUserPrincipal;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssembler;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.MergedTimeline;
+import com.mpp.twitterclone.model.Tweet;
 import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.SuggestService;
+import com.mpp.twitterclone.services.TimelineService;
+import com.mpp.twitterclone.services.TweetService;
 import com.mpp.twitterclone.services.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -27,6 +40,7 @@ import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
  * Created by Jonathan on 9/8/2019.
  */
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping(value = UserController.BASE_URL, produces = MediaTypes.HAL_JSON_VALUE,
 				consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -34,13 +48,35 @@ public class UserController {
 
 	public static final String BASE_URL = "/api/v1/users";
 
+	public static final String AUTHOR_FAN_IN_HEADER = "X-Timeline-Author-Fan-In";
+	public static final String DOCUMENTS_EXAMINED_HEADER = "X-Timeline-Documents-Examined";
+
+	public static final int DEFAULT_PAGE_SIZE = 20;
+
 	private final UserService userService;
 
 	private final UserResourceAssembler userResourceAssembler;
 
-	public UserController(UserService userService, UserResourceAssembler userResourceAssembler) {
+	private final TimelineService timelineService;
+
+	private final TweetResourceAssembler tweetResourceAssembler;
+
+	private final TweetService tweetService;
+
+	private final SuggestService suggestService;
+
+	private final ObjectMapper objectMapper;
+
+	public UserController(UserService userService, UserResourceAssembler userResourceAssembler,
+	                      TimelineService timelineService, TweetResourceAssembler tweetResourceAssembler,
+	                      TweetService tweetService, SuggestService suggestService, ObjectMapper objectMapper) {
 		this.userService = userService;
 		this.userResourceAssembler = userResourceAssembler;
+		this.timelineService = timelineService;
+		this.tweetResourceAssembler = tweetResourceAssembler;
+		this.tweetService = tweetService;
+		this.suggestService = suggestService;
+		this.objectMapper = objectMapper;
 	}
 
 	///> Get Mappings
@@ -56,32 +92,120 @@ public class UserController {
 				linkTo(methodOn(UserController.class).getAllUsers()).withSelfRel());
 	}
 
+	@ApiOperation(value = "Export all Users",
+			notes = "This operation can only be done by an ADMIN. Streams every user as newline delimited " +
+					"JSON when requested with Accept: " + NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	@GetMapping(produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+		return NdjsonResponses.of(userService::streamAll, objectMapper);
+	}
+
+	@ApiOperation(value = "Suggest Users or Hashtags for a Prefix",
+			notes = "Users whose username, name or a word of their name starts with the prefix, ignoring case and " +
+					"accents, most followed first. A prefix starting with '#' suggests hashtags instead, most " +
+					"used first.")
+	@GetMapping("/suggest")
+	public Resources<?> suggest(@RequestParam String prefix, @RequestParam(required = false) Integer size) {
+		int suggestionSize = size == null ? SuggestService.DEFAULT_SIZE : size;
+
+		// Built rather than expanded from the method, which would encode the free text prefix twice
+		UriComponentsBuilder self = linkTo(UserController.class).toUriComponentsBuilder().path("/suggest")
+				.queryParam("prefix", prefix);
+		if (size != null) self.queryParam("size", size);
+		Link selfLink = new Link(self.build().encode().toUriString());
+
+		if (prefix.trim().startsWith("#")) {
+			return new Resources<>(suggestService.suggestHashtags(prefix.trim(), suggestionSize), selfLink);
+		}
+
+		List<Resource<User>> users = suggestService.suggestUsers(prefix, suggestionSize).stream()
+				.map(userResourceAssembler::toResource)
+				.collect(Collectors.toList());
+
+		return new Resources<>(users, selfLink);
+	}
+
 	@ApiOperation(value = "Get a User by Username")
 	@GetMapping("/{username}")
 	public Resource<User> getUserByUsername(@PathVariable String username) {
 		return userResourceAssembler.toResource(userService.findUserByUsername(username));
 	}
 
-	@ApiOperation(value = "Get Follower List by User ID")
+	@ApiOperation(value = "Get Follower List by User ID",
+			notes = "Most recent follows first, paginated with the cursors of the next/prev links.")
 	@GetMapping("/{userId}/followers")
-	public Resources<Resource<User>> getAllFollowersById(@PathVariable String userId) {
-		List<Resource<User>> users = userService.findAllFollowers(userId).stream()
-				.map(userResourceAssembler::toResource)
-				.collect(Collectors.toList());
+	public Resources<Resource<User>> getAllFollowersById(@PathVariable String userId,
+	                                                     @RequestParam(required = false) String cursor,
+	                                                     @RequestParam(required = false) Integer size) {
+		CursorPage<User> page = userService.findFollowersPage(userId, cursor, pageSize(size));
 
-		return new Resources<>(users,
-				linkTo(methodOn(UserController.class).getAllFollowersById(userId)).withSelfRel());
+		return userResourceAssembler.toResources(page,
+				linkTo(methodOn(UserController.class).getAllFollowersById(userId, cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(UserController.class).getAllFollowersById(userId, pageCursor, size)));
 	}
 
-	@ApiOperation(value = "Get Following List by User ID")
+	@ApiOperation(value = "Get Following List by User ID",
+			notes = "Most recent follows first, paginated with the cursors of the next/prev links.")
 	@GetMapping("/{userId}/following")
-	public Resources<Resource<User>> getAllFollowingById(@PathVariable String userId) {
-		List<Resource<User>> users = userService.findAllFollowing(userId).stream()
-				.map(userResourceAssembler::toResource)
+	public Resources<Resource<User>> getAllFollowingById(@PathVariable String userId,
+	                                                     @RequestParam(required = false) String cursor,
+	                                                     @RequestParam(required = false) Integer size) {
+		CursorPage<User> page = userService.findFollowingPage(userId, cursor, pageSize(size));
+
+		return userResourceAssembler.toResources(page,
+				linkTo(methodOn(UserController.class).getAllFollowingById(userId, cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(UserController.class).getAllFollowingById(userId, pageCursor, size)));
+	}
+
+	@ApiOperation(value = "Get the Tweets Mentioning a User",
+			notes = "Newest first, paginated with the cursors of the next/prev links.")
+	@GetMapping("/{username}/mentions")
+	public Resources<Resource<Tweet>> getMentions(@PathVariable String username,
+	                                              @RequestParam(required = false) String cursor,
+	                                              @RequestParam(required = false) Integer size) {
+		CursorPage<Tweet> page = tweetService.findMentionsPage(username, cursor, pageSize(size));
+
+		return tweetResourceAssembler.toResources(page,
+				linkTo(methodOn(UserController.class).getMentions(username, cursor, size)).withSelfRel(),
+				pageCursor -> linkTo(methodOn(UserController.class).getMentions(username, pageCursor, size)));
+	}
+
+	@ApiOperation(value = "Get the Home Timeline of a User",
+			notes = "This operation can only be done by the owner.")
+	@GetMapping("/{id}/timeline")
+	public Resources<Resource<Tweet>> getHomeTimeline(@PathVariable String id,
+	                                                  @RequestParam(defaultValue = "0") int page,
+	                                                  @RequestParam(defaultValue = "20") int size,
+	                                                  Principal principal) {
+		List<Resource<Tweet>> tweets = timelineService.findHomeTimeline(id, page, size, principal.getName()).stream()
+				.map(tweetResourceAssembler::toResource)
 				.collect(Collectors.toList());
 
-		return new Resources<>(users,
-				linkTo(methodOn(UserController.class).getAllFollowingById(userId)).withSelfRel());
+		return new Resources<>(tweets,
+				linkTo(methodOn(UserController.class).getHomeTimeline(id, page, size, principal)).withSelfRel());
+	}
+
+	@ApiOperation(value = "Get the Home Timeline of a User Assembled on Read",
+			notes = "This operation can only be done by the owner. Merges the tweets of the followed users " +
+					"newer than sinceId and older than maxId.")
+	@GetMapping("/{id}/timeline/merged")
+	public ResponseEntity<Resources<Resource<Tweet>>> getMergedTimeline(@PathVariable String id,
+	                                                                    @RequestParam(required = false) String sinceId,
+	                                                                    @RequestParam(required = false) String maxId,
+	                                                                    @RequestParam(defaultValue = "20") int count,
+	                                                                    Principal principal) {
+		MergedTimeline timeline = timelineService.findMergedTimeline(id, sinceId, maxId, count, principal.getName());
+
+		List<Resource<Tweet>> tweets = timeline.getTweets().stream()
+				.map(tweetResourceAssembler::toResource)
+				.collect(Collectors.toList());
+
+		return ResponseEntity
+				.ok()
+				.header(AUTHOR_FAN_IN_HEADER, String.valueOf(timeline.getAuthorFanIn()))
+				.header(DOCUMENTS_EXAMINED_HEADER, String.valueOf(timeline.getDocumentsExamined()))
+				.body(new Resources<>(tweets, linkTo(methodOn(UserController.class)
+						.getMergedTimeline(id, sinceId, maxId, count, principal)).withSelfRel()));
 	}
 
 	///> Post Mappings
@@ -100,8 +224,11 @@ public class UserController {
 					notes = "This operation can only be done by an authenticated user.")
 	@PostMapping("/{id}/follow")
 	public ResponseEntity<Resource<User>> followUser(@PathVariable String id, Principal principal) throws URISyntaxException {
-		Resource<User> userResource = userResourceAssembler.toResource(userService.followUser(id,
-																							principal.getName()));
+		// Follows are recorded between user IDs
+		String followerUserId = JwtUserPrincipal.idOf(principal)
+				.orElseGet(() -> userService.findUserByUsername(principal.getName()).getId());
+
+		Resource<User> userResource = userResourceAssembler.toResource(userService.followUser(id, followerUserId));
 
 		return ResponseEntity
 				.created(new URI(userResource.getId().expand().getHref()))
@@ -137,4 +264,8 @@ public class UserController {
 				.contentType(MediaType.APPLICATION_JSON)
 				.body(responseMessage);
 	}
+
+	private int pageSize(Integer size) {
+		return size == null ? DEFAULT_PAGE_SIZE : size;
+	}
 }
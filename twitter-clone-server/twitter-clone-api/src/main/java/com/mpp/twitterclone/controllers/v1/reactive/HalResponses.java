@@ -0,0 +1,91 @@
+package com.mpp.twitterclone.controllers.v1.reactive;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.mpp.twitterclone.model.CursorPage;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.hateoas.Link;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * HAL bodies of the reactive read endpoints, shaped like the ones the resource assemblers build for the
+ * servlet controllers - Spring HATEOAS' link building only works inside a servlet request
+ */
+
+final class HalResponses {
+
+	private HalResponses() {
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	static final class Item<T> {
+		@JsonUnwrapped
+		private final T content;
+
+		@JsonProperty("_links")
+		private final Map<String, Href> links;
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	static final class Page<T> {
+		@JsonProperty("_embedded")
+		@JsonInclude(JsonInclude.Include.NON_EMPTY)
+		private final Map<String, List<Item<T>>> embedded;
+
+		@JsonProperty("_links")
+		private final Map<String, Href> links;
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	static final class Href {
+		private final String href;
+	}
+
+	/**
+	 * Link to a path on the host the request came in on
+	 */
+	static Href href(ServerRequest request, String path) {
+		return new Href(UriComponentsBuilder.fromUri(request.uri()).replacePath(path).replaceQuery(null)
+				.build().toUriString());
+	}
+
+	static <T> Item<T> item(T content, Href self, String collectionRel, Href collection) {
+		Map<String, Href> links = new LinkedHashMap<>();
+		links.put(Link.REL_SELF, self);
+		links.put(collectionRel, collection);
+
+		return new Item<>(content, links);
+	}
+
+	/**
+	 * Embed a page under the given rel, with next/prev links that swap the cursor of the request's URI
+	 */
+	static <T> Page<T> page(ServerRequest request, String rel, CursorPage<T> page, Function<T, Item<T>> toItem) {
+		List<Item<T>> items = page.getContent().stream().map(toItem).collect(Collectors.toList());
+
+		Map<String, Href> links = new LinkedHashMap<>();
+		links.put(Link.REL_SELF, new Href(request.uri().toString()));
+		if (page.getNext() != null) links.put(Link.REL_NEXT, cursorHref(request, page.getNext()));
+		if (page.getPrevious() != null) links.put(Link.REL_PREVIOUS, cursorHref(request, page.getPrevious()));
+
+		return new Page<>(items.isEmpty() ? Collections.emptyMap() : Collections.singletonMap(rel, items), links);
+	}
+
+	private static Href cursorHref(ServerRequest request, String cursor) {
+		return new Href(UriComponentsBuilder.fromUri(request.uri()).replaceQueryParam("cursor", cursor)
+				.build().toUriString());
+	}
+}
@@ -0,0 +1,59 @@
+package com.mpp.twitterclone.controllers.v1.reactive;
+
+import com.mpp.twitterclone.controllers.v1.TweetController;
+import com.mpp.twitterclone.controllers.v1.UserController;
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the read endpoints under the "reactive" profile. The write endpoints, login and the streams are
+ * only served by the servlet controllers.
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+public class ReadRouter {
+
+	@Bean
+	public RouterFunction<ServerResponse> readRoutes(TweetReadHandler tweetReadHandler,
+	                                                 UserReadHandler userReadHandler) {
+		return route(GET(TweetController.BASE_URL), tweetReadHandler::getAllTweets)
+				.andRoute(GET(TweetController.BASE_URL + "/user/{username}"), tweetReadHandler::getAllTweetsByUsername)
+				.andRoute(GET(TweetController.BASE_URL + "/{id}"), tweetReadHandler::getTweetById)
+				.andRoute(GET(TweetController.BASE_URL + "/{id}/replies"), tweetReadHandler::getTweetReplies)
+				.andRoute(GET(UserController.BASE_URL + "/{username}"), userReadHandler::getUserByUsername)
+				.andRoute(GET(UserController.BASE_URL + "/{userId}/followers"), userReadHandler::getAllFollowersById)
+				.andRoute(GET(UserController.BASE_URL + "/{userId}/following"), userReadHandler::getAllFollowingById)
+				.filter((request, next) -> Mono.defer(() -> next.handle(request))
+						.onErrorResume(ResourceNotFoundException.class, ex -> error(HttpStatus.NOT_FOUND, ex))
+						.onErrorResume(UserValidationException.class, ex -> error(HttpStatus.BAD_REQUEST, ex)));
+	}
+
+	/**
+	 * Same body as the {@link com.mpp.twitterclone.controllers.ExceptionHandlerController} responses
+	 */
+	private Mono<ServerResponse> error(HttpStatus status, Exception ex) {
+		Map<Object, Object> response = new HashMap<>();
+		response.put("status", status.value());
+		response.put("error", status.getReasonPhrase());
+		response.put("message", ex.getMessage());
+
+		return ServerResponse.status(status)
+				.contentType(MediaType.APPLICATION_JSON)
+				.syncBody(response);
+	}
+}
@@ -0,0 +1,72 @@
+package com.mpp.twitterclone.controllers.v1.reactive;
+
+import com.mpp.twitterclone.controllers.v1.TweetController;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.ReactiveTweetService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive versions of the read endpoints of {@link TweetController}
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class TweetReadHandler {
+
+	private final ReactiveTweetService reactiveTweetService;
+
+	public TweetReadHandler(ReactiveTweetService reactiveTweetService) {
+		this.reactiveTweetService = reactiveTweetService;
+	}
+
+	public Mono<ServerResponse> getAllTweets(ServerRequest request) {
+		return page(request, reactiveTweetService.findPage(cursor(request), pageSize(request)));
+	}
+
+	public Mono<ServerResponse> getAllTweetsByUsername(ServerRequest request) {
+		return page(request, reactiveTweetService.findPageByUsername(request.pathVariable("username"),
+				cursor(request), pageSize(request)));
+	}
+
+	public Mono<ServerResponse> getTweetById(ServerRequest request) {
+		return reactiveTweetService.findById(request.pathVariable("id"))
+				.flatMap(tweet -> ServerResponse.ok()
+						.contentType(MediaTypes.HAL_JSON)
+						.syncBody(toItem(request, tweet)));
+	}
+
+	public Mono<ServerResponse> getTweetReplies(ServerRequest request) {
+		return page(request, reactiveTweetService.findRepliesPage(request.pathVariable("id"), cursor(request),
+				pageSize(request)));
+	}
+
+	private Mono<ServerResponse> page(ServerRequest request, Mono<CursorPage<Tweet>> page) {
+		return page.flatMap(tweets -> ServerResponse.ok()
+				.contentType(MediaTypes.HAL_JSON)
+				.syncBody(HalResponses.page(request, "tweets", tweets, tweet -> toItem(request, tweet))));
+	}
+
+	private HalResponses.Item<Tweet> toItem(ServerRequest request, Tweet tweet) {
+		return HalResponses.item(tweet, HalResponses.href(request, TweetController.BASE_URL + "/" + tweet.getId()),
+				"tweets", HalResponses.href(request, TweetController.BASE_URL));
+	}
+
+	private String cursor(ServerRequest request) {
+		return request.queryParam("cursor").orElse(null);
+	}
+
+	private int pageSize(ServerRequest request) {
+		try {
+			return request.queryParam("size").map(Integer::valueOf).orElse(TweetController.DEFAULT_PAGE_SIZE);
+		} catch (NumberFormatException ex) {
+			throw new UserValidationException("Invalid Page Size");
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.mpp.twitterclone.controllers.v1.reactive;
+
+import com.mpp.twitterclone.controllers.v1.UserController;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.ReactiveUserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive versions of the read endpoints of {@link UserController}
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class UserReadHandler {
+
+	private final ReactiveUserService reactiveUserService;
+
+	public UserReadHandler(ReactiveUserService reactiveUserService) {
+		this.reactiveUserService = reactiveUserService;
+	}
+
+	public Mono<ServerResponse> getUserByUsername(ServerRequest request) {
+		return reactiveUserService.findUserByUsername(request.pathVariable("username"))
+				.flatMap(user -> ServerResponse.ok()
+						.contentType(MediaTypes.HAL_JSON)
+						.syncBody(toItem(request, user)));
+	}
+
+	public Mono<ServerResponse> getAllFollowersById(ServerRequest request) {
+		return page(request, reactiveUserService.findFollowersPage(request.pathVariable("userId"), cursor(request),
+				pageSize(request)));
+	}
+
+	public Mono<ServerResponse> getAllFollowingById(ServerRequest request) {
+		return page(request, reactiveUserService.findFollowingPage(request.pathVariable("userId"), cursor(request),
+				pageSize(request)));
+	}
+
+	private Mono<ServerResponse> page(ServerRequest request, Mono<CursorPage<User>> page) {
+		return page.flatMap(users -> ServerResponse.ok()
+				.contentType(MediaTypes.HAL_JSON)
+				.syncBody(HalResponses.page(request, "users", users, user -> toItem(request, user))));
+	}
+
+	private HalResponses.Item<User> toItem(ServerRequest request, User user) {
+		return HalResponses.item(user, HalResponses.href(request, UserController.BASE_URL + "/" + user.getUsername()),
+				"users", HalResponses.href(request, UserController.BASE_URL));
+	}
+
+	private String cursor(ServerRequest request) {
+		return request.queryParam("cursor").orElse(null);
+	}
+
+	private int pageSize(ServerRequest request) {
+		try {
+			return request.queryParam("size").map(Integer::valueOf).orElse(UserController.DEFAULT_PAGE_SIZE);
+		} catch (NumberFormatException ex) {
+			throw new UserValidationException("Invalid Page Size");
+		}
+	}
+}
@@ -1,12 +1,24 @@
 package com.mpp.twitterclone.controllers.v1.resourceassemblers;
 
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Tweet;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+
+import java.util.function.Function;
 
 /**
  * Created by Jonathan on 9/8/2019.
  */
 
 public interface TweetResourceAssembler extends ResourceAssembler<Tweet, Resource<Tweet>> {
+
+	/**
+	 * Assemble a keyset page with next/prev links built from the cursors of the neighbouring pages
+	 */
+	Resources<Resource<Tweet>> toResources(CursorPage<Tweet> page, Link selfLink,
+	                                       Function<String, ControllerLinkBuilder> cursorLink);
 }
@@ -1,10 +1,19 @@
 package com.mpp.twitterclone.controllers.v1.resourceassemblers;
 
 import com.mpp.twitterclone.controllers.v1.TweetController;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Tweet;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 
@@ -18,6 +27,24 @@ public class TweetResourceAssemblerImpl implements TweetResourceAssembler {
 	public Resource<Tweet> toResource(Tweet tweet) {
 		return new Resource<Tweet>(tweet,
 				linkTo(methodOn(TweetController.class).getTweetById(tweet.getId())).withSelfRel(),
-				linkTo(methodOn(TweetController.class).getAllTweets()).withRel("tweets"));
+				linkTo(TweetController.class).withRel("tweets"));
+	}
+
+	@Override
+	public Resources<Resource<Tweet>> toResources(CursorPage<Tweet> page, Link selfLink,
+	                                              Function<String, ControllerLinkBuilder> cursorLink) {
+		List<Resource<Tweet>> tweets = page.getContent().stream()
+				.map(this::toResource)
+				.collect(Collectors.toList());
+
+		// Expanding drops the template variables of the unset optional request params
+		List<Link> links = new ArrayList<>();
+		links.add(selfLink.expand());
+
+		if (page.getNext() != null) links.add(cursorLink.apply(page.getNext()).withRel(Link.REL_NEXT).expand());
+		if (page.getPrevious() != null)
+			links.add(cursorLink.apply(page.getPrevious()).withRel(Link.REL_PREVIOUS).expand());
+
+		return new Resources<>(tweets, links);
 	}
 }
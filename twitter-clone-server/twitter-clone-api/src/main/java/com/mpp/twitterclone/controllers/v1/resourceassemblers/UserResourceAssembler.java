@@ -1,12 +1,24 @@
 package com.mpp.twitterclone.controllers.v1.resourceassemblers;
 
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.User;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+
+import java.util.function.Function;
 
 /**
  * Created by Jonathan on 9/8/2019.
  */
 
 public interface UserResourceAssembler extends ResourceAssembler<User, Resource<User>> {
+
+	/**
+	 * Assemble a keyset page with next/prev links built from the cursors of the neighbouring pages
+	 */
+	Resources<Resource<User>> toResources(CursorPage<User> page, Link selfLink,
+	                                      Function<String, ControllerLinkBuilder> cursorLink);
 }
@@ -1,10 +1,19 @@
 package com.mpp.twitterclone.controllers.v1.resourceassemblers;
 
 import com.mpp.twitterclone.controllers.v1.UserController;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.User;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 
@@ -20,4 +29,22 @@ public class UserResourceAssemblerImpl implements UserResourceAssembler {
 				linkTo(methodOn(UserController.class).getUserByUsername(user.getUsername())).withSelfRel(),
 				linkTo(methodOn(UserController.class).getAllUsers()).withRel("users"));
 	}
+
+	@Override
+	public Resources<Resource<User>> toResources(CursorPage<User> page, Link selfLink,
+	                                             Function<String, ControllerLinkBuilder> cursorLink) {
+		List<Resource<User>> users = page.getContent().stream()
+				.map(this::toResource)
+				.collect(Collectors.toList());
+
+		// Expanding drops the template variables of the unset optional request params
+		List<Link> links = new ArrayList<>();
+		links.add(selfLink.expand());
+
+		if (page.getNext() != null) links.add(cursorLink.apply(page.getNext()).withRel(Link.REL_NEXT).expand());
+		if (page.getPrevious() != null)
+			links.add(cursorLink.apply(page.getPrevious()).withRel(Link.REL_PREVIOUS).expand());
+
+		return new Resources<>(users, links);
+	}
 }
@@ -0,0 +1,25 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Conversation;
+
+/**
+ * Used to read a tweet with its thread in one call - the tweets it replies to and the replies under it, down to
+ * a number of levels and up to a number of replies per tweet.
+ *
+ * Threads are assembled once and kept for a while, so changes to a tweet in a thread have to be passed to
+ * {@link #invalidate(String)}.
+ */
+
+public interface ConversationService {
+
+	int DEFAULT_DEPTH = 3;
+
+	int DEFAULT_WIDTH = 10;
+
+	Conversation findConversation(String tweetId, int depth, int width);
+
+	/**
+	 * Drop the kept threads the tweet is in, e.g. after it got a reply or was changed
+	 */
+	void invalidate(String tweetId);
+}
@@ -0,0 +1,37 @@
+package com.mpp.twitterclone.services;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+
+/**
+ * Used to push engagement counter changes to the clients showing the counted tweets and users.
+ *
+ * Clients subscribe to topics - {@link #tweetTopic(String)} or {@link #userTopic(String)} - and receive the
+ * summed deltas of their topics in batches instead of one message per change.
+ */
+
+public interface CounterBroadcastService {
+
+	String TWEET_TOPIC_PREFIX = "tweet:";
+	String USER_TOPIC_PREFIX = "user:";
+
+	String FAVORITE_COUNT = "favoriteCount";
+	String RETWEET_COUNT = "retweetCount";
+	String REPLY_COUNT = "replyCount";
+	String FOLLOWERS_COUNT = "followersCount";
+
+	static String tweetTopic(String tweetId) {
+		return TWEET_TOPIC_PREFIX + tweetId;
+	}
+
+	static String userTopic(String userId) {
+		return USER_TOPIC_PREFIX + userId;
+	}
+
+	void register(WebSocketSession session);
+	void subscribe(String sessionId, Collection<String> topics);
+	void unsubscribe(String sessionId, Collection<String> topics);
+	void unregister(String sessionId);
+	void recordDelta(String topic, String counter, int delta);
+}
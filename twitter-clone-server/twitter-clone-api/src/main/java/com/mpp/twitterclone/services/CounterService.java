@@ -0,0 +1,27 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Used to change engagement counters in place - one atomic round trip instead of reading the document and
+ * writing it back, so concurrent changes can't overwrite each other.
+ *
+ * The counters are the property names of the counted documents, e.g. {@link CounterBroadcastService#FAVORITE_COUNT}.
+ * Empty when the document doesn't exist.
+ */
+
+public interface CounterService {
+	Optional<Tweet> incrementTweetCounter(String tweetId, String counter, int delta);
+	Optional<User> incrementUserCounter(String userId, String counter, int delta);
+
+	/**
+	 * Apply the deltas, per tweet ID and counter, in one bulk write - the IDs of the tweets whose update failed
+	 * while the others were applied, empty if all were
+	 */
+	Set<String> incrementTweetCounters(Map<String, Map<String, Long>> deltas);
+}
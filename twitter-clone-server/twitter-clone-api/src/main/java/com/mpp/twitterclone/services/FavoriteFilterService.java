@@ -0,0 +1,16 @@
+package com.mpp.twitterclone.services;
+
+/**
+ * Used to skip the favorites lookup when a user has definitely not favorited a tweet.
+ *
+ * {@link #mightHaveFavorited(String, String)} never answers false for a favorite that exists, but may answer
+ * true for one that doesn't - callers report those with {@link #recordFalsePositive()}.
+ */
+
+public interface FavoriteFilterService {
+	boolean mightHaveFavorited(String userId, String tweetId);
+	void recordFalsePositive();
+	void addFavorite(String userId, String tweetId);
+	void removeFavorite(String userId, String tweetId);
+	void rebuild();
+}
@@ -0,0 +1,27 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.enums.LeaderboardWindow;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+
+import java.util.List;
+
+/**
+ * Used to find the most favorited and retweeted tweets and the most followed users, of all time or of the day.
+ *
+ * The tweet and user services record every counter change, with the new total and the change itself, so the
+ * boards follow them without sorting the collections.
+ */
+
+public interface LeaderboardService {
+
+	int DEFAULT_SIZE = 10;
+
+	List<Tweet> findMostFavoritedTweets(LeaderboardWindow window, int size);
+	List<Tweet> findMostRetweetedTweets(LeaderboardWindow window, int size);
+	List<User> findMostFollowedUsers(LeaderboardWindow window, int size);
+
+	void recordFavorites(String tweetId, int favoriteCount, int delta);
+	void recordRetweets(String tweetId, int retweetCount, int delta);
+	void recordFollowers(String userId, int followersCount, int delta);
+}
@@ -0,0 +1,17 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+
+import java.util.List;
+
+/**
+ * Used to find the users a tweet mentions - the @usernames of its text and text contents that belong to users
+ */
+
+public interface MentionService {
+
+	/**
+	 * Usernames mentioned, in the order they first appear
+	 */
+	List<String> findMentions(Tweet tweet);
+}
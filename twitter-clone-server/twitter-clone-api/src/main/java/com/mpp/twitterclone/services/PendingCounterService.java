@@ -0,0 +1,17 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+
+/**
+ * Used to count tweet engagement - favorites, retweets and replies - without writing every change to the tweet.
+ *
+ * Changes are summed in process and written in bulk every little while, so a tweet taking thousands of them a
+ * second costs a few writes instead of thousands all waiting on the same document. Until written, they're only
+ * seen on tweets passed through {@link #overlay(Tweet)}.
+ */
+
+public interface PendingCounterService {
+	void add(String tweetId, String counter, int delta);
+	Tweet overlay(Tweet tweet);
+	void flush();
+}
@@ -0,0 +1,17 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.Tweet;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of tweets, used by the read endpoints under the "reactive" profile.
+ * Errors are signalled the same way as in {@link TweetService} - as error signals instead of thrown exceptions.
+ */
+
+public interface ReactiveTweetService {
+	Mono<Tweet> findById(String id);
+	Mono<CursorPage<Tweet>> findPage(String cursor, int size);
+	Mono<CursorPage<Tweet>> findPageByUsername(String username, String cursor, int size);
+	Mono<CursorPage<Tweet>> findRepliesPage(String tweetId, String cursor, int size);
+}
@@ -0,0 +1,16 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.User;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of users, used by the read endpoints under the "reactive" profile.
+ * Errors are signalled the same way as in {@link UserService} - as error signals instead of thrown exceptions.
+ */
+
+public interface ReactiveUserService {
+	Mono<User> findUserByUsername(String username);
+	Mono<CursorPage<User>> findFollowersPage(String followedUserId, String cursor, int size);
+	Mono<CursorPage<User>> findFollowingPage(String followerUserId, String cursor, int size);
+}
@@ -0,0 +1,21 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+
+import java.util.List;
+
+/**
+ * Used to search tweets by their text - the best matches of any of the words of a query, recent tweets first
+ * among equally good matches.
+ *
+ * The index is kept current by the tweet service, so tweets written through it can be found right away.
+ */
+
+public interface SearchService {
+
+	int DEFAULT_SIZE = 20;
+
+	List<Tweet> search(String query, int size);
+	void index(Tweet tweet);
+	void remove(String tweetId);
+}
@@ -0,0 +1,16 @@
+package com.mpp.twitterclone.services;
+
+import java.util.List;
+
+/**
+ * Used to answer follow checks and walk follower/following lists without querying the follows collection
+ */
+
+public interface SocialGraphService {
+	boolean follows(String followerUserId, String followedUserId);
+	List<String> findFollowerIds(String followedUserId);
+	List<String> findFollowingIds(String followerUserId);
+	void addFollow(String followerUserId, String followedUserId);
+	void removeFollow(String followerUserId, String followedUserId);
+	long getEdgeCount();
+}
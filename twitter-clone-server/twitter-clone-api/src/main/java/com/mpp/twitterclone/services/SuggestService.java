@@ -0,0 +1,25 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.HashtagSuggestion;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+
+import java.util.List;
+
+/**
+ * Used for typeahead - the users whose username, name or a word of their name starts with a prefix, most
+ * followed first, ignoring case and accents, and the hashtags starting with a prefix, most used first.
+ *
+ * The index is kept current by the user and tweet services, so changes made through them show up right away.
+ */
+
+public interface SuggestService {
+
+	int DEFAULT_SIZE = 10;
+
+	List<User> suggestUsers(String prefix, int size);
+	List<HashtagSuggestion> suggestHashtags(String prefix, int size);
+	void index(User user);
+	void remove(String userId);
+	void recordHashtags(Tweet tweet);
+}
@@ -0,0 +1,21 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.MergedTimeline;
+import com.mpp.twitterclone.model.Tweet;
+
+import java.util.List;
+
+/**
+ * Used to maintain the materialized (fan-out-on-write) home timelines of users
+ */
+
+public interface TimelineService {
+	List<Tweet> findHomeTimeline(String userId, int page, int size, String currentUsername);
+	MergedTimeline findMergedTimeline(String userId, String sinceId, String maxId, int count, String currentUsername);
+	void fanOut(Tweet tweet);
+	void fanOutRetweet(Tweet tweet, String retweetUserId);
+	void removeRetweet(String tweetId, String retweetUserId);
+	void backfill(String followerUserId, String followedUsername);
+	void removeAuthor(String followerUserId, String followedUsername);
+	void removeTweet(String tweetId);
+}
@@ -0,0 +1,16 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+
+/**
+ * Used to push new tweets to the open live timeline streams of users
+ */
+
+public interface TimelineStreamService {
+	SseEmitter subscribe(String userId);
+	void publish(Tweet tweet, Collection<String> userIds);
+	int getSubscriptionCount();
+}
@@ -0,0 +1,21 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Trend;
+import com.mpp.twitterclone.model.Tweet;
+
+import java.util.List;
+
+/**
+ * Used to find the hashtags used much more than usual right now.
+ *
+ * The tweet service records the hashtags of every new tweet; trends are read from a snapshot refreshed every few
+ * seconds, so a new tweet shows up in them with that delay.
+ */
+
+public interface TrendService {
+
+	int DEFAULT_SIZE = 10;
+
+	List<Trend> findTrends(int size);
+	void record(Tweet tweet);
+}
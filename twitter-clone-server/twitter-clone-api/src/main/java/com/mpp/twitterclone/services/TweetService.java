@@ -1,17 +1,28 @@
 package com.mpp.twitterclone.services;
 
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Tweet;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Created by Jonathan on 9/8/2019.
  */
 
 public interface TweetService extends CrudService<Tweet, String> {
+	CursorPage<Tweet> findPage(String cursor, int size);
+	CursorPage<Tweet> findPageByUsername(String username, String cursor, int size);
+	CursorPage<Tweet> findRepliesPage(String tweetId, String cursor, int size);
+	CursorPage<Tweet> findMentionsPage(String username, String cursor, int size);
 	List<Tweet> findAllReplies(String tweetId);
 	List<Tweet> findAllTweetsByUsername(String username);
 	Tweet replyToTweet(Tweet newTweet, String parentTweetId);
-	//	Tweet retweetTweet(String tweetId, String retweetUserId);
+	Tweet retweetTweet(String tweetId, String retweetUserId);
 	Tweet favoriteTweet(String tweetId, String favoriteUserId);
+
+	/**
+	 * Every tweet, read lazily from a database cursor - close the stream to release the cursor
+	 */
+	Stream<Tweet> streamAll();
 }
@@ -1,8 +1,10 @@
 package com.mpp.twitterclone.services;
 
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.User;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Created by Jonathan on 9/8/2019.
@@ -13,4 +15,11 @@ public interface UserService extends CrudService<User, String> {
 	User followUser(String followedUserId, String followerUserId);
 	List<User> findAllFollowers(String followedUserId);
 	List<User> findAllFollowing(String followerUserId);
+	CursorPage<User> findFollowersPage(String followedUserId, String cursor, int size);
+	CursorPage<User> findFollowingPage(String followerUserId, String cursor, int size);
+
+	/**
+	 * Every user, read lazily from a database cursor - close the stream to release the cursor
+	 */
+	Stream<User> streamAll();
 }
@@ -0,0 +1,86 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Count-min sketch over strings - estimates how often a key was added in fixed memory, whatever the number of
+ * distinct keys. An estimate is never below the true count, and is above it by at most 2N/width with probability
+ * 1 - 2^-depth, N being the total added.
+ *
+ * Adds are conservative: only the counters at the current minimum are raised, which keeps keys that share cells
+ * with heavy ones closer to their true counts. Not thread-safe.
+ */
+
+final class CountMinSketch {
+
+	private final int width;
+
+	private final int[][] counters;
+
+	CountMinSketch(int depth, int width) {
+		this.width = width;
+		this.counters = new int[depth][width];
+	}
+
+	void add(String key, int count) {
+		int[] cells = cells(key);
+		int estimate = estimate(cells);
+
+		for (int row = 0; row < counters.length; row++) {
+			if (counters[row][cells[row]] < estimate + count) counters[row][cells[row]] = estimate + count;
+		}
+	}
+
+	int estimate(String key) {
+		return estimate(cells(key));
+	}
+
+	void clear() {
+		for (int[] row : counters) Arrays.fill(row, 0);
+	}
+
+	private int estimate(int[] cells) {
+		int estimate = Integer.MAX_VALUE;
+
+		for (int row = 0; row < counters.length; row++) estimate = Math.min(estimate, counters[row][cells[row]]);
+
+		return estimate;
+	}
+
+	/**
+	 * A cell per row, picked by double hashing of one 64-bit hash
+	 */
+	private int[] cells(String key) {
+		long hash = hash(key);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+		int[] cells = new int[counters.length];
+
+		for (int row = 0; row < counters.length; row++) {
+			cells[row] = (int) (((first + (long) row * second) & Long.MAX_VALUE) % width);
+		}
+
+		return cells;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer to spread the bits
+	 */
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb93a185a3d53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+}
@@ -0,0 +1,190 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Coalesces counter deltas per topic and counter, and flushes them every {@link #FLUSH_INTERVAL} ms with one
+ * message per session holding everything that changed on its topics. A tweet favorited a thousand times
+ * within a window costs each watching client a single message.
+ *
+ * Deltas are only kept for topics somebody is subscribed to on this node. The messages are written out on
+ * {@link #SEND_THREADS} send threads, never on the flush thread - a client that stops reading blocks a send thread
+ * at most, and only until it is dropped for exceeding the send limits.
+ */
+
+@Slf4j
+@Service
+public class CounterBroadcastInMemoryService implements CounterBroadcastService {
+
+	public static final long FLUSH_INTERVAL = 250;
+	public static final int MAX_TOPICS_PER_SESSION = 500;
+	public static final int SEND_TIME_LIMIT = 5 * 1000;
+	public static final int SEND_BUFFER_SIZE_LIMIT = 64 * 1024;
+	public static final int SEND_THREADS = 4;
+
+	private final ObjectMapper objectMapper;
+
+	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> topicsBySession = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> sessionsByTopic = new ConcurrentHashMap<>();
+
+	private final Map<PendingCounter, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+	private final ExecutorService sendExecutor = Executors.newFixedThreadPool(SEND_THREADS);
+
+	public CounterBroadcastInMemoryService(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void register(WebSocketSession session) {
+		// Sends are serialized per session - only one send thread writes to it at a time, the others queue their
+		// message and move on - and a client that stops reading is dropped once it has too much unsent data
+		sessions.put(session.getId(),
+				new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT, SEND_BUFFER_SIZE_LIMIT));
+		topicsBySession.put(session.getId(), ConcurrentHashMap.newKeySet());
+	}
+
+	@Override
+	public void subscribe(String sessionId, Collection<String> topics) {
+		Set<String> sessionTopics = topicsBySession.get(sessionId);
+
+		if (sessionTopics == null) return;
+
+		for (String topic : topics) {
+			if (sessionTopics.size() >= MAX_TOPICS_PER_SESSION) break;
+
+			if (sessionTopics.add(topic)) {
+				sessionsByTopic.compute(topic, (key, topicSessions) -> {
+					Set<String> updated = topicSessions != null ? topicSessions : ConcurrentHashMap.newKeySet();
+					updated.add(sessionId);
+
+					return updated;
+				});
+			}
+		}
+	}
+
+	@Override
+	public void unsubscribe(String sessionId, Collection<String> topics) {
+		Set<String> sessionTopics = topicsBySession.get(sessionId);
+
+		if (sessionTopics == null) return;
+
+		topics.stream().filter(sessionTopics::remove).forEach(topic -> removeFromTopic(topic, sessionId));
+	}
+
+	@Override
+	public void unregister(String sessionId) {
+		sessions.remove(sessionId);
+
+		Set<String> sessionTopics = topicsBySession.remove(sessionId);
+
+		if (sessionTopics != null) sessionTopics.forEach(topic -> removeFromTopic(topic, sessionId));
+	}
+
+	@Override
+	public void recordDelta(String topic, String counter, int delta) {
+		if (delta == 0 || !sessionsByTopic.containsKey(topic)) return;
+
+		pendingDeltas.merge(new PendingCounter(topic, counter), delta, Integer::sum);
+	}
+
+	@Scheduled(fixedRate = FLUSH_INTERVAL)
+	public void flush() {
+		if (pendingDeltas.isEmpty()) return;
+
+		// Take each pending delta out atomically - deltas recorded meanwhile go to the next window
+		Map<String, Map<String, Integer>> window = new HashMap<>();
+
+		for (PendingCounter pendingCounter : pendingDeltas.keySet()) {
+			Integer delta = pendingDeltas.remove(pendingCounter);
+
+			if (delta != null && delta != 0) {
+				window.computeIfAbsent(pendingCounter.getTopic(), topic -> new TreeMap<>())
+						.put(pendingCounter.getCounter(), delta);
+			}
+		}
+
+		// Group the window per session, so each session gets one message
+		Map<String, Map<String, Map<String, Integer>>> deltasBySession = new HashMap<>();
+
+		window.forEach((topic, counters) -> sessionsByTopic.getOrDefault(topic, Set.of()).forEach(sessionId ->
+				deltasBySession.computeIfAbsent(sessionId, id -> new TreeMap<>()).put(topic, counters)));
+
+		deltasBySession.forEach((sessionId, deltas) -> sendExecutor.execute(() -> send(sessionId, deltas)));
+	}
+
+	int getPendingCount() {
+		return pendingDeltas.size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		sendExecutor.shutdownNow();
+	}
+
+	private void send(String sessionId, Map<String, Map<String, Integer>> deltas) {
+		WebSocketSession session = sessions.get(sessionId);
+
+		if (session == null || !session.isOpen()) return;
+
+		try {
+			session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of("deltas", deltas))));
+		} catch (JsonProcessingException ex) {
+			log.error("Could Not Serialize Counter Deltas", ex);
+		} catch (IOException | IllegalStateException | SessionLimitExceededException ex) {
+			// Also thrown when a slow session exceeded its send limits - drop it, the client reconnects
+			log.debug("Closing Counter Session {}", sessionId);
+			unregister(sessionId);
+			closeQuietly(session);
+		}
+	}
+
+	private void removeFromTopic(String topic, String sessionId) {
+		sessionsByTopic.computeIfPresent(topic, (key, topicSessions) -> {
+			topicSessions.remove(sessionId);
+
+			return topicSessions.isEmpty() ? null : topicSessions;
+		});
+	}
+
+	private void closeQuietly(WebSocketSession session) {
+		try {
+			session.close(CloseStatus.SESSION_NOT_RELIABLE);
+		} catch (IOException ex) {
+			log.debug("Could Not Close Counter Session", ex);
+		}
+	}
+
+	@Value
+	private static class PendingCounter {
+		String topic;
+		String counter;
+	}
+}
@@ -0,0 +1,151 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over strings - answers "definitely absent" or "maybe present", and unlike a plain Bloom
+ * filter supports removal.
+ *
+ * Each cell is a 4-bit counter, 16 to a long, updated with compare-and-set so no lock is taken. A counter that
+ * reaches 15 sticks there: it can no longer tell how many keys share it, so it's never decremented again. Removing
+ * a key that was never added can clear counters of keys that were, so callers only remove what they added.
+ *
+ * Keys are hashed once to 64 bits and the cells are picked by double hashing (Kirsch and Mitzenmacher).
+ */
+
+final class CountingBloomFilter {
+
+	private static final int COUNTER_BITS = 4;
+
+	private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+
+	private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+	private final AtomicLongArray words;
+
+	private final long cellCount;
+
+	private final int hashCount;
+
+	private final long capacity;
+
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * Filter sized for the given number of keys at the given false-positive rate
+	 */
+	CountingBloomFilter(long capacity, double falsePositiveRate) {
+		long cells = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (cells + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+
+		this.words = new AtomicLongArray(Math.max(1, words));
+		this.cellCount = (long) this.words.length() * COUNTERS_PER_WORD;
+		this.hashCount = Math.max(1, (int) Math.round((double) cellCount / capacity * Math.log(2)));
+		this.capacity = capacity;
+	}
+
+	boolean mightContain(String key) {
+		long hash = hash(key);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+
+		for (int i = 0; i < hashCount; i++) {
+			if (counter(cell(first, second, i)) == 0) return false;
+		}
+
+		return true;
+	}
+
+	void add(String key) {
+		long hash = hash(key);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+
+		for (int i = 0; i < hashCount; i++) update(cell(first, second, i), 1);
+
+		size.incrementAndGet();
+	}
+
+	void remove(String key) {
+		long hash = hash(key);
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+
+		for (int i = 0; i < hashCount; i++) update(cell(first, second, i), -1);
+
+		size.decrementAndGet();
+	}
+
+	/**
+	 * Keys added and not removed
+	 */
+	long size() {
+		return size.get();
+	}
+
+	long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * False-positive rate for the keys now held - the chance that every cell of an absent key is taken
+	 */
+	double expectedFalsePositiveRate() {
+		return Math.pow(1 - Math.exp(-(double) hashCount * Math.max(0, size()) / cellCount), hashCount);
+	}
+
+	private long cell(int first, int second, int i) {
+		long combined = first + (long) i * second;
+
+		return (combined & Long.MAX_VALUE) % cellCount;
+	}
+
+	private int counter(long cell) {
+		long word = words.get((int) (cell / COUNTERS_PER_WORD));
+
+		return (int) ((word >>> shift(cell)) & COUNTER_MASK);
+	}
+
+	private void update(long cell, int delta) {
+		int index = (int) (cell / COUNTERS_PER_WORD);
+		int shift = shift(cell);
+
+		while (true) {
+			long word = words.get(index);
+			long counter = (word >>> shift) & COUNTER_MASK;
+
+			// Saturated counters stay put, and an empty one has nothing to take away
+			if (counter == COUNTER_MASK || (delta < 0 && counter == 0)) return;
+
+			long updated = (word & ~(COUNTER_MASK << shift)) | ((counter + delta) << shift);
+
+			if (words.compareAndSet(index, word, updated)) return;
+		}
+	}
+
+	private static int shift(long cell) {
+		return (int) (cell % COUNTERS_PER_WORD) * COUNTER_BITS;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer to spread the bits
+	 */
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb93a185a3d53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+}
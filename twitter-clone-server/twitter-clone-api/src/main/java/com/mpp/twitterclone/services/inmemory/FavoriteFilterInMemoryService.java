@@ -0,0 +1,195 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Favorite;
+import com.mpp.twitterclone.services.FavoriteFilterService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Favorites filter held in process - a {@link CountingBloomFilter} over (user, tweet) pairs.
+ *
+ * Built from the favorites collection at startup and rebuilt periodically, sized for twice the favorites at
+ * the time so it keeps its false-positive rate as the collection grows. Between rebuilds it's kept current by
+ * the favorites made through this node; favorites made by other nodes are missed until the next rebuild.
+ *
+ * While a rebuild streams the collection, new favorites go into both filters, so the new one can't miss them.
+ *
+ * A removal only takes back a count the filter is known to hold - one added through this node since it was
+ * built. Decrementing a pair the filter never counted (favorited elsewhere, or deleted before the rebuild scan
+ * reached it) would take a count from other pairs and could rule out a favorite that exists, while a stray count
+ * only costs a false positive until the next rebuild. So only up to {@link #MAX_TRACKED_ADDS} pairs are tracked
+ * per build - favorites added past that are still counted, but their removals leave stray counts.
+ */
+
+@Slf4j
+@Service
+public class FavoriteFilterInMemoryService implements FavoriteFilterService {
+
+	public static final double FALSE_POSITIVE_RATE = 0.01;
+
+	public static final long MIN_CAPACITY = 1 << 16;
+
+	public static final int CAPACITY_HEADROOM = 2;
+
+	public static final long REBUILD_INTERVAL = 60 * 60 * 1000L;
+
+	public static final int LOAD_BATCH_SIZE = 5000;
+
+	public static final int MAX_TRACKED_ADDS = 1 << 16;
+
+	private final MongoOperations mongoOperations;
+
+	private volatile Generation current = new Generation(MIN_CAPACITY);
+
+	// The filter being rebuilt, if any
+	private volatile Generation next;
+
+	// Answers for pairs that turned out not to be favorited, since the last rebuild
+	private final AtomicLong negatives = new AtomicLong();
+
+	private final AtomicLong falsePositives = new AtomicLong();
+
+	private final AtomicLong skippedLookups = new AtomicLong();
+
+	public FavoriteFilterInMemoryService(MongoOperations mongoOperations, MeterRegistry meterRegistry) {
+		this.mongoOperations = mongoOperations;
+
+		Gauge.builder("favorites.filter.false.positive.rate", this, FavoriteFilterInMemoryService::getFalsePositiveRate)
+				.description("Share of checks for pairs not favorited that the filter couldn't rule out")
+				.register(meterRegistry);
+		Gauge.builder("favorites.filter.expected.false.positive.rate", this,
+				s -> s.current.filter.expectedFalsePositiveRate())
+				.description("False-positive rate expected from the favorites the filter holds")
+				.register(meterRegistry);
+		Gauge.builder("favorites.filter.size", this, s -> s.current.filter.size())
+				.description("Favorites held by the filter")
+				.register(meterRegistry);
+		FunctionCounter.builder("favorites.filter.skipped.lookups", skippedLookups, AtomicLong::get)
+				.description("Favorites lookups answered by the filter alone")
+				.register(meterRegistry);
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		rebuild();
+	}
+
+	@Override
+	public boolean mightHaveFavorited(String userId, String tweetId) {
+		if (current.filter.mightContain(key(userId, tweetId))) return true;
+
+		negatives.incrementAndGet();
+		skippedLookups.incrementAndGet();
+
+		return false;
+	}
+
+	@Override
+	public void recordFalsePositive() {
+		negatives.incrementAndGet();
+		falsePositives.incrementAndGet();
+	}
+
+	@Override
+	public void addFavorite(String userId, String tweetId) {
+		String key = key(userId, tweetId);
+
+		// Read before the current filter - a rebuild swaps the new one in before clearing this, so an add that
+		// finds no rebuild either ran before its scan started, which then sees the favorite, or finds it swapped in
+		Generation rebuilding = next;
+		Generation active = current;
+
+		active.add(key);
+		if (rebuilding != null && rebuilding != active) rebuilding.add(key);
+	}
+
+	@Override
+	public void removeFavorite(String userId, String tweetId) {
+		current.remove(key(userId, tweetId));
+	}
+
+	@Override
+	@Scheduled(fixedDelay = REBUILD_INTERVAL, initialDelay = REBUILD_INTERVAL)
+	public synchronized void rebuild() {
+		long start = System.currentTimeMillis();
+
+		long capacity = Math.max(MIN_CAPACITY, mongoOperations.count(new Query(), Favorite.class) * CAPACITY_HEADROOM);
+		Generation rebuilt = new Generation(capacity);
+
+		// Published before the scan starts, so a favorite is either seen by the scan or added directly
+		next = rebuilt;
+
+		Query favorites = new Query().cursorBatchSize(LOAD_BATCH_SIZE);
+		favorites.fields().include("userId").include("tweetId").exclude("id");
+
+		try (CloseableIterator<Favorite> iterator = mongoOperations.stream(favorites, Favorite.class)) {
+			iterator.forEachRemaining(favorite -> rebuilt.filter.add(key(favorite.getUserId(), favorite.getTweetId())));
+		} catch (RuntimeException e) {
+			next = null;
+			throw e;
+		}
+
+		// Swapped in before the direct adds stop, so none fall between the two
+		current = rebuilt;
+		next = null;
+
+		negatives.set(0);
+		falsePositives.set(0);
+
+		log.info("Built Favorites Filter of {} Favorites for {} in {} ms", rebuilt.filter.size(), capacity,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Share of the checks for pairs that weren't favorited which the filter answered with "maybe"
+	 */
+	public double getFalsePositiveRate() {
+		long checked = negatives.get();
+
+		return checked == 0 ? 0 : (double) falsePositives.get() / checked;
+	}
+
+	private static String key(String userId, String tweetId) {
+		return userId + ':' + tweetId;
+	}
+
+	/**
+	 * One build of the filter, and up to {@link #MAX_TRACKED_ADDS} of the pairs added to it through this node since
+	 */
+	private static final class Generation {
+
+		final CountingBloomFilter filter;
+
+		final Set<String> added = ConcurrentHashMap.newKeySet();
+
+		Generation(long capacity) {
+			this.filter = new CountingBloomFilter(capacity, FALSE_POSITIVE_RATE);
+		}
+
+		void add(String key) {
+			// Past the limit a pair is counted untracked - and again if it's added again, which is only a stray count
+			if (added.size() >= MAX_TRACKED_ADDS) {
+				if (!added.contains(key)) filter.add(key);
+			} else if (added.add(key)) {
+				filter.add(key);
+			}
+		}
+
+		void remove(String key) {
+			if (added.remove(key)) filter.remove(key);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Misra-Gries summary - keeps at most capacity keys, and any key making up more than 1/(capacity + 1) of what was
+ * added is sure to be among them. The counts it keeps are lower bounds, so it only picks the candidates and a
+ * {@link CountMinSketch} counts them.
+ *
+ * A new key that finds the summary full takes one off every kept count instead of being kept, dropping the keys
+ * that reach zero - each add pays for at most one such decrement, so adds are amortized constant time.
+ * Not thread-safe.
+ */
+
+final class HeavyHitters {
+
+	private final int capacity;
+
+	private final Map<String, Integer> counts;
+
+	HeavyHitters(int capacity) {
+		this.capacity = capacity;
+		this.counts = new HashMap<>(capacity * 4 / 3 + 1);
+	}
+
+	void add(String key) {
+		Integer count = counts.get(key);
+
+		if (count != null) {
+			counts.put(key, count + 1);
+		} else if (counts.size() < capacity) {
+			counts.put(key, 1);
+		} else {
+			counts.replaceAll((k, c) -> c - 1);
+			counts.values().removeIf(c -> c == 0);
+		}
+	}
+
+	Set<String> keys() {
+		return counts.keySet();
+	}
+
+	void clear() {
+		counts.clear();
+	}
+}
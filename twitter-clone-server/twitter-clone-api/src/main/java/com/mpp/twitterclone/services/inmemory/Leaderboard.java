@@ -0,0 +1,110 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The capacity highest scored IDs, in a min-heap so the lowest is the one a better newcomer replaces.
+ *
+ * Only members' scores are known, so a member whose score drops stays in even if an outsider has overtaken it, and
+ * an outsider offered a partial score may be turned away - {@link #replaceAll(Map)} puts the board back in line
+ * with exact scores. Thread-safe.
+ */
+
+final class Leaderboard {
+
+	// Lowest first, the higher ID first among equal scores so it's the one to go
+	private static final Comparator<Ranked> LOWEST_FIRST = Comparator.comparingLong(Ranked::getScore)
+			.thenComparing(Ranked::getId, Comparator.reverseOrder());
+
+	private final int capacity;
+
+	private final PriorityQueue<Ranked> heap;
+
+	private final Map<String, Ranked> members = new HashMap<>();
+
+	Leaderboard(int capacity) {
+		this.capacity = capacity;
+		this.heap = new PriorityQueue<>(capacity + 1, LOWEST_FIRST);
+	}
+
+	/**
+	 * Offer the ID with its score - a member takes the new score, dropping out if it's no longer positive
+	 */
+	synchronized void set(String id, long score) {
+		Ranked member = members.remove(id);
+		if (member != null) heap.remove(member);
+
+		if (score <= 0) return;
+
+		Ranked ranked = new Ranked(id, score);
+
+		if (heap.size() < capacity) {
+			add(ranked);
+		} else if (LOWEST_FIRST.compare(ranked, heap.peek()) > 0) {
+			members.remove(heap.poll().id);
+			add(ranked);
+		}
+	}
+
+	/**
+	 * Add to the score of a member, or offer an outsider with the delta as its score
+	 */
+	synchronized void increment(String id, long delta) {
+		Ranked member = members.get(id);
+
+		set(id, (member == null ? 0 : member.score) + delta);
+	}
+
+	synchronized void replaceAll(Map<String, Long> scores) {
+		clear();
+		scores.forEach(this::set);
+	}
+
+	synchronized void clear() {
+		heap.clear();
+		members.clear();
+	}
+
+	/**
+	 * IDs of the highest scores, highest first
+	 */
+	synchronized List<String> top(int size) {
+		List<Ranked> ranked = new ArrayList<>(heap);
+		ranked.sort(LOWEST_FIRST.reversed());
+
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < Math.min(size, ranked.size()); i++) ids.add(ranked.get(i).id);
+
+		return ids;
+	}
+
+	private void add(Ranked ranked) {
+		heap.add(ranked);
+		members.put(ranked.id, ranked);
+	}
+
+	private static final class Ranked {
+
+		private final String id;
+
+		private final long score;
+
+		private Ranked(String id, long score) {
+			this.id = id;
+			this.score = score;
+		}
+
+		private String getId() {
+			return id;
+		}
+
+		private long getScore() {
+			return score;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.enums.LeaderboardWindow;
+import com.mpp.twitterclone.model.Favorite;
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.Retweet;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.LeaderboardService;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import com.mpp.twitterclone.services.mongo.UserLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Leaderboards held in process - a bounded {@link Leaderboard} per counter and window.
+ *
+ * The all-time boards take the new totals recorded by the services, the day boards add up the changes recorded
+ * since midnight and start over the next day. Both lose track of IDs that drop out and come back, and miss the
+ * changes made by other nodes, so every {@link #RECONCILE_INTERVAL} ms they're rebuilt from the database: the
+ * all-time ones from the counters, in their descending indexes, and the day ones by grouping the favorites,
+ * retweets and follows created since midnight.
+ */
+
+@Slf4j
+@Service
+public class LeaderboardInMemoryService implements LeaderboardService {
+
+	public static final int CAPACITY = 100;
+
+	public static final long RECONCILE_INTERVAL = 60_000;
+
+	private final MongoOperations mongoOperations;
+
+	private final TweetLoader tweetLoader;
+
+	private final UserLoader userLoader;
+
+	private final Leaderboard favorites = new Leaderboard(CAPACITY);
+
+	private final Leaderboard retweets = new Leaderboard(CAPACITY);
+
+	private final Leaderboard followers = new Leaderboard(CAPACITY);
+
+	private final Leaderboard dayFavorites = new Leaderboard(CAPACITY);
+
+	private final Leaderboard dayRetweets = new Leaderboard(CAPACITY);
+
+	private final Leaderboard dayFollowers = new Leaderboard(CAPACITY);
+
+	// The day the day boards count
+	private LocalDate day = LocalDate.now();
+
+	public LeaderboardInMemoryService(MongoOperations mongoOperations, TweetLoader tweetLoader,
+	                                  UserLoader userLoader) {
+		this.mongoOperations = mongoOperations;
+		this.tweetLoader = tweetLoader;
+		this.userLoader = userLoader;
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	@Scheduled(fixedDelay = RECONCILE_INTERVAL, initialDelay = RECONCILE_INTERVAL)
+	public void reconcile() {
+		long start = System.currentTimeMillis();
+		LocalDate today = LocalDate.now();
+
+		favorites.replaceAll(topByCounter(Tweet.class, "favoriteCount", Tweet::getId, Tweet::getFavoriteCount));
+		retweets.replaceAll(topByCounter(Tweet.class, "retweetCount", Tweet::getId, Tweet::getRetweetCount));
+		followers.replaceAll(topByCounter(User.class, "followersCount", User::getId, User::getFollowersCount));
+
+		Map<String, Long> todaysFavorites = topCreatedSince(Favorite.class, "tweetId", today);
+		Map<String, Long> todaysRetweets = topCreatedSince(Retweet.class, "tweetId", today);
+		Map<String, Long> todaysFollowers = topCreatedSince(Follow.class, "followedUserId", today);
+
+		synchronized (this) {
+			day = today;
+			dayFavorites.replaceAll(todaysFavorites);
+			dayRetweets.replaceAll(todaysRetweets);
+			dayFollowers.replaceAll(todaysFollowers);
+		}
+
+		log.debug("Reconciled the Leaderboards in {} ms", System.currentTimeMillis() - start);
+	}
+
+	@Override
+	public List<Tweet> findMostFavoritedTweets(LeaderboardWindow window, int size) {
+		return tweetLoader.findAllById(board(window, favorites, dayFavorites).top(clamp(size)));
+	}
+
+	@Override
+	public List<Tweet> findMostRetweetedTweets(LeaderboardWindow window, int size) {
+		return tweetLoader.findAllById(board(window, retweets, dayRetweets).top(clamp(size)));
+	}
+
+	@Override
+	public List<User> findMostFollowedUsers(LeaderboardWindow window, int size) {
+		return userLoader.findAllById(board(window, followers, dayFollowers).top(clamp(size)));
+	}
+
+	@Override
+	public void recordFavorites(String tweetId, int favoriteCount, int delta) {
+		record(favorites, dayFavorites, tweetId, favoriteCount, delta);
+	}
+
+	@Override
+	public void recordRetweets(String tweetId, int retweetCount, int delta) {
+		record(retweets, dayRetweets, tweetId, retweetCount, delta);
+	}
+
+	@Override
+	public void recordFollowers(String userId, int followersCount, int delta) {
+		record(followers, dayFollowers, userId, followersCount, delta);
+	}
+
+	private void record(Leaderboard allTime, Leaderboard today, String id, int total, int delta) {
+		allTime.set(id, total);
+
+		rollOver();
+		today.increment(id, delta);
+	}
+
+	private Leaderboard board(LeaderboardWindow window, Leaderboard allTime, Leaderboard today) {
+		if (window != LeaderboardWindow.DAY) return allTime;
+
+		rollOver();
+
+		return today;
+	}
+
+	/**
+	 * Start the day boards over once the day is past
+	 */
+	private synchronized void rollOver() {
+		LocalDate today = LocalDate.now();
+		if (today.equals(day)) return;
+
+		day = today;
+		dayFavorites.clear();
+		dayRetweets.clear();
+		dayFollowers.clear();
+	}
+
+	private static int clamp(int size) {
+		return Math.max(1, Math.min(size, CAPACITY));
+	}
+
+	/**
+	 * Highest counters of a collection, read from the descending index on the counter
+	 */
+	private <T> Map<String, Long> topByCounter(Class<T> type, String counter, Function<T, String> id,
+	                                           Function<T, Integer> count) {
+		Query query = new Query().with(Sort.by(Sort.Direction.DESC, counter)).limit(CAPACITY);
+		query.fields().include(counter);
+
+		Map<String, Long> scores = new LinkedHashMap<>();
+		for (T document : mongoOperations.find(query, type)) {
+			scores.put(id.apply(document), count.apply(document) == null ? 0L : count.apply(document));
+		}
+
+		return scores;
+	}
+
+	/**
+	 * IDs with the most records created since the start of the day, counted in the database
+	 */
+	private Map<String, Long> topCreatedSince(Class<?> type, String idField, LocalDate since) {
+		Aggregation aggregation = Aggregation.newAggregation(
+				match(where("createdAt").gte(since.atStartOfDay())),
+				group(idField).count().as("count"),
+				sort(Sort.Direction.DESC, "count"),
+				limit(CAPACITY));
+
+		Map<String, Long> scores = new LinkedHashMap<>();
+		for (Document counted : mongoOperations.aggregate(aggregation, type, Document.class)) {
+			scores.put(String.valueOf(counted.get("_id")), ((Number) counted.get("count")).longValue());
+		}
+
+		return scores;
+	}
+}
@@ -0,0 +1,168 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import com.mpp.twitterclone.services.CounterService;
+import com.mpp.twitterclone.services.PendingCounterService;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sums tweet counter deltas in process and writes them with one bulk $inc every {@link #FLUSH_INTERVAL} ms - or
+ * sooner, once about {@link #FLUSH_THRESHOLD} counters have deltas. Whatever is pending is written on shutdown.
+ *
+ * Like a LongAdder, the sums are striped: each thread adds to one of {@link #STRIPES} maps, picked by its thread
+ * ID, so concurrent changes to one tweet mostly land on different cells. A flush takes each delta out with an
+ * atomic remove, so a delta added meanwhile goes to the next flush instead of being lost.
+ *
+ * Deltas of a failed write are put back and retried with the next flush - only those of the tweets whose update
+ * failed, when the others in the bulk write were applied. A count read while its deltas are being written may
+ * briefly lag.
+ */
+
+@Slf4j
+@Service
+public class PendingCounterInMemoryService implements PendingCounterService {
+
+	public static final long FLUSH_INTERVAL = 250;
+
+	public static final int FLUSH_THRESHOLD = 10_000;
+
+	public static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+
+	private final CounterService counterService;
+
+	private final Map<PendingCounter, Long>[] stripes;
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	@SuppressWarnings("unchecked")
+	public PendingCounterInMemoryService(CounterService counterService) {
+		this.counterService = counterService;
+		this.stripes = new Map[STRIPES];
+
+		for (int i = 0; i < STRIPES; i++) stripes[i] = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void add(String tweetId, String counter, int delta) {
+		if (delta == 0) return;
+
+		Map<PendingCounter, Long> stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+		stripe.merge(new PendingCounter(tweetId, counter), (long) delta, Long::sum);
+
+		// Flushed by whoever crosses the threshold, unless a flush is already running
+		if (stripe.size() * STRIPES >= FLUSH_THRESHOLD && flushLock.tryLock()) {
+			try {
+				drainAndWrite();
+			} finally {
+				flushLock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public Tweet overlay(Tweet tweet) {
+		long favorites = pending(tweet.getId(), CounterBroadcastService.FAVORITE_COUNT);
+		long retweets = pending(tweet.getId(), CounterBroadcastService.RETWEET_COUNT);
+		long replies = pending(tweet.getId(), CounterBroadcastService.REPLY_COUNT);
+
+		if (favorites == 0 && retweets == 0 && replies == 0) return tweet;
+
+		// A copy, so the pending deltas are never applied twice to the same instance
+		return tweet.toBuilder()
+				.favoriteCount(tweet.getFavoriteCount() + (int) favorites)
+				.retweetCount(tweet.getRetweetCount() + (int) retweets)
+				.replyCount(tweet.getReplyCount() + (int) replies)
+				.build();
+	}
+
+	@Override
+	@PreDestroy
+	@Scheduled(fixedDelay = FLUSH_INTERVAL)
+	public void flush() {
+		flushLock.lock();
+
+		try {
+			drainAndWrite();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	int getPendingCount() {
+		int pendingCount = 0;
+
+		for (Map<PendingCounter, Long> stripe : stripes) pendingCount += stripe.size();
+
+		return pendingCount;
+	}
+
+	private long pending(String tweetId, String counter) {
+		PendingCounter pendingCounter = new PendingCounter(tweetId, counter);
+		long delta = 0;
+
+		for (Map<PendingCounter, Long> stripe : stripes) delta += stripe.getOrDefault(pendingCounter, 0L);
+
+		return delta;
+	}
+
+	private void drainAndWrite() {
+		// Take each pending delta out atomically - deltas added meanwhile go to the next flush
+		Map<String, Map<String, Long>> deltas = new HashMap<>();
+
+		for (Map<PendingCounter, Long> stripe : stripes) {
+			for (PendingCounter pendingCounter : stripe.keySet()) {
+				Long delta = stripe.remove(pendingCounter);
+
+				if (delta != null && delta != 0) {
+					deltas.computeIfAbsent(pendingCounter.getTweetId(), id -> new HashMap<>())
+							.merge(pendingCounter.getCounter(), delta, Long::sum);
+				}
+			}
+		}
+
+		if (deltas.isEmpty()) return;
+
+		Set<String> failed;
+
+		try {
+			failed = counterService.incrementTweetCounters(deltas);
+		} catch (RuntimeException e) {
+			log.error("Failed to Write Counters of {} Tweets, Retrying with the Next Flush", deltas.size(), e);
+
+			failed = deltas.keySet();
+		}
+
+		if (failed.isEmpty()) return;
+
+		if (failed.size() < deltas.size()) {
+			log.error("Failed to Write Counters of {} of {} Tweets, Retrying with the Next Flush", failed.size(),
+					deltas.size());
+		}
+
+		// Only the deltas not written, spread over the stripes rather than piled on one
+		for (String tweetId : failed) {
+			deltas.get(tweetId).forEach((counter, delta) -> {
+				PendingCounter pendingCounter = new PendingCounter(tweetId, counter);
+
+				stripes[pendingCounter.hashCode() & (STRIPES - 1)].merge(pendingCounter, delta, Long::sum);
+			});
+		}
+	}
+
+	@Value
+	private static class PendingCounter {
+		String tweetId;
+		String counter;
+	}
+}
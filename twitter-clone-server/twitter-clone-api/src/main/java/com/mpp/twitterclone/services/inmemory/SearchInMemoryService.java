@@ -0,0 +1,115 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.SearchService;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tweet search over a {@link SearchIndex} of the text and text contents of every tweet, held in process.
+ *
+ * Built from the tweets collection at startup, oldest first so each segment covers a slice of time, and kept
+ * current by the tweets written through this node - tweets written by other nodes are only found after a
+ * restart. Segments are merged in the background every {@link #MERGE_INTERVAL} ms.
+ */
+
+@Slf4j
+@Service
+public class SearchInMemoryService implements SearchService {
+
+	public static final int SEGMENT_SIZE = 50_000;
+
+	public static final int MERGE_FACTOR = 4;
+
+	public static final int MAX_SEGMENT_SIZE = 4_000_000;
+
+	public static final long MERGE_INTERVAL = 10_000;
+
+	public static final int MAX_SIZE = 100;
+
+	private final TweetRepository tweetRepository;
+
+	private final TweetLoader tweetLoader;
+
+	private final SearchIndex index = new SearchIndex(SEGMENT_SIZE, MERGE_FACTOR, MAX_SEGMENT_SIZE);
+
+	public SearchInMemoryService(TweetRepository tweetRepository, TweetLoader tweetLoader) {
+		this.tweetRepository = tweetRepository;
+		this.tweetLoader = tweetLoader;
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		long start = System.currentTimeMillis();
+
+		try (Stream<Tweet> tweets = tweetRepository.streamAllTextOldestFirst()) {
+			tweets.forEach(this::index);
+		}
+
+		merge();
+
+		log.info("Indexed {} Tweets for Search in {} ms", index.size(), System.currentTimeMillis() - start);
+	}
+
+	@Override
+	public List<Tweet> search(String query, int size) {
+		if (query == null || query.trim().isEmpty()) return new ArrayList<>();
+
+		List<String> tweetIds = index.search(query, Math.max(1, Math.min(size, MAX_SIZE)),
+				epochSeconds(LocalDateTime.now()));
+
+		// In the order of the matches, skipping tweets deleted by other nodes
+		return tweetLoader.findAllById(tweetIds);
+	}
+
+	@Override
+	public void index(Tweet tweet) {
+		index.add(tweet.getId(), text(tweet), epochSeconds(tweet.getCreatedAt()));
+	}
+
+	@Override
+	public void remove(String tweetId) {
+		index.remove(tweetId);
+	}
+
+	@Scheduled(fixedDelay = MERGE_INTERVAL, initialDelay = MERGE_INTERVAL)
+	public void merge() {
+		while (index.merge()) {
+			// Until no run of segments is small enough
+		}
+	}
+
+	int getSegmentCount() {
+		return index.segmentCount();
+	}
+
+	private static String text(Tweet tweet) {
+		StringBuilder text = new StringBuilder();
+
+		if (tweet.getText() != null) text.append(tweet.getText());
+
+		if (tweet.getContent() != null) {
+			tweet.getContent().stream()
+					.filter(TextContent.class::isInstance)
+					.forEach(content -> text.append(' ').append(((TextContent) content).getData()));
+		}
+
+		return text.toString();
+	}
+
+	private static long epochSeconds(LocalDateTime dateTime) {
+		return (dateTime == null ? LocalDateTime.now() : dateTime).atZone(ZoneId.systemDefault()).toEpochSecond();
+	}
+}
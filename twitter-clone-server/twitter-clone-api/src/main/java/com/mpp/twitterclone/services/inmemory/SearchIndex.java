@@ -0,0 +1,391 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over short texts, ranked by BM25 times a recency boost.
+ *
+ * Documents get ascending internal IDs and go into a buffer, sealed into a {@link SearchSegment} every
+ * segmentSize documents, so each segment covers a slice of time. Deleting a document only marks its ID; a changed
+ * document is deleted and added again. {@link #merge()} combines adjacent small segments into bigger ones and
+ * drops the deleted documents, outside the lock that searches and writes take.
+ *
+ * A search goes over the segments newest first and skips any that can't beat the results so far - the score of
+ * a segment is bounded by its newest document and its highest term frequencies - so a query whose best matches
+ * are recent rarely reads the older segments at all.
+ */
+
+final class SearchIndex {
+
+	static final double K1 = 1.2;
+
+	static final double B = 0.75;
+
+	// A brand new document scores up to 1 + RECENCY_WEIGHT times as much as an old one with the same text
+	static final double RECENCY_WEIGHT = 1.0;
+
+	static final long RECENCY_HALF_LIFE = 24 * 60 * 60;
+
+	static final int MAX_TERM_LENGTH = 40;
+
+	private final int segmentSize;
+
+	private final int mergeFactor;
+
+	private final int maxSegmentSize;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final ReentrantLock mergeLock = new ReentrantLock();
+
+	// In document order - a merge replaces a run of them with one
+	private final List<SearchSegment.Sealed> segments = new ArrayList<>();
+
+	private SearchSegment.Buffer buffer = new SearchSegment.Buffer();
+
+	private final Map<String, Integer> docIds = new HashMap<>();
+
+	private String[] keys = new String[1024];
+
+	private int[] lengths = new int[1024];
+
+	private long[] createdAt = new long[1024];
+
+	private final BitSet deleted = new BitSet();
+
+	private int nextDocId;
+
+	private int liveCount;
+
+	private long totalLength;
+
+	SearchIndex(int segmentSize, int mergeFactor, int maxSegmentSize) {
+		this.segmentSize = segmentSize;
+		this.mergeFactor = mergeFactor;
+		this.maxSegmentSize = maxSegmentSize;
+	}
+
+	/**
+	 * Index the text under the key, replacing what was indexed under it before
+	 */
+	void add(String key, String text, long createdAtSeconds) {
+		List<String> tokens = tokenize(text);
+		Map<String, Integer> termFrequencies = new HashMap<>();
+
+		for (String token : tokens) termFrequencies.merge(token, 1, Integer::sum);
+
+		lock.writeLock().lock();
+
+		try {
+			removeLocked(key);
+
+			if (termFrequencies.isEmpty()) return;
+
+			int docId = nextDocId++;
+			ensureCapacity(docId + 1);
+
+			keys[docId] = key;
+			lengths[docId] = tokens.size();
+			createdAt[docId] = createdAtSeconds;
+			docIds.put(key, docId);
+
+			buffer.add(docId, termFrequencies, tokens.size(), createdAtSeconds);
+			liveCount++;
+			totalLength += tokens.size();
+
+			if (buffer.documentCount() >= segmentSize) {
+				segments.add(buffer.seal());
+				buffer = new SearchSegment.Buffer();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(String key) {
+		lock.writeLock().lock();
+
+		try {
+			removeLocked(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Keys of the best matches of any of the query terms, best first
+	 */
+	List<String> search(String query, int limit, long nowSeconds) {
+		Set<String> terms = new LinkedHashSet<>(tokenize(query));
+		if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+
+		lock.readLock().lock();
+
+		try {
+			if (liveCount == 0) return new ArrayList<>();
+
+			double averageLength = (double) totalLength / liveCount;
+
+			List<SearchSegment> searched = new ArrayList<>(segments);
+			searched.add(buffer);
+			searched.sort(Comparator.comparingLong(SearchSegment::newestCreatedAt).reversed());
+
+			Map<String, Double> idfs = new LinkedHashMap<>();
+			for (String term : terms) {
+				int documentFrequency = 0;
+				for (SearchSegment segment : searched) documentFrequency += segment.documentFrequency(term);
+
+				if (documentFrequency > 0) idfs.put(term, idf(Math.min(documentFrequency, liveCount)));
+			}
+
+			if (idfs.isEmpty()) return new ArrayList<>();
+
+			// Worst of the best so far on top
+			PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Hit::getScore));
+
+			for (SearchSegment segment : searched) {
+				if (segment.documentCount() == 0) continue;
+
+				// Nothing in it can make the results
+				double bound = upperBound(segment, idfs, averageLength, nowSeconds);
+				if (best.size() == limit && bound <= best.peek().score) continue;
+
+				for (Map.Entry<Integer, Double> scored : score(segment, idfs, averageLength).entrySet()) {
+					int docId = scored.getKey();
+					double score = scored.getValue() * recency(createdAt[docId], nowSeconds);
+
+					if (best.size() < limit) {
+						best.add(new Hit(docId, score));
+					} else if (score > best.peek().score) {
+						best.poll();
+						best.add(new Hit(docId, score));
+					}
+				}
+			}
+
+			Hit[] hits = best.toArray(new Hit[0]);
+			Arrays.sort(hits, Comparator.comparingDouble(Hit::getScore).reversed().thenComparingInt(Hit::getDocId));
+
+			List<String> results = new ArrayList<>(hits.length);
+			for (Hit hit : hits) results.add(keys[hit.docId]);
+
+			return results;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Merge the adjacent run of segments with the fewest documents, if there's one of mergeFactor segments that
+	 * stays within maxSegmentSize. Returns whether it merged.
+	 */
+	boolean merge() {
+		mergeLock.lock();
+
+		try {
+			List<SearchSegment.Sealed> run;
+			BitSet deletedBefore;
+			int[] lengthsBefore;
+			long[] createdAtBefore;
+
+			lock.readLock().lock();
+
+			try {
+				run = smallestRun();
+				if (run == null) return false;
+
+				// Documents only ever get deleted, and the run's documents already have their lengths and times
+				deletedBefore = (BitSet) deleted.clone();
+				lengthsBefore = lengths;
+				createdAtBefore = createdAt;
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			SearchSegment.Sealed merged = SearchSegment.Sealed.merge(run, deletedBefore, lengthsBefore, createdAtBefore);
+
+			lock.writeLock().lock();
+
+			try {
+				// Only merges take segments out, so the run is still where it was
+				int start = segments.indexOf(run.get(0));
+				segments.subList(start, start + run.size()).clear();
+				if (merged.documentCount() > 0) segments.add(start, merged);
+			} finally {
+				lock.writeLock().unlock();
+			}
+
+			return true;
+		} finally {
+			mergeLock.unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+
+		try {
+			return liveCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	int segmentCount() {
+		lock.readLock().lock();
+
+		try {
+			return segments.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lowercased runs of letters and digits
+	 */
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) return tokens;
+
+		String lowerCase = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+
+		for (int i = 0; i <= lowerCase.length(); i++) {
+			boolean termCharacter = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+
+			if (termCharacter && start < 0) {
+				start = i;
+			} else if (!termCharacter && start >= 0) {
+				tokens.add(lowerCase.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+				start = -1;
+			}
+		}
+
+		return tokens;
+	}
+
+	private void removeLocked(String key) {
+		Integer docId = docIds.remove(key);
+		if (docId == null) return;
+
+		deleted.set(docId);
+		keys[docId] = null;
+		liveCount--;
+		totalLength -= lengths[docId];
+	}
+
+	private List<SearchSegment.Sealed> smallestRun() {
+		List<SearchSegment.Sealed> smallest = null;
+		long smallestSize = Long.MAX_VALUE;
+
+		for (int start = 0; start + mergeFactor <= segments.size(); start++) {
+			List<SearchSegment.Sealed> run = segments.subList(start, start + mergeFactor);
+			long size = run.stream().mapToLong(SearchSegment::documentCount).sum();
+
+			if (size <= maxSegmentSize && size < smallestSize) {
+				smallest = new ArrayList<>(run);
+				smallestSize = size;
+			}
+		}
+
+		return smallest;
+	}
+
+	/**
+	 * BM25 of every live document of the segment that has any of the terms, term at a time
+	 */
+	private Map<Integer, Double> score(SearchSegment segment, Map<String, Double> idfs, double averageLength) {
+		Map<Integer, Double> scores = new HashMap<>();
+
+		idfs.forEach((term, idf) -> {
+			SearchSegment.PostingCursor cursor = segment.cursor(term);
+			if (cursor == null) return;
+
+			while (cursor.next()) {
+				int docId = cursor.docId();
+				if (deleted.get(docId)) continue;
+
+				scores.merge(docId, idf * saturation(cursor.termFrequency(), lengths[docId], averageLength), Double::sum);
+			}
+		});
+
+		return scores;
+	}
+
+	/**
+	 * Highest score any document of the segment could get - saturation grows with the term frequency and shrinks
+	 * with the length
+	 */
+	private static double upperBound(SearchSegment segment, Map<String, Double> idfs, double averageLength,
+	                                 long nowSeconds) {
+		double bound = 0;
+
+		for (Map.Entry<String, Double> idf : idfs.entrySet()) {
+			int maxTermFrequency = segment.maxTermFrequency(idf.getKey());
+			if (maxTermFrequency > 0) {
+				bound += idf.getValue() * saturation(maxTermFrequency, segment.minLength(), averageLength);
+			}
+		}
+
+		return bound * recency(segment.newestCreatedAt(), nowSeconds);
+	}
+
+	private double idf(int documentFrequency) {
+		return Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+
+	private static double saturation(int termFrequency, int length, double averageLength) {
+		return termFrequency * (K1 + 1) / (termFrequency + K1 * (1 - B + B * length / averageLength));
+	}
+
+	private static double recency(long createdAtSeconds, long nowSeconds) {
+		double age = Math.max(0, nowSeconds - createdAtSeconds);
+
+		return 1 + RECENCY_WEIGHT * Math.pow(0.5, age / RECENCY_HALF_LIFE);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= keys.length) return;
+
+		int newCapacity = Math.max(capacity, keys.length * 2);
+
+		// New arrays rather than grown ones in place - a running merge keeps reading the old ones
+		keys = Arrays.copyOf(keys, newCapacity);
+		lengths = Arrays.copyOf(lengths, newCapacity);
+		createdAt = Arrays.copyOf(createdAt, newCapacity);
+	}
+
+	private static final class Hit {
+
+		private final int docId;
+
+		private final double score;
+
+		private Hit(int docId, double score) {
+			this.docId = docId;
+			this.score = score;
+		}
+
+		private int getDocId() {
+			return docId;
+		}
+
+		private double getScore() {
+			return score;
+		}
+	}
+}
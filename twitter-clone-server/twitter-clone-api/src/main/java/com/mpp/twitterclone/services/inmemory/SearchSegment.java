@@ -0,0 +1,341 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A slice of the {@link SearchIndex} - the postings of a range of documents, indexed one after another, so a
+ * segment also covers a slice of time.
+ *
+ * Each posting list holds ascending document IDs and term frequencies as variable-length ints, the IDs as gaps
+ * from the previous one, so most postings take two or three bytes. A {@link Buffer} takes new documents and
+ * is sealed into a {@link Sealed} segment, whose lists sit back to back in one array.
+ */
+
+abstract class SearchSegment {
+
+	/**
+	 * Documents whose postings the segment holds, deleted ones included
+	 */
+	abstract int documentCount();
+
+	/**
+	 * Creation time, in epoch seconds, of the newest document - bounds the recency boost of the whole segment
+	 */
+	abstract long newestCreatedAt();
+
+	/**
+	 * Length of the shortest document - bounds the length normalization of the whole segment
+	 */
+	abstract int minLength();
+
+	abstract Set<String> terms();
+
+	abstract int documentFrequency(String term);
+
+	abstract int maxTermFrequency(String term);
+
+	/**
+	 * Cursor over the postings of the term, or null without any
+	 */
+	abstract PostingCursor cursor(String term);
+
+	/**
+	 * Postings of a term within a byte array
+	 */
+	static final class TermPostings {
+
+		private byte[] data;
+
+		private int offset;
+
+		private int length;
+
+		private int documentCount;
+
+		private int maxTermFrequency;
+
+		private int lastDocId;
+
+		private TermPostings(byte[] data, int offset, int length, int documentCount, int maxTermFrequency) {
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			this.documentCount = documentCount;
+			this.maxTermFrequency = maxTermFrequency;
+		}
+
+		private void add(int docId, int termFrequency) {
+			ensureCapacity(10);
+
+			length = writeVarInt(data, length, docId - lastDocId);
+			length = writeVarInt(data, length, termFrequency);
+
+			lastDocId = docId;
+			documentCount++;
+			maxTermFrequency = Math.max(maxTermFrequency, termFrequency);
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+		}
+	}
+
+	/**
+	 * Reads a posting list forwards
+	 */
+	static final class PostingCursor {
+
+		private final byte[] data;
+
+		private int position;
+
+		private final int end;
+
+		private int docId;
+
+		private int termFrequency;
+
+		private PostingCursor(byte[] data, int offset, int length) {
+			this.data = data;
+			this.position = offset;
+			this.end = offset + length;
+		}
+
+		boolean next() {
+			if (position >= end) return false;
+
+			docId += readVarInt();
+			termFrequency = readVarInt();
+
+			return true;
+		}
+
+		int docId() {
+			return docId;
+		}
+
+		int termFrequency() {
+			return termFrequency;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+
+			do {
+				b = data[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+
+			return value;
+		}
+	}
+
+	/**
+	 * Takes the newest documents - each posting list grows in its own array until the buffer is sealed
+	 */
+	static final class Buffer extends SearchSegment {
+
+		private final Map<String, TermPostings> postings = new HashMap<>();
+
+		private int documentCount;
+
+		private long newestCreatedAt = Long.MIN_VALUE;
+
+		private int minLength = Integer.MAX_VALUE;
+
+		/**
+		 * Add a document - IDs have to be higher than any added before
+		 */
+		void add(int docId, Map<String, Integer> termFrequencies, int length, long createdAt) {
+			termFrequencies.forEach((term, termFrequency) -> postings
+					.computeIfAbsent(term, t -> new TermPostings(new byte[8], 0, 0, 0, 0))
+					.add(docId, termFrequency));
+
+			documentCount++;
+			newestCreatedAt = Math.max(newestCreatedAt, createdAt);
+			minLength = Math.min(minLength, length);
+		}
+
+		void add(int docId, String term, int termFrequency, int length, long createdAt) {
+			postings.computeIfAbsent(term, t -> new TermPostings(new byte[8], 0, 0, 0, 0)).add(docId, termFrequency);
+
+			newestCreatedAt = Math.max(newestCreatedAt, createdAt);
+			minLength = Math.min(minLength, length);
+		}
+
+		void setDocumentCount(int documentCount) {
+			this.documentCount = documentCount;
+		}
+
+		/**
+		 * Copy the posting lists back to back into one array
+		 */
+		Sealed seal() {
+			int size = 0;
+			for (TermPostings termPostings : postings.values()) size += termPostings.length;
+
+			byte[] data = new byte[size];
+			Map<String, TermPostings> sealed = new HashMap<>(postings.size() * 4 / 3 + 1);
+			int offset = 0;
+
+			for (Map.Entry<String, TermPostings> entry : postings.entrySet()) {
+				TermPostings termPostings = entry.getValue();
+				System.arraycopy(termPostings.data, 0, data, offset, termPostings.length);
+
+				sealed.put(entry.getKey(), new TermPostings(data, offset, termPostings.length,
+						termPostings.documentCount, termPostings.maxTermFrequency));
+				offset += termPostings.length;
+			}
+
+			return new Sealed(sealed, documentCount, newestCreatedAt, minLength);
+		}
+
+		@Override
+		int documentCount() {
+			return documentCount;
+		}
+
+		@Override
+		long newestCreatedAt() {
+			return newestCreatedAt;
+		}
+
+		@Override
+		int minLength() {
+			return minLength;
+		}
+
+		@Override
+		Set<String> terms() {
+			return postings.keySet();
+		}
+
+		@Override
+		int documentFrequency(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? 0 : termPostings.documentCount;
+		}
+
+		@Override
+		int maxTermFrequency(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? 0 : termPostings.maxTermFrequency;
+		}
+
+		@Override
+		PostingCursor cursor(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? null : new PostingCursor(termPostings.data, 0, termPostings.length);
+		}
+	}
+
+	/**
+	 * Read-only segment - safe to search without a lock
+	 */
+	static final class Sealed extends SearchSegment {
+
+		private final Map<String, TermPostings> postings;
+
+		private final int documentCount;
+
+		private final long newestCreatedAt;
+
+		private final int minLength;
+
+		private Sealed(Map<String, TermPostings> postings, int documentCount, long newestCreatedAt, int minLength) {
+			this.postings = postings;
+			this.documentCount = documentCount;
+			this.newestCreatedAt = newestCreatedAt;
+			this.minLength = minLength;
+		}
+
+		/**
+		 * One segment out of adjacent ones, in document order, without the deleted documents
+		 */
+		static Sealed merge(List<? extends SearchSegment> segments, BitSet deleted, int[] lengths, long[] createdAt) {
+			Buffer merged = new Buffer();
+			BitSet documents = new BitSet();
+
+			for (SearchSegment segment : segments) {
+				for (String term : segment.terms()) {
+					PostingCursor cursor = segment.cursor(term);
+
+					while (cursor.next()) {
+						int docId = cursor.docId();
+						if (deleted.get(docId)) continue;
+
+						merged.add(docId, term, cursor.termFrequency(), lengths[docId], createdAt[docId]);
+						documents.set(docId);
+					}
+				}
+			}
+
+			merged.setDocumentCount(documents.cardinality());
+
+			return merged.seal();
+		}
+
+		@Override
+		int documentCount() {
+			return documentCount;
+		}
+
+		@Override
+		long newestCreatedAt() {
+			return newestCreatedAt;
+		}
+
+		@Override
+		int minLength() {
+			return minLength;
+		}
+
+		@Override
+		Set<String> terms() {
+			return postings.keySet();
+		}
+
+		@Override
+		int documentFrequency(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? 0 : termPostings.documentCount;
+		}
+
+		@Override
+		int maxTermFrequency(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? 0 : termPostings.maxTermFrequency;
+		}
+
+		@Override
+		PostingCursor cursor(String term) {
+			TermPostings termPostings = postings.get(term);
+
+			return termPostings == null ? null
+					: new PostingCursor(termPostings.data, termPostings.offset, termPostings.length);
+		}
+	}
+
+	private static int writeVarInt(byte[] data, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			data[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		data[position++] = (byte) value;
+
+		return position;
+	}
+}
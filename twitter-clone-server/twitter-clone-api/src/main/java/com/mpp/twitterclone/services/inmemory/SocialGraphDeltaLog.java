@@ -0,0 +1,107 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Append-only log of the follows and unfollows made since the last {@link SocialGraphSnapshot}.
+ *
+ * Each record is an operation byte ('+' follow, '-' unfollow) and the two user IDs. Records are flushed as they
+ * are appended, so they survive the process dying but not the machine. Replaying is idempotent - the last
+ * record for an edge wins - and stops quietly at a record torn by a crash.
+ */
+
+final class SocialGraphDeltaLog implements AutoCloseable {
+
+	static final byte FOLLOW = '+';
+
+	static final byte UNFOLLOW = '-';
+
+	private final Path path;
+
+	private DataOutputStream out;
+
+	private int size;
+
+	SocialGraphDeltaLog(Path path) throws IOException {
+		this.path = path;
+		this.out = open(path);
+	}
+
+	synchronized void append(byte operation, String followerUserId, String followedUserId) throws IOException {
+		out.writeByte(operation);
+		out.writeUTF(followerUserId);
+		out.writeUTF(followedUserId);
+		out.flush();
+
+		size++;
+	}
+
+	/**
+	 * Records appended since the log was opened or rotated
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Move the current records aside to the given file and start an empty log
+	 */
+	synchronized void rotate(Path retired) throws IOException {
+		out.close();
+		Files.move(path, retired, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		out = open(path);
+		size = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Apply the records of a log, if it exists, to the index and return how many were applied
+	 */
+	static int replay(Path path, SocialGraphIndex index) throws IOException {
+		if (!Files.exists(path)) return 0;
+
+		int applied = 0;
+
+		try (InputStream file = Files.newInputStream(path);
+		     DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+			while (true) {
+				byte operation;
+				String followerUserId;
+				String followedUserId;
+
+				try {
+					operation = in.readByte();
+					followerUserId = in.readUTF();
+					followedUserId = in.readUTF();
+				} catch (EOFException e) {
+					return applied;
+				}
+
+				if (operation == FOLLOW) index.add(followerUserId, followedUserId);
+				else if (operation == UNFOLLOW) index.remove(followerUserId, followedUserId);
+				else throw new IOException("Corrupt Social Graph Delta Log: " + path);
+
+				applied++;
+			}
+		}
+	}
+
+	private static DataOutputStream open(Path path) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+	}
+}
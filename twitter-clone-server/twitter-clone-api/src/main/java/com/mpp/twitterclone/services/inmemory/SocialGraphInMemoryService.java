@@ -0,0 +1,278 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.services.SocialGraphService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Follow graph held in process - see {@link SocialGraphIndex}.
+ *
+ * Kept current by the follows and unfollows made through this node, which still writes every change to the
+ * collection first. Changes made by other nodes are picked up on the next start.
+ *
+ * The graph is also kept on local disk so a restart doesn't have to scan the follows collection: a memory-mapped
+ * {@link SocialGraphSnapshot} plus a {@link SocialGraphDeltaLog} of the changes since. A background compactor
+ * folds the log into a new snapshot. The collection stays the source of truth: on start, the follows created
+ * since the snapshot was taken (less {@link #REPLAY_MARGIN}, for late inserts and clock skew) are replayed over
+ * it, and if the follow count still disagrees with the collection - unfollows made elsewhere, or a change whose
+ * log record was lost to a crash after the collection write - the graph is loaded from the collection instead.
+ */
+
+@Slf4j
+@Service
+public class SocialGraphInMemoryService implements SocialGraphService {
+
+	public static final int LOAD_BATCH_SIZE = 5000;
+
+	public static final long COMPACTION_INTERVAL = 5 * 60 * 1000L;
+
+	public static final long REPLAY_MARGIN = 5 * 60 * 1000L;
+
+	static final String SNAPSHOT_FILE = "follows.snapshot";
+
+	static final String DELTA_LOG_FILE = "follows.delta";
+
+	static final String RETIRED_DELTA_LOG_FILE = "follows.delta.old";
+
+	private final MongoOperations mongoOperations;
+
+	private final Path snapshotPath;
+
+	private final Path deltaLogPath;
+
+	private final Path retiredDeltaLogPath;
+
+	// Orders changes to the index with their log records, so a compaction sees both or neither
+	private final Object lock = new Object();
+
+	private volatile SocialGraphIndex index = SocialGraphIndex.builder().build();
+
+	private SocialGraphDeltaLog deltaLog;
+
+	public SocialGraphInMemoryService(MongoOperations mongoOperations,
+	                                  @Value("${social-graph.directory}") String directory) {
+		this.mongoOperations = mongoOperations;
+		this.snapshotPath = Paths.get(directory, SNAPSHOT_FILE);
+		this.deltaLogPath = Paths.get(directory, DELTA_LOG_FILE);
+		this.retiredDeltaLogPath = Paths.get(directory, RETIRED_DELTA_LOG_FILE);
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() throws IOException {
+		Files.createDirectories(snapshotPath.getParent());
+
+		long loadedAt = System.currentTimeMillis();
+		OptionalLong snapshotCreatedAt = loadSnapshot();
+		int replayed = snapshotCreatedAt.isPresent() ? replayCollection(snapshotCreatedAt.getAsLong()) : 0;
+
+		boolean reloaded = !snapshotCreatedAt.isPresent() || !matchesCollection();
+		if (reloaded) loadCollection();
+
+		if (reloaded || replayed > 0) {
+			// The logs belong to a snapshot that's no longer used
+			Files.deleteIfExists(retiredDeltaLogPath);
+			Files.deleteIfExists(deltaLogPath);
+
+			SocialGraphSnapshot.write(snapshotPath, index.fold(), loadedAt);
+		}
+
+		deltaLog = new SocialGraphDeltaLog(deltaLogPath);
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (deltaLog != null) deltaLog.close();
+		}
+	}
+
+	/**
+	 * Fold the changes logged since the last snapshot into a new one.
+	 *
+	 * The log is rotated together with starting the fold, and the retired log is only deleted once the snapshot
+	 * is on disk - until then a restart replays it over the previous snapshot. The adjacencies are rebuilt
+	 * outside the lock, so follows and unfollows aren't held up by it.
+	 */
+	@Scheduled(fixedDelay = COMPACTION_INTERVAL, initialDelay = COMPACTION_INTERVAL)
+	public void compact() {
+		long start = System.currentTimeMillis();
+		SocialGraphIndex.Fold fold;
+		long takenAt;
+		int changes;
+
+		try {
+			synchronized (lock) {
+				changes = deltaLog.size();
+				if (changes == 0) return;
+
+				fold = index.startFold();
+				takenAt = System.currentTimeMillis();
+
+				// A retired log still there means the last snapshot failed - keep it and the current log, since
+				// replaying records the snapshot already holds is harmless
+				if (!Files.exists(retiredDeltaLogPath)) deltaLog.rotate(retiredDeltaLogPath);
+			}
+
+			SocialGraphSnapshot.write(snapshotPath, fold.complete(), takenAt);
+			Files.deleteIfExists(retiredDeltaLogPath);
+		} catch (IOException e) {
+			log.error("Failed to Compact Social Graph Snapshot", e);
+			return;
+		}
+
+		log.info("Compacted {} Follow Changes into Social Graph Snapshot in {} ms", changes,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * The snapshot with the logged changes replayed over it - the time it was taken, empty if there's none usable
+	 */
+	private OptionalLong loadSnapshot() {
+		if (!Files.exists(snapshotPath)) return OptionalLong.empty();
+
+		long start = System.currentTimeMillis();
+
+		try {
+			long createdAt = SocialGraphSnapshot.createdAt(snapshotPath);
+			SocialGraphIndex snapshot = SocialGraphSnapshot.read(snapshotPath);
+
+			int changes = SocialGraphDeltaLog.replay(retiredDeltaLogPath, snapshot)
+					+ SocialGraphDeltaLog.replay(deltaLogPath, snapshot);
+
+			index = snapshot;
+
+			log.info("Mapped Social Graph Snapshot of {} Users and {} Follows with {} Logged Changes in {} ms",
+					index.vertexCount(), index.edgeCount(), changes, System.currentTimeMillis() - start);
+
+			return OptionalLong.of(createdAt);
+		} catch (IOException e) {
+			log.warn("Ignoring Unreadable Social Graph Snapshot: {}", e.getMessage());
+
+			return OptionalLong.empty();
+		}
+	}
+
+	/**
+	 * Add the follows created since the snapshot was taken, by any node - the number of follows it didn't hold
+	 */
+	private int replayCollection(long snapshotCreatedAt) {
+		LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshotCreatedAt - REPLAY_MARGIN),
+				ZoneId.systemDefault());
+
+		Query edges = new Query(Criteria.where("createdAt").gt(since)).cursorBatchSize(LOAD_BATCH_SIZE);
+		edges.fields().include("followerUserId").include("followedUserId").exclude("id");
+
+		long edgeCount = index.edgeCount();
+
+		try (CloseableIterator<Follow> follows = mongoOperations.stream(edges, Follow.class)) {
+			follows.forEachRemaining(follow -> index.add(follow.getFollowerUserId(), follow.getFollowedUserId()));
+		}
+
+		int replayed = (int) (index.edgeCount() - edgeCount);
+		if (replayed > 0) log.info("Replayed {} Follows Created Since the Social Graph Snapshot", replayed);
+
+		return replayed;
+	}
+
+	private boolean matchesCollection() {
+		long stored = mongoOperations.count(new Query(), Follow.class);
+
+		if (stored == index.edgeCount()) return true;
+
+		log.warn("Social Graph Snapshot Holds {} Follows but the Collection {} - Reloading", index.edgeCount(), stored);
+
+		return false;
+	}
+
+	private void loadCollection() {
+		long start = System.currentTimeMillis();
+
+		Query edges = new Query().cursorBatchSize(LOAD_BATCH_SIZE);
+		edges.fields().include("followerUserId").include("followedUserId").exclude("id");
+
+		SocialGraphIndex.Builder builder = SocialGraphIndex.builder();
+
+		try (CloseableIterator<Follow> follows = mongoOperations.stream(edges, Follow.class)) {
+			follows.forEachRemaining(follow -> builder.add(follow.getFollowerUserId(), follow.getFollowedUserId()));
+		}
+
+		index = builder.build();
+
+		log.info("Loaded Social Graph of {} Users and {} Follows in {} ms", index.vertexCount(), index.edgeCount(),
+				System.currentTimeMillis() - start);
+	}
+
+	@Override
+	public boolean follows(String followerUserId, String followedUserId) {
+		return index.follows(followerUserId, followedUserId);
+	}
+
+	@Override
+	public List<String> findFollowerIds(String followedUserId) {
+		return index.followers(followedUserId);
+	}
+
+	@Override
+	public List<String> findFollowingIds(String followerUserId) {
+		return index.following(followerUserId);
+	}
+
+	@Override
+	public void addFollow(String followerUserId, String followedUserId) {
+		synchronized (lock) {
+			index.add(followerUserId, followedUserId);
+			append(SocialGraphDeltaLog.FOLLOW, followerUserId, followedUserId);
+		}
+	}
+
+	@Override
+	public void removeFollow(String followerUserId, String followedUserId) {
+		synchronized (lock) {
+			index.remove(followerUserId, followedUserId);
+			append(SocialGraphDeltaLog.UNFOLLOW, followerUserId, followedUserId);
+		}
+	}
+
+	@Override
+	public long getEdgeCount() {
+		return index.edgeCount();
+	}
+
+	/**
+	 * Log a change already made to the follows collection. If it can't be logged the snapshot no longer matches
+	 * the collection, so it's dropped and the next start loads from the collection instead.
+	 */
+	private void append(byte operation, String followerUserId, String followedUserId) {
+		try {
+			deltaLog.append(operation, followerUserId, followedUserId);
+		} catch (IOException e) {
+			log.error("Failed to Log Follow Change, Dropping Social Graph Snapshot", e);
+
+			try {
+				Files.deleteIfExists(snapshotPath);
+			} catch (IOException ignored) {
+				// Nothing more to do - the log stays inconsistent until the collection is loaded again
+			}
+		}
+	}
+}
@@ -0,0 +1,472 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact follow graph.
+ *
+ * User IDs are interned to dense ints. Edges live in two CSR (compressed sparse row) adjacencies - follower to
+ * followed and followed to follower - made of an offsets array and a targets array sorted per row, so a follow
+ * check is a binary search in one row and a walk is a scan of one row. That's 8 bytes per edge (4 in each
+ * direction) plus 8 bytes per user for the offsets.
+ *
+ * Follows and unfollows after the last build go to a delta overlay on top of the adjacencies, which are
+ * rebuilt with the overlay folded in by a {@link Fold} - in the background, while writes keep going to the
+ * overlay. Only taking a copy of the overlay and publishing the result hold up writes, each O(overlay).
+ *
+ * Reads take no lock: the adjacencies and their overlay are published together as one state, and the overlay
+ * is made of concurrent sets. Writes are serialized.
+ *
+ * The adjacencies are int buffers, so they can be heap arrays or memory-mapped sections of a
+ * {@link SocialGraphSnapshot}.
+ */
+
+final class SocialGraphIndex {
+
+	private final Map<String, Integer> vertexIds = new ConcurrentHashMap<>();
+
+	private volatile String[] vertexNames;
+
+	private int vertexCount;
+
+	private volatile State state;
+
+	private SocialGraphIndex(String[] vertexNames, int vertexCount, Adjacency forward, Adjacency reverse) {
+		for (int vertex = 0; vertex < vertexCount; vertex++) vertexIds.put(vertexNames[vertex], vertex);
+
+		this.vertexNames = vertexNames.length > vertexCount ? vertexNames
+				: Arrays.copyOf(vertexNames, Math.max(16, vertexCount * 2));
+		this.vertexCount = vertexCount;
+		this.state = new State(forward, reverse);
+	}
+
+	static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Index over adjacencies built elsewhere - the names are the user IDs of the vertices in order
+	 */
+	static SocialGraphIndex of(String[] vertexNames, int vertexCount, Adjacency forward, Adjacency reverse) {
+		return new SocialGraphIndex(vertexNames, vertexCount, forward, reverse);
+	}
+
+	boolean follows(String followerId, String followedId) {
+		Integer follower = vertexIds.get(followerId);
+		Integer followed = vertexIds.get(followedId);
+
+		if (follower == null || followed == null) return false;
+
+		State current = state;
+		long edge = edge(follower, followed);
+
+		if (current.added.contains(edge)) return true;
+
+		return current.forward.contains(follower, followed) && !current.removed.contains(edge);
+	}
+
+	List<String> followers(String followedId) {
+		Integer followed = vertexIds.get(followedId);
+		if (followed == null) return Collections.emptyList();
+
+		State current = state;
+
+		return walk(current.reverse, current.reverseAdded, followed, current, true);
+	}
+
+	List<String> following(String followerId) {
+		Integer follower = vertexIds.get(followerId);
+		if (follower == null) return Collections.emptyList();
+
+		State current = state;
+
+		return walk(current.forward, current.forwardAdded, follower, current, false);
+	}
+
+	synchronized void add(String followerId, String followedId) {
+		int follower = intern(followerId);
+		int followed = intern(followedId);
+
+		addEdge(state, follower, followed, edge(follower, followed));
+	}
+
+	synchronized void remove(String followerId, String followedId) {
+		Integer follower = vertexIds.get(followerId);
+		Integer followed = vertexIds.get(followedId);
+
+		if (follower == null || followed == null) return;
+
+		removeEdge(state, follower, followed, edge(follower, followed));
+	}
+
+	long edgeCount() {
+		State current = state;
+
+		return current.forward.edgeCount() + current.added.size() - current.removed.size();
+	}
+
+	int vertexCount() {
+		return vertexIds.size();
+	}
+
+	int overlaySize() {
+		State current = state;
+
+		return current.added.size() + current.removed.size();
+	}
+
+	/**
+	 * Fold the overlay into the adjacencies and return them with the vertex names - a consistent image of the
+	 * graph for {@link SocialGraphSnapshot#write}
+	 */
+	Image fold() {
+		return startFold().complete();
+	}
+
+	/**
+	 * Copy the overlay to fold - the changes made after go on to the overlay as usual
+	 */
+	synchronized Fold startFold() {
+		State current = state;
+
+		return new Fold(current, new HashSet<>(current.added), new HashSet<>(current.removed), vertexNames,
+				vertexCount);
+	}
+
+	private List<String> walk(Adjacency adjacency, Map<Integer, Set<Integer>> added, int vertex, State current,
+	                          boolean reverse) {
+		String[] names = vertexNames;
+		Set<Integer> addedTargets = added.getOrDefault(vertex, Collections.emptySet());
+
+		List<String> result = new ArrayList<>(adjacency.degree(vertex) + addedTargets.size());
+
+		for (int i = adjacency.start(vertex), end = adjacency.end(vertex); i < end; i++) {
+			int target = adjacency.target(i);
+			long edge = reverse ? edge(target, vertex) : edge(vertex, target);
+
+			if (current.removed.isEmpty() || !current.removed.contains(edge)) result.add(names[target]);
+		}
+
+		// Users followed since the walk started may have grown the names past the copy read above
+		addedTargets.forEach(target -> result.add(target < names.length ? names[target] : vertexNames[target]));
+
+		return result;
+	}
+
+	private int intern(String id) {
+		Integer existing = vertexIds.get(id);
+		if (existing != null) return existing;
+
+		String[] names = vertexNames;
+		if (vertexCount == names.length) names = Arrays.copyOf(names, Math.max(16, names.length * 2));
+
+		int vertex = vertexCount++;
+		names[vertex] = id;
+
+		// Publish the name before the ID can be seen
+		vertexNames = names;
+		vertexIds.put(id, vertex);
+
+		return vertex;
+	}
+
+	/**
+	 * Publish adjacencies folded from a copy of the overlay, with an overlay of the changes made since the copy -
+	 * unless another fold was published first
+	 */
+	private synchronized void publish(Fold fold, Adjacency forward, Adjacency reverse) {
+		State current = state;
+		if (current != fold.base) return;
+
+		State folded = new State(forward, reverse);
+
+		Set<Long> changed = new HashSet<>(fold.added);
+		changed.addAll(fold.removed);
+		changed.addAll(current.added);
+		changed.addAll(current.removed);
+
+		for (long edge : changed) {
+			int follower = (int) (edge >>> 32);
+			int followed = (int) edge;
+
+			if (current.added.contains(edge)
+					|| (current.forward.contains(follower, followed) && !current.removed.contains(edge))) {
+				addEdge(folded, follower, followed, edge);
+			} else {
+				removeEdge(folded, follower, followed, edge);
+			}
+		}
+
+		state = folded;
+	}
+
+	private static void addEdge(State current, int follower, int followed, long edge) {
+		if (current.forward.contains(follower, followed)) {
+			current.removed.remove(edge);
+		} else if (current.added.add(edge)) {
+			current.forwardAdded.computeIfAbsent(follower, v -> ConcurrentHashMap.newKeySet()).add(followed);
+			current.reverseAdded.computeIfAbsent(followed, v -> ConcurrentHashMap.newKeySet()).add(follower);
+		}
+	}
+
+	private static void removeEdge(State current, int follower, int followed, long edge) {
+		if (current.forward.contains(follower, followed)) {
+			current.removed.add(edge);
+		} else if (current.added.remove(edge)) {
+			current.forwardAdded.get(follower).remove(followed);
+			current.reverseAdded.get(followed).remove(follower);
+		}
+	}
+
+	private static long edge(int follower, int followed) {
+		return ((long) follower << 32) | (followed & 0xffffffffL);
+	}
+
+	/**
+	 * Adjacencies and the overlay on top of them
+	 */
+	private static final class State {
+
+		private final Adjacency forward;
+
+		private final Adjacency reverse;
+
+		private final Set<Long> added = ConcurrentHashMap.newKeySet();
+
+		private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+		private final Map<Integer, Set<Integer>> forwardAdded = new ConcurrentHashMap<>();
+
+		private final Map<Integer, Set<Integer>> reverseAdded = new ConcurrentHashMap<>();
+
+		State(Adjacency forward, Adjacency reverse) {
+			this.forward = forward;
+			this.reverse = reverse;
+		}
+	}
+
+	/**
+	 * The adjacencies and a copy of their overlay at the start of a fold
+	 */
+	final class Fold {
+
+		private final State base;
+
+		private final Set<Long> added;
+
+		private final Set<Long> removed;
+
+		private final String[] vertexNames;
+
+		private final int vertexCount;
+
+		private Fold(State base, Set<Long> added, Set<Long> removed, String[] vertexNames, int vertexCount) {
+			this.base = base;
+			this.added = added;
+			this.removed = removed;
+			this.vertexNames = vertexNames;
+			this.vertexCount = vertexCount;
+		}
+
+		/**
+		 * Build the folded adjacencies without holding up writes, then publish them - the image of the graph as
+		 * it was when the fold started
+		 */
+		Image complete() {
+			if (added.isEmpty() && removed.isEmpty()) {
+				return new Image(vertexNames, vertexCount, base.forward, base.reverse);
+			}
+
+			EdgeList edges = new EdgeList();
+
+			for (int follower = 0; follower < base.forward.vertexCount(); follower++) {
+				for (int i = base.forward.start(follower), end = base.forward.end(follower); i < end; i++) {
+					int followed = base.forward.target(i);
+
+					if (!removed.contains(edge(follower, followed))) edges.add(follower, followed);
+				}
+			}
+
+			added.forEach(edge -> edges.add((int) (edge >>> 32), (int) edge.longValue()));
+
+			Adjacency forward = Adjacency.build(vertexCount, edges.sources, edges.targets, edges.size);
+			Adjacency reverse = Adjacency.build(vertexCount, edges.targets, edges.sources, edges.size);
+
+			publish(this, forward, reverse);
+
+			return new Image(vertexNames, vertexCount, forward, reverse);
+		}
+	}
+
+	/**
+	 * Vertex names and adjacencies of the graph at one point
+	 */
+	static final class Image {
+
+		final String[] vertexNames;
+
+		final int vertexCount;
+
+		final Adjacency forward;
+
+		final Adjacency reverse;
+
+		Image(String[] vertexNames, int vertexCount, Adjacency forward, Adjacency reverse) {
+			this.vertexNames = vertexNames;
+			this.vertexCount = vertexCount;
+			this.forward = forward;
+			this.reverse = reverse;
+		}
+	}
+
+	/**
+	 * CSR adjacency - the targets of vertex v are targets[offsets[v]] to targets[offsets[v + 1] - 1], sorted.
+	 * Only absolute gets are used on the buffers, so they're safe to share between threads.
+	 */
+	static final class Adjacency {
+
+		final IntBuffer offsets;
+
+		final IntBuffer targets;
+
+		Adjacency(IntBuffer offsets, IntBuffer targets) {
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		/**
+		 * Counting sort of the edges by source, then sort and dedupe each row in place
+		 */
+		static Adjacency build(int vertexCount, int[] sources, int[] targets, int edgeCount) {
+			int[] offsets = new int[vertexCount + 1];
+			for (int i = 0; i < edgeCount; i++) offsets[sources[i] + 1]++;
+			for (int v = 0; v < vertexCount; v++) offsets[v + 1] += offsets[v];
+
+			int[] rows = new int[edgeCount];
+			int[] next = Arrays.copyOf(offsets, vertexCount);
+			for (int i = 0; i < edgeCount; i++) rows[next[sources[i]]++] = targets[i];
+
+			int written = 0;
+			for (int v = 0; v < vertexCount; v++) {
+				int start = offsets[v];
+				int end = offsets[v + 1];
+
+				Arrays.sort(rows, start, end);
+
+				offsets[v] = written;
+				for (int i = start; i < end; i++)
+					if (i == start || rows[i] != rows[i - 1]) rows[written++] = rows[i];
+			}
+			offsets[vertexCount] = written;
+
+			return new Adjacency(IntBuffer.wrap(offsets),
+					IntBuffer.wrap(written == edgeCount ? rows : Arrays.copyOf(rows, written)));
+		}
+
+		boolean contains(int from, int to) {
+			int low = start(from);
+			int high = end(from) - 1;
+
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int target = targets.get(middle);
+
+				if (target < to) low = middle + 1;
+				else if (target > to) high = middle - 1;
+				else return true;
+			}
+
+			return false;
+		}
+
+		int target(int index) {
+			return targets.get(index);
+		}
+
+		int vertexCount() {
+			return offsets.limit() - 1;
+		}
+
+		int edgeCount() {
+			return targets.limit();
+		}
+
+		int start(int vertex) {
+			return vertex < vertexCount() ? offsets.get(vertex) : 0;
+		}
+
+		int end(int vertex) {
+			return vertex < vertexCount() ? offsets.get(vertex + 1) : 0;
+		}
+
+		int degree(int vertex) {
+			return end(vertex) - start(vertex);
+		}
+	}
+
+	/**
+	 * Growable pair of int arrays
+	 */
+	private static final class EdgeList {
+
+		private int[] sources = new int[1024];
+
+		private int[] targets = new int[1024];
+
+		private int size;
+
+		void add(int source, int target) {
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				targets = Arrays.copyOf(targets, size * 2);
+			}
+
+			sources[size] = source;
+			targets[size] = target;
+			size++;
+		}
+	}
+
+	/**
+	 * Interns the IDs of the edges as they're added, then builds both adjacencies at once
+	 */
+	static final class Builder {
+
+		private final Map<String, Integer> vertexIds = new HashMap<>();
+
+		private final List<String> vertexNames = new ArrayList<>();
+
+		private final EdgeList edges = new EdgeList();
+
+		Builder add(String followerId, String followedId) {
+			edges.add(intern(followerId), intern(followedId));
+
+			return this;
+		}
+
+		SocialGraphIndex build() {
+			int vertexCount = vertexNames.size();
+
+			return new SocialGraphIndex(vertexNames.toArray(new String[0]), vertexCount,
+					Adjacency.build(vertexCount, edges.sources, edges.targets, edges.size),
+					Adjacency.build(vertexCount, edges.targets, edges.sources, edges.size));
+		}
+
+		private int intern(String id) {
+			return vertexIds.computeIfAbsent(id, key -> {
+				vertexNames.add(key);
+
+				return vertexNames.size() - 1;
+			});
+		}
+	}
+}
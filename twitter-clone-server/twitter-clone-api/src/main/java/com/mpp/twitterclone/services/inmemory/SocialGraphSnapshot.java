@@ -0,0 +1,157 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * On-disk image of a {@link SocialGraphIndex}, read back by mapping it rather than rebuilding it.
+ *
+ * Layout, all big-endian:
+ *   header   - magic, version, created at (when the image was taken), vertex count, forward and reverse edge
+ *              counts, names length
+ *   names    - per vertex, a short byte length then the UTF-8 user ID, padded to a multiple of 4 bytes
+ *   forward  - vertexCount + 1 offsets, then the targets
+ *   reverse  - vertexCount + 1 offsets, then the targets
+ *
+ * The offsets and targets are mapped read-only and used in place, so the page cache rather than the heap holds
+ * them and a restart only reads the names. A snapshot is written to a temporary file and moved over the old one,
+ * so a crash mid-write leaves the previous snapshot intact.
+ */
+
+final class SocialGraphSnapshot {
+
+	static final int MAGIC = 0x54435347;
+
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 40;
+
+	private SocialGraphSnapshot() {
+	}
+
+	static void write(Path path, SocialGraphIndex.Image image, long createdAt) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+		byte[][] names = new byte[image.vertexCount][];
+		long namesLength = 0;
+
+		for (int vertex = 0; vertex < image.vertexCount; vertex++) {
+			names[vertex] = image.vertexNames[vertex].getBytes(StandardCharsets.UTF_8);
+			namesLength += Short.BYTES + names[vertex].length;
+		}
+
+		int padding = (int) ((Integer.BYTES - namesLength % Integer.BYTES) % Integer.BYTES);
+
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+		     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(createdAt);
+			out.writeInt(image.vertexCount);
+			out.writeInt(image.forward.edgeCount());
+			out.writeInt(image.reverse.edgeCount());
+			out.writeInt(0);
+			out.writeLong(namesLength + padding);
+
+			for (byte[] name : names) {
+				out.writeShort(name.length);
+				out.write(name);
+			}
+			for (int i = 0; i < padding; i++) out.writeByte(0);
+
+			writeAdjacency(out, image.forward, image.vertexCount);
+			writeAdjacency(out, image.reverse, image.vertexCount);
+
+			out.flush();
+			file.getFD().sync();
+		}
+
+		Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	static SocialGraphIndex read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+			if (header.getInt() != MAGIC) throw new IOException("Not a Social Graph Snapshot: " + path);
+
+			int version = header.getInt();
+			if (version != VERSION) throw new IOException("Unsupported Social Graph Snapshot Version " + version);
+
+			header.getLong();
+			int vertexCount = header.getInt();
+			int forwardEdges = header.getInt();
+			int reverseEdges = header.getInt();
+			header.getInt();
+			long namesLength = header.getLong();
+
+			long position = HEADER_SIZE;
+
+			ByteBuffer namesSection = channel.map(FileChannel.MapMode.READ_ONLY, position, namesLength);
+			String[] names = new String[vertexCount];
+
+			for (int vertex = 0; vertex < vertexCount; vertex++) {
+				byte[] name = new byte[namesSection.getShort()];
+				namesSection.get(name);
+				names[vertex] = new String(name, StandardCharsets.UTF_8);
+			}
+			position += namesLength;
+
+			IntBuffer forwardOffsets = map(channel, position, vertexCount + 1);
+			position += (vertexCount + 1L) * Integer.BYTES;
+			IntBuffer forwardTargets = map(channel, position, forwardEdges);
+			position += (long) forwardEdges * Integer.BYTES;
+			IntBuffer reverseOffsets = map(channel, position, vertexCount + 1);
+			position += (vertexCount + 1L) * Integer.BYTES;
+			IntBuffer reverseTargets = map(channel, position, reverseEdges);
+
+			// The mappings outlive the channel
+			return SocialGraphIndex.of(names, vertexCount,
+					new SocialGraphIndex.Adjacency(forwardOffsets, forwardTargets),
+					new SocialGraphIndex.Adjacency(reverseOffsets, reverseTargets));
+		}
+	}
+
+	/**
+	 * When the image in the snapshot was taken, in epoch milliseconds
+	 */
+	static long createdAt(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+			if (header.getInt() != MAGIC) throw new IOException("Not a Social Graph Snapshot: " + path);
+
+			header.getInt();
+
+			return header.getLong();
+		}
+	}
+
+	private static void writeAdjacency(DataOutputStream out, SocialGraphIndex.Adjacency adjacency, int vertexCount)
+			throws IOException {
+		for (int vertex = 0; vertex <= vertexCount; vertex++) {
+			out.writeInt(vertex < adjacency.vertexCount() ? adjacency.start(vertex) : adjacency.edgeCount());
+		}
+		for (int i = 0; i < adjacency.edgeCount(); i++) out.writeInt(adjacency.target(i));
+	}
+
+	/**
+	 * Map one section - a single mapping is limited to 2GB, so each section has to stay under 512M ints
+	 */
+	private static IntBuffer map(FileChannel channel, long position, int length) throws IOException {
+		MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Integer.BYTES);
+
+		return section.asIntBuffer();
+	}
+}
@@ -0,0 +1,205 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.HashtagSuggestion;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.SuggestService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * User typeahead held in process - a {@link SuggestTrie} over the normalized username, name and words of the name
+ * of every user, ranked by followers, with a summary of each user to answer from, so a suggestion never reads the
+ * database. Hashtags, as {@link TrendInMemoryService#hashtags(Tweet)} extracts them, go in a second trie ranked
+ * by the number of tweets that used them.
+ *
+ * Built from the users and tweets collections at startup and kept current by the users and tweets written through
+ * this node - changes made by other nodes are only seen after a restart. Deleted tweets aren't taken out of the
+ * hashtag counts.
+ */
+
+@Slf4j
+@Service
+public class SuggestInMemoryService implements SuggestService {
+
+	public static final int MAX_SIZE = 20;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	private final UserRepository userRepository;
+
+	private final TweetRepository tweetRepository;
+
+	private final SuggestTrie trie = new SuggestTrie(MAX_SIZE);
+
+	// Keyed and ranked by the hashtags themselves
+	private final SuggestTrie hashtagTrie = new SuggestTrie(MAX_SIZE);
+
+	private final Map<String, Long> hashtagCounts = new ConcurrentHashMap<>();
+
+	// What each user is indexed with, to answer with and to take out again
+	private final Map<String, IndexedUser> usersById = new ConcurrentHashMap<>();
+
+	public SuggestInMemoryService(UserRepository userRepository, TweetRepository tweetRepository) {
+		this.userRepository = userRepository;
+		this.tweetRepository = tweetRepository;
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		long start = System.currentTimeMillis();
+
+		try (Stream<User> users = userRepository.streamAll()) {
+			users.forEach(this::index);
+		}
+
+		log.info("Indexed {} Users for Suggestions in {} ms", usersById.size(), System.currentTimeMillis() - start);
+
+		start = System.currentTimeMillis();
+
+		// Counted first, so each hashtag goes in the trie once
+		Map<String, Long> counts = new HashMap<>();
+
+		try (Stream<Tweet> tweets = tweetRepository.streamAllTextOldestFirst()) {
+			tweets.forEach(tweet -> TrendInMemoryService.hashtags(tweet)
+					.forEach(hashtag -> counts.merge(hashtag, 1L, Long::sum)));
+		}
+
+		synchronized (hashtagTrie) {
+			counts.forEach((hashtag, count) -> {
+				long total = hashtagCounts.merge(hashtag, count, Long::sum);
+				hashtagTrie.add(hashtag, hashtag, total);
+			});
+		}
+
+		log.info("Indexed {} Hashtags for Suggestions in {} ms", hashtagCounts.size(),
+				System.currentTimeMillis() - start);
+	}
+
+	@Override
+	public List<User> suggestUsers(String prefix, int size) {
+		String normalized = normalize(prefix);
+		if (normalized.isEmpty()) return new ArrayList<>();
+
+		// Skipping users removed since
+		return trie.find(normalized, Math.max(1, Math.min(size, MAX_SIZE))).stream()
+				.map(usersById::get)
+				.filter(Objects::nonNull)
+				.map(indexed -> indexed.summary)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<HashtagSuggestion> suggestHashtags(String prefix, int size) {
+		// Matched as the hashtags are kept - lowercased, accents and all
+		String trimmed = prefix.trim();
+		String hashtagPrefix = (trimmed.startsWith("#") ? trimmed.substring(1) : trimmed).toLowerCase(Locale.ROOT);
+		if (hashtagPrefix.isEmpty()) return new ArrayList<>();
+
+		return hashtagTrie.find(hashtagPrefix, Math.max(1, Math.min(size, MAX_SIZE))).stream()
+				.map(hashtag -> new HashtagSuggestion(hashtag, hashtagCounts.getOrDefault(hashtag, 0L)))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void recordHashtags(Tweet tweet) {
+		Set<String> hashtags = TrendInMemoryService.hashtags(tweet);
+		if (hashtags.isEmpty()) return;
+
+		synchronized (hashtagTrie) {
+			hashtags.forEach(hashtag -> hashtagTrie.add(hashtag, hashtag, hashtagCounts.merge(hashtag, 1L, Long::sum)));
+		}
+	}
+
+	@Override
+	public synchronized void index(User user) {
+		remove(user.getId());
+
+		Set<String> keys = keys(user);
+		long rank = user.getFollowersCount() == null ? 0 : user.getFollowersCount();
+
+		keys.forEach(key -> trie.add(key, user.getId(), rank));
+		usersById.put(user.getId(), new IndexedUser(summary(user), keys));
+	}
+
+	@Override
+	public synchronized void remove(String userId) {
+		IndexedUser indexed = usersById.remove(userId);
+		if (indexed != null) indexed.keys.forEach(key -> trie.remove(key, userId));
+	}
+
+	/**
+	 * Lowercased, without accents and with single spaces
+	 */
+	static String normalize(String text) {
+		if (text == null) return "";
+
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+
+		return SPACES.matcher(MARKS.matcher(decomposed).replaceAll("")).replaceAll(" ").trim()
+				.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The username, the name and the name from each of its later words on
+	 */
+	private static Set<String> keys(User user) {
+		Set<String> keys = new LinkedHashSet<>();
+		keys.add(normalize(user.getUsername()));
+
+		String name = normalize(user.getName());
+		keys.add(name);
+
+		for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', space + 1)) {
+			keys.add(name.substring(space + 1));
+		}
+
+		keys.remove("");
+
+		return Collections.unmodifiableSet(keys);
+	}
+
+	private static User summary(User user) {
+		return User.builder()
+				.id(user.getId())
+				.username(user.getUsername())
+				.name(user.getName())
+				.profileImageUrl(user.getProfileImageUrl())
+				.verified(user.getVerified())
+				.followersCount(user.getFollowersCount())
+				.build();
+	}
+
+	private static final class IndexedUser {
+
+		private final User summary;
+
+		private final Set<String> keys;
+
+		private IndexedUser(User summary, Set<String> keys) {
+			this.summary = summary;
+			this.keys = keys;
+		}
+	}
+}
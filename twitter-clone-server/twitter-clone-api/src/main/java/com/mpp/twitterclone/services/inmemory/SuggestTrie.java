@@ -0,0 +1,315 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix trie from keys to ranked IDs, answering "the best IDs under any key starting with a prefix".
+ *
+ * Chains of single-child nodes are collapsed into one edge label, so the trie has at most two nodes per key. Every
+ * node keeps the best topSize distinct IDs of its whole subtree, refreshed along the path of each change, so a
+ * lookup only walks the prefix and reads one list - however many keys share a short prefix.
+ *
+ * An ID can be under several keys. Searches take a read lock and changes a write lock.
+ */
+
+final class SuggestTrie {
+
+	private static final Comparator<Entry> BEST_FIRST = Comparator.comparingLong(Entry::getRank).reversed()
+			.thenComparing(Entry::getId);
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private final int topSize;
+
+	private final Node root = new Node("");
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	SuggestTrie(int topSize) {
+		this.topSize = topSize;
+	}
+
+	/**
+	 * Put the ID under the key with the given rank, replacing its rank there if it's under it already
+	 */
+	void add(String key, String id, long rank) {
+		lock.writeLock().lock();
+
+		try {
+			List<Node> path = new ArrayList<>();
+			path.add(root);
+
+			Node node = root;
+			int position = 0;
+
+			while (position < key.length()) {
+				Node child = node.child(key.charAt(position));
+
+				if (child == null) {
+					child = new Node(key.substring(position));
+					node.putChild(child);
+				} else {
+					int common = commonPrefixLength(child.label, key, position);
+
+					// The key leaves the edge part way - split it where they part
+					if (common < child.label.length()) {
+						Node middle = new Node(child.label.substring(0, common));
+						child.label = child.label.substring(common);
+						middle.putChild(child);
+						node.putChild(middle);
+						child = middle;
+					}
+				}
+
+				path.add(child);
+				position += child.label.length();
+				node = child;
+			}
+
+			if (node.ids == null) node.ids = new HashMap<>(2);
+			node.ids.put(id, rank);
+
+			for (int i = path.size() - 1; i >= 0; i--) refreshTop(path.get(i));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(String key, String id) {
+		lock.writeLock().lock();
+
+		try {
+			List<Node> path = path(key);
+			if (path == null) return;
+
+			Node node = path.get(path.size() - 1);
+			if (node.ids == null || node.ids.remove(id) == null) return;
+			if (node.ids.isEmpty()) node.ids = null;
+
+			// Upwards, dropping nodes left without keys and collapsing ones left with a single child
+			for (int i = path.size() - 1; i > 0; i--) {
+				Node current = path.get(i);
+				Node parent = path.get(i - 1);
+
+				if (current.ids == null && current.children.length == 0) {
+					parent.removeChild(current.label.charAt(0));
+				} else if (current.ids == null && current.children.length == 1) {
+					Node child = current.children[0];
+					child.label = current.label + child.label;
+					parent.putChild(child);
+				} else {
+					refreshTop(current);
+				}
+			}
+
+			refreshTop(root);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * IDs under the keys starting with the prefix, best first - at most topSize of them
+	 */
+	List<String> find(String prefix, int limit) {
+		lock.readLock().lock();
+
+		try {
+			Node node = root;
+			int position = 0;
+
+			while (position < prefix.length()) {
+				Node child = node.child(prefix.charAt(position));
+				if (child == null) return new ArrayList<>();
+
+				int common = commonPrefixLength(child.label, prefix, position);
+
+				// The prefix ends inside the edge - everything under it matches
+				if (position + common == prefix.length()) {
+					node = child;
+					break;
+				}
+
+				if (common < child.label.length()) return new ArrayList<>();
+
+				position += common;
+				node = child;
+			}
+
+			List<String> ids = new ArrayList<>();
+			for (int i = 0; i < Math.min(limit, node.top.length); i++) ids.add(node.top[i].id);
+
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	int nodeCount() {
+		lock.readLock().lock();
+
+		try {
+			return count(root);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<Node> path(String key) {
+		List<Node> path = new ArrayList<>();
+		path.add(root);
+
+		Node node = root;
+		int position = 0;
+
+		while (position < key.length()) {
+			Node child = node.child(key.charAt(position));
+			if (child == null || !key.startsWith(child.label, position)) return null;
+
+			path.add(child);
+			position += child.label.length();
+			node = child;
+		}
+
+		return path;
+	}
+
+	/**
+	 * Best topSize distinct IDs out of the node's own and the tops of its children
+	 */
+	private void refreshTop(Node node) {
+		List<Entry> candidates = new ArrayList<>();
+
+		if (node.ids != null) node.ids.forEach((id, rank) -> candidates.add(new Entry(id, rank)));
+		for (Node child : node.children) candidates.addAll(Arrays.asList(child.top));
+
+		candidates.sort(BEST_FIRST);
+
+		List<Entry> top = new ArrayList<>(Math.min(topSize, candidates.size()));
+		Set<String> seen = new HashSet<>();
+
+		for (Entry candidate : candidates) {
+			if (top.size() == topSize) break;
+			if (seen.add(candidate.id)) top.add(candidate);
+		}
+
+		node.top = top.toArray(NO_ENTRIES);
+	}
+
+	private static int count(Node node) {
+		int count = 1;
+		for (Node child : node.children) count += count(child);
+
+		return count;
+	}
+
+	private static int commonPrefixLength(String label, String key, int position) {
+		int length = Math.min(label.length(), key.length() - position);
+		int common = 0;
+
+		while (common < length && label.charAt(common) == key.charAt(position + common)) common++;
+
+		return common;
+	}
+
+	private static final class Node {
+
+		private String label;
+
+		// Sorted by the first character of their labels, which differ
+		private Node[] children = NO_CHILDREN;
+
+		// IDs whose key ends here, with their ranks
+		private Map<String, Long> ids;
+
+		private Entry[] top = NO_ENTRIES;
+
+		private Node(String label) {
+			this.label = label;
+		}
+
+		private Node child(char first) {
+			int i = indexOf(first);
+
+			return i >= 0 ? children[i] : null;
+		}
+
+		/**
+		 * Add the child, or replace the one starting with the same character
+		 */
+		private void putChild(Node child) {
+			int i = indexOf(child.label.charAt(0));
+
+			if (i >= 0) {
+				children[i] = child;
+			} else {
+				int insertion = -i - 1;
+				Node[] grown = new Node[children.length + 1];
+
+				System.arraycopy(children, 0, grown, 0, insertion);
+				grown[insertion] = child;
+				System.arraycopy(children, insertion, grown, insertion + 1, children.length - insertion);
+
+				children = grown;
+			}
+		}
+
+		private void removeChild(char first) {
+			int i = indexOf(first);
+			if (i < 0) return;
+
+			Node[] shrunk = new Node[children.length - 1];
+
+			System.arraycopy(children, 0, shrunk, 0, i);
+			System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+
+			children = shrunk;
+		}
+
+		private int indexOf(char first) {
+			int low = 0;
+			int high = children.length - 1;
+
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				char c = children[middle].label.charAt(0);
+
+				if (c < first) low = middle + 1;
+				else if (c > first) high = middle - 1;
+				else return middle;
+			}
+
+			return -(low + 1);
+		}
+	}
+
+	private static final class Entry {
+
+		private final String id;
+
+		private final long rank;
+
+		private Entry(String id, long rank) {
+			this.id = id;
+			this.rank = rank;
+		}
+
+		private String getId() {
+			return id;
+		}
+
+		private long getRank() {
+			return rank;
+		}
+	}
+}
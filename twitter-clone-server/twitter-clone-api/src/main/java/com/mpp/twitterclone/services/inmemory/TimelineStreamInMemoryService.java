@@ -0,0 +1,157 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.TimelineStreamService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process pub/sub of new tweets to live timeline streams, keyed by the user ID of the timeline owner.
+ *
+ * Open streams are async requests that hold no thread while idle. Writes happen on a small fixed pool of
+ * drain threads, so a slow client only ever fills its own bounded buffer - see {@link TimelineSubscription}.
+ * A client that doesn't take a write within {@link #WRITE_TIMEOUT} is dropped, and the pool gets an extra thread
+ * for as long as the write keeps its drain thread blocked, so stalled clients never hold up the others - up to
+ * {@link #MAX_LENT_THREADS} of them, however many clients stall at once. The connector fails a blocked write once
+ * it has waited for its connection timeout (server.connection-timeout, as long as the write timeout), which
+ * bounds how long a thread stays lent. Subscriptions are local to this node.
+ */
+
+@Service
+public class TimelineStreamInMemoryService implements TimelineStreamService {
+
+	public static final int BUFFER_CAPACITY = 64;
+	public static final int DRAIN_THREADS = 4;
+	public static final long STREAM_TIMEOUT = 30 * 60 * 1000L;
+	public static final long HEARTBEAT_INTERVAL = 30 * 1000L;
+	public static final long WRITE_TIMEOUT = 5 * 1000L;
+	public static final long WRITE_CHECK_INTERVAL = 1000L;
+	public static final int MAX_LENT_THREADS = 16;
+
+	private final ConcurrentHashMap<String, Set<TimelineSubscription>> subscriptions = new ConcurrentHashMap<>();
+
+	// Threads past the core size are only started by lending one for a stalled write
+	private final ThreadPoolExecutor drainExecutor = new ThreadPoolExecutor(DRAIN_THREADS, Integer.MAX_VALUE,
+			60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+	// Writes dropped while still blocked, guarded by the executor - the first MAX_LENT_THREADS have a thread lent
+	private int stalledWrites;
+
+	@Override
+	public SseEmitter subscribe(String userId) {
+		// Clients reconnect after the timeout, which also bounds the life of connections nobody closed
+		return register(userId, new SseEmitter(STREAM_TIMEOUT)).getEmitter();
+	}
+
+	TimelineSubscription register(String userId, SseEmitter emitter) {
+		TimelineSubscription subscription = new TimelineSubscription(userId, emitter, BUFFER_CAPACITY, drainExecutor);
+
+		// Add under the map's lock so a concurrent unsubscribe can't drop the set it's added to
+		subscriptions.compute(userId, (id, userSubscriptions) -> {
+			Set<TimelineSubscription> updated = userSubscriptions != null ? userSubscriptions
+					: ConcurrentHashMap.newKeySet();
+			updated.add(subscription);
+
+			return updated;
+		});
+
+		emitter.onCompletion(() -> unsubscribe(subscription));
+		emitter.onTimeout(() -> unsubscribe(subscription));
+		emitter.onError(ex -> unsubscribe(subscription));
+
+		return subscription;
+	}
+
+	@Override
+	public void publish(Tweet tweet, Collection<String> userIds) {
+		for (String userId : userIds) {
+			Set<TimelineSubscription> userSubscriptions = subscriptions.get(userId);
+
+			if (userSubscriptions != null) userSubscriptions.forEach(subscription -> subscription.offer(tweet));
+		}
+	}
+
+	@Override
+	public int getSubscriptionCount() {
+		return subscriptions.values().stream().mapToInt(Set::size).sum();
+	}
+
+	@Scheduled(fixedRate = HEARTBEAT_INTERVAL)
+	public void heartbeat() {
+		subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(TimelineSubscription::heartbeat));
+	}
+
+	@Scheduled(fixedRate = WRITE_CHECK_INTERVAL)
+	public void checkWrites() {
+		dropStalled(System.nanoTime());
+	}
+
+	/**
+	 * Drop the subscriptions whose write has been blocked for longer than the write timeout at the given time
+	 */
+	void dropStalled(long now) {
+		long timeout = TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT);
+
+		subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> {
+			if (subscription.stall(now, timeout, this::returnThread)) {
+				lendThread();
+				unsubscribe(subscription);
+			}
+		}));
+	}
+
+	int getDrainThreads() {
+		return drainExecutor.getCorePoolSize();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> {
+			subscription.close();
+			subscription.getEmitter().complete();
+		}));
+
+		drainExecutor.shutdown();
+	}
+
+	/**
+	 * A stalled write keeps its drain thread - lend the pool another one, unless as many are lent already
+	 */
+	void lendThread() {
+		synchronized (drainExecutor) {
+			if (++stalledWrites <= MAX_LENT_THREADS) {
+				drainExecutor.setCorePoolSize(drainExecutor.getCorePoolSize() + 1);
+			}
+		}
+	}
+
+	/**
+	 * A stalled write returned its drain thread
+	 */
+	void returnThread() {
+		synchronized (drainExecutor) {
+			if (stalledWrites-- <= MAX_LENT_THREADS) {
+				drainExecutor.setCorePoolSize(drainExecutor.getCorePoolSize() - 1);
+			}
+		}
+	}
+
+	private void unsubscribe(TimelineSubscription subscription) {
+		subscription.close();
+
+		subscriptions.computeIfPresent(subscription.getUserId(), (userId, userSubscriptions) -> {
+			userSubscriptions.remove(subscription);
+
+			return userSubscriptions.isEmpty() ? null : userSubscriptions;
+		});
+	}
+}
@@ -0,0 +1,214 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open live timeline stream.
+ *
+ * Published tweets wait in a bounded buffer until a drain task writes them out, and at most one drain task
+ * per subscription is queued or running at a time. When a slow consumer lets the buffer fill up the oldest
+ * tweets are dropped, and the next write starts with a single "gap" event carrying how many were missed so
+ * the client can refetch its timeline instead.
+ *
+ * Writes block while the client drains its socket. A write that takes longer than the write timeout is found by
+ * {@link #stall(long, long, Runnable)}, which closes the subscription - the drain thread stays blocked until the
+ * write fails or completes, and the callback runs then, so the pool can lend another thread meanwhile.
+ */
+
+@Slf4j
+class TimelineSubscription {
+
+	static final String TWEET_EVENT = "tweet";
+	static final String GAP_EVENT = "gap";
+
+	private final String userId;
+
+	private final SseEmitter emitter;
+
+	private final int capacity;
+
+	private final Executor executor;
+
+	private final ArrayDeque<Tweet> buffer;
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private int missed;
+
+	private boolean heartbeatDue;
+
+	private volatile boolean closed;
+
+	private final Object writeLock = new Object();
+
+	// System.nanoTime() when the write in progress started, 0 without one
+	private long writeStartedAt;
+
+	private Runnable stallEnded;
+
+	TimelineSubscription(String userId, SseEmitter emitter, int capacity, Executor executor) {
+		this.userId = userId;
+		this.emitter = emitter;
+		this.capacity = capacity;
+		this.executor = executor;
+		this.buffer = new ArrayDeque<>(capacity);
+	}
+
+	String getUserId() {
+		return userId;
+	}
+
+	SseEmitter getEmitter() {
+		return emitter;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	void offer(Tweet tweet) {
+		if (closed) return;
+
+		synchronized (this) {
+			// Drop the oldest tweet rather than blocking the publisher or growing without bound
+			if (buffer.size() == capacity) {
+				buffer.pollFirst();
+				missed++;
+			}
+
+			buffer.addLast(tweet);
+		}
+
+		scheduleDrain();
+	}
+
+	/**
+	 * Keep idle connections from being closed by proxies, and find out about clients that went away
+	 */
+	void heartbeat() {
+		if (closed) return;
+
+		synchronized (this) {
+			heartbeatDue = true;
+		}
+
+		scheduleDrain();
+	}
+
+	void close() {
+		closed = true;
+	}
+
+	/**
+	 * Close the subscription if its write in progress started more than timeout nanoseconds before now. The
+	 * callback runs once that write returns. Returns whether it was stalled.
+	 */
+	boolean stall(long now, long timeout, Runnable ended) {
+		synchronized (writeLock) {
+			if (writeStartedAt == 0 || stallEnded != null || now - writeStartedAt <= timeout) return false;
+
+			stallEnded = ended;
+		}
+
+		closed = true;
+
+		return true;
+	}
+
+	synchronized int getMissed() {
+		return missed;
+	}
+
+	synchronized int getBuffered() {
+		return buffer.size();
+	}
+
+	private void scheduleDrain() {
+		if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+	}
+
+	private void drain() {
+		try {
+			while (!closed) {
+				List<Tweet> tweets;
+				int gap;
+				boolean heartbeat;
+
+				synchronized (this) {
+					tweets = new ArrayList<>(buffer);
+					gap = missed;
+					heartbeat = heartbeatDue;
+
+					buffer.clear();
+					missed = 0;
+					heartbeatDue = false;
+				}
+
+				if (tweets.isEmpty() && gap == 0 && !heartbeat) break;
+
+				synchronized (writeLock) {
+					writeStartedAt = System.nanoTime();
+				}
+
+				try {
+					write(tweets, gap, heartbeat);
+				} finally {
+					Runnable ended;
+
+					synchronized (writeLock) {
+						writeStartedAt = 0;
+						ended = stallEnded;
+					}
+
+					if (ended != null) {
+						// Dropped while the write was blocked - the client reconnects and refetches
+						ended.run();
+						emitter.complete();
+					}
+				}
+			}
+		} catch (IOException | IllegalStateException ex) {
+			// The client went away - the emitter callbacks remove the subscription
+			log.debug("Closing Timeline Stream of User {}", userId);
+			closed = true;
+
+			synchronized (writeLock) {
+				if (stallEnded != null) return;
+			}
+
+			emitter.completeWithError(ex);
+		} finally {
+			draining.set(false);
+		}
+
+		// Something may have been offered between the last empty check and releasing the flag
+		synchronized (this) {
+			if (!closed && (!buffer.isEmpty() || missed > 0 || heartbeatDue)) scheduleDrain();
+		}
+	}
+
+	private void write(List<Tweet> tweets, int gap, boolean heartbeat) throws IOException {
+		if (gap > 0) {
+			emitter.send(SseEmitter.event().name(GAP_EVENT)
+					.data(Collections.singletonMap("missed", gap), MediaType.APPLICATION_JSON));
+		}
+
+		for (Tweet tweet : tweets) {
+			emitter.send(SseEmitter.event().name(TWEET_EVENT).id(tweet.getId())
+					.data(tweet, MediaType.APPLICATION_JSON));
+		}
+
+		if (heartbeat && tweets.isEmpty() && gap == 0) emitter.send(SseEmitter.event().comment("heartbeat"));
+	}
+}
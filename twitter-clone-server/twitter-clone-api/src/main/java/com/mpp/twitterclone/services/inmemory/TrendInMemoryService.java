@@ -0,0 +1,215 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Trend;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.services.TrendService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trending hashtags from the tweets created through this node, counted in process in fixed memory.
+ *
+ * Uses are counted in a {@link CountMinSketch} per minute over the last hour and one per hour over the last day,
+ * each cleared when its slot comes round again. A {@link HeavyHitters} summary per hour picks the hashtags worth
+ * looking at, so neither grows with the number of distinct hashtags.
+ *
+ * A hashtag is scored by how far its uses in the last five minutes are above the five-minute average of the rest
+ * of the day, in standard deviations of a Poisson count. The trends are scored every {@link #REFRESH_INTERVAL} ms
+ * into a snapshot the endpoint reads.
+ */
+
+@Service
+public class TrendInMemoryService implements TrendService {
+
+	public static final int SKETCH_DEPTH = 4;
+
+	public static final int SKETCH_WIDTH = 2048;
+
+	public static final int CANDIDATES = 1000;
+
+	// Uses in the last five minutes a hashtag needs to trend
+	public static final int MIN_COUNT = 3;
+
+	// Standard deviations above its usual rate a hashtag needs to trend
+	public static final double MIN_SCORE = 1.0;
+
+	public static final int MAX_SIZE = 50;
+
+	public static final int MAX_HASHTAG_LENGTH = 100;
+
+	public static final long REFRESH_INTERVAL = 5_000;
+
+	private static final int MINUTES = 60;
+
+	private static final int HOURS = 24;
+
+	private static final Pattern HASHTAG = Pattern.compile("(?<![\\p{L}\\p{N}_])#([\\p{L}\\p{N}_]+)");
+
+	private final CountMinSketch[] minuteCounts = new CountMinSketch[MINUTES];
+
+	// Minute since the epoch each slot counts
+	private final long[] minuteOf = new long[MINUTES];
+
+	private final CountMinSketch[] hourCounts = new CountMinSketch[HOURS];
+
+	private final long[] hourOf = new long[HOURS];
+
+	// This hour's and the last
+	private final HeavyHitters[] hourHitters = new HeavyHitters[2];
+
+	private final long[] hitterHourOf = new long[2];
+
+	private volatile List<Trend> trends = Collections.emptyList();
+
+	public TrendInMemoryService() {
+		for (int i = 0; i < MINUTES; i++) minuteCounts[i] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+		for (int i = 0; i < HOURS; i++) hourCounts[i] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+		for (int i = 0; i < hourHitters.length; i++) hourHitters[i] = new HeavyHitters(CANDIDATES);
+
+		Arrays.fill(minuteOf, Long.MIN_VALUE);
+		Arrays.fill(hourOf, Long.MIN_VALUE);
+		Arrays.fill(hitterHourOf, Long.MIN_VALUE);
+	}
+
+	@Override
+	public List<Trend> findTrends(int size) {
+		List<Trend> snapshot = trends;
+
+		return new ArrayList<>(snapshot.subList(0, Math.min(snapshot.size(), Math.max(1, Math.min(size, MAX_SIZE)))));
+	}
+
+	@Override
+	public void record(Tweet tweet) {
+		Set<String> hashtags = hashtags(tweet);
+		if (hashtags.isEmpty()) return;
+
+		long minute = epochMinute(tweet.getCreatedAt());
+		long hour = Math.floorDiv(minute, MINUTES);
+
+		synchronized (this) {
+			int minuteSlot = claim(minuteOf, minute, i -> minuteCounts[i].clear());
+			int hourSlot = claim(hourOf, hour, i -> hourCounts[i].clear());
+			int hitterSlot = claim(hitterHourOf, hour, i -> hourHitters[i].clear());
+
+			for (String hashtag : hashtags) {
+				if (minuteSlot >= 0) minuteCounts[minuteSlot].add(hashtag, 1);
+				if (hourSlot >= 0) hourCounts[hourSlot].add(hashtag, 1);
+				if (hitterSlot >= 0) hourHitters[hitterSlot].add(hashtag);
+			}
+		}
+	}
+
+	@Scheduled(fixedDelay = REFRESH_INTERVAL)
+	public void refresh() {
+		refresh(LocalDateTime.now());
+	}
+
+	void refresh(LocalDateTime now) {
+		long minute = epochMinute(now);
+		long hour = Math.floorDiv(minute, MINUTES);
+		List<Trend> scored = new ArrayList<>();
+
+		synchronized (this) {
+			Set<String> candidates = new HashSet<>();
+			for (int i = 0; i < hourHitters.length; i++) {
+				if (hitterHourOf[i] >= hour - 1) candidates.addAll(hourHitters[i].keys());
+			}
+
+			for (String hashtag : candidates) {
+				long lastFiveMinutes = count(minuteCounts, minuteOf, hashtag, minute - 4, minute);
+				if (lastFiveMinutes < MIN_COUNT) continue;
+
+				long lastHour = count(minuteCounts, minuteOf, hashtag, minute - (MINUTES - 1), minute);
+				long lastDay = count(hourCounts, hourOf, hashtag, hour - (HOURS - 1), hour);
+
+				// Five-minute average over the day before the last hour
+				double expected = Math.max(0, lastDay - lastHour) / ((HOURS - 1) * 12.0);
+				double score = (lastFiveMinutes - expected) / Math.sqrt(expected + 1);
+
+				if (score >= MIN_SCORE) {
+					scored.add(new Trend(hashtag, score, lastFiveMinutes, lastHour, Math.max(lastDay, lastHour)));
+				}
+			}
+		}
+
+		scored.sort(Comparator.comparingDouble(Trend::getScore).reversed().thenComparing(Trend::getHashtag));
+
+		trends = Collections.unmodifiableList(new ArrayList<>(scored.subList(0, Math.min(scored.size(), MAX_SIZE))));
+	}
+
+	/**
+	 * Lowercased hashtags of the text and text contents, without the '#'
+	 */
+	static Set<String> hashtags(Tweet tweet) {
+		List<String> texts = new ArrayList<>();
+
+		if (tweet.getText() != null) texts.add(tweet.getText());
+
+		if (tweet.getContent() != null) {
+			tweet.getContent().stream()
+					.filter(TextContent.class::isInstance)
+					.forEach(content -> texts.add(((TextContent) content).getData()));
+		}
+
+		Set<String> hashtags = new LinkedHashSet<>();
+
+		for (String text : texts) {
+			Matcher matcher = HASHTAG.matcher(text);
+
+			while (matcher.find()) {
+				String hashtag = matcher.group(1).toLowerCase(Locale.ROOT);
+				hashtags.add(hashtag.length() > MAX_HASHTAG_LENGTH ? hashtag.substring(0, MAX_HASHTAG_LENGTH) : hashtag);
+			}
+		}
+
+		return hashtags;
+	}
+
+	/**
+	 * Index of the slot for the period, cleared if it last held an older one - or -1 if a newer one has it already
+	 */
+	private static int claim(long[] periods, long period, IntConsumer clear) {
+		int i = (int) Math.floorMod(period, (long) periods.length);
+
+		if (periods[i] > period) return -1;
+
+		if (periods[i] < period) {
+			clear.accept(i);
+			periods[i] = period;
+		}
+
+		return i;
+	}
+
+	private static long count(CountMinSketch[] slots, long[] periods, String hashtag, long from, long to) {
+		long count = 0;
+
+		for (long period = from; period <= to; period++) {
+			int i = (int) Math.floorMod(period, (long) slots.length);
+			if (periods[i] == period) count += slots[i].estimate(hashtag);
+		}
+
+		return count;
+	}
+
+	private static long epochMinute(LocalDateTime dateTime) {
+		return Math.floorDiv((dateTime == null ? LocalDateTime.now() : dateTime).atZone(ZoneId.systemDefault())
+				.toEpochSecond(), 60);
+	}
+}
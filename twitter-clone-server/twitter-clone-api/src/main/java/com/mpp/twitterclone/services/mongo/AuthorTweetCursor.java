@@ -0,0 +1,89 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.TweetRepository;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Lazily batched, newest first cursor over the tweets of a single author.
+ *
+ * Batches are fetched with a (created_at, _id) keyset so a cursor never reads more than it is asked for,
+ * and it ends as soon as it reaches a tweet that isn't newer than the optional lower bound.
+ */
+
+class AuthorTweetCursor {
+
+	/**
+	 * Newest first ordering with the ID as a tie breaker - the same order the keyset queries use
+	 */
+	static final Comparator<Tweet> NEWEST_FIRST = Comparator.comparing(Tweet::getCreatedAt)
+			.thenComparing(Tweet::getId)
+			.reversed();
+
+	private final TweetRepository tweetRepository;
+
+	private final String owner;
+
+	private final int batchSize;
+
+	private final Tweet since;
+
+	private final Deque<Tweet> buffer = new ArrayDeque<>();
+
+	private Tweet last;
+
+	private boolean exhausted;
+
+	private int documentsExamined;
+
+	AuthorTweetCursor(TweetRepository tweetRepository, String owner, int batchSize, Tweet since, Tweet max) {
+		this.tweetRepository = tweetRepository;
+		this.owner = owner;
+		this.batchSize = batchSize;
+		this.since = since;
+		this.last = max;
+	}
+
+	boolean hasNext() {
+		if (buffer.isEmpty() && !exhausted) fill();
+
+		return !buffer.isEmpty();
+	}
+
+	Tweet peek() {
+		return hasNext() ? buffer.peekFirst() : null;
+	}
+
+	Tweet next() {
+		return hasNext() ? buffer.pollFirst() : null;
+	}
+
+	int getDocumentsExamined() {
+		return documentsExamined;
+	}
+
+	private void fill() {
+		List<Tweet> batch = last == null
+				? tweetRepository.findAllByOwnerOlderThan(owner, null, null, batchSize)
+				: tweetRepository.findAllByOwnerOlderThan(owner, last.getCreatedAt(), last.getId(), batchSize);
+
+		documentsExamined += batch.size();
+
+		if (batch.size() < batchSize) exhausted = true;
+
+		for (Tweet tweet : batch) {
+			// Reached the lower bound - nothing older can be part of the page
+			if (since != null && NEWEST_FIRST.compare(tweet, since) >= 0) {
+				exhausted = true;
+				break;
+			}
+
+			buffer.addLast(tweet);
+			last = tweet;
+		}
+	}
+}
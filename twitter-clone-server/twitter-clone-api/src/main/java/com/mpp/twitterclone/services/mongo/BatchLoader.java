@@ -0,0 +1,199 @@
+package com.mpp.twitterclone.services.mongo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Request scoped batching of lookups by a single key.
+ *
+ * Keys are queued with {@link #enqueue(String)} and loaded together by {@link #dispatch()} in one $in query -
+ * one round trip for the whole batch instead of one per key. Loaded values, and keys that matched nothing,
+ * are memoized for the rest of the request, so repeated lookups of the same key (e.g. the current user by the
+ * token filter, the controller and the action validator) only hit the database once.
+ *
+ * The state lives in the attributes of the current request. Outside a request (scheduled or async work)
+ * every call gets a fresh batch, so nothing is memoized there.
+ */
+
+@Slf4j
+public class BatchLoader<V> {
+
+	public static final String ROUND_TRIPS_AVOIDED_ATTRIBUTE = BatchLoader.class.getName() + ".roundTripsAvoided";
+
+	private final String attributeName;
+
+	private final Function<String, Optional<V>> loadOne;
+
+	private final Function<Collection<String>, Iterable<V>> loadMany;
+
+	private final Function<V, String> keyOf;
+
+	/**
+	 * @param name     unique name of the loader in a request
+	 * @param loadOne  lookup of a single key
+	 * @param loadMany $in lookup of a batch of keys
+	 * @param keyOf    key of a loaded value
+	 */
+	public BatchLoader(String name, Function<String, Optional<V>> loadOne,
+	                   Function<Collection<String>, Iterable<V>> loadMany, Function<V, String> keyOf) {
+		this.attributeName = BatchLoader.class.getName() + "." + name;
+		this.loadOne = loadOne;
+		this.loadMany = loadMany;
+		this.keyOf = keyOf;
+	}
+
+	/**
+	 * Queue a key for the next dispatch, unless it's already loaded
+	 */
+	public void enqueue(String key) {
+		batch().enqueue(key);
+	}
+
+	/**
+	 * Load every queued key in a single query
+	 */
+	public void dispatch() {
+		dispatch(batch(), true);
+	}
+
+	public Optional<V> load(String key) {
+		Batch<V> batch = batch();
+		batch.enqueue(key);
+		dispatch(batch, false);
+
+		return batch.loaded.getOrDefault(key, Optional.empty());
+	}
+
+	/**
+	 * Values of the given keys in the order of the keys, skipping the ones that matched nothing
+	 */
+	public List<V> loadAll(Collection<String> keys) {
+		Batch<V> batch = batch();
+		keys.forEach(batch::enqueue);
+		dispatch(batch, true);
+
+		return keys.stream()
+				.map(key -> batch.loaded.getOrDefault(key, Optional.empty()).orElse(null))
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Memoize a value that was just written, so later loads in the request see it
+	 */
+	public void prime(V value) {
+		batch().loaded.put(keyOf.apply(value), Optional.of(value));
+	}
+
+	public void clear(String key) {
+		batch().loaded.remove(key);
+	}
+
+	/**
+	 * Round trips avoided so far in the current request by all the loaders
+	 */
+	public static int getRoundTripsAvoided() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) return 0;
+
+		AtomicInteger avoided = (AtomicInteger) attributes.getAttribute(ROUND_TRIPS_AVOIDED_ATTRIBUTE,
+				RequestAttributes.SCOPE_REQUEST);
+
+		return avoided == null ? 0 : avoided.get();
+	}
+
+	/**
+	 * A lone key queued by a single load is looked up on its own, which is cheaper than a one element $in
+	 */
+	private void dispatch(Batch<V> batch, boolean batched) {
+		if (batch.pending.isEmpty()) return;
+
+		List<String> keys = List.copyOf(batch.pending);
+		batch.pending.clear();
+
+		if (!batched && keys.size() == 1) {
+			batch.loaded.put(keys.get(0), loadOne.apply(keys.get(0)));
+		} else {
+			keys.forEach(key -> batch.loaded.put(key, Optional.empty()));
+			loadMany.apply(keys).forEach(value -> batch.loaded.put(keyOf.apply(value), Optional.of(value)));
+		}
+
+		batch.dispatched();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Batch<V> batch() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) return new Batch<>(null);
+
+		Batch<V> batch = (Batch<V>) attributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+
+		if (batch == null) {
+			batch = new Batch<>(attributes);
+			attributes.setAttribute(attributeName, batch, RequestAttributes.SCOPE_REQUEST);
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Memoized and queued keys of one loader in one request
+	 */
+	private static class Batch<V> {
+
+		private final RequestAttributes attributes;
+
+		private final Map<String, Optional<V>> loaded = new HashMap<>();
+
+		private final Set<String> pending = new LinkedHashSet<>();
+
+		Batch(RequestAttributes attributes) {
+			this.attributes = attributes;
+		}
+
+		void enqueue(String key) {
+			if (!loaded.containsKey(key)) pending.add(key);
+
+			countAvoided(1);
+		}
+
+		void dispatched() {
+			countAvoided(-1);
+		}
+
+		/**
+		 * Every load that didn't need a query of its own is a round trip avoided - loads minus queries.
+		 * The total of the request is logged once it completes.
+		 */
+		private void countAvoided(int delta) {
+			if (attributes == null) return;
+
+			AtomicInteger avoided = (AtomicInteger) attributes.getAttribute(ROUND_TRIPS_AVOIDED_ATTRIBUTE,
+					RequestAttributes.SCOPE_REQUEST);
+
+			if (avoided == null) {
+				AtomicInteger total = new AtomicInteger();
+				attributes.setAttribute(ROUND_TRIPS_AVOIDED_ATTRIBUTE, total, RequestAttributes.SCOPE_REQUEST);
+				attributes.registerDestructionCallback(ROUND_TRIPS_AVOIDED_ATTRIBUTE,
+						() -> log.debug("Round trips avoided by batch loading: {}", total.get()),
+						RequestAttributes.SCOPE_REQUEST);
+				avoided = total;
+			}
+
+			avoided.addAndGet(delta);
+		}
+	}
+}
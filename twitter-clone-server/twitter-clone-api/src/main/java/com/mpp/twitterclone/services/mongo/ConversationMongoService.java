@@ -0,0 +1,405 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.Conversation;
+import com.mpp.twitterclone.model.Migration;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.MigrationRepository;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.ConversationService;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Assembles threads - the ancestors by walking up the parent IDs, the replies of a root with one range scan over
+ * the levels of its conversation, and those of a tweet further down a level at a time by the parent IDs, since the
+ * rest of its conversation isn't under it - and keeps them for {@link #CACHE_TTL}, so a hot thread is served
+ * without reading it again. The reads stop at {@link #MAX_THREAD_TWEETS}, shallow levels first, and the reply
+ * counters tell what they left out.
+ *
+ * Every kept thread is indexed under the IDs of the tweets in it, so invalidating a tweet drops exactly the threads
+ * it's in. A thread assembled while one of its own tweets was invalidated may have read it before the change, so
+ * it isn't kept - invalidations of other tweets meanwhile don't matter. Counters in kept threads can lag by up to
+ * the TTL.
+ */
+
+@Slf4j
+@Service
+public class ConversationMongoService implements ConversationService {
+
+	public static final int MAX_DEPTH = 5;
+
+	public static final int MAX_WIDTH = 50;
+
+	public static final int MAX_ANCESTORS = 50;
+
+	public static final int MAX_THREAD_TWEETS = 5_000;
+
+	public static final long CACHE_SIZE = 10_000;
+
+	public static final Duration CACHE_TTL = Duration.ofSeconds(30);
+
+	public static final String BACKFILL_MIGRATION = "conversations-backfill";
+
+	private final TweetRepository tweetRepository;
+
+	private final MigrationRepository migrationRepository;
+
+	private final TweetLoader tweetLoader;
+
+	private final Cache<ConversationKey, CachedConversation> conversations;
+
+	// The kept threads each tweet is in
+	private final Map<String, Set<CachedConversation>> conversationsByTweetId = new ConcurrentHashMap<>();
+
+	private final Object invalidationLock = new Object();
+
+	// Guarded by the invalidation lock: the invalidations so far, when each tweet was last invalidated while threads
+	// were being assembled (oldest first), and the assemblies running by the invalidations when they started
+	private long invalidations;
+
+	private final Map<String, Long> lastInvalidations = new LinkedHashMap<>();
+
+	private final NavigableMap<Long, Integer> assemblies = new TreeMap<>();
+
+	public ConversationMongoService(TweetRepository tweetRepository, MigrationRepository migrationRepository,
+	                                TweetLoader tweetLoader) {
+		this.tweetRepository = tweetRepository;
+		this.migrationRepository = migrationRepository;
+		this.tweetLoader = tweetLoader;
+		this.conversations = Caffeine.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.expireAfterWrite(CACHE_TTL)
+				.<ConversationKey, CachedConversation>removalListener((key, cached, cause) -> {
+					// A replaced thread is unindexed by whoever replaced it
+					if (cached != null && cause != RemovalCause.REPLACED) unindex(cached);
+				})
+				.build();
+	}
+
+	/**
+	 * Give the replies written before threads were tracked their conversation and depth. Run once - every reply
+	 * since is written with them, and looking for unplaced replies means going through every root tweet.
+	 */
+	@PostConstruct
+	public void backfillConversations() {
+		if (migrationRepository.existsById(BACKFILL_MIGRATION)) return;
+
+		Map<String, ThreadPosition> positions = new HashMap<>();
+		int backfilled = 0;
+
+		try (Stream<Tweet> replies = tweetRepository.streamRepliesWithoutConversation()) {
+			for (Tweet reply : (Iterable<Tweet>) replies::iterator) {
+				ThreadPosition position = positionOf(reply, positions);
+
+				tweetRepository.updateConversation(reply.getId(), position.getConversationId(), position.getDepth());
+				backfilled++;
+			}
+		}
+
+		migrationRepository.save(Migration.builder().id(BACKFILL_MIGRATION).build());
+
+		log.info("Backfilled the Conversations of {} Replies", backfilled);
+	}
+
+	@Override
+	public Conversation findConversation(String tweetId, int depth, int width) {
+		ConversationKey key = new ConversationKey(tweetId, Math.max(0, Math.min(depth, MAX_DEPTH)),
+				Math.max(1, Math.min(width, MAX_WIDTH)));
+
+		CachedConversation cached = conversations.getIfPresent(key);
+		if (cached != null) return cached.conversation;
+
+		long started;
+		synchronized (invalidationLock) {
+			started = invalidations;
+			assemblies.merge(started, 1, Integer::sum);
+		}
+
+		Set<String> tweetIds = new HashSet<>();
+		Conversation conversation = null;
+
+		try {
+			conversation = assemble(key, tweetIds);
+		} finally {
+			synchronized (invalidationLock) {
+				if (conversation != null && !invalidatedSince(started, tweetIds)) {
+					CachedConversation assembled = new CachedConversation(key, conversation, tweetIds);
+
+					index(assembled);
+					Optional.ofNullable(conversations.asMap().put(key, assembled)).ifPresent(this::unindex);
+				}
+
+				assemblies.computeIfPresent(started, (start, running) -> running == 1 ? null : running - 1);
+
+				// Forget the invalidations every running assembly started after
+				long oldest = assemblies.isEmpty() ? invalidations : assemblies.firstKey();
+				Iterator<Long> invalidated = lastInvalidations.values().iterator();
+
+				while (invalidated.hasNext() && invalidated.next() <= oldest) invalidated.remove();
+			}
+		}
+
+		return conversation;
+	}
+
+	@Override
+	public void invalidate(String tweetId) {
+		synchronized (invalidationLock) {
+			invalidations++;
+
+			// Moved to the end, keeping the oldest first
+			if (!assemblies.isEmpty()) {
+				lastInvalidations.remove(tweetId);
+				lastInvalidations.put(tweetId, invalidations);
+			}
+
+			Set<CachedConversation> cached = conversationsByTweetId.remove(tweetId);
+			if (cached == null) return;
+
+			for (CachedConversation conversation : cached) {
+				conversations.asMap().remove(conversation.key, conversation);
+			}
+		}
+	}
+
+	/**
+	 * Whether any of the tweets was invalidated after an assembly started - called with the invalidation lock held
+	 */
+	private boolean invalidatedSince(long started, Set<String> tweetIds) {
+		for (String tweetId : tweetIds) {
+			if (lastInvalidations.getOrDefault(tweetId, 0L) > started) return true;
+		}
+
+		return false;
+	}
+
+	private Conversation assemble(ConversationKey key, Set<String> tweetIds) {
+		Tweet tweet = tweetLoader.findById(key.getTweetId())
+				.orElseThrow(() -> new ResourceNotFoundException("Tweet"));
+		tweetIds.add(tweet.getId());
+
+		// Root first - stops at a deleted ancestor
+		LinkedList<Tweet> ancestors = new LinkedList<>();
+		String parentId = tweet.getParentId();
+
+		while (parentId != null && ancestors.size() < MAX_ANCESTORS) {
+			Optional<Tweet> parent = tweetLoader.findById(parentId);
+			if (!parent.isPresent()) break;
+
+			ancestors.addFirst(parent.get());
+			tweetIds.add(parentId);
+			parentId = parent.get().getParentId();
+		}
+
+		ReplyTree tree = new ReplyTree(tweet, key.getWidth(), tweetIds);
+
+		if (key.getDepth() > 0 && tweet.getParentId() == null) {
+			// A root - the levels under it are its whole conversation
+			tree.place(tweetRepository.findAllByConversationId(tweet.getId(), 1, key.getDepth(), MAX_THREAD_TWEETS));
+		} else if (key.getDepth() > 0) {
+			Collection<String> parentIds = Collections.singletonList(tweet.getId());
+			int read = 0;
+
+			for (int level = 0; level < key.getDepth() && !parentIds.isEmpty() && read < MAX_THREAD_TWEETS; level++) {
+				List<Tweet> levelReplies = tweetRepository.findAllByParentIdIn(parentIds, MAX_THREAD_TWEETS - read);
+
+				read += levelReplies.size();
+				parentIds = tree.place(levelReplies);
+			}
+		}
+
+		return Conversation.builder()
+				.ancestors(ancestors)
+				.tweet(tweet)
+				.replies(tree.finish())
+				.moreReplies(moreReplies(tweet, tree.replyCounts, tree.replies.size()))
+				.build();
+	}
+
+	/**
+	 * Replies past the depth or the scan weren't read, so for those the reply counter is all there is to go by
+	 */
+	private static boolean moreReplies(Tweet tweet, Map<String, Integer> replyCounts, int listed) {
+		int replyCount = tweet.getReplyCount() == null ? 0 : tweet.getReplyCount();
+
+		return Math.max(replyCount, replyCounts.getOrDefault(tweet.getId(), 0)) > listed;
+	}
+
+	/**
+	 * Conversation and depth of a reply, from those of its closest ancestor that has them. A reply whose parent is
+	 * gone starts a conversation of its own.
+	 */
+	private ThreadPosition positionOf(Tweet reply, Map<String, ThreadPosition> positions) {
+		LinkedList<String> unplaced = new LinkedList<>();
+		ThreadPosition position = null;
+		Tweet tweet = reply;
+
+		while (position == null) {
+			position = positions.get(tweet.getId());
+			if (position != null) break;
+
+			if (tweet.getParentId() == null) {
+				position = new ThreadPosition(tweet.getId(), 0);
+			} else if (tweet.getConversationId() != null) {
+				position = new ThreadPosition(tweet.getConversationId(), depthOf(tweet));
+			} else {
+				unplaced.addFirst(tweet.getId());
+
+				Optional<Tweet> parent = tweetRepository.findById(tweet.getParentId());
+				if (parent.isPresent()) {
+					tweet = parent.get();
+				} else {
+					position = new ThreadPosition(unplaced.removeFirst(), 0);
+				}
+			}
+
+			if (position != null) positions.put(tweet.getId(), position);
+		}
+
+		// Down from the placed ancestor, a level per reply
+		for (String id : unplaced) {
+			position = new ThreadPosition(position.getConversationId(), position.getDepth() + 1);
+			positions.put(id, position);
+		}
+
+		return position;
+	}
+
+	private static int depthOf(Tweet tweet) {
+		return tweet.getDepth() == null ? 0 : tweet.getDepth();
+	}
+
+	private void index(CachedConversation cached) {
+		for (String tweetId : cached.tweetIds) {
+			conversationsByTweetId.compute(tweetId, (id, indexed) -> {
+				Set<CachedConversation> conversations = indexed == null ? new HashSet<>() : indexed;
+				conversations.add(cached);
+
+				return conversations;
+			});
+		}
+	}
+
+	private void unindex(CachedConversation cached) {
+		for (String tweetId : cached.tweetIds) {
+			conversationsByTweetId.computeIfPresent(tweetId, (id, indexed) -> {
+				indexed.remove(cached);
+
+				return indexed.isEmpty() ? null : indexed;
+			});
+		}
+	}
+
+	/**
+	 * Replies under a tweet, placed level by level
+	 */
+	private static final class ReplyTree {
+
+		private final int width;
+
+		private final Set<String> tweetIds;
+
+		private final List<Conversation.Reply> replies = new ArrayList<>();
+
+		private final Map<String, Integer> replyCounts = new HashMap<>();
+
+		private final Map<String, Conversation.Reply> repliesById = new HashMap<>();
+
+		private final Map<String, List<Conversation.Reply>> listedReplies = new HashMap<>();
+
+		private ReplyTree(Tweet tweet, int width, Set<String> tweetIds) {
+			this.width = width;
+			this.tweetIds = tweetIds;
+
+			listedReplies.put(tweet.getId(), replies);
+		}
+
+		/**
+		 * Place replies by depth then oldest first - a parent always comes before its replies, so replies of tweets
+		 * on other branches or cut by the width are skipped. The IDs of the replies listed.
+		 */
+		private List<String> place(List<Tweet> levelReplies) {
+			List<String> listedIds = new ArrayList<>();
+
+			for (Tweet reply : levelReplies) {
+				List<Conversation.Reply> listed = listedReplies.get(reply.getParentId());
+				if (listed == null) continue;
+
+				replyCounts.merge(reply.getParentId(), 1, Integer::sum);
+				if (listed.size() == width) continue;
+
+				Conversation.Reply listedReply = new Conversation.Reply(reply, new ArrayList<>(), false);
+
+				listed.add(listedReply);
+				repliesById.put(reply.getId(), listedReply);
+				listedReplies.put(reply.getId(), listedReply.getReplies());
+				tweetIds.add(reply.getId());
+				listedIds.add(reply.getId());
+			}
+
+			return listedIds;
+		}
+
+		private List<Conversation.Reply> finish() {
+			repliesById.values().forEach(reply -> reply.setMoreReplies(
+					moreReplies(reply.getTweet(), replyCounts, reply.getReplies().size())));
+
+			return replies;
+		}
+	}
+
+	@Value
+	private static class ThreadPosition {
+		String conversationId;
+		int depth;
+	}
+
+	@Value
+	private static class ConversationKey {
+		String tweetId;
+		int depth;
+		int width;
+	}
+
+	/**
+	 * Compared by identity, so unindexing an old thread never touches a newer one kept under the same key
+	 */
+	private static final class CachedConversation {
+
+		private final ConversationKey key;
+
+		private final Conversation conversation;
+
+		private final Set<String> tweetIds;
+
+		private CachedConversation(ConversationKey key, Conversation conversation, Set<String> tweetIds) {
+			this.key = key;
+			this.conversation = conversation;
+			this.tweetIds = tweetIds;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.CounterService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Counters changed with $inc - through findAndModify, which returns the document as it is after the change, or
+ * through one unordered bulk write for many tweets, where an update that fails doesn't keep the others from
+ * being applied
+ */
+
+@Service
+public class CounterMongoService implements CounterService {
+
+	private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+	private final MongoOperations mongoOperations;
+
+	public CounterMongoService(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Override
+	public Optional<Tweet> incrementTweetCounter(String tweetId, String counter, int delta) {
+		return Optional.ofNullable(mongoOperations.findAndModify(byId(tweetId), new Update().inc(counter, delta),
+				RETURN_NEW, Tweet.class));
+	}
+
+	@Override
+	public Optional<User> incrementUserCounter(String userId, String counter, int delta) {
+		// Roles are DB references - leave them out rather than resolving them with another round trip
+		Query user = byId(userId);
+		user.fields().exclude("roles");
+
+		return Optional.ofNullable(mongoOperations.findAndModify(user, new Update().inc(counter, delta), RETURN_NEW,
+				User.class));
+	}
+
+	@Override
+	public Set<String> incrementTweetCounters(Map<String, Map<String, Long>> deltas) {
+		if (deltas.isEmpty()) return Collections.emptySet();
+
+		BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class);
+
+		// In the order of the updates, which the errors refer to by index
+		List<String> tweetIds = new ArrayList<>(deltas.keySet());
+
+		for (String tweetId : tweetIds) {
+			Update update = new Update();
+			deltas.get(tweetId).forEach(update::inc);
+
+			bulk.updateOne(byId(tweetId), update);
+		}
+
+		try {
+			bulk.execute();
+		} catch (DataIntegrityViolationException e) {
+			if (!(e.getCause() instanceof MongoBulkWriteException)) throw e;
+
+			// Unordered - every update without an error of its own was applied
+			return ((MongoBulkWriteException) e.getCause()).getWriteErrors().stream()
+					.map(error -> tweetIds.get(error.getIndex()))
+					.collect(Collectors.toSet());
+		}
+
+		return Collections.emptySet();
+	}
+
+	private static Query byId(String id) {
+		return new Query(Criteria.where("id").is(id));
+	}
+}
@@ -0,0 +1,33 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.PageCursor;
+
+/**
+ * Request side handling of keyset page cursors shared by the services
+ */
+
+final class Cursors {
+
+	static final int MAX_PAGE_SIZE = 100;
+
+	private Cursors() {
+	}
+
+	/**
+	 * Decode a cursor sent by a client, null or empty meaning the first page
+	 */
+	static PageCursor decode(String cursor) {
+		if (cursor == null || cursor.isEmpty()) return null;
+
+		try {
+			return PageCursor.decode(cursor);
+		} catch (IllegalArgumentException ex) {
+			throw new UserValidationException("Invalid Cursor");
+		}
+	}
+
+	static int pageSize(int size) {
+		return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+	}
+}
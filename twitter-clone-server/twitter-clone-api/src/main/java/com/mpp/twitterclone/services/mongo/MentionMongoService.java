@@ -0,0 +1,129 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.MentionService;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Mentions checked against the users collection, with the answers kept in process - a username found is kept for
+ * {@link #KNOWN_TTL}, one not found for the shorter {@link #UNKNOWN_TTL} so a new user can be mentioned soon after
+ * signing up. The usernames of a tweet that aren't kept are looked up together in one $in query.
+ */
+
+@Service
+public class MentionMongoService implements MentionService {
+
+	public static final int MAX_USERNAME_LENGTH = 20;
+
+	public static final long CACHE_SIZE = 100_000;
+
+	public static final Duration KNOWN_TTL = Duration.ofMinutes(10);
+
+	public static final Duration UNKNOWN_TTL = Duration.ofMinutes(1);
+
+	// Not preceded by a word character, so e-mail addresses aren't mentions
+	private static final Pattern MENTION = Pattern.compile(
+			"(?<![\\p{L}\\p{N}_])@([\\p{L}\\p{N}_]{1," + MAX_USERNAME_LENGTH + "})(?![\\p{L}\\p{N}_])");
+
+	private final UserRepository userRepository;
+
+	// Whether a username belongs to a user
+	private final Cache<String, Boolean> usernames;
+
+	public MentionMongoService(UserRepository userRepository) {
+		this.userRepository = userRepository;
+		this.usernames = Caffeine.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.expireAfter(new Expiry<String, Boolean>() {
+					@Override
+					public long expireAfterCreate(String username, Boolean known, long currentTime) {
+						return (known ? KNOWN_TTL : UNKNOWN_TTL).toNanos();
+					}
+
+					@Override
+					public long expireAfterUpdate(String username, Boolean known, long currentTime,
+					                              long currentDuration) {
+						return expireAfterCreate(username, known, currentTime);
+					}
+
+					@Override
+					public long expireAfterRead(String username, Boolean known, long currentTime,
+					                            long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.build();
+	}
+
+	@Override
+	public List<String> findMentions(Tweet tweet) {
+		Set<String> mentioned = mentionedUsernames(tweet);
+		if (mentioned.isEmpty()) return new ArrayList<>();
+
+		Map<String, Boolean> known = new HashMap<>(usernames.getAllPresent(mentioned));
+
+		Set<String> unknown = new HashSet<>(mentioned);
+		unknown.removeAll(known.keySet());
+
+		if (!unknown.isEmpty()) {
+			Map<String, Boolean> lookedUp = lookUp(unknown);
+
+			usernames.putAll(lookedUp);
+			known.putAll(lookedUp);
+		}
+
+		return mentioned.stream()
+				.filter(username -> known.getOrDefault(username, false))
+				.collect(Collectors.toList());
+	}
+
+	private Map<String, Boolean> lookUp(Set<String> mentioned) {
+		Map<String, Boolean> known = new HashMap<>();
+		mentioned.forEach(username -> known.put(username, false));
+
+		userRepository.findAllByUsernameIn(new ArrayList<>(mentioned)).stream()
+				.map(User::getUsername)
+				.forEach(username -> known.put(username, true));
+
+		return known;
+	}
+
+	private static Set<String> mentionedUsernames(Tweet tweet) {
+		List<String> texts = new ArrayList<>();
+
+		if (tweet.getText() != null) texts.add(tweet.getText());
+
+		if (tweet.getContent() != null) {
+			tweet.getContent().stream()
+					.filter(TextContent.class::isInstance)
+					.forEach(content -> texts.add(((TextContent) content).getData()));
+		}
+
+		Set<String> mentioned = new LinkedHashSet<>();
+
+		for (String text : texts) {
+			Matcher matcher = MENTION.matcher(text);
+			while (matcher.find()) mentioned.add(matcher.group(1));
+		}
+
+		return mentioned;
+	}
+}
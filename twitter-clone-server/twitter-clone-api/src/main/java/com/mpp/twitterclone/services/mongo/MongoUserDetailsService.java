@@ -1,7 +1,6 @@
 package com.mpp.twitterclone.services.mongo;
 
 import com.mpp.twitterclone.exceptions.UserValidationException;
-import com.mpp.twitterclone.repositories.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -14,16 +13,17 @@ import org.springframework.stereotype.Service;
 @Service
 public class MongoUserDetailsService implements UserDetailsService {
 
-	private final UserRepository userRepository;
+	private final UserLoader userLoader;
 
-	public MongoUserDetailsService(UserRepository userRepository) {
-		this.userRepository = userRepository;
+	public MongoUserDetailsService(UserLoader userLoader) {
+		this.userLoader = userLoader;
 	}
 
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 		
-		return userRepository.findByUsername(username)
+		// Memoized for the request, which will usually look the current user up again
+		return userLoader.findByUsername(username)
 				.orElseThrow(() -> new UserValidationException("Invalid Username"));
 
 	}
@@ -0,0 +1,425 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.MergedTimeline;
+import com.mpp.twitterclone.model.Retweet;
+import com.mpp.twitterclone.model.Timeline;
+import com.mpp.twitterclone.model.TimelineEntry;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.RetweetRepository;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.SocialGraphService;
+import com.mpp.twitterclone.services.TimelineService;
+import com.mpp.twitterclone.services.TimelineStreamService;
+import com.mpp.twitterclone.validators.UserActionValidator;
+import org.bson.Document;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Fan-out-on-write home timelines.
+ *
+ * Every new tweet is pushed into a bounded, newest-first list of entries on the timeline document of the
+ * author and of each follower, so reading a page of a home timeline is a single slice of one document
+ * followed by one $in lookup of the tweets on that page.
+ *
+ * A retweet is pushed the same way, as an entry for the original tweet, but only into timelines that don't have
+ * the tweet yet - however many followed users retweet it, a timeline holds it once, and keeps it while any of
+ * them still does. Pages are collapsed by tweet on read as well, for a tweet pushed both by its author and by a
+ * retweet before either was on the timeline.
+ *
+ * Timelines can also be assembled on read by merging per-author cursors, which needs no precomputed state.
+ */
+
+@Service
+public class TimelineMongoService implements TimelineService {
+
+	public static final int TIMELINE_CAPACITY = 800;
+	public static final int BACKFILL_SIZE = 50;
+	public static final int FAN_OUT_BATCH_SIZE = 1000;
+	public static final int MAX_MERGE_COUNT = 200;
+	public static final int MIN_CURSOR_BATCH_SIZE = 5;
+
+	private static final String ENTRIES = "entries";
+
+	private final MongoOperations mongoOperations;
+
+	private final TweetRepository tweetRepository;
+
+	private final RetweetRepository retweetRepository;
+
+	private final SocialGraphService socialGraphService;
+
+	private final UserActionValidator userActionValidator;
+
+	private final TimelineStreamService timelineStreamService;
+
+	private final UserLoader userLoader;
+
+	private final TweetLoader tweetLoader;
+
+	public TimelineMongoService(MongoOperations mongoOperations, TweetRepository tweetRepository,
+	                            RetweetRepository retweetRepository, SocialGraphService socialGraphService,
+	                            @Lazy UserActionValidator userActionValidator,
+	                            TimelineStreamService timelineStreamService, UserLoader userLoader,
+	                            TweetLoader tweetLoader) {
+		this.mongoOperations = mongoOperations;
+		this.tweetRepository = tweetRepository;
+		this.retweetRepository = retweetRepository;
+		this.socialGraphService = socialGraphService;
+		this.userActionValidator = userActionValidator;
+		this.timelineStreamService = timelineStreamService;
+		this.userLoader = userLoader;
+		this.tweetLoader = tweetLoader;
+	}
+
+	@Override
+	public List<Tweet> findHomeTimeline(String userId, int page, int size, String currentUsername) {
+		User user = userLoader.findById(userId)
+				.orElseThrow(() -> new ResourceNotFoundException("User"));
+
+		// Only the owner (or an ADMIN) can read a home timeline
+		userActionValidator.validateUserAction(currentUsername, user.getUsername());
+
+		if (page < 0) throw new UserValidationException("Invalid Page");
+
+		int pageSize = Cursors.pageSize(size);
+		long skip = (long) page * pageSize;
+
+		// Past the capacity - nothing is kept that far down
+		if (skip >= TIMELINE_CAPACITY) return new ArrayList<>();
+
+		Query timelineQuery = query(where("_id").is(userId));
+		timelineQuery.fields().slice(ENTRIES, (int) skip, pageSize);
+
+		Timeline timeline = mongoOperations.findOne(timelineQuery, Timeline.class);
+
+		// Timelines are created lazily - build it from the followed users' recent tweets on first read
+		if (timeline == null) {
+			rebuild(userId, user.getUsername());
+			timeline = mongoOperations.findOne(timelineQuery, Timeline.class);
+		}
+
+		if (timeline == null || timeline.getEntries() == null) return new ArrayList<>();
+
+		return hydrate(timeline.getEntries());
+	}
+
+	@Override
+	public MergedTimeline findMergedTimeline(String userId, String sinceId, String maxId, int count,
+	                                         String currentUsername) {
+		User user = userLoader.findById(userId)
+				.orElseThrow(() -> new ResourceNotFoundException("User"));
+
+		// Only the owner (or an ADMIN) can read a home timeline
+		userActionValidator.validateUserAction(currentUsername, user.getUsername());
+
+		// Both bounds in one query
+		if (sinceId != null) tweetLoader.enqueue(sinceId);
+		if (maxId != null) tweetLoader.enqueue(maxId);
+
+		Tweet since = sinceId == null ? null : tweetLoader.findById(sinceId)
+				.orElseThrow(() -> new ResourceNotFoundException("Tweet"));
+		Tweet max = maxId == null ? null : tweetLoader.findById(maxId)
+				.orElseThrow(() -> new ResourceNotFoundException("Tweet"));
+
+		int pageSize = Math.max(1, Math.min(count, MAX_MERGE_COUNT));
+
+		// Authors the user follows, and the user themselves
+		List<String> authors = new ArrayList<>();
+		authors.add(user.getUsername());
+
+		userLoader.findAllById(socialGraphService.findFollowingIds(userId))
+				.forEach(followed -> authors.add(followed.getUsername()));
+
+		// Spread the page over the authors so the first round of batches stays close to the page size
+		int batchSize = Math.min(pageSize, Math.max(MIN_CURSOR_BATCH_SIZE, 2 * pageSize / authors.size() + 1));
+
+		List<AuthorTweetCursor> cursors = authors.stream()
+				.map(author -> new AuthorTweetCursor(tweetRepository, author, batchSize, since, max))
+				.collect(Collectors.toList());
+
+		// K-way merge - the heap always holds the cursor whose next tweet is the newest
+		PriorityQueue<AuthorTweetCursor> heap = new PriorityQueue<>(cursors.size(),
+				(c1, c2) -> AuthorTweetCursor.NEWEST_FIRST.compare(c1.peek(), c2.peek()));
+
+		cursors.stream().filter(AuthorTweetCursor::hasNext).forEach(heap::add);
+
+		List<Tweet> tweets = new ArrayList<>(pageSize);
+
+		while (tweets.size() < pageSize && !heap.isEmpty()) {
+			AuthorTweetCursor cursor = heap.poll();
+
+			tweets.add(cursor.next());
+
+			if (cursor.hasNext()) heap.add(cursor);
+		}
+
+		return MergedTimeline.builder()
+				.tweets(tweets)
+				.authorFanIn(cursors.size())
+				.documentsExamined(cursors.stream().mapToInt(AuthorTweetCursor::getDocumentsExamined).sum())
+				.build();
+	}
+
+	@Override
+	public void fanOut(Tweet tweet) {
+		User author = userLoader.findByUsername(tweet.getOwner()).orElse(null);
+
+		if (author == null) return;
+
+		List<String> timelineOwners = new ArrayList<>(socialGraphService.findFollowerIds(author.getId()));
+
+		// Authors see their own tweets on their home timeline
+		timelineOwners.add(author.getId());
+
+		push(timelineOwners, List.of(toEntry(tweet)));
+
+		// Then to the live streams of the same timelines, once the tweet is on them
+		timelineStreamService.publish(tweet, timelineOwners);
+	}
+
+	@Override
+	public void fanOutRetweet(Tweet tweet, String retweetUserId) {
+		User retweeter = userLoader.findById(retweetUserId).orElse(null);
+
+		if (retweeter == null) return;
+
+		List<String> timelineOwners = new ArrayList<>(socialGraphService.findFollowerIds(retweetUserId));
+		timelineOwners.add(retweetUserId);
+
+		// Placed by the time of the retweet
+		TimelineEntry entry = toEntry(tweet);
+		entry.setRetweetedBy(retweeter.getUsername());
+		entry.setCreatedAt(LocalDateTime.now());
+
+		// Not upserted - a timeline that doesn't exist yet is built on its first read
+		forEachBatch(timelineOwners, batch -> {
+			BulkOperations bulkOperations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+
+			batch.forEach(userId -> bulkOperations.updateOne(
+					query(where("_id").is(userId).and("entries.tweet_id").ne(tweet.getId())),
+					pushEntries(List.of(entry))));
+
+			bulkOperations.execute();
+		});
+	}
+
+	@Override
+	public void removeRetweet(String tweetId, String retweetUserId) {
+		User retweeter = userLoader.findById(retweetUserId).orElse(null);
+
+		if (retweeter == null) return;
+
+		List<String> timelineOwners = new ArrayList<>(socialGraphService.findFollowerIds(retweetUserId));
+		timelineOwners.add(retweetUserId);
+
+		// A timeline holds a tweet once, so the entry of this retweet may stand for a later retweet that was
+		// skipped - timelines where another retweeter they follow remains keep it, credited to that retweeter
+		Set<String> retweeterIds = retweetRepository.findAllByTweetId(tweetId).stream()
+				.map(Retweet::getUserId)
+				.collect(Collectors.toSet());
+
+		// Found from the followers of the remaining retweeters - never the followings of every timeline owner
+		Set<String> owners = new HashSet<>(timelineOwners);
+		Map<String, String> remainingRetweeters = new HashMap<>();
+
+		retweeterIds.stream().filter(owners::contains).forEach(ownerId -> remainingRetweeters.put(ownerId, ownerId));
+
+		for (String remainingId : retweeterIds) {
+			for (String followerId : socialGraphService.findFollowerIds(remainingId)) {
+				if (owners.contains(followerId)) remainingRetweeters.putIfAbsent(followerId, remainingId);
+			}
+		}
+
+		timelineOwners.removeAll(remainingRetweeters.keySet());
+
+		// Only the entry of this retweet - the tweet stays where its author or another retweet put it
+		Document retweetEntry = new Document("tweet_id", tweetId).append("retweeted_by", retweeter.getUsername());
+
+		forEachBatch(timelineOwners, batch -> mongoOperations.updateMulti(query(where("_id").in(batch)),
+				new Update().pull(ENTRIES, retweetEntry), Timeline.class));
+
+		if (!remainingRetweeters.isEmpty()) recreditTweet(tweetId, retweeter.getUsername(), remainingRetweeters);
+	}
+
+	/**
+	 * Point the entries of an undone retweet at a retweeter that remains, by timeline owner
+	 */
+	private void recreditTweet(String tweetId, String retweeterUsername, Map<String, String> remainingRetweeters) {
+		Map<String, String> usernames = userLoader.findAllById(new HashSet<>(remainingRetweeters.values())).stream()
+				.collect(Collectors.toMap(User::getId, User::getUsername));
+
+		forEachBatch(remainingRetweeters.keySet(), batch -> {
+			BulkOperations bulkOperations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+
+			batch.forEach(ownerId -> bulkOperations.updateOne(
+					query(where("_id").is(ownerId).and(ENTRIES).elemMatch(
+							where("tweet_id").is(tweetId).and("retweeted_by").is(retweeterUsername))),
+					new Update().set(ENTRIES + ".$.retweeted_by",
+							usernames.get(remainingRetweeters.get(ownerId)))));
+
+			bulkOperations.execute();
+		});
+	}
+
+	@Override
+	public void backfill(String followerUserId, String followedUsername) {
+		List<TimelineEntry> entries = recentEntries(followedUsername);
+
+		if (!entries.isEmpty()) push(List.of(followerUserId), entries);
+	}
+
+	@Override
+	public void removeAuthor(String followerUserId, String followedUsername) {
+		Query timelineQuery = query(where("_id").is(followerUserId));
+		timelineQuery.fields().include(ENTRIES);
+
+		Timeline timeline = mongoOperations.findOne(timelineQuery, Timeline.class);
+
+		if (timeline == null || timeline.getEntries() == null) return;
+
+		// Retweets by the unfollowed user that another followed user retweeted as well stay, credited to them
+		List<String> retweetedIds = timeline.getEntries().stream()
+				.filter(entry -> followedUsername.equals(entry.getRetweetedBy()))
+				.map(TimelineEntry::getTweetId)
+				.collect(Collectors.toList());
+
+		if (!retweetedIds.isEmpty()) {
+			List<String> followingIds = new ArrayList<>(socialGraphService.findFollowingIds(followerUserId));
+			followingIds.add(followerUserId);
+
+			Map<String, String> remainingRetweeters = new HashMap<>();
+
+			retweetRepository.findAllByTweetIdInAndUserIdIn(retweetedIds, followingIds)
+					.forEach(retweet -> remainingRetweeters.putIfAbsent(retweet.getTweetId(), retweet.getUserId()));
+
+			if (!remainingRetweeters.isEmpty()) recreditTimeline(followerUserId, followedUsername, remainingRetweeters);
+		}
+
+		// The unfollowed user's own tweets - not their retweets by users still followed, which name that
+		// retweeter - and the rest of their retweets
+		Document removed = new Document("$or", List.of(
+				new Document("owner", followedUsername).append("retweeted_by", null),
+				new Document("retweeted_by", followedUsername)));
+
+		mongoOperations.updateFirst(query(where("_id").is(followerUserId)), new Update().pull(ENTRIES, removed),
+				Timeline.class);
+	}
+
+	/**
+	 * Point the entries of an unfollowed retweeter at a followed retweeter that remains, by tweet ID
+	 */
+	private void recreditTimeline(String userId, String retweeterUsername, Map<String, String> remainingRetweeters) {
+		Map<String, String> usernames = userLoader.findAllById(new HashSet<>(remainingRetweeters.values())).stream()
+				.collect(Collectors.toMap(User::getId, User::getUsername));
+
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+
+		remainingRetweeters.forEach((tweetId, remainingId) -> bulkOperations.updateOne(
+				query(where("_id").is(userId).and(ENTRIES).elemMatch(
+						where("tweet_id").is(tweetId).and("retweeted_by").is(retweeterUsername))),
+				new Update().set(ENTRIES + ".$.retweeted_by", usernames.get(remainingId))));
+
+		bulkOperations.execute();
+	}
+
+	@Override
+	public void removeTweet(String tweetId) {
+		mongoOperations.updateMulti(query(where("entries.tweet_id").is(tweetId)),
+				new Update().pull(ENTRIES, new Document("tweet_id", tweetId)), Timeline.class);
+	}
+
+	private void rebuild(String userId, String username) {
+		List<TimelineEntry> entries = recentEntries(username);
+
+		userLoader.findAllById(socialGraphService.findFollowingIds(userId))
+				.forEach(followed -> entries.addAll(recentEntries(followed.getUsername())));
+
+		// The only place a timeline is created - one created by a push would hold just the pushed entries
+		mongoOperations.upsert(query(where("_id").is(userId)), pushEntries(entries), Timeline.class);
+	}
+
+	/**
+	 * Push the given entries into each of the timelines, keeping them sorted newest first and bounded
+	 * to the timeline capacity. Updated in unordered bulk batches, and never created - a timeline that doesn't
+	 * exist yet is built on its first read, history included.
+	 */
+	private void push(Collection<String> userIds, List<TimelineEntry> entries) {
+		forEachBatch(userIds, batch -> {
+			BulkOperations bulkOperations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+
+			batch.forEach(userId -> bulkOperations.updateOne(query(where("_id").is(userId)), pushEntries(entries)));
+
+			bulkOperations.execute();
+		});
+	}
+
+	private void forEachBatch(Collection<String> userIds, Consumer<List<String>> action) {
+		List<String> batch = new ArrayList<>(FAN_OUT_BATCH_SIZE);
+
+		for (String userId : userIds) {
+			batch.add(userId);
+
+			if (batch.size() == FAN_OUT_BATCH_SIZE) {
+				action.accept(batch);
+				batch = new ArrayList<>(FAN_OUT_BATCH_SIZE);
+			}
+		}
+
+		if (!batch.isEmpty()) action.accept(batch);
+	}
+
+	private static Update pushEntries(List<TimelineEntry> entries) {
+		return new Update().push(ENTRIES)
+				.sort(Sort.by(Sort.Direction.DESC, "created_at"))
+				.slice(TIMELINE_CAPACITY)
+				.each(entries.toArray());
+	}
+
+	private List<TimelineEntry> recentEntries(String username) {
+		return tweetRepository.findAllByOwnerOrderByCreatedAtDesc(username, PageRequest.of(0, BACKFILL_SIZE))
+				.stream()
+				.map(this::toEntry)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Fetch the tweets of a timeline page with a single $in query and keep the timeline order, each tweet once
+	 */
+	private List<Tweet> hydrate(List<TimelineEntry> entries) {
+		return tweetLoader.findAllById(entries.stream().map(TimelineEntry::getTweetId).distinct()
+				.collect(Collectors.toList()));
+	}
+
+	private TimelineEntry toEntry(Tweet tweet) {
+		return TimelineEntry.builder()
+				.tweetId(tweet.getId())
+				.owner(tweet.getOwner())
+				.createdAt(tweet.getCreatedAt())
+				.build();
+	}
+}
@@ -0,0 +1,50 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Batched, request memoized lookups of tweets by ID - see {@link BatchLoader}
+ */
+
+@Component
+public class TweetLoader {
+
+	private final BatchLoader<Tweet> tweetsById;
+
+	public TweetLoader(TweetRepository tweetRepository) {
+		this.tweetsById = new BatchLoader<>("tweetsById", tweetRepository::findById, tweetRepository::findAllById,
+				Tweet::getId);
+	}
+
+	public Optional<Tweet> findById(String id) {
+		return tweetsById.load(id);
+	}
+
+	/**
+	 * Tweets with the given IDs in the order of the IDs, skipping missing ones
+	 */
+	public List<Tweet> findAllById(Collection<String> ids) {
+		return tweetsById.loadAll(ids);
+	}
+
+	/**
+	 * Queue a tweet for the next batch - loaded with the next lookup
+	 */
+	public void enqueue(String id) {
+		tweetsById.enqueue(id);
+	}
+
+	public void prime(Tweet tweet) {
+		tweetsById.prime(tweet);
+	}
+
+	public void clear(String id) {
+		tweetsById.clear(id);
+	}
+}
@@ -1,17 +1,31 @@
 package com.mpp.twitterclone.services.mongo;
 
 import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Favorite;
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Retweet;
 import com.mpp.twitterclone.model.Tweet;
 import com.mpp.twitterclone.repositories.FavoriteRepository;
 import com.mpp.twitterclone.repositories.RetweetRepository;
 import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.ConversationService;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import com.mpp.twitterclone.services.FavoriteFilterService;
+import com.mpp.twitterclone.services.LeaderboardService;
+import com.mpp.twitterclone.services.MentionService;
+import com.mpp.twitterclone.services.PendingCounterService;
+import com.mpp.twitterclone.services.SearchService;
+import com.mpp.twitterclone.services.SuggestService;
+import com.mpp.twitterclone.services.TimelineService;
+import com.mpp.twitterclone.services.TrendService;
 import com.mpp.twitterclone.services.TweetService;
 import com.mpp.twitterclone.validators.UserActionValidator;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Created by Jonathan on 9/8/2019.
@@ -24,15 +38,55 @@ public class TweetMongoService implements TweetService {
 
 	private final FavoriteRepository favoriteRepository;
 
+	private final RetweetRepository retweetRepository;
+
 	private final UserActionValidator userActionValidator;
 
+	private final TimelineService timelineService;
+
+	private final CounterBroadcastService counterBroadcastService;
+
+	private final TweetLoader tweetLoader;
+
+	private final FavoriteFilterService favoriteFilterService;
+
+	private final PendingCounterService pendingCounterService;
+
+	private final ConversationService conversationService;
+
+	private final SearchService searchService;
 
+	private final TrendService trendService;
+
+	private final MentionService mentionService;
+
+	private final LeaderboardService leaderboardService;
+
+	private final SuggestService suggestService;
 
 	public TweetMongoService(TweetRepository tweetRepository, FavoriteRepository favoriteRepository,
-	                         UserActionValidator userActionValidator) {
+	                         RetweetRepository retweetRepository, UserActionValidator userActionValidator,
+	                         TimelineService timelineService, CounterBroadcastService counterBroadcastService,
+	                         TweetLoader tweetLoader, FavoriteFilterService favoriteFilterService,
+	                         PendingCounterService pendingCounterService, ConversationService conversationService,
+	                         SearchService searchService, TrendService trendService,
+	                         MentionService mentionService, LeaderboardService leaderboardService,
+	                         SuggestService suggestService) {
 		this.tweetRepository = tweetRepository;
 		this.favoriteRepository = favoriteRepository;
+		this.retweetRepository = retweetRepository;
 		this.userActionValidator = userActionValidator;
+		this.timelineService = timelineService;
+		this.counterBroadcastService = counterBroadcastService;
+		this.tweetLoader = tweetLoader;
+		this.favoriteFilterService = favoriteFilterService;
+		this.pendingCounterService = pendingCounterService;
+		this.conversationService = conversationService;
+		this.searchService = searchService;
+		this.trendService = trendService;
+		this.mentionService = mentionService;
+		this.leaderboardService = leaderboardService;
+		this.suggestService = suggestService;
 	}
 
 	@Override
@@ -40,6 +94,47 @@ public class TweetMongoService implements TweetService {
 		return tweetRepository.findAll();
 	}
 
+	@Override
+	public Stream<Tweet> streamAll() {
+		return tweetRepository.streamAll();
+	}
+
+	@Override
+	public CursorPage<Tweet> findPage(String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
+
+		return CursorPage.of(tweetRepository.findPage(pageCursor, pageSize + 1), pageCursor, pageSize,
+				Tweet::getCreatedAt, Tweet::getId);
+	}
+
+	@Override
+	public CursorPage<Tweet> findPageByUsername(String username, String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
+
+		return CursorPage.of(tweetRepository.findPageByOwner(username, pageCursor, pageSize + 1), pageCursor,
+				pageSize, Tweet::getCreatedAt, Tweet::getId);
+	}
+
+	@Override
+	public CursorPage<Tweet> findRepliesPage(String tweetId, String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
+
+		return CursorPage.of(tweetRepository.findPageByParentId(tweetId, pageCursor, pageSize + 1), pageCursor,
+				pageSize, Tweet::getCreatedAt, Tweet::getId);
+	}
+
+	@Override
+	public CursorPage<Tweet> findMentionsPage(String username, String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
+
+		return CursorPage.of(tweetRepository.findPageByMention(username, pageCursor, pageSize + 1), pageCursor,
+				pageSize, Tweet::getCreatedAt, Tweet::getId);
+	}
+
 	@Override
 	public List<Tweet> findAllReplies(String tweetId) {
 		return tweetRepository.findAllByParentId(tweetId);
@@ -52,20 +147,45 @@ public class TweetMongoService implements TweetService {
 
 	@Override
 	public Tweet findById(String id) {
-		return tweetRepository.findById(id)
+		return tweetLoader.findById(id)
+				.map(pendingCounterService::overlay) // Counter changes not written yet
 				.orElseThrow(() -> new ResourceNotFoundException("Tweet"));
 	}
 
 	@Override
 	public Tweet create(Tweet tweet) {
 		// Todo: fix - lookup other project
-		return tweetRepository.insert(tweet);
+		tweet.setMentions(mentionService.findMentions(tweet));
+
+		Tweet newTweet = tweetRepository.insert(tweet);
+		searchService.index(newTweet);
+		trendService.record(newTweet);
+		suggestService.recordHashtags(newTweet);
+
+		// Push the new tweet into the home timelines of the author and followers
+		timelineService.fanOut(newTweet);
+
+		return newTweet;
 	}
 
 	@Override
 	public Tweet replyToTweet(Tweet newTweet, String parentTweetId) {
+		// Parent Tweet - if not found then findById() will throw the exception
+		Tweet parentTweet = findById(parentTweetId);
+
+		// The reply joins the thread of its parent, or the one the parent starts
 		newTweet.setParentId(parentTweetId);
-		return create(newTweet);
+		newTweet.setConversationId(parentTweet.getConversationId() == null ? parentTweetId
+				: parentTweet.getConversationId());
+		newTweet.setDepth((parentTweet.getDepth() == null ? 0 : parentTweet.getDepth()) + 1);
+		Tweet reply = create(newTweet);
+
+		pendingCounterService.add(parentTweetId, CounterBroadcastService.REPLY_COUNT, 1);
+
+		// Threads the parent is in now have a reply more
+		conversationService.invalidate(parentTweetId);
+
+		return reply;
 	}
 
 	@Override
@@ -73,37 +193,92 @@ public class TweetMongoService implements TweetService {
 		// Original Tweet - if not found then findById() will throw the exception
 		Tweet favoritedTweet = findById(tweetId);
 
-		// Check for retweet record
-		Optional<Favorite> favorite = favoriteRepository.findByUserIdAndTweetId(favoriteUserId, tweetId);
+		// Toggle the favorite record - an unfavorite if there's one to delete, which the filter rules out for most
+		// first favorites. The unique index on the records settles concurrent toggles.
+		boolean removed = false;
+
+		if (favoriteFilterService.mightHaveFavorited(favoriteUserId, tweetId)) {
+			removed = favoriteRepository.deleteByUserIdAndAndTweetId(favoriteUserId, tweetId) > 0;
+			if (!removed) favoriteFilterService.recordFalsePositive();
+		}
+
+		if (!removed) {
+			try {
+				favoriteRepository.insert(Favorite.builder().tweetId(tweetId).userId(favoriteUserId).build());
+				favoriteFilterService.addFavorite(favoriteUserId, tweetId);
+			} catch (DuplicateKeyException e) {
+				// Favorited already - by a concurrent toggle, or through another node since the filter was built.
+				// Let the filter know, and toggle it off instead.
+				favoriteFilterService.addFavorite(favoriteUserId, tweetId);
+
+				removed = favoriteRepository.deleteByUserIdAndAndTweetId(favoriteUserId, tweetId) > 0;
+
+				// Toggled off already by yet another concurrent request, which counted it
+				if (!removed) return favoritedTweet;
+			}
+		}
+
+		if (removed) favoriteFilterService.removeFavorite(favoriteUserId, tweetId);
+
+		int favoriteCountDelta = removed ? -1 : 1;
 
-		Integer currentFavoriteCount = favoritedTweet.getFavoriteCount();
+		// Summed with the other changes to the tweet and written in bulk
+		pendingCounterService.add(tweetId, CounterBroadcastService.FAVORITE_COUNT, favoriteCountDelta);
 
-		if (favorite.isPresent()) { // User performing the remove favorite action
+		// Batched to the clients showing the tweet
+		counterBroadcastService.recordDelta(CounterBroadcastService.tweetTopic(tweetId),
+				CounterBroadcastService.FAVORITE_COUNT, favoriteCountDelta);
 
-			// Remove record of current user favorite the tweet
-			favoriteRepository.deleteByUserIdAndAndTweetId(favorite.get().getUserId(), favorite.get().getTweetId());
+		Tweet updatedTweet = favoritedTweet.toBuilder()
+				.favoriteCount(favoritedTweet.getFavoriteCount() + favoriteCountDelta)
+				.build();
 
-			// Update tweet data
-			if (favoritedTweet.getFavoriteCount() == 1) favoritedTweet.setFavorited(false);
-			favoritedTweet.setFavoriteCount(--currentFavoriteCount);
+		leaderboardService.recordFavorites(tweetId, updatedTweet.getFavoriteCount(), favoriteCountDelta);
 
-		} else { // User performing the favorite action
-			// Keep a record of current user favorite the tweet
-			favoriteRepository.insert(Favorite.builder().tweetId(tweetId).userId(favoriteUserId).build());
+		return updatedTweet;
+	}
 
-			// Update tweet data
-			if (favoritedTweet.getFavoriteCount() == 1) favoritedTweet.setFavorited(true);
-			favoritedTweet.setFavoriteCount(++currentFavoriteCount);
+	@Override
+	public Tweet retweetTweet(String tweetId, String retweetUserId) {
+		// Original Tweet - if not found then findById() will throw the exception
+		Tweet retweetedTweet = findById(tweetId);
+
+		// Toggle the retweet record - an undo if there's one to delete, a retweet otherwise
+		int retweetCountDelta = retweetRepository.deleteByUserIdAndAndTweetId(retweetUserId, tweetId) > 0 ? -1 : 1;
+
+		if (retweetCountDelta > 0) {
+			try {
+				retweetRepository.insert(Retweet.builder().tweetId(tweetId).userId(retweetUserId).build());
+			} catch (DuplicateKeyException e) {
+				// A duplicate of a concurrent retweet by the same user, which counted it - leave it retweeted
+				return retweetedTweet;
+			}
 		}
 
-		return update(favoritedTweet, tweetId, favoriteUserId);
+		// Summed with the other changes to the tweet and written in bulk
+		pendingCounterService.add(tweetId, CounterBroadcastService.RETWEET_COUNT, retweetCountDelta);
+
+		// Batched to the clients showing the tweet
+		counterBroadcastService.recordDelta(CounterBroadcastService.tweetTopic(tweetId),
+				CounterBroadcastService.RETWEET_COUNT, retweetCountDelta);
+
+		if (retweetCountDelta > 0) timelineService.fanOutRetweet(retweetedTweet, retweetUserId);
+		else timelineService.removeRetweet(tweetId, retweetUserId);
 
+		Tweet updatedTweet = retweetedTweet.toBuilder()
+				.retweetCount(retweetedTweet.getRetweetCount() + retweetCountDelta)
+				.build();
+
+		leaderboardService.recordRetweets(tweetId, updatedTweet.getRetweetCount(), retweetCountDelta);
+
+		return updatedTweet;
 	}
 
 	@Override
 	public Tweet update(Tweet newTweet, String oldTweetId, String currentUsername) {
 
-		return tweetRepository.findById(oldTweetId)
+		// Memoized when the tweet was just read, e.g. by favoriteTweet()
+		return tweetLoader.findById(oldTweetId)
 				.map(t -> {
 
 					// Check if user performing the update is the owner
@@ -111,13 +286,17 @@ public class TweetMongoService implements TweetService {
 
 					t.setText(newTweet.getText());
 					t.setContent(newTweet.getContent());
-					t.setRetweetCount(newTweet.getRetweetCount());
-					t.setFavoriteCount(newTweet.getFavoriteCount());
-					t.setReplyCount(newTweet.getReplyCount());
-					t.setRetweeted(newTweet.getRetweeted());
-					t.setFavorited(newTweet.getFavorited());
+					t.setMentions(mentionService.findMentions(t));
+
+					// Only the edited fields - counters are only changed in place through the CounterService, and
+					// writing them back as read could undo concurrent changes
+					tweetRepository.updateText(t.getId(), t.getText(), t.getContent(), t.getMentions());
+
+					tweetLoader.prime(t);
+					searchService.index(t);
+					conversationService.invalidate(oldTweetId);
 
-					return tweetRepository.save(t);
+					return t;
 				})
 				.orElseThrow(() -> new ResourceNotFoundException("Tweet"));
 	}
@@ -131,6 +310,9 @@ public class TweetMongoService implements TweetService {
 		findById(tweet.getId());
 
 		tweetRepository.delete(tweet);
+		tweetLoader.clear(tweet.getId());
+		conversationService.invalidate(tweet.getId());
+		searchService.remove(tweet.getId());
 	}
 
 	@Override
@@ -142,5 +324,15 @@ public class TweetMongoService implements TweetService {
 		userActionValidator.validateUserAction(currentUsername, tweet.getOwner());
 
 		tweetRepository.deleteById(id);
+		tweetLoader.clear(id);
+		conversationService.invalidate(id);
+		searchService.remove(id);
+
+		if (tweet.getParentId() != null) {
+			pendingCounterService.add(tweet.getParentId(), CounterBroadcastService.REPLY_COUNT, -1);
+			conversationService.invalidate(tweet.getParentId());
+		}
+
+		timelineService.removeTweet(id);
 	}
 }
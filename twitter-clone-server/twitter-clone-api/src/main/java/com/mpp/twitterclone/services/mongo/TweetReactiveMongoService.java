@@ -0,0 +1,67 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.reactive.ReactiveTweetRepository;
+import com.mpp.twitterclone.services.ReactiveTweetService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.BiFunction;
+
+/**
+ * Reactive counterpart of {@link TweetMongoService} for the read endpoints
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+public class TweetReactiveMongoService implements ReactiveTweetService {
+
+	private final ReactiveTweetRepository reactiveTweetRepository;
+
+	public TweetReactiveMongoService(ReactiveTweetRepository reactiveTweetRepository) {
+		this.reactiveTweetRepository = reactiveTweetRepository;
+	}
+
+	@Override
+	public Mono<Tweet> findById(String id) {
+		return reactiveTweetRepository.findById(id)
+				.switchIfEmpty(Mono.error(new ResourceNotFoundException("Tweet")));
+	}
+
+	@Override
+	public Mono<CursorPage<Tweet>> findPage(String cursor, int size) {
+		return page(cursor, size, reactiveTweetRepository::findPage);
+	}
+
+	@Override
+	public Mono<CursorPage<Tweet>> findPageByUsername(String username, String cursor, int size) {
+		return page(cursor, size, (pageCursor, limit) ->
+				reactiveTweetRepository.findPageByOwner(username, pageCursor, limit));
+	}
+
+	@Override
+	public Mono<CursorPage<Tweet>> findRepliesPage(String tweetId, String cursor, int size) {
+		return page(cursor, size, (pageCursor, limit) ->
+				reactiveTweetRepository.findPageByParentId(tweetId, pageCursor, limit));
+	}
+
+	/**
+	 * Deferred so that an invalid cursor is signalled as an error rather than thrown at assembly
+	 */
+	private Mono<CursorPage<Tweet>> page(String cursor, int size,
+	                                     BiFunction<PageCursor, Integer, Flux<Tweet>> query) {
+		return Mono.defer(() -> {
+			PageCursor pageCursor = Cursors.decode(cursor);
+			int pageSize = Cursors.pageSize(size);
+
+			return query.apply(pageCursor, pageSize + 1)
+					.collectList()
+					.map(rows -> CursorPage.of(rows, pageCursor, pageSize, Tweet::getCreatedAt, Tweet::getId));
+		});
+	}
+}
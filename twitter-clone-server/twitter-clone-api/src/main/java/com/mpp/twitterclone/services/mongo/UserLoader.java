@@ -0,0 +1,144 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Batched, request memoized lookups of users by ID and by username - see {@link BatchLoader}.
+ * A user loaded by one key is memoized under the other one as well.
+ *
+ * Behind the batches sit two caches shared by every request, one by ID and one by username, each bounded to
+ * {@link #CACHE_SIZE} users kept for {@link #CACHE_TTL} - so the token filter, the action validator and the
+ * lookups of the current user don't read it, and its roles, again on every request. Clearing a user drops it
+ * from both. Only users read from the database are cached; a saved user is memoized for the request alone, so
+ * counters and roles are always as stored. Changes made on other nodes show up once the TTL runs out.
+ *
+ * Hits, misses, load times and evictions are exported as the cache.* metrics of the users.by.id and
+ * users.by.username caches.
+ */
+
+@Component
+public class UserLoader {
+
+	public static final long CACHE_SIZE = 10_000;
+
+	public static final Duration CACHE_TTL = Duration.ofMinutes(1);
+
+	private final Cache<String, User> cachedById;
+
+	private final Cache<String, User> cachedByUsername;
+
+	private final BatchLoader<User> usersById;
+
+	private final BatchLoader<User> usersByUsername;
+
+	public UserLoader(UserRepository userRepository, MeterRegistry meterRegistry) {
+		this.cachedById = cache(meterRegistry, "users.by.id");
+		this.cachedByUsername = cache(meterRegistry, "users.by.username");
+
+		this.usersById = new BatchLoader<>("usersById",
+				id -> loadOne(cachedById, id, userRepository::findById),
+				ids -> loadMany(cachedById, ids, userRepository::findAllById, User::getId), User::getId);
+		this.usersByUsername = new BatchLoader<>("usersByUsername",
+				username -> loadOne(cachedByUsername, username, userRepository::findByUsername),
+				usernames -> loadMany(cachedByUsername, usernames, userRepository::findAllByUsernameIn,
+						User::getUsername),
+				User::getUsername);
+	}
+
+	public Optional<User> findById(String id) {
+		Optional<User> user = usersById.load(id);
+		user.ifPresent(usersByUsername::prime);
+
+		return user;
+	}
+
+	public Optional<User> findByUsername(String username) {
+		Optional<User> user = usersByUsername.load(username);
+		user.ifPresent(usersById::prime);
+
+		return user;
+	}
+
+	/**
+	 * Users with the given IDs in the order of the IDs, skipping missing ones
+	 */
+	public List<User> findAllById(Collection<String> ids) {
+		List<User> users = usersById.loadAll(ids);
+		users.forEach(usersByUsername::prime);
+
+		return users;
+	}
+
+	/**
+	 * Memoize a user that was just saved, for the rest of the request
+	 */
+	public void prime(User user) {
+		usersById.prime(user);
+		usersByUsername.prime(user);
+	}
+
+	/**
+	 * Forget a user about to be changed or removed
+	 */
+	public void clear(User user) {
+		usersById.clear(user.getId());
+		usersByUsername.clear(user.getUsername());
+
+		if (user.getId() != null) cachedById.asMap().remove(user.getId());
+		if (user.getUsername() != null) cachedByUsername.asMap().remove(user.getUsername());
+	}
+
+	private static Cache<String, User> cache(MeterRegistry meterRegistry, String name) {
+		Cache<String, User> cache = Caffeine.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.expireAfterWrite(CACHE_TTL)
+				.recordStats()
+				.build();
+
+		return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+	}
+
+	/**
+	 * Through the cache - missing users aren't cached, the request already remembers them
+	 */
+	private static Optional<User> loadOne(Cache<String, User> cache, String key,
+	                                      Function<String, Optional<User>> load) {
+		return Optional.ofNullable(cache.get(key, k -> load.apply(k).orElse(null)));
+	}
+
+	/**
+	 * The cached users, and the rest in one $in query
+	 */
+	private static Iterable<User> loadMany(Cache<String, User> cache, Collection<String> keys,
+	                                       Function<Collection<String>, Iterable<User>> load,
+	                                       Function<User, String> keyOf) {
+		Map<String, User> cached = cache.getAllPresent(keys);
+		List<User> users = new ArrayList<>(cached.values());
+
+		List<String> missing = new ArrayList<>(keys);
+		missing.removeAll(cached.keySet());
+
+		if (!missing.isEmpty()) {
+			for (User user : load.apply(missing)) {
+				users.add(user);
+				cache.put(keyOf.apply(user), user);
+			}
+		}
+
+		return users;
+	}
+}
@@ -2,23 +2,37 @@ package com.mpp.twitterclone.services.mongo;
 
 import com.mpp.twitterclone.exceptions.ResourceExistsException;
 import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
 import com.mpp.twitterclone.model.Role;
 import com.mpp.twitterclone.model.User;
 import com.mpp.twitterclone.repositories.FollowRepository;
 import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import com.mpp.twitterclone.services.CounterService;
+import com.mpp.twitterclone.services.LeaderboardService;
 import com.mpp.twitterclone.services.RoleService;
+import com.mpp.twitterclone.services.SocialGraphService;
+import com.mpp.twitterclone.services.SuggestService;
+import com.mpp.twitterclone.services.TimelineService;
 import com.mpp.twitterclone.services.UserService;
 import com.mpp.twitterclone.validators.UserActionValidator;
+import com.mpp.twitterclone.validators.UserValidator;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by Jonathan on 9/8/2019.
@@ -37,14 +51,38 @@ public class UserMongoService implements UserService {
 
 	private final UserActionValidator userActionValidator;
 
+	private final TimelineService timelineService;
+
+	private final CounterBroadcastService counterBroadcastService;
+
+	private final UserLoader userLoader;
+
+	private final SocialGraphService socialGraphService;
+
+	private final CounterService counterService;
+
+	private final SuggestService suggestService;
+
+	private final LeaderboardService leaderboardService;
+
 	public UserMongoService(UserRepository userRepository, FollowRepository followRepository,
 	                        RoleService roleService, PasswordEncoder passwordEncoder,
-	                        @Lazy UserActionValidator userActionValidator) {
+	                        @Lazy UserActionValidator userActionValidator, TimelineService timelineService,
+	                        CounterBroadcastService counterBroadcastService, UserLoader userLoader,
+	                        SocialGraphService socialGraphService, CounterService counterService,
+	                        SuggestService suggestService, LeaderboardService leaderboardService) {
 		this.userRepository = userRepository;
 		this.roleService = roleService;
 		this.followRepository = followRepository;
 		this.passwordEncoder = passwordEncoder;
 		this.userActionValidator = userActionValidator;
+		this.timelineService = timelineService;
+		this.counterBroadcastService = counterBroadcastService;
+		this.userLoader = userLoader;
+		this.socialGraphService = socialGraphService;
+		this.counterService = counterService;
+		this.suggestService = suggestService;
+		this.leaderboardService = leaderboardService;
 	}
 
 	@Override
@@ -53,30 +91,51 @@ public class UserMongoService implements UserService {
 	}
 
 	@Override
-	public List<User> findAllFollowers(String followedUserId) {
-		List<Follow> follows = followRepository.findAllByFollowedUserId(followedUserId);
+	public Stream<User> streamAll() {
+		return userRepository.streamAll();
+	}
 
-		return follows.stream()
-				.map(follow -> findById(follow.getFollowerUserId())).collect(Collectors.toList());
+	@Override
+	public List<User> findAllFollowers(String followedUserId) {
+		return userLoader.findAllById(socialGraphService.findFollowerIds(followedUserId));
 	}
 
 	@Override
 	public List<User> findAllFollowing(String followerUserId) {
-		List<Follow> follows = followRepository.findAllByFollowerUserId(followerUserId);
+		return userLoader.findAllById(socialGraphService.findFollowingIds(followerUserId));
+	}
+
+	@Override
+	public CursorPage<User> findFollowersPage(String followedUserId, String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
 
-		return follows.stream()
-				.map(follow -> findById(follow.getFollowerUserId())).collect(Collectors.toList());
+		CursorPage<Follow> follows = CursorPage.of(followRepository.findFollowersPage(followedUserId, pageCursor,
+				pageSize + 1), pageCursor, pageSize, Follow::getCreatedAt, Follow::getId);
+
+		return hydrate(follows, Follow::getFollowerUserId);
+	}
+
+	@Override
+	public CursorPage<User> findFollowingPage(String followerUserId, String cursor, int size) {
+		PageCursor pageCursor = Cursors.decode(cursor);
+		int pageSize = Cursors.pageSize(size);
+
+		CursorPage<Follow> follows = CursorPage.of(followRepository.findFollowingPage(followerUserId, pageCursor,
+				pageSize + 1), pageCursor, pageSize, Follow::getCreatedAt, Follow::getId);
+
+		return hydrate(follows, Follow::getFollowedUserId);
 	}
 
 	@Override
 	public User findById(String id) {
-		return userRepository.findById(id)
+		return userLoader.findById(id)
 				.orElseThrow(() -> new ResourceNotFoundException("User"));
 	}
 
 	@Override
 	public User findUserByUsername(String username) {
-		return userRepository.findByUsername(username)
+		return userLoader.findByUsername(username)
 				.orElseThrow(() -> new ResourceNotFoundException("User"));
 	}
 
@@ -103,50 +162,88 @@ public class UserMongoService implements UserService {
 
 			newUser.setRoles(userRoles);
 
-			return userRepository.insert(newUser);
+			User savedUser = userRepository.insert(newUser);
+			suggestService.index(savedUser);
+
+			return savedUser;
 		}
 		else throw new ResourceExistsException("User");
 	}
 
 	@Override
 	public User followUser(String followedUserId, String followerUserId) {
-		// Original Tweet
-		User followedUser = findById(followedUserId);
+		// Check for follow record
+		boolean following = socialGraphService.follows(followerUserId, followedUserId);
+
+		// Toggle the follow record - the counter only moves when a record was actually deleted or inserted, since
+		// the unique index on the records settles concurrent toggles
+		int followersCountDelta = 0;
+
+		if (!following) { // User performing the follow action
+			try {
+				followRepository.insert(Follow.builder().followedUserId(followedUserId)
+														.followerUserId(followerUserId).build());
+				followersCountDelta = 1;
+			} catch (DuplicateKeyException e) {
+				// Followed already - by a concurrent toggle, or through another node since the graph was loaded.
+				// Toggle it off instead.
+				following = true;
+			}
+			socialGraphService.addFollow(followerUserId, followedUserId);
+		}
 
-		// Check for retweet record
-		Optional<Follow> follow = followRepository.findByFollowerUserIdAndFollowedUserId(followerUserId, followedUserId);
+		if (following) { // User performing the unfollow action
+			followersCountDelta = followRepository.deleteByFollowerUserIdAndAndFollowedUserId(followerUserId,
+					followedUserId) > 0 ? -1 : 0;
+			socialGraphService.removeFollow(followerUserId, followedUserId);
+		}
 
-		Integer currentFollowerCount = followedUser.getFollowersCount();
+		User followedUser = followersCountDelta == 0 ? findById(followedUserId)
+				: counterService.incrementUserCounter(followedUserId, CounterBroadcastService.FOLLOWERS_COUNT,
+						followersCountDelta).orElse(null);
 
-		if (follow.isPresent()) { // User performing the unfollow action
+		if (followedUser == null) {
+			// No such user - take back the follow just recorded
+			followRepository.deleteByFollowerUserIdAndAndFollowedUserId(followerUserId, followedUserId);
+			socialGraphService.removeFollow(followerUserId, followedUserId);
 
-			// Remove record of current user favorite the tweet
-			followRepository.deleteByFollowerUserIdAndAndFollowedUserId(follow.get().getFollowerUserId(),
-																		follow.get().getFollowedUserId());
+			throw new ResourceNotFoundException("User");
+		}
 
-			// Update tweet data
-			followedUser.setFollowersCount(--currentFollowerCount);
+		// Returned without its roles - don't memoize it
+		userLoader.clear(followedUser);
 
-		} else { // User performing the favorite action
-			// Keep a record of current user favorite the tweet
-			followRepository.insert(Follow.builder().followedUserId(followedUserId)
-													.followerUserId(followerUserId).build());
+		if (following) {
+			// Drop the unfollowed user's tweets from the follower's home timeline
+			timelineService.removeAuthor(followerUserId, followedUser.getUsername());
+		} else {
+			// Backfill the follower's home timeline with the followed user's recent tweets
+			timelineService.backfill(followerUserId, followedUser.getUsername());
+		}
 
-			// Update tweet data
-			followedUser.setFollowersCount(++currentFollowerCount);
+		// Batched to the clients showing the followed user, and ranked by in suggestions and leaderboards
+		if (followersCountDelta != 0) {
+			suggestService.index(followedUser);
+			leaderboardService.recordFollowers(followedUserId, followedUser.getFollowersCount(), followersCountDelta);
+			counterBroadcastService.recordDelta(CounterBroadcastService.userTopic(followedUserId),
+					CounterBroadcastService.FOLLOWERS_COUNT, followersCountDelta);
 		}
 
-		return update(followedUser, followedUserId, followerUserId);
+		return followedUser;
 	}
 
 	@Override
 	public User update(User newUser, String id, String currentUsername) {
+		// Read afresh rather than through the loader - the user is changed in place, and the cached one is shared
 		return userRepository.findById(id)
 				.map(u -> {
 
 					// Check if user performing the update is the owner
 					userActionValidator.validateUserAction(currentUsername, newUser.getUsername());
 
+					if (UserValidator.RESERVED_USERNAMES.contains(newUser.getUsername()))
+						throw new ResourceExistsException("Username");
+
 					User user = userRepository.findByUsername(newUser.getUsername()).orElse(null);
 
 					// Check if the the new username/email isn't already taken
@@ -155,6 +252,9 @@ public class UserMongoService implements UserService {
 						if (user.getEmail() == newUser.getEmail()) throw new ResourceExistsException("Email");
 					}
 
+					// The username may change - forget the user under the old one
+					userLoader.clear(u);
+
 					u.setUsername(newUser.getUsername());
 					u.setPassword(newUser.getPassword());
 					u.setName(newUser.getName());
@@ -168,11 +268,15 @@ public class UserMongoService implements UserService {
 					u.setDescription(newUser.getDescription());
 					u.setProtect(newUser.getProtect());
 					u.setVerified(newUser.getVerified());
-					u.setFollowersCount(newUser.getFollowersCount());
-					u.setFriendsCount(newUser.getFriendsCount());
 					u.setRoles(newUser.getRoles());
 
-					return userRepository.save(u);
+					// Only the edited fields - writing the counters back as read could undo concurrent $inc updates
+					userRepository.updateProfile(u);
+
+					userLoader.prime(u);
+					suggestService.index(u);
+
+					return u;
 
 				})
 				.orElseThrow(() -> new ResourceNotFoundException("User"));
@@ -187,6 +291,8 @@ public class UserMongoService implements UserService {
 		findById(user.getId());
 
 		userRepository.delete(user);
+		userLoader.clear(user);
+		suggestService.remove(user.getId());
 	}
 
 	@Override
@@ -198,5 +304,34 @@ public class UserMongoService implements UserService {
 		userActionValidator.validateUserAction(currentUsername, user.getUsername());
 
 		userRepository.deleteById(id);
+		userLoader.clear(user);
+		suggestService.remove(id);
+	}
+
+	/**
+	 * Replace a page of follow edges with the users on the other end, loaded in one $in query. The cursors
+	 * stay those of the edges, since the lists are ordered by when the follow happened.
+	 */
+	private CursorPage<User> hydrate(CursorPage<Follow> follows, Function<Follow, String> userId) {
+		List<String> ids = follows.getContent().stream().map(userId).collect(Collectors.toList());
+
+		return CursorPage.<User>builder()
+				.content(inOrder(ids, userRepository.findAllSummariesById(ids)))
+				.next(follows.getNext())
+				.previous(follows.getPrevious())
+				.build();
+	}
+
+	/**
+	 * $in lookups don't keep the order of the IDs - put the users back in it, skipping deleted ones
+	 */
+	static List<User> inOrder(List<String> ids, Iterable<User> users) {
+		Map<String, User> usersById = StreamSupport.stream(users.spliterator(), false)
+				.collect(Collectors.toMap(User::getId, Function.identity()));
+
+		return ids.stream()
+				.map(usersById::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
 	}
 }
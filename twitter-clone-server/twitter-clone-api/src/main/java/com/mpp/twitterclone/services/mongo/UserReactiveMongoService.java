@@ -0,0 +1,84 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.reactive.ReactiveFollowRepository;
+import com.mpp.twitterclone.repositories.reactive.ReactiveUserRepository;
+import com.mpp.twitterclone.services.ReactiveUserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link UserMongoService} for the read endpoints. Users are read without their
+ * roles, which reactive Mongo can't resolve.
+ */
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+public class UserReactiveMongoService implements ReactiveUserService {
+
+	private final ReactiveUserRepository reactiveUserRepository;
+
+	private final ReactiveFollowRepository reactiveFollowRepository;
+
+	public UserReactiveMongoService(ReactiveUserRepository reactiveUserRepository,
+	                                ReactiveFollowRepository reactiveFollowRepository) {
+		this.reactiveUserRepository = reactiveUserRepository;
+		this.reactiveFollowRepository = reactiveFollowRepository;
+	}
+
+	@Override
+	public Mono<User> findUserByUsername(String username) {
+		return reactiveUserRepository.findProfileByUsername(username)
+				.switchIfEmpty(Mono.error(new ResourceNotFoundException("User")));
+	}
+
+	@Override
+	public Mono<CursorPage<User>> findFollowersPage(String followedUserId, String cursor, int size) {
+		return page(cursor, size, (pageCursor, limit) ->
+				reactiveFollowRepository.findFollowersPage(followedUserId, pageCursor, limit), Follow::getFollowerUserId);
+	}
+
+	@Override
+	public Mono<CursorPage<User>> findFollowingPage(String followerUserId, String cursor, int size) {
+		return page(cursor, size, (pageCursor, limit) ->
+				reactiveFollowRepository.findFollowingPage(followerUserId, pageCursor, limit), Follow::getFollowedUserId);
+	}
+
+	/**
+	 * A page of follow edges, then the users on the other end in one $in query - see
+	 * {@link UserMongoService#findFollowersPage(String, String, int)}
+	 */
+	private Mono<CursorPage<User>> page(String cursor, int size, BiFunction<PageCursor, Integer, Flux<Follow>> query,
+	                                    Function<Follow, String> userId) {
+		return Mono.defer(() -> {
+			PageCursor pageCursor = Cursors.decode(cursor);
+			int pageSize = Cursors.pageSize(size);
+
+			return query.apply(pageCursor, pageSize + 1)
+					.collectList()
+					.map(rows -> CursorPage.of(rows, pageCursor, pageSize, Follow::getCreatedAt, Follow::getId))
+					.flatMap(follows -> {
+						List<String> ids = follows.getContent().stream().map(userId).collect(Collectors.toList());
+
+						return reactiveUserRepository.findAllSummariesById(ids)
+								.collectList()
+								.map(users -> CursorPage.<User>builder()
+										.content(UserMongoService.inOrder(ids, users))
+										.next(follows.getNext())
+										.previous(follows.getPrevious())
+										.build());
+					});
+		});
+	}
+}
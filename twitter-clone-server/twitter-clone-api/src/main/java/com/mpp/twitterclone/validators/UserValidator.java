@@ -3,6 +3,8 @@ package com.mpp.twitterclone.validators;
 
 import org.springframework.validation.Validator;
 
+import java.util.Set;
+
 /**
  * Created by Jonathan on 9/14/2019.
  *
@@ -10,4 +12,9 @@ import org.springframework.validation.Validator;
  */
 
 public interface UserValidator extends Validator {
+
+	/**
+	 * Taken by routes under /api/v1/users, so a user by that name couldn't be looked up
+	 */
+	Set<String> RESERVED_USERNAMES = Set.of("suggest");
 }
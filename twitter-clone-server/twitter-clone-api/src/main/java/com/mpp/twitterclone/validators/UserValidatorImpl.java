@@ -21,6 +21,9 @@ public class UserValidatorImpl implements UserValidator {
 
 		User user = (User) o;
 
+		if (user.getUsername() != null && RESERVED_USERNAMES.contains(user.getUsername()))
+			errors.rejectValue("username", "Found", "Username is Reserved");
+
 		if (user.getRoles() == null) {
 			errors.rejectValue("roles", "Not Found", "Roles are Required");
 		} else {
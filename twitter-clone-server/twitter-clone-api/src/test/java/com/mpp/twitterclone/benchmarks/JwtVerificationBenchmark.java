@@ -0,0 +1,87 @@
+package com.mpp.twitterclone.benchmarks;
+
+import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.enums.RoleName;
+import com.mpp.twitterclone.enums.TokenProvider;
+import com.mpp.twitterclone.model.Role;
+import com.mpp.twitterclone.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens verified per second on one thread, by the way the token filter verifies them:
+ *
+ * - parsedTwice: as it used to - validated, then parsed again for the username, each time with the key derived
+ *   from the secret
+ * - parsedOnce: parsed once with the derived key, as it is on a cache miss
+ * - verified: through {@link JwtTokenProvider#verifyToken(String)}, so the same token hits the verified cache
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+	private JwtTokenProvider tokenProvider;
+
+	private Key signingKey;
+
+	private String token;
+
+	@Setup
+	public void setUp() {
+		tokenProvider = new JwtTokenProvider();
+		signingKey = new SecretKeySpec(TextCodec.BASE64.decode(TokenProvider.SECRET_KEY.val()),
+				SignatureAlgorithm.HS512.getJcaName());
+
+		User user = User.builder().id("user1").username("john")
+						.roles(new HashSet<>(Arrays.asList(Role.builder().name(RoleName.USER).build()))).build();
+
+		token = tokenProvider.getTokenFromHeader(tokenProvider.generateToken(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+	}
+
+	@Benchmark
+	public String parsedTwice() {
+		Jwts.parser().setSigningKey(TokenProvider.SECRET_KEY.val()).parseClaimsJws(token);
+
+		return (String) Jwts.parser().setSigningKey(TokenProvider.SECRET_KEY.val()).parseClaimsJws(token).getBody()
+				.get("username");
+	}
+
+	@Benchmark
+	public String parsedOnce() {
+		Claims claims = Jwts.parser().setSigningKey(signingKey).parseClaimsJws(token).getBody();
+
+		return tokenProvider.getUsernameFromClaims(claims);
+	}
+
+	@Benchmark
+	public String verified() {
+		return tokenProvider.verifyToken(token).map(tokenProvider::getUsernameFromClaims).orElse(null);
+	}
+}
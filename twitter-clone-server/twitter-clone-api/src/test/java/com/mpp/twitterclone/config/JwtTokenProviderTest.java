@@ -0,0 +1,103 @@
+package com.mpp.twitterclone.config;
+
+import com.mpp.twitterclone.enums.RoleName;
+import com.mpp.twitterclone.model.Role;
+import com.mpp.twitterclone.model.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+	public static final String ID = "user1";
+	public static final String USERNAME = "john";
+
+	JwtTokenProvider tokenProvider;
+
+	String token;
+
+	@BeforeEach
+	void setUp() {
+		tokenProvider = new JwtTokenProvider();
+
+		User user = User.builder().id(ID).username(USERNAME)
+						.roles(new HashSet<>(Arrays.asList(Role.builder().name(RoleName.USER).build()))).build();
+
+		token = tokenProvider.getTokenFromHeader(tokenProvider.generateToken(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+	}
+
+	@Test
+	void verifyToken_ValidToken_Claims() {
+		//when
+		Optional<Claims> claims = tokenProvider.verifyToken(token);
+
+		//then
+		assertTrue(claims.isPresent());
+		assertEquals(USERNAME, tokenProvider.getUsernameFromClaims(claims.get()));
+
+		JwtUserPrincipal principal = tokenProvider.getPrincipalFromClaims(claims.get());
+		assertEquals(ID, principal.getId());
+		assertEquals(USERNAME, principal.getName());
+		assertEquals(RoleName.USER.toString(), principal.getAuthorities().get(0).getAuthority());
+	}
+
+	@Test
+	void verifyToken_SameToken_ServedFromCache() {
+		//when
+		Claims first = tokenProvider.verifyToken(token).get();
+		Claims second = tokenProvider.verifyToken(token).get();
+
+		//then
+		assertSame(first, second);
+	}
+
+	@Test
+	void verifyToken_TamperedSignature_Empty() {
+		//given
+		String tampered = token.substring(0, token.length() - 4)
+				+ (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+		//when
+		tokenProvider.verifyToken(token);
+
+		//then
+		assertFalse(tokenProvider.verifyToken(tampered).isPresent());
+		assertFalse(tokenProvider.validateToken("not.a.token"));
+	}
+
+	@Test
+	void verifyToken_IssuedByAnotherInstance_Verified() {
+		//then
+		assertTrue(new JwtTokenProvider().validateToken(token));
+	}
+
+	@Test
+	void getTokenFromRequest_WebSocketSubprotocols_Token() {
+		//given
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Upgrade", "websocket");
+		request.addHeader("Sec-WebSocket-Protocol", "bearer, " + token);
+
+		//then
+		assertEquals(token, tokenProvider.getTokenFromRequest(request));
+	}
+
+	@Test
+	void getTokenFromRequest_SubprotocolsWithoutUpgrade_Null() {
+		//given
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Sec-WebSocket-Protocol", "bearer, " + token);
+
+		//then
+		assertNull(tokenProvider.getTokenFromRequest(request));
+	}
+}
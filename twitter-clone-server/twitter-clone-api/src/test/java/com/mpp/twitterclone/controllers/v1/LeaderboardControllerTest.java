@@ -0,0 +1,149 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.config.AuthEntryPoint;
+import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssemblerImpl;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssembler;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssemblerImpl;
+import com.mpp.twitterclone.enums.LeaderboardWindow;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.LeaderboardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(LeaderboardController.class)
+@WithMockUser(value = LeaderboardControllerTest.USERNAME, authorities = "USER")
+class LeaderboardControllerTest {
+
+	public static final String USERNAME = "john";
+
+	@TestConfiguration
+	static class LeaderboardControllerTestContextConfiguration {
+		@Bean
+		public TweetResourceAssembler tweetResourceAssembler() {
+			return new TweetResourceAssemblerImpl();
+		}
+
+		@Bean
+		public UserResourceAssembler userResourceAssembler() {
+			return new UserResourceAssemblerImpl();
+		}
+
+		@Bean
+		public JwtTokenProvider jwtTokenProvider() {
+			return new JwtTokenProvider();
+		}
+
+		@Bean
+		public AuthEntryPoint authEntryPoint() {
+			return new AuthEntryPoint();
+		}
+	}
+
+	@MockBean
+	LeaderboardService leaderboardService;
+
+	@Autowired
+	WebApplicationContext webApplicationContext;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders
+					.webAppContextSetup(webApplicationContext)
+					.apply(springSecurity())
+					.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		reset(leaderboardService);
+	}
+
+	@Test
+	void getMostFavoritedTweets_NoWindow_AllTime() throws Exception {
+		//given
+		when(leaderboardService.findMostFavoritedTweets(any(LeaderboardWindow.class), anyInt())).thenReturn(Arrays.asList(
+				Tweet.builder().id("tweet1").favoriteCount(500).build(),
+				Tweet.builder().id("tweet2").favoriteCount(300).build()));
+
+		//when
+		mockMvc.perform(get(LeaderboardController.BASE_URL + "/tweets/favorites"))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.tweets[0].id", is("tweet1")))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(LeaderboardController.BASE_URL + "/tweets/favorites?window=ALL_TIME"))));
+
+		verify(leaderboardService, times(1)).findMostFavoritedTweets(LeaderboardWindow.ALL_TIME, LeaderboardService.DEFAULT_SIZE);
+	}
+
+	@Test
+	void getMostRetweetedTweets_DayWindow_Day() throws Exception {
+		//given
+		when(leaderboardService.findMostRetweetedTweets(any(LeaderboardWindow.class), anyInt()))
+				.thenReturn(Collections.singletonList(Tweet.builder().id("tweet2").build()));
+
+		//when
+		mockMvc.perform(get(LeaderboardController.BASE_URL + "/tweets/retweets").param("window", "DAY").param("size", "5"))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(1)));
+
+		verify(leaderboardService, times(1)).findMostRetweetedTweets(LeaderboardWindow.DAY, 5);
+	}
+
+	@Test
+	void getMostFollowedUsers_ValidRequest_ListOfUsers() throws Exception {
+		//given
+		when(leaderboardService.findMostFollowedUsers(any(LeaderboardWindow.class), anyInt()))
+				.thenReturn(Collections.singletonList(User.builder().id("user1").username(USERNAME).build()));
+
+		//when
+		mockMvc.perform(get(LeaderboardController.BASE_URL + "/users/followers"))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._embedded.users", hasSize(1)))
+				.andExpect(jsonPath("$._embedded.users[0].username", is(USERNAME)));
+	}
+
+	@Test
+	void getMostFavoritedTweets_InvalidWindow_BadRequest() throws Exception {
+		//when
+		mockMvc.perform(get(LeaderboardController.BASE_URL + "/tweets/favorites").param("window", "WEEK"))
+				//then
+				.andExpect(status().isBadRequest());
+
+		verify(leaderboardService, never()).findMostFavoritedTweets(any(LeaderboardWindow.class), anyInt());
+	}
+}
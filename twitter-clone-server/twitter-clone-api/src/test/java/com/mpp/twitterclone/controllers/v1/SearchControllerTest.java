@@ -0,0 +1,121 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.config.AuthEntryPoint;
+import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssemblerImpl;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.SearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SearchController.class)
+@WithMockUser(value = SearchControllerTest.USERNAME, authorities = "USER")
+class SearchControllerTest {
+
+	public static final String USERNAME = "john";
+
+	@TestConfiguration
+	static class SearchControllerTestContextConfiguration {
+		@Bean
+		public TweetResourceAssembler tweetResourceAssembler() {
+			return new TweetResourceAssemblerImpl();
+		}
+
+		@Bean
+		public JwtTokenProvider jwtTokenProvider() {
+			return new JwtTokenProvider();
+		}
+
+		@Bean
+		public AuthEntryPoint authEntryPoint() {
+			return new AuthEntryPoint();
+		}
+	}
+
+	@MockBean
+	SearchService searchService;
+
+	@Autowired
+	WebApplicationContext webApplicationContext;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders
+					.webAppContextSetup(webApplicationContext)
+					.apply(springSecurity())
+					.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		reset(searchService);
+	}
+
+	@Test
+	void searchTweets_ValidQuery_ListOfTweets() throws Exception {
+		//given
+		when(searchService.search(anyString(), anyInt())).thenReturn(Arrays.asList(
+				Tweet.builder().id("tweet2").text("hello world").build(),
+				Tweet.builder().id("tweet1").text("hello").build()));
+
+		//when
+		mockMvc.perform(get(SearchController.BASE_URL).param("q", "hello world"))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.tweets[0].id", is("tweet2")))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(SearchController.BASE_URL + "?q=hello%20world"))));
+
+		verify(searchService, times(1)).search("hello world", SearchService.DEFAULT_SIZE);
+	}
+
+	@Test
+	void searchTweets_MissingQuery_BadRequest() throws Exception {
+		//when
+		mockMvc.perform(get(SearchController.BASE_URL))
+				//then
+				.andExpect(status().isBadRequest());
+
+		verify(searchService, never()).search(anyString(), anyInt());
+	}
+
+	@Test
+	@WithMockUser(value = SearchControllerTest.USERNAME, authorities = "NONE")
+	void searchTweets_NotAUser_Forbidden() throws Exception {
+		//when
+		mockMvc.perform(get(SearchController.BASE_URL).param("q", "hello"))
+				//then
+				.andExpect(status().isForbidden());
+
+		verify(searchService, never()).search(anyString(), anyInt());
+	}
+}
@@ -0,0 +1,132 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.config.AuthEntryPoint;
+import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.enums.RoleName;
+import com.mpp.twitterclone.enums.TokenProvider;
+import com.mpp.twitterclone.model.Role;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.TimelineStreamService;
+import com.mpp.twitterclone.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = TimelineController.class, properties = "security.jwt.claims-only=true")
+@WithMockUser(value = TimelineControllerTest.USERNAME, authorities = "USER")
+class TimelineControllerTest {
+
+	public static final String USERNAME = "john";
+	public static final String ID = "user1";
+
+	@TestConfiguration
+	static class TimelineControllerTestContextConfiguration {
+		@Bean
+		public JwtTokenProvider jwtTokenProvider() {
+			return new JwtTokenProvider();
+		}
+
+		@Bean
+		public AuthEntryPoint authEntryPoint() {
+			return new AuthEntryPoint();
+		}
+	}
+
+	@MockBean
+	TimelineStreamService timelineStreamService;
+
+	@MockBean
+	UserService userService;
+
+	@Autowired
+	JwtTokenProvider tokenProvider;
+
+	@Autowired
+	WebApplicationContext webApplicationContext;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders
+					.webAppContextSetup(webApplicationContext)
+					.apply(springSecurity())
+					.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		reset(timelineStreamService, userService);
+	}
+
+	@Test
+	void streamTimeline_ValidRequest_SubscribedByUserId() throws Exception {
+		//given
+		when(userService.findUserByUsername(anyString())).thenReturn(User.builder().id(ID).username(USERNAME).build());
+		when(timelineStreamService.subscribe(anyString())).thenReturn(new SseEmitter());
+
+		//when
+		mockMvc.perform(get(TimelineController.BASE_URL + "/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(request().asyncStarted());
+
+		// Streams are keyed by user ID, not the username of the principal
+		verify(userService, times(1)).findUserByUsername(USERNAME);
+		verify(timelineStreamService, times(1)).subscribe(ID);
+	}
+
+	@Test
+	void streamTimeline_ClaimsOnlyToken_NoUserLookup() throws Exception {
+		//given
+		User user = User.builder().id(ID).username(USERNAME)
+						.roles(new HashSet<>(Arrays.asList(Role.builder().name(RoleName.USER).build()))).build();
+		String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null,
+				user.getAuthorities()));
+
+		when(timelineStreamService.subscribe(anyString())).thenReturn(new SseEmitter());
+
+		//when
+		mockMvc.perform(get(TimelineController.BASE_URL + "/stream").accept(MediaType.TEXT_EVENT_STREAM)
+					.header(TokenProvider.TOKEN_HEADER.val(), token))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(request().asyncStarted());
+
+		// The user ID comes from the token's claims
+		verify(userService, never()).findUserByUsername(anyString());
+		verify(timelineStreamService, times(1)).subscribe(ID);
+	}
+
+	@Test
+	@WithMockUser(value = TimelineControllerTest.USERNAME, authorities = "NONE")
+	void streamTimeline_NotAUser_Forbidden() throws Exception {
+		//when
+		mockMvc.perform(get(TimelineController.BASE_URL + "/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				//then
+				.andExpect(status().isForbidden());
+
+		verify(timelineStreamService, never()).subscribe(anyString());
+	}
+}
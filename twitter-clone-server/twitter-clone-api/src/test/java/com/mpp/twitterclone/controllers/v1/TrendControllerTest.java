@@ -0,0 +1,104 @@
+package com.mpp.twitterclone.controllers.v1;
+
+import com.mpp.twitterclone.config.AuthEntryPoint;
+import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.model.Trend;
+import com.mpp.twitterclone.services.TrendService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TrendController.class)
+@WithMockUser(value = TrendControllerTest.USERNAME, authorities = "USER")
+class TrendControllerTest {
+
+	public static final String USERNAME = "john";
+
+	@TestConfiguration
+	static class TrendControllerTestContextConfiguration {
+		@Bean
+		public JwtTokenProvider jwtTokenProvider() {
+			return new JwtTokenProvider();
+		}
+
+		@Bean
+		public AuthEntryPoint authEntryPoint() {
+			return new AuthEntryPoint();
+		}
+	}
+
+	@MockBean
+	TrendService trendService;
+
+	@Autowired
+	WebApplicationContext webApplicationContext;
+
+	MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders
+					.webAppContextSetup(webApplicationContext)
+					.apply(springSecurity())
+					.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		reset(trendService);
+	}
+
+	@Test
+	void getTrends_NoSize_DefaultSizeOfTrends() throws Exception {
+		//given
+		when(trendService.findTrends(anyInt())).thenReturn(Arrays.asList(
+				new Trend("spring", 12.5, 20, 40, 60),
+				new Trend("java", 3.0, 5, 100, 900)));
+
+		//when
+		mockMvc.perform(get(TrendController.BASE_URL))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.trends", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.trends[0].hashtag", is("spring")))
+				.andExpect(jsonPath("$._embedded.trends[0].lastFiveMinutes", is(20)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(TrendController.BASE_URL))));
+
+		verify(trendService, times(1)).findTrends(TrendService.DEFAULT_SIZE);
+	}
+
+	@Test
+	@WithMockUser(value = TrendControllerTest.USERNAME, authorities = "NONE")
+	void getTrends_NotAUser_Forbidden() throws Exception {
+		//when
+		mockMvc.perform(get(TrendController.BASE_URL))
+				//then
+				.andExpect(status().isForbidden());
+
+		verify(trendService, never()).findTrends(anyInt());
+	}
+}
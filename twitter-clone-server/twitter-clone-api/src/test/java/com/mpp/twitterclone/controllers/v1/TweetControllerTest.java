@@ -7,9 +7,14 @@ import com.mpp.twitterclone.config.WebSecurityConfig;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssemblerImpl;
 import com.mpp.twitterclone.enums.RoleName;
+import com.mpp.twitterclone.model.Conversation;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
 import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.services.ConversationService;
 import com.mpp.twitterclone.services.TweetService;
+import com.mpp.twitterclone.services.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,13 +34,16 @@ import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.notNullValue;
@@ -77,6 +85,12 @@ class TweetControllerTest {
 	@MockBean
 	TweetService tweetService;
 
+	@MockBean
+	ConversationService conversationService;
+
+	@MockBean
+	UserService userService;
+
 	@Autowired
 	TweetResourceAssembler tweetResourceAssembler;
 
@@ -110,7 +124,8 @@ class TweetControllerTest {
 
 		List<Tweet> sentTweets = Arrays.asList(tweet1, tweet2);
 
-		when(tweetService.findAll()).thenReturn(sentTweets);
+		when(tweetService.findPage(isNull(), anyInt())).thenReturn(CursorPage.<Tweet>builder()
+				.content(sentTweets).next("nextCursor").build());
 
 		//when
 		mockMvc.perform(get(TweetController.BASE_URL).contentType(MediaType.APPLICATION_JSON))
@@ -125,9 +140,63 @@ class TweetControllerTest {
 				.andExpect(jsonPath("$._embedded.tweets[0].content[0].data", is(TWEET_TEXT_CONTENT)))
 				// Test Links
 				.andExpect(jsonPath("$._links.self.href", is(endsWith(TweetController.BASE_URL))))
+				.andExpect(jsonPath("$._links.next.href", is(endsWith(TweetController.BASE_URL + "?cursor=nextCursor"))))
+				.andExpect(jsonPath("$._links.prev").doesNotExist())
 				.andExpect(jsonPath("$._embedded.tweets[0]._links.self.href", is(endsWith(TweetController.BASE_URL + "/" + ID))))
 				.andExpect(jsonPath("$._embedded.tweets[0]._links.tweets.href", is(endsWith(TweetController.BASE_URL))));
 
+		verify(tweetService, times(1)).findPage(null, TweetController.DEFAULT_PAGE_SIZE);
+	}
+
+	@Test
+	@WithMockUser(value = TweetControllerTest.USERNAME, authorities = "ADMIN")
+	void getAllTweets_CursorAndSize_PageLinks() throws Exception {
+		//given
+		Tweet tweet = Tweet.builder().id(ID).content(Arrays.asList(new TextContent(TWEET_TEXT_CONTENT))).build();
+
+		when(tweetService.findPage(anyString(), anyInt())).thenReturn(CursorPage.<Tweet>builder()
+				.content(Arrays.asList(tweet)).next("nextCursor").previous("prevCursor").build());
+
+		//when
+		mockMvc.perform(get(TweetController.BASE_URL).param("cursor", "someCursor").param("size", "1")
+				.contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(1)))
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(TweetController.BASE_URL + "?cursor=someCursor&size=1"))))
+				.andExpect(jsonPath("$._links.next.href", is(endsWith(TweetController.BASE_URL + "?cursor=nextCursor&size=1"))))
+				.andExpect(jsonPath("$._links.prev.href", is(endsWith(TweetController.BASE_URL + "?cursor=prevCursor&size=1"))));
+
+		verify(tweetService, times(1)).findPage("someCursor", 1);
+	}
+
+	@Test
+	@WithMockUser(value = TweetControllerTest.USERNAME, authorities = "ADMIN")
+	void streamAllTweets_NdjsonRequested_OneTweetPerLine() throws Exception {
+		//given
+		Tweet tweet1 = Tweet.builder().id(ID).text(TWEET_TEXT_CONTENT).build();
+		Tweet tweet2 = Tweet.builder().id("tweet2").text("World").build();
+
+		when(tweetService.streamAll()).thenReturn(Stream.of(tweet1, tweet2));
+
+		//when
+		MvcResult result = mockMvc.perform(get(TweetController.BASE_URL)
+					.accept(NdjsonResponses.APPLICATION_NDJSON).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		//then
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(NdjsonResponses.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(ID, objectToJsonMapper.readTree(lines[0]).get("id").asText());
+		assertEquals("tweet2", objectToJsonMapper.readTree(lines[1]).get("id").asText());
+
+		verify(tweetService, never()).findPage(any(), anyInt());
 	}
 
 	@Test
@@ -140,7 +209,8 @@ class TweetControllerTest {
 
 		List<Tweet> sentTweets = Arrays.asList(tweet1, tweet2);
 
-		when(tweetService.findAllTweetsByUsername(anyString())).thenReturn(sentTweets);
+		when(tweetService.findPageByUsername(anyString(), isNull(), anyInt()))
+				.thenReturn(CursorPage.<Tweet>builder().content(sentTweets).build());
 
 		//when
 		mockMvc.perform(get(TweetController.BASE_URL + "/user/" + USERNAME).contentType(MediaType.APPLICATION_JSON))
@@ -169,7 +239,8 @@ class TweetControllerTest {
 
 		List<Tweet> sentTweets = Arrays.asList(tweet1, tweet2);
 
-		when(tweetService.findAllReplies(anyString())).thenReturn(sentTweets);
+		when(tweetService.findRepliesPage(anyString(), isNull(), anyInt()))
+				.thenReturn(CursorPage.<Tweet>builder().content(sentTweets).build());
 
 		//when
 		mockMvc.perform(get(TweetController.BASE_URL + "/" + ID + "/replies").contentType(MediaType.APPLICATION_JSON))
@@ -212,6 +283,39 @@ class TweetControllerTest {
 
 	}
 
+	@Test
+	void getConversation_ValidID_Found() throws Exception {
+		//given
+		Tweet root = Tweet.builder().id("root").content(Arrays.asList(new TextContent("Root"))).build();
+		Tweet tweet = Tweet.builder().id(ID).parentId("root")
+										.content(Arrays.asList(new TextContent(TWEET_TEXT_CONTENT))).build();
+		Tweet reply = Tweet.builder().id("reply1").parentId(ID).build();
+
+		when(conversationService.findConversation(anyString(), anyInt(), anyInt())).thenReturn(Conversation.builder()
+				.ancestors(Arrays.asList(root))
+				.tweet(tweet)
+				.replies(Arrays.asList(new Conversation.Reply(reply, Arrays.asList(), true)))
+				.build());
+
+		//when
+		mockMvc.perform(get(TweetController.BASE_URL + "/" + ID + "/conversation").contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$.ancestors[0].id", is("root")))
+				.andExpect(jsonPath("$.tweet.id", is(ID)))
+				.andExpect(jsonPath("$.replies", hasSize(1)))
+				.andExpect(jsonPath("$.replies[0].tweet.id", is("reply1")))
+				.andExpect(jsonPath("$.replies[0].moreReplies", is(true)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(TweetController.BASE_URL + "/" + ID + "/conversation"))))
+				.andExpect(jsonPath("$._links.tweet.href", is(endsWith(TweetController.BASE_URL + "/" + ID))));
+
+		verify(conversationService, times(1)).findConversation(ID, ConversationService.DEFAULT_DEPTH,
+				ConversationService.DEFAULT_WIDTH);
+	}
+
 	@Test
 	void createTweet_ValidAuthorDTO_Created() throws Exception {
 		//given
@@ -271,6 +375,7 @@ class TweetControllerTest {
 		//given
 		Tweet favoritedTweet = Tweet.builder().id(ID).owner(USERNAME).build();
 
+		when(userService.findUserByUsername(USERNAME)).thenReturn(User.builder().id("user1Id").username(USERNAME).build());
 		when(tweetService.favoriteTweet(anyString(), anyString())).thenReturn(favoritedTweet);
 
 		//when
@@ -290,6 +395,33 @@ class TweetControllerTest {
 				// Test Redirected URL - any hostname with the given pattern
 				.andExpect(redirectedUrlPattern(
 						"http://*" + tweetResourceAssembler.toResource(favoritedTweet).getId().expand().getHref()));
+
+		// Recorded by the ID of the authenticated user
+		verify(tweetService, times(1)).favoriteTweet(ID, "user1Id");
+	}
+
+	@Test
+	void retweetTweet_ValidRequest_Retweeted() throws Exception {
+		//given
+		Tweet retweetedTweet = Tweet.builder().id(ID).owner("author1").retweetCount(1).build();
+
+		when(userService.findUserByUsername(USERNAME)).thenReturn(User.builder().id("user1Id").username(USERNAME).build());
+		when(tweetService.retweetTweet(anyString(), anyString())).thenReturn(retweetedTweet);
+
+		//when
+		mockMvc.perform(post(TweetController.BASE_URL + "/" + ID + "/retweet")
+					.contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isCreated())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test JSON
+				.andExpect(jsonPath("$.id", is(ID)))
+				.andExpect(jsonPath("$.retweetCount", is(1)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(TweetController.BASE_URL + "/" + ID))));
+
+		// Recorded by the ID of the authenticated user
+		verify(tweetService, times(1)).retweetTweet(ID, "user1Id");
 	}
 
 	@Test
@@ -3,9 +3,18 @@ package com.mpp.twitterclone.controllers.v1;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mpp.twitterclone.config.AuthEntryPoint;
 import com.mpp.twitterclone.config.JwtTokenProvider;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssembler;
+import com.mpp.twitterclone.controllers.v1.resourceassemblers.TweetResourceAssemblerImpl;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssembler;
 import com.mpp.twitterclone.controllers.v1.resourceassemblers.UserResourceAssemblerImpl;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.HashtagSuggestion;
+import com.mpp.twitterclone.model.MergedTimeline;
+import com.mpp.twitterclone.model.Tweet;
 import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.SuggestService;
+import com.mpp.twitterclone.services.TimelineService;
+import com.mpp.twitterclone.services.TweetService;
 import com.mpp.twitterclone.services.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,14 +28,18 @@ import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.notNullValue;
@@ -50,6 +63,11 @@ class UserControllerTest {
 			return new UserResourceAssemblerImpl();
 		}
 
+		@Bean
+		public TweetResourceAssembler tweetResourceAssembler() {
+			return new TweetResourceAssemblerImpl();
+		}
+
 		@Bean
 		public JwtTokenProvider jwtTokenProvider() {
 			return new JwtTokenProvider();
@@ -66,6 +84,15 @@ class UserControllerTest {
 	@MockBean
 	UserService userService;
 
+	@MockBean
+	TimelineService timelineService;
+
+	@MockBean
+	TweetService tweetService;
+
+	@MockBean
+	SuggestService suggestService;
+
 	@Autowired
 	UserResourceAssembler userResourceAssembler;
 
@@ -87,7 +114,7 @@ class UserControllerTest {
 
 	@AfterEach
 	void tearDown() {
-		reset(userService);
+		reset(userService, timelineService, tweetService, suggestService);
 	}
 
 	@Test
@@ -135,6 +162,37 @@ class UserControllerTest {
 				.andExpect(jsonPath("$._links.users.href", is(endsWith(UserController.BASE_URL))));
 	}
 
+	@Test
+	void streamAllUsers_NdjsonRequested_OneUserPerLine() throws Exception {
+		//given
+		User user1 = User.builder().id(ID).username(USERNAME).password("secret").build();
+		User user2 = User.builder().id("user2").username("doe").password("secret").build();
+
+		when(userService.streamAll()).thenReturn(Stream.of(user1, user2));
+
+		//when
+		MvcResult result = mockMvc.perform(get(UserController.BASE_URL)
+					.accept(NdjsonResponses.APPLICATION_NDJSON).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		//then
+		// Not cut off by the default async timeout
+		assertEquals(NdjsonResponses.EXPORT_TIMEOUT.toMillis(), result.getRequest().getAsyncContext().getTimeout());
+
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(NdjsonResponses.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(USERNAME, objectToJsonMapper.readTree(lines[0]).get("username").asText());
+		assertEquals("doe", objectToJsonMapper.readTree(lines[1]).get("username").asText());
+		// Passwords are write only, exported or not
+		assertFalse(objectToJsonMapper.readTree(lines[0]).has("password"));
+	}
+
 	@Test
 	void getAllFollowersById_ValidRequest_ListOfTweets() throws Exception {
 		//given
@@ -143,7 +201,8 @@ class UserControllerTest {
 
 		List<User> sentUser = Arrays.asList(user1, user2);
 
-		when(userService.findAllFollowers(anyString())).thenReturn(sentUser);
+		when(userService.findFollowersPage(anyString(), isNull(), anyInt()))
+				.thenReturn(CursorPage.<User>builder().content(sentUser).next("nextCursor").build());
 
 		//when
 		mockMvc.perform(get(UserController.BASE_URL + "/" + ID + "/followers").contentType(MediaType.APPLICATION_JSON))
@@ -156,6 +215,8 @@ class UserControllerTest {
 				.andExpect(jsonPath("$._embedded.users[0].username", is(USERNAME)))
 				// Test Links
 				.andExpect(jsonPath("$._links.self.href", is(endsWith(UserController.BASE_URL + "/" + ID + "/followers"))))
+				.andExpect(jsonPath("$._links.next.href",
+						is(endsWith(UserController.BASE_URL + "/" + ID + "/followers?cursor=nextCursor"))))
 				.andExpect(jsonPath("$._embedded.users[0]._links.self.href", is(endsWith(UserController.BASE_URL + "/" + USERNAME))))
 				.andExpect(jsonPath("$._embedded.users[0]._links.users.href", is(endsWith(UserController.BASE_URL))));
 	}
@@ -168,10 +229,12 @@ class UserControllerTest {
 
 		List<User> sentUser = Arrays.asList(user1, user2);
 
-		when(userService.findAllFollowing(anyString())).thenReturn(sentUser);
+		when(userService.findFollowingPage(anyString(), anyString(), anyInt()))
+				.thenReturn(CursorPage.<User>builder().content(sentUser).previous("prevCursor").build());
 
 		//when
-		mockMvc.perform(get(UserController.BASE_URL + "/" + ID + "/following").contentType(MediaType.APPLICATION_JSON))
+		mockMvc.perform(get(UserController.BASE_URL + "/" + ID + "/following").param("cursor", "someCursor")
+				.param("size", "2").contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
 				//then
 				.andExpect(status().isOk())
@@ -181,7 +244,11 @@ class UserControllerTest {
 				.andExpect(jsonPath("$._embedded.users[0].id", is(ID)))
 				.andExpect(jsonPath("$._embedded.users[0].username", is(USERNAME)))
 				// Test Links
-				.andExpect(jsonPath("$._links.self.href", is(endsWith(UserController.BASE_URL + "/" + ID + "/following"))))
+				.andExpect(jsonPath("$._links.self.href",
+						is(endsWith(UserController.BASE_URL + "/" + ID + "/following?cursor=someCursor&size=2"))))
+				.andExpect(jsonPath("$._links.prev.href",
+						is(endsWith(UserController.BASE_URL + "/" + ID + "/following?cursor=prevCursor&size=2"))))
+				.andExpect(jsonPath("$._links.next").doesNotExist())
 				.andExpect(jsonPath("$._embedded.users[0]._links.self.href", is(endsWith(UserController.BASE_URL + "/" + USERNAME))))
 				.andExpect(jsonPath("$._embedded.users[0]._links.users.href", is(endsWith(UserController.BASE_URL))));
 	}
@@ -216,7 +283,9 @@ class UserControllerTest {
 	void followUser_ValidRequest_Followed() throws Exception {
 		//given
 		User followedUser = User.builder().id(ID).username(USERNAME).build();
+		User follower = User.builder().id("user2").username("doe").build();
 
+		when(userService.findUserByUsername(anyString())).thenReturn(follower);
 		when(userService.followUser(anyString(), anyString())).thenReturn(followedUser);
 
 		//when
@@ -236,6 +305,130 @@ class UserControllerTest {
 				// Test Redirected URL - any hostname with the given pattern
 				.andExpect(redirectedUrlPattern(
 						"http://*" + userResourceAssembler.toResource(followedUser).getId().expand().getHref()));
+
+		// Follows are recorded with the follower's ID, not the username
+		verify(userService, times(1)).followUser(ID, follower.getId());
+	}
+
+	@Test
+	void suggest_ValidPrefix_ListOfUsers() throws Exception {
+		//given
+		when(suggestService.suggestUsers(anyString(), anyInt())).thenReturn(Arrays.asList(
+				User.builder().id(ID).username(USERNAME).followersCount(10).build(),
+				User.builder().id("user2").username("johnny").followersCount(2).build()));
+
+		//when
+		mockMvc.perform(get(UserController.BASE_URL + "/suggest").param("prefix", "jo h")
+				.contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.users", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.users[0].username", is(USERNAME)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(UserController.BASE_URL + "/suggest?prefix=jo%20h"))));
+
+		verify(suggestService, times(1)).suggestUsers("jo h", SuggestService.DEFAULT_SIZE);
+		verify(userService, never()).findUserByUsername(anyString());
+	}
+
+	@Test
+	void suggest_HashtagPrefix_ListOfHashtags() throws Exception {
+		//given
+		when(suggestService.suggestHashtags(anyString(), anyInt())).thenReturn(Arrays.asList(
+				new HashtagSuggestion("javascript", 20), new HashtagSuggestion("java", 5)));
+
+		//when
+		mockMvc.perform(get(UserController.BASE_URL + "/suggest").param("prefix", "#ja").param("size", "5")
+				.contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.hashtags", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.hashtags[0].hashtag", is("javascript")))
+				.andExpect(jsonPath("$._embedded.hashtags[0].count", is(20)));
+
+		verify(suggestService, times(1)).suggestHashtags("#ja", 5);
+		verify(suggestService, never()).suggestUsers(anyString(), anyInt());
+	}
+
+	@Test
+	void getMentions_ValidRequest_ListOfTweets() throws Exception {
+		//given
+		Tweet tweet1 = Tweet.builder().id("tweet1").owner("doe").mentions(Arrays.asList(USERNAME)).build();
+		Tweet tweet2 = Tweet.builder().id("tweet2").owner("jane").mentions(Arrays.asList("doe", USERNAME)).build();
+
+		when(tweetService.findMentionsPage(anyString(), isNull(), anyInt()))
+				.thenReturn(CursorPage.<Tweet>builder().content(Arrays.asList(tweet1, tweet2)).next("nextCursor").build());
+
+		//when
+		mockMvc.perform(get(UserController.BASE_URL + "/" + USERNAME + "/mentions").contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.tweets[0].id", is("tweet1")))
+				.andExpect(jsonPath("$._embedded.tweets[1].mentions", hasSize(2)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(UserController.BASE_URL + "/" + USERNAME + "/mentions"))))
+				.andExpect(jsonPath("$._links.next.href",
+						is(endsWith(UserController.BASE_URL + "/" + USERNAME + "/mentions?cursor=nextCursor"))));
+
+		verify(tweetService, times(1)).findMentionsPage(USERNAME, null, UserController.DEFAULT_PAGE_SIZE);
+	}
+
+	@Test
+	void getHomeTimeline_ValidRequest_ListOfTweets() throws Exception {
+		//given
+		Tweet tweet1 = Tweet.builder().id("tweet1").owner("doe").build();
+		Tweet tweet2 = Tweet.builder().id("tweet2").owner(USERNAME).build();
+
+		when(timelineService.findHomeTimeline(anyString(), anyInt(), anyInt(), anyString()))
+				.thenReturn(Arrays.asList(tweet1, tweet2));
+
+		//when
+		mockMvc.perform(get(UserController.BASE_URL + "/" + ID + "/timeline").contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.tweets[0].id", is("tweet1")))
+				.andExpect(jsonPath("$._embedded.tweets[1].owner", is(USERNAME)))
+				// Test Links
+				.andExpect(jsonPath("$._links.self.href", is(endsWith(UserController.BASE_URL + "/" + ID + "/timeline?page=0&size=20"))));
+
+		verify(timelineService, times(1)).findHomeTimeline(ID, 0, 20, USERNAME);
+	}
+
+	@Test
+	void getMergedTimeline_ValidRequest_ListOfTweetsWithStats() throws Exception {
+		//given
+		MergedTimeline timeline = MergedTimeline.builder()
+				.tweets(Arrays.asList(Tweet.builder().id("tweet2").build(), Tweet.builder().id("tweet1").build()))
+				.authorFanIn(3)
+				.documentsExamined(7)
+				.build();
+
+		when(timelineService.findMergedTimeline(anyString(), any(), anyString(), anyInt(), anyString()))
+				.thenReturn(timeline);
+
+		//when
+		mockMvc.perform(get(UserController.BASE_URL + "/" + ID + "/timeline/merged?maxId=tweet3&count=2")
+					.contentType(MediaType.APPLICATION_JSON))
+				//then
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+				.andExpect(header().string(UserController.AUTHOR_FAN_IN_HEADER, "3"))
+				.andExpect(header().string(UserController.DOCUMENTS_EXAMINED_HEADER, "7"))
+				// Test Content
+				.andExpect(jsonPath("$._embedded.tweets", hasSize(2)))
+				.andExpect(jsonPath("$._embedded.tweets[0].id", is("tweet2")));
+
+		verify(timelineService, times(1)).findMergedTimeline(ID, null, "tweet3", 2, USERNAME);
 	}
 
 	@Test
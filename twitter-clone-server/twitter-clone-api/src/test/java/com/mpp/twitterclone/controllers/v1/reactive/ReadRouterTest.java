@@ -0,0 +1,153 @@
+package com.mpp.twitterclone.controllers.v1.reactive;
+
+import com.mpp.twitterclone.controllers.v1.TweetController;
+import com.mpp.twitterclone.controllers.v1.UserController;
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.ReactiveTweetService;
+import com.mpp.twitterclone.services.ReactiveUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ReadRouterTest {
+
+	public static final String ID = "tweet1";
+	public static final String USER_ID = "user1";
+	public static final String USERNAME = "test";
+
+	WebTestClient webTestClient;
+
+	@Mock
+	ReactiveTweetService reactiveTweetService;
+
+	@Mock
+	ReactiveUserService reactiveUserService;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		webTestClient = WebTestClient.bindToRouterFunction(new ReadRouter().readRoutes(
+				new TweetReadHandler(reactiveTweetService), new UserReadHandler(reactiveUserService))).build();
+	}
+
+	@Test
+	void getAllTweets_FirstPage_HalPageWithNextLink() {
+		//given
+		CursorPage<Tweet> page = CursorPage.<Tweet>builder()
+				.content(Arrays.asList(Tweet.builder().id(ID).build(), Tweet.builder().id("tweet2").build()))
+				.next("nextCursor")
+				.build();
+
+		when(reactiveTweetService.findPage(isNull(), anyInt())).thenReturn(Mono.just(page));
+
+		//when
+		webTestClient.get().uri(TweetController.BASE_URL)
+				.exchange()
+		//then
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaTypes.HAL_JSON)
+				.expectBody()
+				.jsonPath("$._embedded.tweets.length()").isEqualTo(2)
+				.jsonPath("$._embedded.tweets[0].id").isEqualTo(ID)
+				.jsonPath("$._embedded.tweets[0]._links.self.href").value(endsWith(TweetController.BASE_URL + "/" + ID))
+				.jsonPath("$._links.self.href").value(endsWith(TweetController.BASE_URL))
+				.jsonPath("$._links.next.href").value(endsWith(TweetController.BASE_URL + "?cursor=nextCursor"))
+				.jsonPath("$._links.prev").doesNotExist();
+
+		verify(reactiveTweetService, times(1)).findPage(null, TweetController.DEFAULT_PAGE_SIZE);
+	}
+
+	@Test
+	void getTweetById_InvalidId_NotFound() {
+		//given
+		when(reactiveTweetService.findById(anyString())).thenReturn(Mono.error(new ResourceNotFoundException("Tweet")));
+
+		//when
+		webTestClient.get().uri(TweetController.BASE_URL + "/" + ID)
+				.exchange()
+		//then
+				.expectStatus().isNotFound()
+				.expectBody()
+				.jsonPath("$.status").isEqualTo(404)
+				.jsonPath("$.message").isEqualTo("Tweet Not Found");
+	}
+
+	@Test
+	void getAllTweetsByUsername_InvalidCursor_BadRequest() {
+		//given
+		when(reactiveTweetService.findPageByUsername(anyString(), anyString(), anyInt()))
+				.thenReturn(Mono.error(new UserValidationException("Invalid Cursor")));
+
+		//when
+		webTestClient.get().uri(TweetController.BASE_URL + "/user/" + USERNAME + "?cursor=bad")
+				.exchange()
+		//then
+				.expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("Invalid Cursor");
+	}
+
+	@Test
+	void getUserByUsername_ValidUsername_HalResource() {
+		//given
+		when(reactiveUserService.findUserByUsername(anyString()))
+				.thenReturn(Mono.just(User.builder().id(USER_ID).username(USERNAME).build()));
+
+		//when
+		webTestClient.get().uri(UserController.BASE_URL + "/" + USERNAME)
+				.exchange()
+		//then
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.username").isEqualTo(USERNAME)
+				.jsonPath("$._links.self.href").value(endsWith(UserController.BASE_URL + "/" + USERNAME))
+				.jsonPath("$._links.users.href").value(endsWith(UserController.BASE_URL));
+	}
+
+	@Test
+	void getAllFollowersById_InvalidSize_BadRequest() {
+		//when
+		webTestClient.get().uri(UserController.BASE_URL + "/" + USER_ID + "/followers?size=many")
+				.exchange()
+		//then
+				.expectStatus().isBadRequest();
+
+		verifyZeroInteractions(reactiveUserService);
+	}
+
+	@Test
+	void getAllFollowingById_EmptyPage_NoEmbeddedUsers() {
+		//given
+		when(reactiveUserService.findFollowingPage(anyString(), isNull(), anyInt()))
+				.thenReturn(Mono.just(CursorPage.<User>builder().content(Collections.emptyList()).build()));
+
+		//when
+		webTestClient.get().uri(UserController.BASE_URL + "/" + USER_ID + "/following?size=5")
+				.exchange()
+		//then
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$._embedded").doesNotExist()
+				.jsonPath("$._links.self.href").value(endsWith("/following?size=5"));
+
+		verify(reactiveUserService, times(1)).findFollowingPage(USER_ID, null, 5);
+	}
+}
@@ -0,0 +1,285 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.model.Conversation;
+import com.mpp.twitterclone.model.Migration;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.MigrationRepository;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.mongo.ConversationMongoService;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ConversationServiceTest {
+
+	public static final String ROOT_ID = "root";
+	public static final String ID = "tweet1";
+
+	ConversationService conversationService;
+
+	@Mock
+	TweetRepository tweetRepository;
+
+	@Mock
+	MigrationRepository migrationRepository;
+
+	List<Tweet> tweets;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		conversationService = new ConversationMongoService(tweetRepository, migrationRepository,
+				new TweetLoader(tweetRepository));
+
+		LocalDateTime now = LocalDateTime.now();
+
+		// root <- tweet1 <- reply1 <- reply1a, and tweet1 <- reply2, reply3
+		tweets = new ArrayList<>(Arrays.asList(
+				Tweet.builder().id(ROOT_ID).createdAt(now.minusMinutes(10)).build(),
+				reply(ID, ROOT_ID, 1, now.minusMinutes(9)),
+				reply("reply3", ID, 2, now.minusMinutes(6)),
+				reply("reply1", ID, 2, now.minusMinutes(8)),
+				reply("reply2", ID, 2, now.minusMinutes(7)),
+				reply("reply1a", "reply1", 3, now.minusMinutes(5)).toBuilder().replyCount(1).build()));
+
+		when(tweetRepository.findById(anyString())).thenAnswer(invocation -> tweets.stream()
+				.filter(tweet -> tweet.getId().equals(invocation.getArgument(0)))
+				.findFirst());
+		when(tweetRepository.findAllByConversationId(anyString(), anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+			String conversationId = invocation.getArgument(0);
+			int fromDepth = invocation.getArgument(1);
+			int toDepth = invocation.getArgument(2);
+
+			return tweets.stream()
+					.filter(tweet -> conversationId.equals(tweet.getConversationId()))
+					.filter(tweet -> tweet.getDepth() >= fromDepth && tweet.getDepth() <= toDepth)
+					.sorted(Comparator.comparing(Tweet::getDepth).thenComparing(Tweet::getCreatedAt))
+					.limit(invocation.<Integer>getArgument(3))
+					.collect(Collectors.toList());
+		});
+		when(tweetRepository.findAllByParentIdIn(anyCollection(), anyInt())).thenAnswer(invocation -> {
+			Collection<String> parentIds = invocation.getArgument(0);
+
+			return tweets.stream()
+					.filter(tweet -> parentIds.contains(tweet.getParentId()))
+					.sorted(Comparator.comparing(Tweet::getCreatedAt))
+					.limit(invocation.<Integer>getArgument(1))
+					.collect(Collectors.toList());
+		});
+	}
+
+	Tweet reply(String id, String parentId, int depth, LocalDateTime createdAt) {
+		return Tweet.builder().id(id).parentId(parentId).conversationId(ROOT_ID).depth(depth).createdAt(createdAt).build();
+	}
+
+	@Test
+	void findConversation_ValidTweet_AncestorsAndReplyTree() {
+		//when
+		Conversation conversation = conversationService.findConversation(ID, 2, 2);
+
+		//then
+		assertEquals(ID, conversation.getTweet().getId());
+		assertEquals(1, conversation.getAncestors().size());
+		assertEquals(ROOT_ID, conversation.getAncestors().get(0).getId());
+
+		// Oldest first, cut to the width
+		assertEquals(2, conversation.getReplies().size());
+		assertEquals("reply1", conversation.getReplies().get(0).getTweet().getId());
+		assertEquals("reply2", conversation.getReplies().get(1).getTweet().getId());
+		assertTrue(conversation.isMoreReplies());
+
+		Conversation.Reply reply1 = conversation.getReplies().get(0);
+		assertEquals(1, reply1.getReplies().size());
+		assertEquals("reply1a", reply1.getReplies().get(0).getTweet().getId());
+		assertFalse(reply1.isMoreReplies());
+
+		// Past the depth, so only its reply counter tells
+		assertTrue(reply1.getReplies().get(0).isMoreReplies());
+		assertTrue(reply1.getReplies().get(0).getReplies().isEmpty());
+
+		// Not a root, so a level at a time under the listed replies - not the rest of the conversation
+		verify(tweetRepository, times(1)).findAllByParentIdIn(Arrays.asList(ID),
+				ConversationMongoService.MAX_THREAD_TWEETS);
+		verify(tweetRepository, times(1)).findAllByParentIdIn(Arrays.asList("reply1", "reply2"),
+				ConversationMongoService.MAX_THREAD_TWEETS - 3);
+		verify(tweetRepository, never()).findAllByConversationId(anyString(), anyInt(), anyInt(), anyInt());
+	}
+
+	@Test
+	void findConversation_DepthAboveMax_Clamped() {
+		//when
+		conversationService.findConversation(ROOT_ID, 1000, 1000);
+
+		//then
+		verify(tweetRepository, times(1)).findAllByConversationId(ROOT_ID, 1, ConversationMongoService.MAX_DEPTH,
+				ConversationMongoService.MAX_THREAD_TWEETS);
+	}
+
+	@Test
+	void findConversation_NoRepliesLeft_StopsReadingLevels() {
+		//when
+		conversationService.findConversation("reply2", 5, 5);
+
+		//then
+		verify(tweetRepository, times(1)).findAllByParentIdIn(anyCollection(), anyInt());
+	}
+
+	@Test
+	void findConversation_RootTweet_ScansOwnConversation() {
+		//when
+		Conversation conversation = conversationService.findConversation(ROOT_ID, 3, 10);
+
+		//then
+		assertTrue(conversation.getAncestors().isEmpty());
+		assertEquals(1, conversation.getReplies().size());
+		assertEquals(3, conversation.getReplies().get(0).getReplies().size());
+		verify(tweetRepository, times(1)).findAllByConversationId(ROOT_ID, 1, 3,
+				ConversationMongoService.MAX_THREAD_TWEETS);
+	}
+
+	@Test
+	void findConversation_RepeatedRequest_ServedFromCache() {
+		//when
+		Conversation first = conversationService.findConversation(ID, 2, 2);
+		Conversation second = conversationService.findConversation(ID, 2, 2);
+
+		//then
+		assertSame(first, second);
+		verify(tweetRepository, times(2)).findAllByParentIdIn(anyCollection(), anyInt());
+	}
+
+	@Test
+	void findConversation_NewReplyInvalidated_Reassembled() {
+		//given
+		conversationService.findConversation(ID, 2, 2);
+
+		tweets.add(reply("reply1b", "reply1", 3, LocalDateTime.now()));
+
+		//when
+		conversationService.invalidate("reply1");
+		Conversation conversation = conversationService.findConversation(ID, 2, 2);
+
+		//then
+		assertEquals(2, conversation.getReplies().get(0).getReplies().size());
+		verify(tweetRepository, times(4)).findAllByParentIdIn(anyCollection(), anyInt());
+	}
+
+	@Test
+	void findConversation_UnrelatedTweetInvalidated_StillCached() {
+		//given
+		Conversation first = conversationService.findConversation(ID, 2, 2);
+
+		//when
+		conversationService.invalidate("reply3"); // Cut by the width
+		Conversation second = conversationService.findConversation(ID, 2, 2);
+
+		//then
+		assertSame(first, second);
+	}
+
+	@Test
+	void findConversation_OwnTweetInvalidatedWhileAssembling_NotCached() {
+		//given
+		when(tweetRepository.findById("reply1")).thenAnswer(invocation -> {
+			conversationService.invalidate("reply1");
+
+			return tweets.stream().filter(tweet -> tweet.getId().equals("reply1")).findFirst();
+		});
+
+		//when
+		conversationService.findConversation("reply1a", 0, 1);
+		conversationService.findConversation("reply1a", 0, 1);
+
+		//then
+		verify(tweetRepository, times(2)).findById("reply1a");
+	}
+
+	@Test
+	void findConversation_OtherTweetInvalidatedWhileAssembling_Cached() {
+		//given
+		when(tweetRepository.findById("reply1")).thenAnswer(invocation -> {
+			conversationService.invalidate("reply2");
+
+			return tweets.stream().filter(tweet -> tweet.getId().equals("reply1")).findFirst();
+		});
+
+		//when
+		Conversation first = conversationService.findConversation("reply1a", 0, 1);
+		Conversation second = conversationService.findConversation("reply1a", 0, 1);
+
+		//then
+		assertSame(first, second);
+	}
+
+	@Test
+	void backfillConversations_RepliesWithoutConversation_Placed() {
+		//given
+		Tweet legacyReply = Tweet.builder().id("legacy1").parentId("reply1a").build();
+		Tweet legacyNestedReply = Tweet.builder().id("legacy2").parentId("legacy1").build();
+		Tweet orphanReply = Tweet.builder().id("orphan").parentId("deleted").build();
+
+		tweets.addAll(Arrays.asList(legacyReply, legacyNestedReply, orphanReply));
+
+		when(tweetRepository.streamRepliesWithoutConversation())
+				.thenReturn(Stream.of(legacyNestedReply, legacyReply, orphanReply));
+
+		//when
+		((ConversationMongoService) conversationService).backfillConversations();
+
+		//then
+		verify(tweetRepository, times(1)).updateConversation("legacy1", ROOT_ID, 4);
+		verify(tweetRepository, times(1)).updateConversation("legacy2", ROOT_ID, 5);
+		verify(tweetRepository, times(1)).updateConversation("orphan", "orphan", 0);
+
+		// Walked up once
+		verify(tweetRepository, times(1)).findById("legacy1");
+
+		verify(migrationRepository, times(1)).save(any(Migration.class));
+	}
+
+	@Test
+	void backfillConversations_AlreadyMigrated_Skipped() {
+		//given
+		when(migrationRepository.existsById(ConversationMongoService.BACKFILL_MIGRATION)).thenReturn(true);
+
+		//when
+		((ConversationMongoService) conversationService).backfillConversations();
+
+		//then
+		verify(tweetRepository, never()).streamRepliesWithoutConversation();
+		verify(migrationRepository, never()).save(any(Migration.class));
+	}
+
+	@Test
+	void findConversation_InvalidTweet_ExceptionThrown() {
+		//given
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.empty());
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			conversationService.findConversation(ID, 2, 2);
+		});
+	}
+}
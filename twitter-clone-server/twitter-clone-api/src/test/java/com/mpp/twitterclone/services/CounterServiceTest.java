@@ -0,0 +1,145 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.mongo.CounterMongoService;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CounterServiceTest {
+
+	public static final String ID = "id1";
+
+	CounterService counterService;
+
+	@Mock
+	MongoOperations mongoOperations;
+
+	@Mock
+	BulkOperations bulkOperations;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		counterService = new CounterMongoService(mongoOperations);
+	}
+
+	@Test
+	void incrementTweetCounter_Delta_IncUpdateReturningNewDocument() {
+		//given
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+
+		when(mongoOperations.findAndModify(query.capture(), update.capture(), options.capture(), eq(Tweet.class)))
+				.thenReturn(Tweet.builder().id(ID).favoriteCount(3).build());
+
+		//when
+		Optional<Tweet> tweet = counterService.incrementTweetCounter(ID, "favoriteCount", -1);
+
+		//then
+		assertEquals(3, tweet.get().getFavoriteCount().intValue());
+		assertEquals(new Document("id", ID), query.getValue().getQueryObject());
+		assertEquals(new Document("$inc", new Document("favoriteCount", -1)), update.getValue().getUpdateObject());
+		assertTrue(options.getValue().isReturnNew());
+	}
+
+	@Test
+	void incrementUserCounter_Delta_IncUpdateWithoutRoles() {
+		//given
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+		when(mongoOperations.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+				eq(User.class))).thenReturn(null);
+
+		//when
+		Optional<User> user = counterService.incrementUserCounter(ID, "followersCount", 1);
+
+		//then
+		assertFalse(user.isPresent());
+		assertEquals(new Document("roles", 0), query.getValue().getFieldsObject());
+		assertEquals(new Document("$inc", new Document("followersCount", 1)), update.getValue().getUpdateObject());
+	}
+
+	@Test
+	void incrementTweetCounters_Deltas_OneIncPerTweetInOneBulkWrite() {
+		//given
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+		when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class)).thenReturn(bulkOperations);
+
+		//when
+		counterService.incrementTweetCounters(Collections.singletonMap(ID,
+				Collections.singletonMap("retweetCount", 5L)));
+
+		//then
+		verify(bulkOperations, times(1)).updateOne(query.capture(), update.capture());
+		verify(bulkOperations, times(1)).execute();
+		assertEquals(new Document("id", ID), query.getValue().getQueryObject());
+		assertEquals(new Document("$inc", new Document("retweetCount", 5L)), update.getValue().getUpdateObject());
+	}
+
+	@Test
+	void incrementTweetCounters_OneUpdateFails_ItsTweetReturned() {
+		//given
+		Map<String, Map<String, Long>> deltas = new LinkedHashMap<>();
+		deltas.put("tweet1", Collections.singletonMap("favoriteCount", 1L));
+		deltas.put("tweet2", Collections.singletonMap("favoriteCount", 2L));
+		deltas.put("tweet3", Collections.singletonMap("favoriteCount", 3L));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+
+		// As the driver's error reaches the caller, translated
+		MongoBulkWriteException error = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+				Collections.singletonList(new BulkWriteError(121, "Document Failed Validation", new BsonDocument(), 1)),
+				null, new ServerAddress());
+
+		when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class)).thenReturn(bulkOperations);
+		when(bulkOperations.execute()).thenThrow(new MongoExceptionTranslator().translateExceptionIfPossible(error));
+
+		//when
+		Set<String> failed = counterService.incrementTweetCounters(deltas);
+
+		//then
+		verify(bulkOperations, times(3)).updateOne(query.capture(), any(Update.class));
+		assertEquals(Collections.singleton(query.getAllValues().get(1).getQueryObject().getString("id")), failed);
+	}
+
+	@Test
+	void incrementTweetCounters_NoDeltas_NoWrite() {
+		//when
+		counterService.incrementTweetCounters(Collections.emptyMap());
+
+		//then
+		verify(mongoOperations, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Tweet.class));
+	}
+}
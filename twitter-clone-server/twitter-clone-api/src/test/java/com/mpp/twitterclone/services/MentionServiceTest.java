@@ -0,0 +1,84 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.mongo.MentionMongoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class MentionServiceTest {
+
+	MentionService mentionService;
+
+	@Mock
+	UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		mentionService = new MentionMongoService(userRepository);
+
+		List<String> usernames = Arrays.asList("john", "jane_doe");
+
+		when(userRepository.findAllByUsernameIn(anyCollection())).thenAnswer(invocation -> invocation
+				.<Collection<String>>getArgument(0).stream()
+				.filter(usernames::contains)
+				.map(username -> User.builder().username(username).build())
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	void findMentions_KnownAndUnknownUsernames_OnlyUsersInOrder() {
+		//given
+		Tweet tweet = Tweet.builder().text("@jane_doe meet @nobody and @john, again @jane_doe")
+				.content(Collections.singletonList(new TextContent("cc @john"))).build();
+
+		//when
+		List<String> mentions = mentionService.findMentions(tweet);
+
+		//then
+		assertEquals(Arrays.asList("jane_doe", "john"), mentions);
+		verify(userRepository, times(1)).findAllByUsernameIn(anyCollection());
+	}
+
+	@Test
+	void findMentions_EmailAddress_NotAMention() {
+		//given
+		Tweet tweet = Tweet.builder().text("mail me at me@john or @").build();
+
+		//when
+		List<String> mentions = mentionService.findMentions(tweet);
+
+		//then
+		assertTrue(mentions.isEmpty());
+		verify(userRepository, never()).findAllByUsernameIn(anyCollection());
+	}
+
+	@Test
+	void findMentions_RepeatedUsernames_LookedUpOnce() {
+		//given
+		mentionService.findMentions(Tweet.builder().text("@john @nobody").build());
+
+		//when
+		List<String> mentions = mentionService.findMentions(Tweet.builder().text("@nobody @john").build());
+
+		//then
+		assertEquals(Collections.singletonList("john"), mentions);
+		verify(userRepository, times(1)).findAllByUsernameIn(anyCollection());
+	}
+}
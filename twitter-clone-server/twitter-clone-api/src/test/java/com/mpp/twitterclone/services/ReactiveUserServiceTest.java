@@ -0,0 +1,108 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.CursorPage;
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.reactive.ReactiveFollowRepository;
+import com.mpp.twitterclone.repositories.reactive.ReactiveUserRepository;
+import com.mpp.twitterclone.services.mongo.UserReactiveMongoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReactiveUserServiceTest {
+
+	public static final String ID = "user1";
+	public static final String USERNAME = "test";
+
+	ReactiveUserService reactiveUserService;
+
+	@Mock
+	ReactiveUserRepository reactiveUserRepository;
+
+	@Mock
+	ReactiveFollowRepository reactiveFollowRepository;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		reactiveUserService = new UserReactiveMongoService(reactiveUserRepository, reactiveFollowRepository);
+	}
+
+	@Test
+	void findUserByUsername_ValidUsername_User() {
+		//given
+		when(reactiveUserRepository.findProfileByUsername(anyString()))
+				.thenReturn(Mono.just(User.builder().id(ID).username(USERNAME).build()));
+
+		//when
+		User user = reactiveUserService.findUserByUsername(USERNAME).block();
+
+		//then
+		assertEquals(ID, user.getId());
+	}
+
+	@Test
+	void findUserByUsername_InvalidUsername_ResourceNotFoundException() {
+		//given
+		when(reactiveUserRepository.findProfileByUsername(anyString())).thenReturn(Mono.empty());
+
+		//when
+		Mono<User> user = reactiveUserService.findUserByUsername(USERNAME);
+
+		//then
+		assertThrows(ResourceNotFoundException.class, user::block);
+	}
+
+	@Test
+	void findFollowersPage_FirstPage_UsersInFollowOrder() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		Follow newest = Follow.builder().id("f2").followerUserId("u2").followedUserId(ID).createdAt(now).build();
+		Follow oldest = Follow.builder().id("f1").followerUserId("u1").followedUserId(ID)
+				.createdAt(now.minusMinutes(1)).build();
+
+		when(reactiveFollowRepository.findFollowersPage(anyString(), any(), anyInt()))
+				.thenReturn(Flux.just(newest, oldest));
+		// $in results come back in storage order
+		when(reactiveUserRepository.findAllSummariesById(any()))
+				.thenReturn(Flux.just(User.builder().id("u1").build(), User.builder().id("u2").build()));
+
+		//when
+		CursorPage<User> page = reactiveUserService.findFollowersPage(ID, null, 1).block();
+
+		//then
+		assertEquals(1, page.getContent().size());
+		assertEquals("u2", page.getContent().get(0).getId());
+		assertNotNull(page.getNext());
+		assertNull(page.getPrevious());
+
+		verify(reactiveFollowRepository, times(1)).findFollowersPage(ID, null, 2);
+		verify(reactiveUserRepository, times(1)).findAllSummariesById(Arrays.asList("u2"));
+	}
+
+	@Test
+	void findFollowingPage_InvalidCursor_UserValidationException() {
+		//when
+		Mono<CursorPage<User>> page = reactiveUserService.findFollowingPage(ID, "not a cursor", 20);
+
+		//then
+		assertThrows(UserValidationException.class, page::block);
+		verifyZeroInteractions(reactiveFollowRepository);
+	}
+}
@@ -0,0 +1,468 @@
+package com.mpp.twitterclone.services;
+
+import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.MergedTimeline;
+import com.mpp.twitterclone.model.Retweet;
+import com.mpp.twitterclone.model.Timeline;
+import com.mpp.twitterclone.model.TimelineEntry;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.RetweetRepository;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.mongo.TimelineMongoService;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import com.mpp.twitterclone.services.mongo.UserLoader;
+import com.mpp.twitterclone.validators.UserActionValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TimelineServiceTest {
+
+	public static final String USER_ID = "user1";
+	public static final String USERNAME = "john";
+	public static final String AUTHOR_ID = "user2";
+	public static final String AUTHOR_USERNAME = "doe";
+
+	TimelineService timelineService;
+
+	@Mock
+	MongoOperations mongoOperations;
+
+	@Mock
+	BulkOperations bulkOperations;
+
+	@Mock
+	TweetRepository tweetRepository;
+
+	@Mock
+	RetweetRepository retweetRepository;
+
+	@Mock
+	UserRepository userRepository;
+
+	@Mock
+	SocialGraphService socialGraphService;
+
+	@Mock
+	UserActionValidator userActionValidator;
+
+	@Mock
+	TimelineStreamService timelineStreamService;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		when(mongoOperations.bulkOps(any(BulkOperations.BulkMode.class), eq(Timeline.class))).thenReturn(bulkOperations);
+
+		timelineService = new TimelineMongoService(mongoOperations, tweetRepository, retweetRepository, socialGraphService,
+													userActionValidator, timelineStreamService,
+													new UserLoader(userRepository, new SimpleMeterRegistry()),
+													new TweetLoader(tweetRepository));
+	}
+
+	@Test
+	void fanOut_ValidTweet_PushedToAuthorAndFollowers() {
+		//given
+		Tweet tweet = Tweet.builder().id("tweet1").owner(AUTHOR_USERNAME).build();
+		User author = User.builder().id(AUTHOR_ID).username(AUTHOR_USERNAME).build();
+
+		when(userRepository.findByUsername(AUTHOR_USERNAME)).thenReturn(Optional.of(author));
+		when(socialGraphService.findFollowerIds(AUTHOR_ID)).thenReturn(Arrays.asList("follower1", "follower2"));
+
+		//when
+		timelineService.fanOut(tweet);
+
+		//then
+		// Two followers plus the author, all in one bulk write - never creating a timeline
+		verify(bulkOperations, times(3)).updateOne(any(Query.class), any(Update.class));
+		verify(bulkOperations, never()).upsert(any(Query.class), any(Update.class));
+		verify(bulkOperations, times(1)).execute();
+
+		// And to the live streams of the same timelines
+		verify(timelineStreamService, times(1)).publish(tweet, Arrays.asList("follower1", "follower2", AUTHOR_ID));
+	}
+
+	@Test
+	void fanOut_UnknownAuthor_NothingPushed() {
+		//given
+		Tweet tweet = Tweet.builder().id("tweet1").owner("unknown").build();
+
+		//when
+		timelineService.fanOut(tweet);
+
+		//then
+		verify(mongoOperations, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Timeline.class));
+		verify(timelineStreamService, never()).publish(any(), any());
+	}
+
+	@Test
+	void fanOut_LargeFollowerList_PushedInBatches() {
+		//given
+		Tweet tweet = Tweet.builder().id("tweet1").owner(AUTHOR_USERNAME).build();
+		User author = User.builder().id(AUTHOR_ID).username(AUTHOR_USERNAME).build();
+
+		List<String> followerIds = new ArrayList<>();
+		for (int i = 0; i < TimelineMongoService.FAN_OUT_BATCH_SIZE; i++) followerIds.add("follower" + i);
+
+		when(userRepository.findByUsername(AUTHOR_USERNAME)).thenReturn(Optional.of(author));
+		when(socialGraphService.findFollowerIds(AUTHOR_ID)).thenReturn(followerIds);
+
+		//when
+		timelineService.fanOut(tweet);
+
+		//then
+		verify(bulkOperations, times(TimelineMongoService.FAN_OUT_BATCH_SIZE + 1)).updateOne(any(Query.class), any(Update.class));
+		verify(bulkOperations, times(2)).execute();
+	}
+
+	@Test
+	void findHomeTimeline_ValidUser_TweetsInTimelineOrder() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+
+		Timeline timeline = Timeline.builder().id(USER_ID)
+				.entries(Arrays.asList(TimelineEntry.builder().tweetId("tweet2").build(),
+										TimelineEntry.builder().tweetId("tweet1").build())).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+		when(mongoOperations.findOne(any(Query.class), eq(Timeline.class))).thenReturn(timeline);
+		when(tweetRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(
+				Tweet.builder().id("tweet1").build(), Tweet.builder().id("tweet2").build()));
+
+		//when
+		List<Tweet> tweets = timelineService.findHomeTimeline(USER_ID, 0, 20, USERNAME);
+
+		//then
+		assertEquals(2, tweets.size());
+		assertEquals("tweet2", tweets.get(0).getId());
+		assertEquals("tweet1", tweets.get(1).getId());
+
+		verify(userActionValidator, times(1)).validateUserAction(USERNAME, USERNAME);
+	}
+
+	@Test
+	void findHomeTimeline_TweetRetweetedTwice_ListedOnce() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+
+		Timeline timeline = Timeline.builder().id(USER_ID)
+				.entries(Arrays.asList(TimelineEntry.builder().tweetId("tweet1").retweetedBy("retweeter1").build(),
+										TimelineEntry.builder().tweetId("tweet2").build(),
+										TimelineEntry.builder().tweetId("tweet1").build())).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+		when(mongoOperations.findOne(any(Query.class), eq(Timeline.class))).thenReturn(timeline);
+		when(tweetRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(
+				Tweet.builder().id("tweet1").build(), Tweet.builder().id("tweet2").build()));
+
+		//when
+		List<Tweet> tweets = timelineService.findHomeTimeline(USER_ID, 0, 20, USERNAME);
+
+		//then
+		assertEquals(2, tweets.size());
+		assertEquals("tweet1", tweets.get(0).getId());
+		assertEquals("tweet2", tweets.get(1).getId());
+	}
+
+	@Test
+	void fanOutRetweet_ValidRetweet_PushedWhereTweetIsMissing() {
+		//given
+		Tweet tweet = Tweet.builder().id("tweet1").owner(AUTHOR_USERNAME).build();
+		User retweeter = User.builder().id(USER_ID).username(USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(retweeter));
+		when(socialGraphService.findFollowerIds(USER_ID)).thenReturn(Arrays.asList("follower1", "follower2"));
+
+		//when
+		timelineService.fanOutRetweet(tweet, USER_ID);
+
+		//then
+		// Two followers plus the retweeter - never creating a timeline, and only where the tweet isn't yet
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		verify(bulkOperations, times(3)).updateOne(queries.capture(), any(Update.class));
+		verify(bulkOperations, never()).upsert(any(Query.class), any(Update.class));
+		verify(bulkOperations, times(1)).execute();
+
+		queries.getAllValues().forEach(query ->
+				assertEquals("tweet1", query.getQueryObject().get("entries.tweet_id", Document.class).get("$ne")));
+	}
+
+	@Test
+	void removeRetweet_ValidRetweet_PulledFromRetweeterAndFollowers() {
+		//given
+		User retweeter = User.builder().id(USER_ID).username(USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(retweeter));
+		when(socialGraphService.findFollowerIds(USER_ID)).thenReturn(Arrays.asList("follower1", "follower2"));
+
+		//when
+		timelineService.removeRetweet("tweet1", USER_ID);
+
+		//then
+		verify(mongoOperations, times(1)).updateMulti(any(Query.class), any(Update.class), eq(Timeline.class));
+		verify(bulkOperations, never()).execute();
+	}
+
+	@Test
+	void removeRetweet_FollowedRetweeterRemains_KeptAndRecredited() {
+		//given
+		User retweeter = User.builder().id(USER_ID).username(USERNAME).build();
+		User otherRetweeter = User.builder().id("user3").username("jane").build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(retweeter));
+		when(userRepository.findAllById(anyCollection())).thenReturn(List.of(otherRetweeter));
+		when(socialGraphService.findFollowerIds(USER_ID)).thenReturn(Arrays.asList("follower1", "follower2"));
+		when(socialGraphService.findFollowerIds("user3")).thenReturn(Arrays.asList("follower1", "follower3"));
+		when(retweetRepository.findAllByTweetId("tweet1"))
+				.thenReturn(List.of(Retweet.builder().userId("user3").tweetId("tweet1").build()));
+
+		//when
+		timelineService.removeRetweet("tweet1", USER_ID);
+
+		//then
+		// From the followers of the remaining retweeter, not the followings of every timeline owner
+		verify(socialGraphService, never()).findFollowingIds(anyString());
+
+		ArgumentCaptor<Query> pulled = ArgumentCaptor.forClass(Query.class);
+		verify(mongoOperations, times(1)).updateMulti(pulled.capture(), any(Update.class), eq(Timeline.class));
+		assertEquals(Arrays.asList("follower2", USER_ID),
+				pulled.getValue().getQueryObject().get("_id", Document.class).get("$in"));
+
+		// follower1 still follows a retweeter, who the entry is credited to now
+		ArgumentCaptor<Update> recredited = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations, times(1)).updateOne(any(Query.class), recredited.capture());
+		assertEquals("jane", recredited.getValue().getUpdateObject().get("$set", Document.class)
+				.get("entries.$.retweeted_by"));
+	}
+
+	@Test
+	void removeAuthor_UnfollowedRetweeter_RetweetsPulledOrRecredited() {
+		//given
+		User otherRetweeter = User.builder().id("user3").username("jane").build();
+
+		Timeline timeline = Timeline.builder().id(USER_ID).entries(Arrays.asList(
+				TimelineEntry.builder().tweetId("own").owner(AUTHOR_USERNAME).build(),
+				TimelineEntry.builder().tweetId("retweeted").owner("someone").retweetedBy(AUTHOR_USERNAME).build(),
+				TimelineEntry.builder().tweetId("alsoRetweeted").owner("someone").retweetedBy(AUTHOR_USERNAME).build(),
+				TimelineEntry.builder().tweetId("retweetOfAuthor").owner(AUTHOR_USERNAME).retweetedBy("jane").build()))
+				.build();
+
+		when(mongoOperations.findOne(any(Query.class), eq(Timeline.class))).thenReturn(timeline);
+		when(socialGraphService.findFollowingIds(USER_ID)).thenReturn(Arrays.asList("user3"));
+		when(retweetRepository.findAllByTweetIdInAndUserIdIn(Arrays.asList("retweeted", "alsoRetweeted"),
+				Arrays.asList("user3", USER_ID)))
+				.thenReturn(List.of(Retweet.builder().userId("user3").tweetId("alsoRetweeted").build()));
+		when(userRepository.findAllById(anyCollection())).thenReturn(List.of(otherRetweeter));
+
+		//when
+		timelineService.removeAuthor(USER_ID, AUTHOR_USERNAME);
+
+		//then
+		// Also retweeted by a followed user, so credited to them
+		ArgumentCaptor<Query> recreditedQuery = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> recredited = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations, times(1)).updateOne(recreditedQuery.capture(), recredited.capture());
+		assertEquals("alsoRetweeted", recreditedQuery.getValue().getQueryObject().get("entries", Document.class)
+				.get("$elemMatch", Document.class).get("tweet_id"));
+		assertEquals("jane", recredited.getValue().getUpdateObject().get("$set", Document.class)
+				.get("entries.$.retweeted_by"));
+
+		// The author's own tweets and the rest of their retweets - a retweet of them by a followed user stays
+		ArgumentCaptor<Update> pulled = ArgumentCaptor.forClass(Update.class);
+		verify(mongoOperations, times(1)).updateFirst(any(Query.class), pulled.capture(), eq(Timeline.class));
+		Document removed = pulled.getValue().getUpdateObject().get("$pull", Document.class)
+				.get("entries", Document.class);
+		assertEquals(Arrays.asList(
+				new Document("owner", AUTHOR_USERNAME).append("retweeted_by", null),
+				new Document("retweeted_by", AUTHOR_USERNAME)), removed.get("$or"));
+	}
+
+	@Test
+	void findHomeTimeline_MissingTimeline_Rebuilt() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+		User followed = User.builder().id(AUTHOR_ID).username(AUTHOR_USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+		when(userRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(followed));
+		when(socialGraphService.findFollowingIds(USER_ID)).thenReturn(Arrays.asList(AUTHOR_ID));
+		when(tweetRepository.findAllByOwnerOrderByCreatedAtDesc(anyString(), any(Pageable.class)))
+				.thenReturn(Arrays.asList(Tweet.builder().id("tweet1").owner(AUTHOR_USERNAME).build()));
+
+		//when
+		List<Tweet> tweets = timelineService.findHomeTimeline(USER_ID, 0, 20, USERNAME);
+
+		//then
+		assertTrue(tweets.isEmpty());
+
+		verify(tweetRepository, times(1)).findAllByOwnerOrderByCreatedAtDesc(eq(AUTHOR_USERNAME), any(Pageable.class));
+		verify(userRepository, times(1)).findAllById(Arrays.asList(AUTHOR_ID));
+		verify(mongoOperations, times(1)).upsert(any(Query.class), any(Update.class), eq(Timeline.class));
+	}
+
+	@Test
+	void findHomeTimeline_SizeOutOfRange_Clamped() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
+		//when
+		timelineService.findHomeTimeline(USER_ID, 1, -5, USERNAME);
+
+		//then
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoOperations, atLeastOnce()).findOne(query.capture(), eq(Timeline.class));
+		assertArrayEquals(new Integer[] { 1, 1 }, (Integer[]) query.getValue().getFieldsObject()
+				.get("entries", Document.class).get("$slice"));
+	}
+
+	@Test
+	void findHomeTimeline_PagePastCapacity_Empty() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
+		//when
+		List<Tweet> tweets = timelineService.findHomeTimeline(USER_ID, Integer.MAX_VALUE, 100, USERNAME);
+
+		//then
+		assertTrue(tweets.isEmpty());
+		verify(mongoOperations, never()).findOne(any(Query.class), eq(Timeline.class));
+	}
+
+	@Test
+	void findHomeTimeline_NegativePage_ExceptionThrown() {
+		//given
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
+		//then
+		assertThrows(UserValidationException.class, () -> {
+			//when
+			timelineService.findHomeTimeline(USER_ID, -1, 20, USERNAME);
+		});
+	}
+
+	@Test
+	void findHomeTimeline_InvalidUser_ExceptionThrown() {
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			timelineService.findHomeTimeline("Invalid ID", 0, 20, USERNAME);
+		});
+	}
+
+	@Test
+	void backfill_FollowedUserWithoutTweets_NothingPushed() {
+		//when
+		timelineService.backfill(USER_ID, AUTHOR_USERNAME);
+
+		//then
+		verify(mongoOperations, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Timeline.class));
+	}
+
+	@Test
+	void findMergedTimeline_ThreeAuthors_MergedNewestFirst() {
+		//given
+		givenFollowedAuthorsWithTweets();
+
+		//when
+		MergedTimeline timeline = timelineService.findMergedTimeline(USER_ID, null, null, 4, USERNAME);
+
+		//then
+		assertEquals(Arrays.asList("t30", "t29", "t28", "t27"),
+				timeline.getTweets().stream().map(Tweet::getId).collect(Collectors.toList()));
+		assertEquals(3, timeline.getAuthorFanIn());
+		// At most one page sized batch per author - never the whole history
+		assertTrue(timeline.getDocumentsExamined() <= 12);
+	}
+
+	@Test
+	void findMergedTimeline_SinceAndMaxIds_OnlyTweetsInBetween() {
+		//given
+		givenFollowedAuthorsWithTweets();
+
+		//when
+		MergedTimeline timeline = timelineService.findMergedTimeline(USER_ID, "t2", "t7", 20, USERNAME);
+
+		//then
+		assertEquals(Arrays.asList("t6", "t5", "t4", "t3"),
+				timeline.getTweets().stream().map(Tweet::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void findMergedTimeline_InvalidMaxId_ExceptionThrown() {
+		//given
+		givenFollowedAuthorsWithTweets();
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			timelineService.findMergedTimeline(USER_ID, null, "Invalid ID", 20, USERNAME);
+		});
+	}
+
+	/**
+	 * The user follows two authors, and the three of them have tweeted t1 (oldest) to t30 (newest) in turns
+	 */
+	private void givenFollowedAuthorsWithTweets() {
+		User user = User.builder().id(USER_ID).username(USERNAME).build();
+		User author1 = User.builder().id("author1").username("author1").build();
+		User author2 = User.builder().id("author2").username("author2").build();
+
+		List<String> owners = Arrays.asList(USERNAME, "author1", "author2");
+		LocalDateTime now = LocalDateTime.now();
+
+		List<Tweet> tweets = new ArrayList<>();
+		for (int i = 1; i <= 30; i++)
+			tweets.add(Tweet.builder().id("t" + i).owner(owners.get(i % 3)).createdAt(now.plusSeconds(i)).build());
+
+		when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+		when(userRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(author1, author2));
+		when(socialGraphService.findFollowingIds(USER_ID)).thenReturn(Arrays.asList("author1", "author2"));
+
+		tweets.forEach(tweet -> when(tweetRepository.findById(tweet.getId())).thenReturn(Optional.of(tweet)));
+
+		// Behaves like the keyset query - newest first, strictly older than the given position
+		when(tweetRepository.findAllByOwnerOlderThan(anyString(), any(), any(), anyInt())).thenAnswer(invocation -> {
+			String owner = invocation.getArgument(0);
+			LocalDateTime createdAt = invocation.getArgument(1);
+			int limit = invocation.getArgument(3);
+
+			return tweets.stream()
+					.filter(tweet -> tweet.getOwner().equals(owner))
+					.filter(tweet -> createdAt == null || tweet.getCreatedAt().isBefore(createdAt))
+					.sorted(Comparator.comparing(Tweet::getCreatedAt).reversed())
+					.limit(limit)
+					.collect(Collectors.toList());
+		});
+	}
+}
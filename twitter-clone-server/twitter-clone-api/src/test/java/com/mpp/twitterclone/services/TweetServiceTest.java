@@ -2,24 +2,43 @@ package com.mpp.twitterclone.services;
 
 import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
 import com.mpp.twitterclone.exceptions.UnauthorizedUserException;
+import com.mpp.twitterclone.exceptions.UserValidationException;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Favorite;
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Retweet;
 import com.mpp.twitterclone.model.Tweet;
 import com.mpp.twitterclone.model.tweetcontents.TextContent;
 import com.mpp.twitterclone.repositories.FavoriteRepository;
+import com.mpp.twitterclone.repositories.RetweetRepository;
 import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.inmemory.PendingCounterInMemoryService;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
 import com.mpp.twitterclone.services.mongo.TweetMongoService;
 import com.mpp.twitterclone.validators.UserActionValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -37,14 +56,56 @@ class TweetServiceTest {
 	@Mock
 	FavoriteRepository favoriteRepository;
 
+	@Mock
+	RetweetRepository retweetRepository;
+
 	@Mock
 	UserActionValidator userActionValidator;
 
+	@Mock
+	TimelineService timelineService;
+
+	@Mock
+	CounterBroadcastService counterBroadcastService;
+
+	@Mock
+	FavoriteFilterService favoriteFilterService;
+
+	@Mock
+	PendingCounterService pendingCounterService;
+
+	@Mock
+	ConversationService conversationService;
+
+	@Mock
+	SearchService searchService;
+
+	@Mock
+	TrendService trendService;
+
+	@Mock
+	MentionService mentionService;
+
+	@Mock
+	LeaderboardService leaderboardService;
+
+	@Mock
+	SuggestService suggestService;
+
+	@Mock
+	CounterService counterService;
+
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.initMocks(this);
 
-		tweetService = new TweetMongoService(tweetRepository, favoriteRepository, userActionValidator);
+		tweetService = new TweetMongoService(tweetRepository, favoriteRepository, retweetRepository, userActionValidator, timelineService,
+											counterBroadcastService, new TweetLoader(tweetRepository), favoriteFilterService,
+											pendingCounterService, conversationService, searchService, trendService,
+											mentionService, leaderboardService, suggestService);
+
+		// Nothing pending
+		when(pendingCounterService.overlay(any(Tweet.class))).thenAnswer(invocation -> invocation.getArgument(0));
 	}
 
 	@Test
@@ -95,6 +156,63 @@ class TweetServiceTest {
 		assertEquals(USERNAME, receivedTweets.get(1).getOwner());
 	}
 
+	@Test
+	void findPageByUsername_FirstPage_NextCursorOnly() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		List<Tweet> sentTweets = Arrays.asList(Tweet.builder().id("t3").owner(USERNAME).createdAt(now).build(),
+												Tweet.builder().id("t2").owner(USERNAME).createdAt(now.minusMinutes(1)).build(),
+												Tweet.builder().id("t1").owner(USERNAME).createdAt(now.minusMinutes(2)).build());
+
+		when(tweetRepository.findPageByOwner(anyString(), any(), anyInt())).thenReturn(sentTweets);
+
+		//when
+		CursorPage<Tweet> page = tweetService.findPageByUsername(USERNAME, null, 2);
+
+		//then
+		assertEquals(2, page.getContent().size());
+		assertEquals("t3", page.getContent().get(0).getId());
+		assertNull(page.getPrevious());
+
+		PageCursor next = PageCursor.decode(page.getNext());
+		assertFalse(next.isPrevious());
+		assertEquals("t2", next.getId());
+		assertEquals(now.minusMinutes(1), next.getCreatedAt());
+
+		verify(tweetRepository, times(1)).findPageByOwner(USERNAME, null, 3);
+	}
+
+	@Test
+	void findPage_PreviousCursor_ContentNewestFirst() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		String cursor = PageCursor.previous(now.minusMinutes(3), "t0").encode();
+
+		// Rows come back oldest first when paging backwards
+		List<Tweet> sentTweets = Arrays.asList(Tweet.builder().id("t1").createdAt(now.minusMinutes(2)).build(),
+												Tweet.builder().id("t2").createdAt(now.minusMinutes(1)).build());
+
+		when(tweetRepository.findPage(any(PageCursor.class), anyInt())).thenReturn(sentTweets);
+
+		//when
+		CursorPage<Tweet> page = tweetService.findPage(cursor, 2);
+
+		//then
+		assertEquals("t2", page.getContent().get(0).getId());
+		assertEquals("t1", page.getContent().get(1).getId());
+		assertNull(page.getPrevious());
+		assertEquals("t1", PageCursor.decode(page.getNext()).getId());
+	}
+
+	@Test
+	void findRepliesPage_InvalidCursor_ExceptionThrown() {
+		//then
+		assertThrows(UserValidationException.class, () -> {
+			//when
+			tweetService.findRepliesPage(ID, "not a cursor", 20);
+		});
+	}
+
 	@Test
 	void findTweetById_ValidID_Found() {
 		//given
@@ -135,6 +253,44 @@ class TweetServiceTest {
 		assertEquals(1, savedTweet.getContent().size());
 
 		assertNotNull(savedTweet.getCreatedAt());
+
+		verify(timelineService, times(1)).fanOut(sentTweet);
+		verify(searchService, times(1)).index(sentTweet);
+		verify(suggestService, times(1)).recordHashtags(sentTweet);
+		verify(trendService, times(1)).record(sentTweet);
+	}
+
+	@Test
+	void createTweet_MentionsUsers_MentionsStored() {
+		//given
+		Tweet sentTweet = Tweet.builder().id(ID).text("Hello @jane and @doe").build();
+
+		when(mentionService.findMentions(sentTweet)).thenReturn(Arrays.asList("jane"));
+		when(tweetRepository.insert(any(Tweet.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		//when
+		Tweet savedTweet = tweetService.create(sentTweet);
+
+		//then
+		assertEquals(Arrays.asList("jane"), savedTweet.getMentions());
+	}
+
+	@Test
+	void findMentionsPage_FirstPage_MentionIndexScanned() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		List<Tweet> sentTweets = Arrays.asList(Tweet.builder().id("t2").createdAt(now).build(),
+												Tweet.builder().id("t1").createdAt(now.minusMinutes(1)).build());
+
+		when(tweetRepository.findPageByMention(anyString(), isNull(), anyInt())).thenReturn(sentTweets);
+
+		//when
+		CursorPage<Tweet> page = tweetService.findMentionsPage(USERNAME, null, 1);
+
+		//then
+		assertEquals(1, page.getContent().size());
+		assertEquals("t2", PageCursor.decode(page.getNext()).getId());
+		verify(tweetRepository, times(1)).findPageByMention(USERNAME, null, 2);
 	}
 
 	@Test
@@ -143,6 +299,7 @@ class TweetServiceTest {
 		Tweet replyTweet = Tweet.builder().id(ID).parentId(PARENT_ID)
 											.content(Arrays.asList(new TextContent("Hello"))).build();
 
+		when(tweetRepository.findById(PARENT_ID)).thenReturn(Optional.of(Tweet.builder().id(PARENT_ID).build()));
 		when(tweetRepository.insert(any(Tweet.class))).thenReturn(replyTweet);
 
 		//when
@@ -153,6 +310,124 @@ class TweetServiceTest {
 		assertEquals(1, reply.getContent().size());
 
 		assertNotNull(reply.getCreatedAt());
+
+		// A reply to a root starts its conversation
+		assertEquals(PARENT_ID, replyTweet.getConversationId());
+		assertEquals(1, replyTweet.getDepth().intValue());
+
+		verify(pendingCounterService, times(1)).add(PARENT_ID, CounterBroadcastService.REPLY_COUNT, 1);
+		verify(conversationService, times(1)).invalidate(PARENT_ID);
+	}
+
+	@Test
+	void replyToTweet_ReplyToReply_JoinsConversation() {
+		//given
+		Tweet replyTweet = Tweet.builder().content(Arrays.asList(new TextContent("Hello"))).build();
+		Tweet parentTweet = Tweet.builder().id(PARENT_ID).parentId("root").conversationId("root").depth(1).build();
+
+		when(tweetRepository.findById(PARENT_ID)).thenReturn(Optional.of(parentTweet));
+		when(tweetRepository.insert(any(Tweet.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		//when
+		Tweet reply = tweetService.replyToTweet(replyTweet, PARENT_ID);
+
+		//then
+		assertEquals(PARENT_ID, reply.getParentId());
+		assertEquals("root", reply.getConversationId());
+		assertEquals(2, reply.getDepth().intValue());
+	}
+
+	@Test
+	void replyToTweet_InvalidParent_ExceptionThrown() {
+		//given
+		Tweet replyTweet = Tweet.builder().content(Arrays.asList(new TextContent("Hello"))).build();
+
+		when(tweetRepository.findById(PARENT_ID)).thenReturn(Optional.empty());
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			tweetService.replyToTweet(replyTweet, PARENT_ID);
+		});
+
+		verify(tweetRepository, never()).insert(any(Tweet.class));
+	}
+
+	@Test
+	void retweetTweet_FirstRetweet_CountedAndFannedOut() {
+		//given
+		String userId = "user1";
+		Tweet tweet = Tweet.builder().id(ID).owner(USERNAME).build();
+
+		when(tweetRepository.findById(ID)).thenReturn(Optional.of(tweet));
+
+		//when
+		Tweet retweetedTweet = tweetService.retweetTweet(ID, userId);
+
+		//then
+		assertEquals(1, retweetedTweet.getRetweetCount().intValue());
+
+		verify(retweetRepository, times(1)).insert(any(Retweet.class));
+		verify(pendingCounterService, times(1)).add(ID, CounterBroadcastService.RETWEET_COUNT, 1);
+		verify(timelineService, times(1)).fanOutRetweet(tweet, userId);
+		verify(timelineService, never()).removeRetweet(anyString(), anyString());
+		verify(leaderboardService, times(1)).recordRetweets(ID, 1, 1);
+	}
+
+	@Test
+	void retweetTweet_SecondRetweet_Undone() {
+		//given
+		String userId = "user1";
+		Tweet tweet = Tweet.builder().id(ID).owner(USERNAME).retweetCount(1).build();
+
+		when(tweetRepository.findById(ID)).thenReturn(Optional.of(tweet));
+		when(retweetRepository.deleteByUserIdAndAndTweetId(userId, ID)).thenReturn(1L);
+
+		//when
+		Tweet retweetedTweet = tweetService.retweetTweet(ID, userId);
+
+		//then
+		assertEquals(0, retweetedTweet.getRetweetCount().intValue());
+
+		verify(retweetRepository, never()).insert(any(Retweet.class));
+		verify(pendingCounterService, times(1)).add(ID, CounterBroadcastService.RETWEET_COUNT, -1);
+		verify(timelineService, times(1)).removeRetweet(ID, userId);
+		verify(timelineService, never()).fanOutRetweet(any(Tweet.class), anyString());
+	}
+
+	@Test
+	void retweetTweet_ConcurrentDuplicateRetweet_LeftRetweeted() {
+		//given
+		String userId = "user1";
+		Tweet tweet = Tweet.builder().id(ID).owner(USERNAME).build();
+
+		when(tweetRepository.findById(ID)).thenReturn(Optional.of(tweet));
+		when(retweetRepository.deleteByUserIdAndAndTweetId(userId, ID)).thenReturn(0L);
+		when(retweetRepository.insert(any(Retweet.class))).thenThrow(new DuplicateKeyException("user_id_tweet_id"));
+
+		//when
+		tweetService.retweetTweet(ID, userId);
+
+		//then
+		// The other request counted it, and nothing is undone
+		verify(retweetRepository, times(1)).deleteByUserIdAndAndTweetId(userId, ID);
+		verify(pendingCounterService, never()).add(anyString(), anyString(), anyInt());
+		verify(timelineService, never()).removeRetweet(anyString(), anyString());
+		verify(timelineService, never()).fanOutRetweet(any(Tweet.class), anyString());
+	}
+
+	@Test
+	void retweetTweet_InvalidTweet_ExceptionThrown() {
+		//given
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.empty());
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			tweetService.retweetTweet(ID, "user1");
+		});
+
+		verify(retweetRepository, never()).insert(any(Retweet.class));
 	}
 
 	@Test
@@ -168,7 +443,6 @@ class TweetServiceTest {
 		Favorite favorite = Favorite.builder().userId(userId).tweetId(favoritedTweet.getId()).build();
 
 		when(tweetRepository.findById(anyString())).thenReturn(Optional.of(favoritedTweet));
-		when(tweetRepository.save(any(Tweet.class))).thenReturn(favoritedTweet);
 		when(favoriteRepository.insert(any(Favorite.class))).thenReturn(favorite);
 
 		//when
@@ -177,9 +451,151 @@ class TweetServiceTest {
 		//then
 		assertEquals(ID, updatedTweet.getId());
 		assertEquals(1, updatedTweet.getContent().size());
+		assertEquals(1, updatedTweet.getFavoriteCount().intValue());
 		assertEquals(userId, favorite.getUserId());
 
 		assertNotNull(updatedTweet.getCreatedAt());
+
+		verify(counterBroadcastService, times(1)).recordDelta(CounterBroadcastService.tweetTopic(ID),
+				CounterBroadcastService.FAVORITE_COUNT, 1);
+
+		// Ruled out by the filter and counted in process - the tweet is never written back
+		verify(favoriteRepository, never()).deleteByUserIdAndAndTweetId(anyString(), anyString());
+		verify(favoriteFilterService, times(1)).addFavorite(userId, ID);
+		verify(pendingCounterService, times(1)).add(ID, CounterBroadcastService.FAVORITE_COUNT, 1);
+		verify(tweetRepository, never()).save(any(Tweet.class));
+		verify(leaderboardService, times(1)).recordFavorites(ID, 1, 1);
+	}
+
+	@Test
+	void favoriteTweet_FilterFalsePositive_InsertedAndRecorded() {
+		//given
+		String userId = "user1";
+
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.of(Tweet.builder().id(ID).build()));
+		when(favoriteFilterService.mightHaveFavorited(userId, ID)).thenReturn(true);
+		when(favoriteRepository.deleteByUserIdAndAndTweetId(userId, ID)).thenReturn(0L);
+
+		//when
+		tweetService.favoriteTweet(ID, userId);
+
+		//then
+		verify(favoriteFilterService, times(1)).recordFalsePositive();
+		verify(favoriteRepository, times(1)).insert(any(Favorite.class));
+		verify(favoriteFilterService, times(1)).addFavorite(userId, ID);
+	}
+
+	@Test
+	void favoriteTweet_AlreadyFavorited_FavoriteRemoved() {
+		//given
+		String userId = "user1";
+
+		Tweet favoritedTweet = Tweet.builder().id(ID).favoriteCount(1)
+				.content(Arrays.asList(new TextContent("Hello"))).build();
+
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.of(favoritedTweet));
+		when(favoriteFilterService.mightHaveFavorited(userId, ID)).thenReturn(true);
+		when(favoriteRepository.deleteByUserIdAndAndTweetId(userId, ID)).thenReturn(1L);
+
+		//when
+		Tweet updatedTweet = tweetService.favoriteTweet(ID, userId);
+
+		//then
+		assertEquals(0, updatedTweet.getFavoriteCount().intValue());
+		verify(favoriteRepository, never()).insert(any(Favorite.class));
+		verify(favoriteFilterService, times(1)).removeFavorite(userId, ID);
+		verify(favoriteFilterService, never()).recordFalsePositive();
+		verify(pendingCounterService, times(1)).add(ID, CounterBroadcastService.FAVORITE_COUNT, -1);
+	}
+
+	@Test
+	void favoriteTweet_FavoritedElsewhereFilterMissed_FavoriteRemoved() {
+		//given
+		String userId = "user1";
+
+		when(tweetRepository.findById(anyString()))
+				.thenReturn(Optional.of(Tweet.builder().id(ID).favoriteCount(1).build()));
+		when(favoriteRepository.insert(any(Favorite.class))).thenThrow(new DuplicateKeyException("user_id_tweet_id"));
+		when(favoriteRepository.deleteByUserIdAndAndTweetId(userId, ID)).thenReturn(1L);
+
+		//when
+		Tweet updatedTweet = tweetService.favoriteTweet(ID, userId);
+
+		//then
+		assertEquals(0, updatedTweet.getFavoriteCount().intValue());
+		verify(favoriteFilterService, times(1)).addFavorite(userId, ID);
+		verify(favoriteFilterService, times(1)).removeFavorite(userId, ID);
+		verify(pendingCounterService, times(1)).add(ID, CounterBroadcastService.FAVORITE_COUNT, -1);
+	}
+
+	@Test
+	void favoriteTweet_InvalidTweet_ExceptionThrownAndNothingRecorded() {
+		//given
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.empty());
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			tweetService.favoriteTweet(ID, "user1");
+		});
+
+		verify(favoriteRepository, never()).insert(any(Favorite.class));
+		verify(pendingCounterService, never()).add(anyString(), anyString(), anyInt());
+	}
+
+	@Test
+	void favoriteTweet_ParallelFavorites_EveryDeltaFlushedInFewWrites() throws InterruptedException {
+		//given
+		int favorites = 10_000;
+		AtomicLong favoriteCount = new AtomicLong();
+		AtomicInteger writes = new AtomicInteger();
+
+		// Stands in for the bulk $inc - this covers the deltas summed in process, not the database, whose side is
+		// the $inc update checked in CounterServiceTest
+		doAnswer(invocation -> {
+			Map<String, Map<String, Long>> deltas = invocation.getArgument(0);
+			favoriteCount.addAndGet(deltas.get(ID).get(CounterBroadcastService.FAVORITE_COUNT));
+			writes.incrementAndGet();
+
+			return Collections.emptySet();
+		}).when(counterService).incrementTweetCounters(anyMap());
+
+		when(tweetRepository.findById(ID)).thenReturn(Optional.of(Tweet.builder().id(ID).build()));
+
+		PendingCounterInMemoryService pendingCounters = new PendingCounterInMemoryService(counterService);
+
+		TweetService parallelTweetService = new TweetMongoService(tweetRepository, favoriteRepository,
+				retweetRepository, userActionValidator, timelineService, counterBroadcastService, new TweetLoader(tweetRepository),
+				favoriteFilterService, pendingCounters, conversationService, searchService, trendService,
+				mentionService, leaderboardService, suggestService);
+
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		CountDownLatch start = new CountDownLatch(1);
+
+		//when
+		for (int i = 0; i < favorites; i++) {
+			String userId = "user" + i;
+
+			executor.execute(() -> {
+				try {
+					start.await();
+					parallelTweetService.favoriteTweet(ID, userId);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+
+		// Flushing alongside the favorites, as the schedule would
+		while (!executor.awaitTermination(10, TimeUnit.MILLISECONDS)) pendingCounters.flush();
+
+		pendingCounters.flush();
+
+		//then
+		assertEquals(favorites, favoriteCount.get());
+		assertTrue(writes.get() <= favorites / 10, "Writes: " + writes.get());
 	}
 
 	@Test
@@ -188,7 +604,6 @@ class TweetServiceTest {
 		Tweet editedTweet = Tweet.builder().id(ID).content(Arrays.asList(new TextContent("World"))).build();
 
 		when(tweetRepository.findById(anyString())).thenReturn(Optional.of(editedTweet));
-		when(tweetRepository.save(any(Tweet.class))).thenReturn(editedTweet);
 
 		//when
 		Tweet updatedTweet = tweetService.update(editedTweet, ID, USERNAME);
@@ -196,6 +611,10 @@ class TweetServiceTest {
 		//then
 		assertEquals(editedTweet.getId(), updatedTweet.getId());
 		assertEquals(editedTweet.getContent(), updatedTweet.getContent());
+
+		// Never the whole document, which would write back the counters as read
+		verify(tweetRepository, times(1)).updateText(eq(ID), any(), eq(editedTweet.getContent()), any());
+		verify(tweetRepository, never()).save(any(Tweet.class));
 	}
 
 	@Test
@@ -253,6 +672,23 @@ class TweetServiceTest {
 //		verify(tweetRepository, times(1)).deleteById(anyString());
 	}
 
+	@Test
+	void deleteTweetById_ValidTweet_RemovedFromTimelines() {
+		//given
+		Tweet tweetToDelete = Tweet.builder().id(ID).owner(USERNAME).build();
+
+		when(tweetRepository.findById(anyString())).thenReturn(Optional.of(tweetToDelete));
+
+		//when
+		tweetService.deleteById(ID, USERNAME);
+
+		//then
+		verify(tweetRepository, times(1)).deleteById(ID);
+		verify(timelineService, times(1)).removeTweet(ID);
+		verify(conversationService, times(1)).invalidate(ID);
+		verify(searchService, times(1)).remove(ID);
+	}
+
 	@Test
 	void deleteTweetById_InvalidID_ExceptionThrown() {
 		//given
@@ -4,25 +4,32 @@ import com.mpp.twitterclone.enums.RoleName;
 import com.mpp.twitterclone.exceptions.ResourceExistsException;
 import com.mpp.twitterclone.exceptions.ResourceNotFoundException;
 import com.mpp.twitterclone.exceptions.UnauthorizedUserException;
+import com.mpp.twitterclone.model.CursorPage;
 import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
 import com.mpp.twitterclone.model.Role;
 import com.mpp.twitterclone.model.User;
 import com.mpp.twitterclone.repositories.FollowRepository;
 import com.mpp.twitterclone.repositories.UserRepository;
+import com.mpp.twitterclone.services.mongo.UserLoader;
 import com.mpp.twitterclone.services.mongo.UserMongoService;
 import com.mpp.twitterclone.validators.UserActionValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -37,6 +44,9 @@ class UserServiceTest {
 	@Mock
 	UserRepository userRepository;
 
+	@Mock
+	SocialGraphService socialGraphService;
+
 	@Mock
 	FollowRepository followRepository;
 
@@ -49,11 +59,29 @@ class UserServiceTest {
 	@Mock
 	UserActionValidator userActionValidator;
 
+	@Mock
+	TimelineService timelineService;
+
+	@Mock
+	CounterBroadcastService counterBroadcastService;
+
+	@Mock
+	CounterService counterService;
+
+	@Mock
+	SuggestService suggestService;
+
+	@Mock
+	LeaderboardService leaderboardService;
+
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.initMocks(this);
 
-		userService = new UserMongoService(userRepository, followRepository, roleService, passwordEncoder, userActionValidator);
+		userService = new UserMongoService(userRepository, followRepository, roleService, passwordEncoder,
+											userActionValidator, timelineService, counterBroadcastService,
+											new UserLoader(userRepository, new SimpleMeterRegistry()), socialGraphService,
+											counterService, suggestService, leaderboardService);
 	}
 
 	@Test
@@ -75,10 +103,8 @@ class UserServiceTest {
 		//given
 		User sentUsers = User.builder().id("user2").build();
 
-		List<Follow> follows = Arrays.asList(Follow.builder().followedUserId(ID).followerUserId("user2").build());
-
-		when(followRepository.findAllByFollowedUserId(anyString())).thenReturn(follows);
-		when(userRepository.findById(anyString())).thenReturn(Optional.of(sentUsers));
+		when(socialGraphService.findFollowerIds(anyString())).thenReturn(Arrays.asList("user2"));
+		when(userRepository.findAllById(any())).thenReturn(Arrays.asList(sentUsers));
 
 		//when
 		List<User> followers = userService.findAllFollowers(ID);
@@ -91,19 +117,72 @@ class UserServiceTest {
 	@Test
 	void findAllFollowing_ValidRequest_ListOfUsers() {
 		//given
-		User sentUsers = User.builder().id(ID).build();
-
-		List<Follow> follows = Arrays.asList(Follow.builder().followedUserId(ID).followerUserId("user2").build());
+		User sentUsers = User.builder().id("user2").build();
 
-		when(followRepository.findAllByFollowerUserId(anyString())).thenReturn(follows);
-		when(userRepository.findById(anyString())).thenReturn(Optional.of(sentUsers));
+		when(socialGraphService.findFollowingIds(anyString())).thenReturn(Arrays.asList("user2"));
+		when(userRepository.findAllById(any())).thenReturn(Arrays.asList(sentUsers));
 
 		//when
 		List<User> following = userService.findAllFollowing(ID);
 
 		//then
 		assertEquals(1, following.size());
-		assertEquals(ID, following.get(0).getId());
+		assertEquals("user2", following.get(0).getId());
+
+		verify(userRepository, times(1)).findAllById(Arrays.asList("user2"));
+	}
+
+	@Test
+	void findFollowersPage_FirstPage_HydratedInOneQuery() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		List<Follow> follows = Arrays.asList(
+				Follow.builder().id("f3").followedUserId(ID).followerUserId("user4").createdAt(now).build(),
+				Follow.builder().id("f2").followedUserId(ID).followerUserId("user3").createdAt(now.minusMinutes(1)).build(),
+				Follow.builder().id("f1").followedUserId(ID).followerUserId("user2").createdAt(now.minusMinutes(2)).build());
+
+		when(followRepository.findFollowersPage(anyString(), any(), anyInt())).thenReturn(follows);
+		// $in results come back in any order
+		when(userRepository.findAllSummariesById(any())).thenReturn(Arrays.asList(
+				User.builder().id("user3").build(), User.builder().id("user4").build()));
+
+		//when
+		CursorPage<User> page = userService.findFollowersPage(ID, null, 2);
+
+		//then
+		assertEquals(2, page.getContent().size());
+		assertEquals("user4", page.getContent().get(0).getId());
+		assertEquals("user3", page.getContent().get(1).getId());
+		assertNull(page.getPrevious());
+		assertEquals("f2", PageCursor.decode(page.getNext()).getId());
+
+		verify(followRepository, times(1)).findFollowersPage(ID, null, 3);
+		verify(userRepository, times(1)).findAllSummariesById(Arrays.asList("user4", "user3"));
+		verify(userRepository, never()).findById(anyString());
+	}
+
+	@Test
+	void findFollowingPage_ValidRequest_FollowedUsers() {
+		//given
+		LocalDateTime now = LocalDateTime.now();
+		String cursor = PageCursor.next(now, "f9").encode();
+		List<Follow> follows = Arrays.asList(
+				Follow.builder().id("f1").followerUserId(ID).followedUserId("user2").createdAt(now.minusMinutes(1)).build());
+
+		when(followRepository.findFollowingPage(anyString(), any(), anyInt())).thenReturn(follows);
+		when(userRepository.findAllSummariesById(any())).thenReturn(Arrays.asList(User.builder().id("user2").build()));
+
+		//when
+		CursorPage<User> page = userService.findFollowingPage(ID, cursor, 20);
+
+		//then
+		// The followed user, not the follower
+		assertEquals(1, page.getContent().size());
+		assertEquals("user2", page.getContent().get(0).getId());
+		assertNull(page.getNext());
+		assertEquals("f1", PageCursor.decode(page.getPrevious()).getId());
+
+		verify(userRepository, times(1)).findAllSummariesById(Arrays.asList("user2"));
 	}
 
 	@Test
@@ -149,6 +228,8 @@ class UserServiceTest {
 
 		assertNotNull(savedUser.getRoles());
 		assertNotNull(savedUser.getCreatedAt());
+
+		verify(suggestService, times(1)).index(sentUser);
 	}
 
 	@Test
@@ -156,15 +237,15 @@ class UserServiceTest {
 		//given
 		String userId = "user1";
 
-		User followedUser = User.builder().id(ID).build();
+		User followedUser = User.builder().id(ID).followersCount(1).build();
 
 		System.out.println(followedUser);
 
 		Follow follow = Follow.builder().followedUserId(followedUser.getId()).followerUserId(userId).build();
 
-		when(userRepository.findById(anyString())).thenReturn(Optional.of(followedUser));
-		when(userRepository.save(any(User.class))).thenReturn(followedUser);
 		when(followRepository.insert(any(Follow.class))).thenReturn(follow);
+		when(counterService.incrementUserCounter(ID, CounterBroadcastService.FOLLOWERS_COUNT, 1))
+				.thenReturn(Optional.of(followedUser));
 
 		//when
 		User updatedUser = userService.followUser(followedUser.getId(), userId);
@@ -174,6 +255,84 @@ class UserServiceTest {
 		assertEquals(userId, follow.getFollowerUserId());
 
 		assertNotNull(updatedUser.getCreatedAt());
+
+		verify(socialGraphService, times(1)).addFollow(userId, ID);
+
+		verify(timelineService, times(1)).backfill(userId, followedUser.getUsername());
+
+		// Ranked by the new followers count
+		verify(suggestService, times(1)).index(followedUser);
+		verify(leaderboardService, times(1)).recordFollowers(ID, 1, 1);
+
+		// Counted in place - the followed user is never read and written back
+		verify(userRepository, never()).findById(anyString());
+		verify(userRepository, never()).save(any(User.class));
+	}
+
+	@Test
+	void followUser_InvalidUser_FollowTakenBackAndExceptionThrown() {
+		//given
+		String userId = "user1";
+
+		when(counterService.incrementUserCounter(ID, CounterBroadcastService.FOLLOWERS_COUNT, 1))
+				.thenReturn(Optional.empty());
+
+		//then
+		assertThrows(ResourceNotFoundException.class, () -> {
+			//when
+			userService.followUser(ID, userId);
+		});
+
+		verify(followRepository, times(1)).deleteByFollowerUserIdAndAndFollowedUserId(userId, ID);
+		verify(socialGraphService, times(1)).removeFollow(userId, ID);
+		verify(counterBroadcastService, never()).recordDelta(anyString(), anyString(), anyInt());
+	}
+
+	@Test
+	void followUser_AlreadyFollowing_Unfollowed() {
+		//given
+		String userId = "user2";
+
+		User followedUser = User.builder().id(ID).username(USERNAME).followersCount(0).build();
+
+		when(socialGraphService.follows(userId, ID)).thenReturn(true);
+		when(followRepository.deleteByFollowerUserIdAndAndFollowedUserId(userId, ID)).thenReturn(1L);
+		when(counterService.incrementUserCounter(ID, CounterBroadcastService.FOLLOWERS_COUNT, -1))
+				.thenReturn(Optional.of(followedUser));
+
+		//when
+		User updatedUser = userService.followUser(ID, userId);
+
+		//then
+		assertEquals(Integer.valueOf(0), updatedUser.getFollowersCount());
+
+		verify(followRepository, times(1)).deleteByFollowerUserIdAndAndFollowedUserId(userId, ID);
+		verify(socialGraphService, times(1)).removeFollow(userId, ID);
+		verify(counterBroadcastService, times(1)).recordDelta(CounterBroadcastService.userTopic(ID),
+				CounterBroadcastService.FOLLOWERS_COUNT, -1);
+		verify(timelineService, times(1)).removeAuthor(userId, USERNAME);
+	}
+
+	@Test
+	void followUser_FollowedElsewhereGraphMissed_Unfollowed() {
+		//given
+		String userId = "user2";
+
+		User followedUser = User.builder().id(ID).username(USERNAME).followersCount(0).build();
+
+		when(followRepository.insert(any(Follow.class))).thenThrow(new DuplicateKeyException("follower_user_id"));
+		when(followRepository.deleteByFollowerUserIdAndAndFollowedUserId(userId, ID)).thenReturn(1L);
+		when(counterService.incrementUserCounter(ID, CounterBroadcastService.FOLLOWERS_COUNT, -1))
+				.thenReturn(Optional.of(followedUser));
+
+		//when
+		userService.followUser(ID, userId);
+
+		//then
+		verify(socialGraphService, times(1)).addFollow(userId, ID);
+		verify(socialGraphService, times(1)).removeFollow(userId, ID);
+		verify(counterService, never()).incrementUserCounter(ID, CounterBroadcastService.FOLLOWERS_COUNT, 1);
+		verify(timelineService, times(1)).removeAuthor(userId, USERNAME);
 	}
 
 	@Test
@@ -182,7 +341,6 @@ class UserServiceTest {
 		User editedUser = User.builder().id(ID).username(USERNAME).build();
 
 		when(userRepository.findById(anyString())).thenReturn(Optional.of(editedUser));
-		when(userRepository.save(any(User.class))).thenReturn(editedUser);
 
 		//when
 		User updatedUser = userService.update(editedUser, ID, USERNAME);
@@ -190,6 +348,10 @@ class UserServiceTest {
 		//then
 		assertEquals(editedUser.getId(), updatedUser.getId());
 		assertEquals(editedUser.getUsername(), updatedUser.getUsername());
+
+		// Never the whole document, which would write back the counters as read
+		verify(userRepository, times(1)).updateProfile(editedUser);
+		verify(userRepository, never()).save(any(User.class));
 	}
 
 	@Test
@@ -225,6 +387,23 @@ class UserServiceTest {
 		});
 	}
 
+	@Test
+	void updateUser_ReservedUsername_ExceptionThrown() {
+		//given
+		User existingUser = User.builder().id(ID).username(USERNAME).email(EMAIL).build();
+		User editedUser = User.builder().id(ID).username("suggest").email(EMAIL).build();
+
+		when(userRepository.findById(ID)).thenReturn(Optional.of(existingUser));
+
+		//then
+		assertThrows(ResourceExistsException.class, () -> {
+			//when
+			userService.update(editedUser, ID, "suggest");
+		});
+
+		verify(userRepository, never()).save(any(User.class));
+	}
+
 	@Test
 	void deleteUser_ValidUser_Deleted() {
 		//given
@@ -0,0 +1,161 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpp.twitterclone.services.CounterBroadcastService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.mpp.twitterclone.services.CounterBroadcastService.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CounterBroadcastServiceTest {
+
+	public static final String SESSION_ID = "session1";
+	public static final String TWEET_ID = "tweet1";
+
+	CounterBroadcastInMemoryService counterBroadcastService;
+
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@Mock
+	WebSocketSession session;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		when(session.getId()).thenReturn(SESSION_ID);
+		when(session.isOpen()).thenReturn(true);
+
+		counterBroadcastService = new CounterBroadcastInMemoryService(objectMapper);
+	}
+
+	@AfterEach
+	void tearDown() {
+		counterBroadcastService.shutdown();
+	}
+
+	@Test
+	void flush_HotTweet_OneMessagePerWindow() throws Exception {
+		//given
+		counterBroadcastService.register(session);
+		counterBroadcastService.subscribe(SESSION_ID, Arrays.asList(tweetTopic(TWEET_ID), userTopic("user1")));
+
+		for (int i = 0; i < 1000; i++) counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, 1);
+		counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, -1);
+		counterBroadcastService.recordDelta(userTopic("user1"), FOLLOWERS_COUNT, 1);
+
+		//when
+		counterBroadcastService.flush();
+
+		//then
+		ArgumentCaptor<TextMessage> message = ArgumentCaptor.forClass(TextMessage.class);
+		verify(session, timeout(1000).times(1)).sendMessage(message.capture());
+
+		JsonNode deltas = objectMapper.readTree(message.getValue().getPayload()).get("deltas");
+		assertEquals(999, deltas.get(tweetTopic(TWEET_ID)).get(FAVORITE_COUNT).asInt());
+		assertEquals(1, deltas.get(userTopic("user1")).get(FOLLOWERS_COUNT).asInt());
+
+		// Nothing left for the next window
+		counterBroadcastService.flush();
+		verify(session, after(200).times(1)).sendMessage(any());
+	}
+
+	@Test
+	void flush_ClientStoppedReading_FlushAndOtherSessionsNotBlocked() throws Exception {
+		//given
+		CountDownLatch unblock = new CountDownLatch(1);
+		WebSocketSession otherSession = mock(WebSocketSession.class);
+
+		when(otherSession.getId()).thenReturn("session2");
+		when(otherSession.isOpen()).thenReturn(true);
+		doAnswer(invocation -> unblock.await(5, TimeUnit.SECONDS)).when(session).sendMessage(any());
+
+		counterBroadcastService.register(session);
+		counterBroadcastService.register(otherSession);
+		counterBroadcastService.subscribe(SESSION_ID, Arrays.asList(tweetTopic(TWEET_ID)));
+		counterBroadcastService.subscribe("session2", Arrays.asList(tweetTopic(TWEET_ID)));
+
+		counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, 1);
+
+		//when
+		assertTimeoutPreemptively(Duration.ofSeconds(1), () -> counterBroadcastService.flush());
+
+		//then
+		verify(otherSession, timeout(1000).times(1)).sendMessage(any());
+
+		unblock.countDown();
+	}
+
+	@Test
+	void recordDelta_NoSubscribers_NotKept() {
+		//when
+		counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, 1);
+
+		//then
+		assertEquals(0, counterBroadcastService.getPendingCount());
+	}
+
+	@Test
+	void flush_UnsubscribedTopic_NothingSent() throws Exception {
+		//given
+		counterBroadcastService.register(session);
+		counterBroadcastService.subscribe(SESSION_ID, Arrays.asList(tweetTopic(TWEET_ID)));
+		counterBroadcastService.unsubscribe(SESSION_ID, Arrays.asList(tweetTopic(TWEET_ID)));
+
+		counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, 1);
+
+		//when
+		counterBroadcastService.flush();
+
+		//then
+		verify(session, after(200).never()).sendMessage(any());
+	}
+
+	@Test
+	void flush_UnregisteredSession_NothingSent() throws Exception {
+		//given
+		counterBroadcastService.register(session);
+		counterBroadcastService.subscribe(SESSION_ID, Arrays.asList(tweetTopic(TWEET_ID)));
+		counterBroadcastService.unregister(SESSION_ID);
+
+		counterBroadcastService.recordDelta(tweetTopic(TWEET_ID), FAVORITE_COUNT, 1);
+
+		//when
+		counterBroadcastService.flush();
+
+		//then
+		verify(session, after(200).never()).sendMessage(any());
+		assertEquals(0, counterBroadcastService.getPendingCount());
+	}
+
+	@Test
+	void subscribe_TooManyTopics_Capped() throws Exception {
+		//given
+		counterBroadcastService.register(session);
+
+		for (int i = 0; i <= CounterBroadcastInMemoryService.MAX_TOPICS_PER_SESSION; i++)
+			counterBroadcastService.subscribe(SESSION_ID, Arrays.asList(tweetTopic("tweet" + i)));
+
+		//when
+		counterBroadcastService.recordDelta(tweetTopic("tweet" + CounterBroadcastInMemoryService.MAX_TOPICS_PER_SESSION),
+				CounterBroadcastService.FAVORITE_COUNT, 1);
+
+		//then
+		assertEquals(0, counterBroadcastService.getPendingCount());
+	}
+}
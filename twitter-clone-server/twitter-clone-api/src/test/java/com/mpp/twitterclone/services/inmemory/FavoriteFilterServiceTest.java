@@ -0,0 +1,150 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Favorite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FavoriteFilterServiceTest {
+
+	FavoriteFilterInMemoryService favoriteFilterService;
+
+	SimpleMeterRegistry meterRegistry;
+
+	@Mock
+	MongoOperations mongoOperations;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		List<Favorite> favorites = Arrays.asList(
+				Favorite.builder().userId("user1").tweetId("tweet1").build(),
+				Favorite.builder().userId("user2").tweetId("tweet1").build());
+
+		when(mongoOperations.count(any(Query.class), eq(Favorite.class))).thenReturn((long) favorites.size());
+		when(mongoOperations.stream(any(Query.class), eq(Favorite.class))).thenReturn(iteratorOf(favorites));
+
+		meterRegistry = new SimpleMeterRegistry();
+
+		favoriteFilterService = new FavoriteFilterInMemoryService(mongoOperations, meterRegistry);
+		favoriteFilterService.load();
+	}
+
+	@Test
+	void mightHaveFavorited_LoadedFavorites_True() {
+		//then
+		assertTrue(favoriteFilterService.mightHaveFavorited("user1", "tweet1"));
+		assertTrue(favoriteFilterService.mightHaveFavorited("user2", "tweet1"));
+	}
+
+	@Test
+	void mightHaveFavorited_AddedThenRemoved_FalseAndCountedAsSkipped() {
+		//given
+		favoriteFilterService.addFavorite("user3", "tweet2");
+
+		//when
+		boolean added = favoriteFilterService.mightHaveFavorited("user3", "tweet2");
+		favoriteFilterService.removeFavorite("user3", "tweet2");
+		boolean removed = favoriteFilterService.mightHaveFavorited("user3", "tweet2");
+
+		//then
+		assertTrue(added);
+		assertFalse(removed);
+		assertEquals(1, meterRegistry.get("favorites.filter.skipped.lookups").functionCounter().count());
+	}
+
+	@Test
+	void removeFavorite_PairNotAddedThroughThisNode_StillCounted() {
+		//given
+		favoriteFilterService.addFavorite("user3", "tweet2");
+
+		//when
+		favoriteFilterService.removeFavorite("user1", "tweet1");
+		favoriteFilterService.removeFavorite("user4", "tweet2");
+
+		//then
+		assertTrue(favoriteFilterService.mightHaveFavorited("user1", "tweet1"));
+		assertTrue(favoriteFilterService.mightHaveFavorited("user3", "tweet2"));
+	}
+
+	@Test
+	void removeFavorite_PastTrackedAdds_LeftCountedUntilRebuild() {
+		//given
+		for (int i = 0; i < FavoriteFilterInMemoryService.MAX_TRACKED_ADDS; i++) {
+			favoriteFilterService.addFavorite("user" + i, "tweet2");
+		}
+		favoriteFilterService.addFavorite("user3", "tweet3");
+
+		//when
+		favoriteFilterService.removeFavorite("user3", "tweet3");
+		favoriteFilterService.removeFavorite("user3", "tweet2");
+
+		//then
+		assertTrue(favoriteFilterService.mightHaveFavorited("user3", "tweet3"));
+		assertFalse(favoriteFilterService.mightHaveFavorited("user3", "tweet2"));
+	}
+
+	@Test
+	void getFalsePositiveRate_RecordedFalsePositives_ShareOfNegatives() {
+		//given
+		for (int i = 0; i < 3; i++) favoriteFilterService.mightHaveFavorited("user" + i, "unknown");
+
+		//when
+		favoriteFilterService.recordFalsePositive();
+
+		//then
+		assertEquals(0.25, meterRegistry.get("favorites.filter.false.positive.rate").gauge().value());
+	}
+
+	@Test
+	void add_ManyKeys_NoFalseNegativesAndBoundedFalsePositives() {
+		//given
+		CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+
+		//when
+		for (int i = 0; i < 10_000; i++) filter.add("user" + i + ":tweet" + i);
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) if (filter.mightContain("user" + i + ":other" + i)) falsePositives++;
+
+		//then
+		for (int i = 0; i < 10_000; i++) assertTrue(filter.mightContain("user" + i + ":tweet" + i));
+		assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+		assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+	}
+
+	private static CloseableIterator<Favorite> iteratorOf(List<Favorite> favorites) {
+		Iterator<Favorite> iterator = favorites.iterator();
+
+		return new CloseableIterator<Favorite>() {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Favorite next() {
+				return iterator.next();
+			}
+		};
+	}
+}
@@ -0,0 +1,159 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.enums.LeaderboardWindow;
+import com.mpp.twitterclone.model.Favorite;
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.Retweet;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import com.mpp.twitterclone.services.mongo.UserLoader;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LeaderboardServiceTest {
+
+	LeaderboardInMemoryService leaderboardService;
+
+	@Mock
+	MongoOperations mongoOperations;
+
+	@Mock
+	TweetLoader tweetLoader;
+
+	@Mock
+	UserLoader userLoader;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		when(tweetLoader.findAllById(anyCollection())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0)
+				.stream().map(id -> Tweet.builder().id(id).build()).collect(Collectors.toList()));
+		when(userLoader.findAllById(anyCollection())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0)
+				.stream().map(id -> User.builder().id(id).build()).collect(Collectors.toList()));
+
+		when(mongoOperations.find(any(Query.class), eq(Tweet.class))).thenReturn(Arrays.asList(
+				Tweet.builder().id("tweet1").favoriteCount(500).retweetCount(5).build(),
+				Tweet.builder().id("tweet2").favoriteCount(300).retweetCount(50).build()));
+		when(mongoOperations.find(any(Query.class), eq(User.class))).thenReturn(Collections.singletonList(
+				User.builder().id("user1").followersCount(1000).build()));
+		when(mongoOperations.aggregate(any(Aggregation.class), eq(Favorite.class), eq(Document.class)))
+				.thenReturn(counted(new Document("_id", "tweet2").append("count", 7)));
+		when(mongoOperations.aggregate(any(Aggregation.class), eq(Retweet.class), eq(Document.class)))
+				.thenReturn(counted());
+		when(mongoOperations.aggregate(any(Aggregation.class), eq(Follow.class), eq(Document.class)))
+				.thenReturn(counted(new Document("_id", "user2").append("count", 3)));
+
+		leaderboardService = new LeaderboardInMemoryService(mongoOperations, tweetLoader, userLoader);
+		leaderboardService.reconcile();
+	}
+
+	AggregationResults<Document> counted(Document... documents) {
+		return new AggregationResults<>(Arrays.asList(documents), new Document());
+	}
+
+	List<String> tweetIds(List<Tweet> tweets) {
+		return tweets.stream().map(Tweet::getId).collect(Collectors.toList());
+	}
+
+	List<String> userIds(List<User> users) {
+		return users.stream().map(User::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void findMostFavoritedTweets_Reconciled_FromDatabase() {
+		//then
+		assertEquals(Arrays.asList("tweet1", "tweet2"),
+				tweetIds(leaderboardService.findMostFavoritedTweets(LeaderboardWindow.ALL_TIME, 10)));
+		assertEquals(Collections.singletonList("tweet2"),
+				tweetIds(leaderboardService.findMostFavoritedTweets(LeaderboardWindow.DAY, 10)));
+		assertEquals(Arrays.asList("tweet2", "tweet1"),
+				tweetIds(leaderboardService.findMostRetweetedTweets(LeaderboardWindow.ALL_TIME, 10)));
+		assertTrue(leaderboardService.findMostRetweetedTweets(LeaderboardWindow.DAY, 10).isEmpty());
+	}
+
+	@Test
+	void recordFavorites_NewTotalAboveOthers_RankedFirst() {
+		//when
+		leaderboardService.recordFavorites("tweet3", 800, 1);
+
+		//then
+		assertEquals(Arrays.asList("tweet3", "tweet1", "tweet2"),
+				tweetIds(leaderboardService.findMostFavoritedTweets(LeaderboardWindow.ALL_TIME, 10)));
+		assertEquals(Arrays.asList("tweet2", "tweet3"),
+				tweetIds(leaderboardService.findMostFavoritedTweets(LeaderboardWindow.DAY, 10)));
+	}
+
+	@Test
+	void recordFollowers_DayChanges_Added() {
+		//when
+		for (int i = 0; i < 5; i++) leaderboardService.recordFollowers("user3", 10 + i, 1);
+
+		//then
+		assertEquals(Arrays.asList("user3", "user2"),
+				userIds(leaderboardService.findMostFollowedUsers(LeaderboardWindow.DAY, 10)));
+		assertEquals(Arrays.asList("user1", "user3"),
+				userIds(leaderboardService.findMostFollowedUsers(LeaderboardWindow.ALL_TIME, 10)));
+	}
+
+	@Test
+	void findMostFollowedUsers_SizeGiven_Limited() {
+		//given
+		leaderboardService.recordFollowers("user3", 10, 1);
+
+		//then
+		assertEquals(Collections.singletonList("user1"),
+				userIds(leaderboardService.findMostFollowedUsers(LeaderboardWindow.ALL_TIME, 1)));
+	}
+
+	@Test
+	void leaderboard_Full_LowestReplacedOnlyByHigher() {
+		//given
+		Leaderboard leaderboard = new Leaderboard(2);
+		leaderboard.set("a", 10);
+		leaderboard.set("b", 20);
+
+		//when
+		leaderboard.set("c", 5);
+		leaderboard.set("d", 15);
+
+		//then
+		assertEquals(Arrays.asList("b", "d"), leaderboard.top(10));
+	}
+
+	@Test
+	void leaderboard_MemberChanges_Rescored() {
+		//given
+		Leaderboard leaderboard = new Leaderboard(3);
+		leaderboard.set("a", 10);
+		leaderboard.set("b", 20);
+
+		//when
+		leaderboard.increment("a", 15);
+		leaderboard.increment("b", -20);
+		leaderboard.increment("c", 1);
+
+		//then
+		assertEquals(Arrays.asList("a", "c"), leaderboard.top(10));
+	}
+}
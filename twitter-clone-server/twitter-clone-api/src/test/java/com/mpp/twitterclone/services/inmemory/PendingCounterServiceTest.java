@@ -0,0 +1,117 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.services.CounterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.mpp.twitterclone.services.CounterBroadcastService.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class PendingCounterServiceTest {
+
+	public static final String TWEET_ID = "tweet1";
+
+	PendingCounterInMemoryService pendingCounterService;
+
+	@Mock
+	CounterService counterService;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		pendingCounterService = new PendingCounterInMemoryService(counterService);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void flush_HotTweet_OneBulkWrite() {
+		//given
+		for (int i = 0; i < 1000; i++) pendingCounterService.add(TWEET_ID, FAVORITE_COUNT, 1);
+		pendingCounterService.add(TWEET_ID, FAVORITE_COUNT, -1);
+		pendingCounterService.add(TWEET_ID, REPLY_COUNT, 1);
+		pendingCounterService.add("tweet2", RETWEET_COUNT, 1);
+
+		//when
+		pendingCounterService.flush();
+
+		//then
+		ArgumentCaptor<Map<String, Map<String, Long>>> deltas = ArgumentCaptor.forClass(Map.class);
+		verify(counterService, times(1)).incrementTweetCounters(deltas.capture());
+
+		assertEquals(Long.valueOf(999), deltas.getValue().get(TWEET_ID).get(FAVORITE_COUNT));
+		assertEquals(Long.valueOf(1), deltas.getValue().get(TWEET_ID).get(REPLY_COUNT));
+		assertEquals(Long.valueOf(1), deltas.getValue().get("tweet2").get(RETWEET_COUNT));
+		assertEquals(0, pendingCounterService.getPendingCount());
+	}
+
+	@Test
+	void overlay_PendingDeltas_CopyWithDeltasApplied() {
+		//given
+		Tweet tweet = Tweet.builder().id(TWEET_ID).favoriteCount(10).build();
+
+		pendingCounterService.add(TWEET_ID, FAVORITE_COUNT, 2);
+		pendingCounterService.add(TWEET_ID, REPLY_COUNT, 1);
+
+		//when
+		Tweet overlaid = pendingCounterService.overlay(tweet);
+
+		//then
+		assertEquals(12, overlaid.getFavoriteCount().intValue());
+		assertEquals(1, overlaid.getReplyCount().intValue());
+		assertEquals(10, tweet.getFavoriteCount().intValue());
+
+		// Nothing pending - returned as it is
+		Tweet other = Tweet.builder().id("tweet2").build();
+		assertSame(other, pendingCounterService.overlay(other));
+	}
+
+	@Test
+	void flush_WriteFails_DeltasKeptForNextFlush() {
+		//given
+		pendingCounterService.add(TWEET_ID, FAVORITE_COUNT, 3);
+
+		when(counterService.incrementTweetCounters(anyMap()))
+				.thenThrow(new IllegalStateException("Mongo Down"))
+				.thenReturn(Set.of());
+
+		//when
+		pendingCounterService.flush();
+
+		//then
+		assertEquals(13, pendingCounterService.overlay(Tweet.builder().id(TWEET_ID).favoriteCount(10).build())
+				.getFavoriteCount().intValue());
+
+		pendingCounterService.flush();
+		verify(counterService, times(2)).incrementTweetCounters(Map.of(TWEET_ID, Map.of(FAVORITE_COUNT, 3L)));
+		assertEquals(0, pendingCounterService.getPendingCount());
+	}
+
+	@Test
+	void flush_SomeUpdatesFail_OnlyTheirDeltasKept() {
+		//given
+		pendingCounterService.add(TWEET_ID, FAVORITE_COUNT, 3);
+		pendingCounterService.add("tweet2", RETWEET_COUNT, 2);
+
+		when(counterService.incrementTweetCounters(anyMap())).thenReturn(Set.of("tweet2")).thenReturn(Set.of());
+
+		//when
+		pendingCounterService.flush();
+
+		//then
+		assertEquals(1, pendingCounterService.getPendingCount());
+
+		pendingCounterService.flush();
+		verify(counterService, times(1)).incrementTweetCounters(Map.of("tweet2", Map.of(RETWEET_COUNT, 2L)));
+		assertEquals(0, pendingCounterService.getPendingCount());
+	}
+}
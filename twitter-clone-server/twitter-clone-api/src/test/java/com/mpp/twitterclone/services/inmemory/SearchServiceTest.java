@@ -0,0 +1,187 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.TweetableContent;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.services.mongo.TweetLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class SearchServiceTest {
+
+	SearchInMemoryService searchService;
+
+	@Mock
+	TweetRepository tweetRepository;
+
+	@Mock
+	TweetLoader tweetLoader;
+
+	LocalDateTime now;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		now = LocalDateTime.now();
+
+		// Tweets come back as bare IDs, in the order asked for
+		when(tweetLoader.findAllById(anyCollection())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0)
+				.stream()
+				.map(id -> Tweet.builder().id(id).build())
+				.collect(Collectors.toList()));
+
+		when(tweetRepository.streamAllTextOldestFirst()).thenReturn(Stream.of(
+				tweet("tweet1", "Spring boot makes java services easy", now.minusDays(30)),
+				tweet("tweet2", "java java java - all day long", now.minusDays(30)),
+				tweet("tweet3", "Coffee first, then code", now.minusDays(30)),
+				Tweet.builder().id("tweet4").createdAt(now.minusDays(30))
+						.content(Collections.singletonList(new TextContent("Kotlin on the server"))).build()));
+
+		searchService = new SearchInMemoryService(tweetRepository, tweetLoader);
+		searchService.load();
+	}
+
+	Tweet tweet(String id, String text, LocalDateTime createdAt) {
+		return Tweet.builder().id(id).text(text).createdAt(createdAt).build();
+	}
+
+	List<String> ids(List<Tweet> tweets) {
+		return tweets.stream().map(Tweet::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	void search_MatchingTerms_RankedByRelevance() {
+		//when
+		List<Tweet> tweets = searchService.search("JAVA", 10);
+
+		//then
+		assertEquals(Arrays.asList("tweet2", "tweet1"), ids(tweets));
+	}
+
+	@Test
+	void search_AnyTerm_Matched() {
+		//when
+		List<Tweet> tweets = searchService.search("coffee kotlin", 10);
+
+		//then
+		assertEquals(2, tweets.size());
+		assertTrue(ids(tweets).containsAll(Arrays.asList("tweet3", "tweet4")));
+	}
+
+	@Test
+	void search_EqualMatches_NewestFirst() {
+		//given
+		searchService.index(tweet("tweet5", "Coffee first, then code", now.minusMinutes(1)));
+
+		//when
+		List<Tweet> tweets = searchService.search("coffee", 10);
+
+		//then
+		assertEquals(Arrays.asList("tweet5", "tweet3"), ids(tweets));
+	}
+
+	@Test
+	void search_SizeGiven_Limited() {
+		//when
+		List<Tweet> tweets = searchService.search("java", 1);
+
+		//then
+		assertEquals(Collections.singletonList("tweet2"), ids(tweets));
+	}
+
+	@Test
+	void search_BlankQuery_Empty() {
+		//when
+		List<Tweet> tweets = searchService.search("  ", 10);
+
+		//then
+		assertTrue(tweets.isEmpty());
+		verify(tweetLoader, never()).findAllById(any());
+	}
+
+	@Test
+	void index_UpdatedTweet_OldTextNotFound() {
+		//when
+		searchService.index(tweet("tweet3", "Tea first, then code", now.minusDays(30)));
+
+		//then
+		assertTrue(searchService.search("coffee", 10).isEmpty());
+		assertEquals(Collections.singletonList("tweet3"), ids(searchService.search("tea", 10)));
+	}
+
+	@Test
+	void remove_IndexedTweet_NotFound() {
+		//when
+		searchService.remove("tweet2");
+
+		//then
+		assertEquals(Collections.singletonList("tweet1"), ids(searchService.search("java", 10)));
+	}
+
+	@Test
+	void merge_SealedSegments_SameResultsWithoutDeleted() {
+		//given
+		SearchIndex index = new SearchIndex(2, 2, 100);
+		long nowSeconds = 1_000_000;
+
+		for (int i = 0; i < 8; i++) {
+			index.add("tweet" + i, i % 2 == 0 ? "even java" : "odd java java", nowSeconds - i);
+		}
+		index.remove("tweet0");
+		index.remove("tweet1");
+
+		List<String> before = index.search("java", 10, nowSeconds);
+
+		//when
+		while (index.merge()) {
+			// Until merged down
+		}
+
+		//then
+		assertEquals(1, index.segmentCount());
+		assertEquals(6, index.size());
+		assertEquals(before, index.search("java", 10, nowSeconds));
+		assertEquals(Arrays.asList("tweet2", "tweet4", "tweet6"), index.search("even", 10, nowSeconds));
+	}
+
+	@Test
+	void merge_RunAboveMaxSegmentSize_NotMerged() {
+		//given
+		SearchIndex index = new SearchIndex(2, 2, 3);
+
+		for (int i = 0; i < 4; i++) index.add("tweet" + i, "java", i);
+
+		//when
+		boolean merged = index.merge();
+
+		//then
+		assertFalse(merged);
+		assertEquals(2, index.segmentCount());
+	}
+
+	@Test
+	void tokenize_MixedText_LowercasedWordsAndNumbers() {
+		//when
+		List<String> tokens = SearchIndex.tokenize("Hello, World! Java11 #spring-boot");
+
+		//then
+		assertEquals(Arrays.asList("hello", "world", "java11", "spring", "boot"), tokens);
+	}
+}
@@ -0,0 +1,323 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Follow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SocialGraphServiceTest {
+
+	SocialGraphInMemoryService socialGraphService;
+
+	@Mock
+	MongoOperations mongoOperations;
+
+	Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		MockitoAnnotations.initMocks(this);
+
+		List<Follow> follows = Arrays.asList(
+				Follow.builder().followerUserId("user1").followedUserId("user2").build(),
+				Follow.builder().followerUserId("user1").followedUserId("user3").build(),
+				Follow.builder().followerUserId("user3").followedUserId("user2").build(),
+				// Duplicate follow records are counted once
+				Follow.builder().followerUserId("user3").followedUserId("user2").build());
+
+		when(mongoOperations.stream(any(Query.class), eq(Follow.class))).thenReturn(iteratorOf(follows));
+		when(mongoOperations.count(any(Query.class), eq(Follow.class))).thenReturn(3L);
+
+		directory = Files.createTempDirectory("social-graph");
+
+		socialGraphService = new SocialGraphInMemoryService(mongoOperations, directory.toString());
+		socialGraphService.load();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		socialGraphService.close();
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	void follows_LoadedFollows_True() {
+		//then
+		assertTrue(socialGraphService.follows("user1", "user2"));
+		assertTrue(socialGraphService.follows("user3", "user2"));
+		assertFalse(socialGraphService.follows("user2", "user1"));
+		assertFalse(socialGraphService.follows("unknown", "user2"));
+		assertEquals(3, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void findFollowerIds_LoadedFollows_BothFollowers() {
+		//when
+		List<String> followers = socialGraphService.findFollowerIds("user2");
+
+		//then
+		assertEquals(new HashSet<>(Arrays.asList("user1", "user3")), new HashSet<>(followers));
+		assertEquals(2, followers.size());
+	}
+
+	@Test
+	void addFollow_NewUsers_SeenByChecksAndWalks() {
+		//when
+		socialGraphService.addFollow("user4", "user2");
+		socialGraphService.addFollow("user4", "user5");
+
+		//then
+		assertTrue(socialGraphService.follows("user4", "user5"));
+		assertTrue(socialGraphService.findFollowerIds("user2").contains("user4"));
+		assertEquals(Arrays.asList("user4"), socialGraphService.findFollowerIds("user5"));
+		assertEquals(5, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void removeFollow_LoadedAndAddedFollows_Removed() {
+		//given
+		socialGraphService.addFollow("user4", "user2");
+
+		//when
+		socialGraphService.removeFollow("user1", "user2");
+		socialGraphService.removeFollow("user4", "user2");
+
+		//then
+		assertFalse(socialGraphService.follows("user1", "user2"));
+		assertFalse(socialGraphService.follows("user4", "user2"));
+		assertEquals(Arrays.asList("user3"), socialGraphService.findFollowerIds("user2"));
+		assertEquals(Arrays.asList("user3"), socialGraphService.findFollowingIds("user1"));
+		assertEquals(2, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void addFollow_RemovedLoadedFollow_FollowsAgain() {
+		//when
+		socialGraphService.removeFollow("user1", "user2");
+		socialGraphService.addFollow("user1", "user2");
+
+		//then
+		assertTrue(socialGraphService.follows("user1", "user2"));
+		assertEquals(2, socialGraphService.findFollowingIds("user1").size());
+	}
+
+	@Test
+	void fold_Overlay_FoldedIntoAdjacencies() {
+		//given
+		SocialGraphIndex index = SocialGraphIndex.builder().add("user1", "user2").build();
+
+		for (int i = 0; i < 100; i++) index.add("follower" + i, "user2");
+		index.remove("user1", "user2");
+
+		//when
+		SocialGraphIndex.Image image = index.fold();
+
+		//then
+		assertEquals(0, index.overlaySize());
+		assertEquals(100, image.forward.edgeCount());
+		assertEquals(100, index.edgeCount());
+		assertEquals(100, index.followers("user2").size());
+		assertTrue(index.follows("follower42", "user2"));
+		assertFalse(index.follows("user1", "user2"));
+	}
+
+	@Test
+	void fold_ChangesWhileFolding_KeptInOverlay() {
+		//given
+		SocialGraphIndex index = SocialGraphIndex.builder().add("user1", "user2").add("user1", "user3").build();
+		index.add("user4", "user2");
+		index.remove("user1", "user3");
+
+		//when
+		SocialGraphIndex.Fold fold = index.startFold();
+		index.remove("user4", "user2");
+		index.add("user1", "user3");
+		index.add("user5", "user1");
+		SocialGraphIndex.Image image = fold.complete();
+
+		//then
+		// The image is the graph when the fold started, the index has the changes since on top
+		assertEquals(2, image.forward.edgeCount());
+		assertEquals(3, index.overlaySize());
+		assertEquals(3, index.edgeCount());
+		assertFalse(index.follows("user4", "user2"));
+		assertTrue(index.follows("user1", "user3"));
+		assertTrue(index.follows("user5", "user1"));
+		assertEquals(Collections.singletonList("user1"), index.followers("user2"));
+	}
+
+	@Test
+	void load_SnapshotAndDeltaLog_RestoredWithoutCollection() throws IOException {
+		//given
+		socialGraphService.addFollow("user4", "user2");
+		socialGraphService.removeFollow("user1", "user3");
+		socialGraphService.close();
+		reset(mongoOperations);
+		when(mongoOperations.stream(any(Query.class), eq(Follow.class))).thenReturn(iteratorOf(Arrays.asList()));
+		when(mongoOperations.count(any(Query.class), eq(Follow.class))).thenReturn(3L);
+
+		//when
+		socialGraphService = new SocialGraphInMemoryService(mongoOperations, directory.toString());
+		socialGraphService.load();
+
+		//then
+		verify(mongoOperations).stream(argThat(query -> query.getQueryObject().containsKey("createdAt")),
+				eq(Follow.class));
+		verify(mongoOperations, never()).stream(argThat(query -> query.getQueryObject().isEmpty()), eq(Follow.class));
+		assertTrue(socialGraphService.follows("user4", "user2"));
+		assertFalse(socialGraphService.follows("user1", "user3"));
+		assertEquals(new HashSet<>(Arrays.asList("user1", "user3", "user4")),
+				new HashSet<>(socialGraphService.findFollowerIds("user2")));
+		assertEquals(3, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void load_FollowsCreatedElsewhereSinceSnapshot_Replayed() throws IOException {
+		//given
+		socialGraphService.close();
+		reset(mongoOperations);
+		when(mongoOperations.stream(any(Query.class), eq(Follow.class))).thenReturn(iteratorOf(Arrays.asList(
+				Follow.builder().followerUserId("user5").followedUserId("user2").build())));
+		when(mongoOperations.count(any(Query.class), eq(Follow.class))).thenReturn(4L);
+
+		//when
+		socialGraphService = new SocialGraphInMemoryService(mongoOperations, directory.toString());
+		socialGraphService.load();
+
+		//then
+		verify(mongoOperations, times(1)).stream(any(Query.class), eq(Follow.class));
+		assertTrue(socialGraphService.follows("user5", "user2"));
+		assertEquals(4, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void load_SnapshotDisagreesWithCollection_ReloadedFromCollection() throws IOException {
+		//given
+		socialGraphService.close();
+		reset(mongoOperations);
+		when(mongoOperations.stream(any(Query.class), eq(Follow.class)))
+				.thenReturn(iteratorOf(Arrays.asList()))
+				.thenReturn(iteratorOf(Arrays.asList(
+						Follow.builder().followerUserId("user1").followedUserId("user2").build())));
+		when(mongoOperations.count(any(Query.class), eq(Follow.class))).thenReturn(1L);
+
+		//when
+		socialGraphService = new SocialGraphInMemoryService(mongoOperations, directory.toString());
+		socialGraphService.load();
+
+		//then
+		assertTrue(socialGraphService.follows("user1", "user2"));
+		assertFalse(socialGraphService.follows("user3", "user2"));
+		assertEquals(1, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void compact_LoggedChanges_FoldedIntoSnapshot() throws IOException {
+		//given
+		socialGraphService.addFollow("user4", "user2");
+		socialGraphService.removeFollow("user3", "user2");
+
+		//when
+		socialGraphService.compact();
+		socialGraphService.close();
+		socialGraphService = new SocialGraphInMemoryService(mongoOperations, directory.toString());
+		socialGraphService.load();
+
+		//then
+		assertEquals(0, Files.size(directory.resolve(SocialGraphInMemoryService.DELTA_LOG_FILE)));
+		assertFalse(Files.exists(directory.resolve(SocialGraphInMemoryService.RETIRED_DELTA_LOG_FILE)));
+		assertEquals(new HashSet<>(Arrays.asList("user1", "user4")),
+				new HashSet<>(socialGraphService.findFollowerIds("user2")));
+		assertEquals(3, socialGraphService.getEdgeCount());
+	}
+
+	@Test
+	void read_WrittenSnapshot_SameGraph() throws IOException {
+		//given
+		SocialGraphIndex index = SocialGraphIndex.builder()
+				.add("user1", "user2").add("user1", "user3").add("user3", "user2").build();
+		index.add("user4", "user1");
+		Path snapshot = directory.resolve("copy.snapshot");
+
+		//when
+		SocialGraphSnapshot.write(snapshot, index.fold(), 42L);
+		SocialGraphIndex read = SocialGraphSnapshot.read(snapshot);
+
+		//then
+		assertEquals(42L, SocialGraphSnapshot.createdAt(snapshot));
+		assertEquals(4, read.edgeCount());
+		assertEquals(4, read.vertexCount());
+		assertEquals(Arrays.asList("user2", "user3"), read.following("user1"));
+		assertEquals(Arrays.asList("user1", "user3"), read.followers("user2"));
+		assertTrue(read.follows("user4", "user1"));
+		assertFalse(read.follows("user2", "user1"));
+	}
+
+	@Test
+	void replay_TornRecord_StopsAtLastWholeRecord() throws IOException {
+		//given
+		Path path = directory.resolve("torn.delta");
+
+		try (SocialGraphDeltaLog deltaLog = new SocialGraphDeltaLog(path)) {
+			deltaLog.append(SocialGraphDeltaLog.FOLLOW, "user1", "user2");
+			deltaLog.append(SocialGraphDeltaLog.FOLLOW, "user2", "user3");
+		}
+		byte[] records = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(records, records.length - 2));
+
+		SocialGraphIndex index = SocialGraphIndex.builder().build();
+
+		//when
+		int applied = SocialGraphDeltaLog.replay(path, index);
+
+		//then
+		assertEquals(1, applied);
+		assertTrue(index.follows("user1", "user2"));
+		assertFalse(index.follows("user2", "user3"));
+	}
+
+	private static CloseableIterator<Follow> iteratorOf(List<Follow> follows) {
+		Iterator<Follow> iterator = follows.iterator();
+
+		return new CloseableIterator<Follow>() {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Follow next() {
+				return iterator.next();
+			}
+		};
+	}
+}
@@ -0,0 +1,177 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.HashtagSuggestion;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.TweetRepository;
+import com.mpp.twitterclone.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SuggestServiceTest {
+
+	SuggestInMemoryService suggestService;
+
+	@Mock
+	UserRepository userRepository;
+
+	@Mock
+	TweetRepository tweetRepository;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		when(userRepository.streamAll()).thenReturn(Stream.of(
+				User.builder().id("user1").username("john").name("John Doe").followersCount(10).build(),
+				User.builder().id("user2").username("johnny").name("Johnny Cash").followersCount(500).build(),
+				User.builder().id("user3").username("jane").name("José Jones").followersCount(50).build(),
+				User.builder().id("user4").username("doe").followersCount(1).build()));
+
+		when(tweetRepository.streamAllTextOldestFirst()).thenReturn(Stream.of(
+				Tweet.builder().id("tweet1").text("#java and #javascript").build(),
+				Tweet.builder().id("tweet2").text("More #JavaScript").build(),
+				Tweet.builder().id("tweet3").text("No hashtags").build()));
+
+		suggestService = new SuggestInMemoryService(userRepository, tweetRepository);
+		suggestService.load();
+	}
+
+	List<String> ids(List<User> users) {
+		return users.stream().map(User::getId).collect(Collectors.toList());
+	}
+
+	List<String> hashtags(List<HashtagSuggestion> suggestions) {
+		return suggestions.stream().map(HashtagSuggestion::getHashtag).collect(Collectors.toList());
+	}
+
+	@Test
+	void suggestUsers_SharedPrefix_MostFollowedFirst() {
+		//when
+		List<User> users = suggestService.suggestUsers("Jo", 10);
+
+		//then
+		assertEquals(Arrays.asList("user2", "user3", "user1"), ids(users));
+		assertEquals("johnny", users.get(0).getUsername());
+	}
+
+	@Test
+	void suggestUsers_WordOfName_Found() {
+		//when
+		List<User> users = suggestService.suggestUsers("do", 10);
+
+		//then
+		assertEquals(Arrays.asList("user1", "user4"), ids(users));
+	}
+
+	@Test
+	void suggestUsers_AccentsAndCase_Ignored() {
+		//when
+		List<User> users = suggestService.suggestUsers("JOSE  j", 10);
+
+		//then
+		assertEquals(Collections.singletonList("user3"), ids(users));
+	}
+
+	@Test
+	void suggestUsers_PrefixInsideEdge_Found() {
+		//when
+		List<User> users = suggestService.suggestUsers("johnn", 10);
+
+		//then
+		assertEquals(Collections.singletonList("user2"), ids(users));
+	}
+
+	@Test
+	void suggestUsers_NoMatchOrBlank_Empty() {
+		assertTrue(suggestService.suggestUsers("xyz", 10).isEmpty());
+		assertTrue(suggestService.suggestUsers("joz", 10).isEmpty());
+		assertTrue(suggestService.suggestUsers(" ", 10).isEmpty());
+	}
+
+	@Test
+	void suggestUsers_SizeGiven_Limited() {
+		//when
+		List<User> users = suggestService.suggestUsers("j", 1);
+
+		//then
+		assertEquals(Collections.singletonList("user2"), ids(users));
+	}
+
+	@Test
+	void index_RenamedUser_OldKeysGone() {
+		//when
+		suggestService.index(User.builder().id("user4").username("dan").followersCount(1).build());
+
+		//then
+		assertEquals(Collections.singletonList("user4"), ids(suggestService.suggestUsers("da", 10)));
+		assertEquals(Collections.singletonList("user1"), ids(suggestService.suggestUsers("doe", 10)));
+	}
+
+	@Test
+	void index_MoreFollowers_RankedHigher() {
+		//when
+		suggestService.index(User.builder().id("user1").username("john").name("John Doe").followersCount(1000).build());
+
+		//then
+		assertEquals(Arrays.asList("user1", "user2", "user3"), ids(suggestService.suggestUsers("jo", 10)));
+	}
+
+	@Test
+	void remove_IndexedUser_NotSuggestedAndTrieCompacted() {
+		//given
+		SuggestTrie trie = new SuggestTrie(10);
+		trie.add("john", "user1", 1);
+		trie.add("johnny", "user2", 2);
+		int nodeCount = trie.nodeCount();
+
+		//when
+		suggestService.remove("user2");
+		trie.remove("johnny", "user2");
+
+		//then
+		assertEquals(Collections.singletonList("user1"), ids(suggestService.suggestUsers("john", 10)));
+		assertEquals(nodeCount - 1, trie.nodeCount());
+		assertEquals(Collections.singletonList("user1"), trie.find("jo", 10));
+	}
+
+	@Test
+	void suggestHashtags_SharedPrefix_MostUsedFirst() {
+		//when
+		List<HashtagSuggestion> suggestions = suggestService.suggestHashtags("#Ja", 10);
+
+		//then
+		assertEquals(Arrays.asList("javascript", "java"), hashtags(suggestions));
+		assertEquals(2, suggestions.get(0).getCount());
+		assertEquals(1, suggestions.get(1).getCount());
+	}
+
+	@Test
+	void suggestHashtags_NoMatchOrBlank_Empty() {
+		assertTrue(suggestService.suggestHashtags("#kotlin", 10).isEmpty());
+		assertTrue(suggestService.suggestHashtags("#", 10).isEmpty());
+	}
+
+	@Test
+	void recordHashtags_NewTweets_CountedAndReranked() {
+		//when
+		suggestService.recordHashtags(Tweet.builder().id("tweet4").text("#java #java #jvm").build());
+		suggestService.recordHashtags(Tweet.builder().id("tweet5").text("#Java").build());
+
+		//then
+		List<HashtagSuggestion> suggestions = suggestService.suggestHashtags("#j", 10);
+		assertEquals(Arrays.asList("java", "javascript", "jvm"), hashtags(suggestions));
+		assertEquals(3, suggestions.get(0).getCount());
+	}
+}
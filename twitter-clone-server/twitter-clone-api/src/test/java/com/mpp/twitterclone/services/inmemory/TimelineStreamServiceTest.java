@@ -0,0 +1,188 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Tweet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineStreamServiceTest {
+
+	public static final String USER_ID = "user1";
+
+	TimelineStreamInMemoryService timelineStreamService;
+
+	// Collects drain tasks instead of running them, to act as a consumer that doesn't keep up
+	List<Runnable> drainTasks;
+
+	@BeforeEach
+	void setUp() {
+		timelineStreamService = new TimelineStreamInMemoryService();
+		drainTasks = new ArrayList<>();
+	}
+
+	@AfterEach
+	void tearDown() {
+		timelineStreamService.shutdown();
+	}
+
+	@Test
+	void subscribe_TwoConnections_CountedPerConnection() {
+		//when
+		SseEmitter emitter1 = timelineStreamService.subscribe(USER_ID);
+		SseEmitter emitter2 = timelineStreamService.subscribe(USER_ID);
+		timelineStreamService.subscribe("user2");
+
+		//then
+		assertNotSame(emitter1, emitter2);
+		assertEquals(Long.valueOf(TimelineStreamInMemoryService.STREAM_TIMEOUT), emitter1.getTimeout());
+		assertEquals(3, timelineStreamService.getSubscriptionCount());
+	}
+
+	@Test
+	void offer_SlowConsumer_OldestDroppedAndCounted() {
+		//given
+		TimelineSubscription subscription = new TimelineSubscription(USER_ID, new SseEmitter(), 4, drainTasks::add);
+
+		//when
+		for (int i = 0; i < 10; i++) subscription.offer(Tweet.builder().id("tweet" + i).build());
+
+		//then
+		assertEquals(4, subscription.getBuffered());
+		assertEquals(6, subscription.getMissed());
+		// A single drain task no matter how many tweets were offered
+		assertEquals(1, drainTasks.size());
+	}
+
+	@Test
+	void offer_Drained_BufferEmptiedAndGapReset() {
+		//given
+		TimelineSubscription subscription = new TimelineSubscription(USER_ID, new SseEmitter(), 4, drainTasks::add);
+
+		for (int i = 0; i < 6; i++) subscription.offer(Tweet.builder().id("tweet" + i).build());
+
+		//when
+		drainTasks.get(0).run();
+
+		//then
+		assertEquals(0, subscription.getBuffered());
+		assertEquals(0, subscription.getMissed());
+		assertFalse(subscription.isClosed());
+
+		// The next tweet schedules a new drain
+		subscription.offer(Tweet.builder().id("tweet6").build());
+		assertEquals(2, drainTasks.size());
+	}
+
+	@Test
+	void offer_ClosedSubscription_Ignored() {
+		//given
+		TimelineSubscription subscription = new TimelineSubscription(USER_ID, new SseEmitter(), 4, drainTasks::add);
+		subscription.close();
+
+		//when
+		subscription.offer(Tweet.builder().id("tweet1").build());
+
+		//then
+		assertEquals(0, subscription.getBuffered());
+		assertTrue(drainTasks.isEmpty());
+	}
+
+	@Test
+	void dropStalled_BlockedWrites_DroppedAndOthersStillServed() throws Exception {
+		//given
+		CountDownLatch released = new CountDownLatch(1);
+		CountDownLatch stalledWrites = new CountDownLatch(TimelineStreamInMemoryService.DRAIN_THREADS);
+		List<TimelineSubscription> stalled = new ArrayList<>();
+
+		// Every drain thread blocked on a client that doesn't read
+		for (int i = 0; i < TimelineStreamInMemoryService.DRAIN_THREADS; i++) {
+			stalled.add(timelineStreamService.register("stalled" + i, new SseEmitter() {
+				@Override
+				public void send(SseEventBuilder builder) throws IOException {
+					stalledWrites.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException ex) {
+						throw new IOException(ex);
+					}
+				}
+			}));
+			timelineStreamService.publish(Tweet.builder().id("tweet" + i).build(),
+					Collections.singletonList("stalled" + i));
+		}
+
+		assertTrue(stalledWrites.await(5, TimeUnit.SECONDS));
+
+		CountDownLatch delivered = new CountDownLatch(1);
+		timelineStreamService.register(USER_ID, new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) {
+				delivered.countDown();
+			}
+		});
+		timelineStreamService.publish(Tweet.builder().id("tweet").build(), Collections.singletonList(USER_ID));
+
+		//when
+		timelineStreamService.dropStalled(System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(TimelineStreamInMemoryService.WRITE_TIMEOUT) + 1);
+
+		//then
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertTrue(stalled.stream().allMatch(TimelineSubscription::isClosed));
+		assertEquals(1, timelineStreamService.getSubscriptionCount());
+		assertEquals(2 * TimelineStreamInMemoryService.DRAIN_THREADS, timelineStreamService.getDrainThreads());
+
+		// The lent threads are given back once the blocked writes return
+		released.countDown();
+		for (int i = 0; i < 50; i++) {
+			if (timelineStreamService.getDrainThreads() == TimelineStreamInMemoryService.DRAIN_THREADS) break;
+			Thread.sleep(100);
+		}
+		assertEquals(TimelineStreamInMemoryService.DRAIN_THREADS, timelineStreamService.getDrainThreads());
+	}
+
+	@Test
+	void dropStalled_WriteWithinTimeout_Kept() {
+		//given
+		TimelineSubscription subscription = timelineStreamService.register(USER_ID, new SseEmitter());
+
+		//when
+		timelineStreamService.dropStalled(System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(TimelineStreamInMemoryService.WRITE_TIMEOUT) + 1);
+
+		//then
+		assertFalse(subscription.isClosed());
+		assertEquals(1, timelineStreamService.getSubscriptionCount());
+	}
+
+	@Test
+	void lendThread_MoreStallsThanMax_LentThreadsCapped() {
+		//given
+		int stalls = TimelineStreamInMemoryService.MAX_LENT_THREADS + 10;
+
+		//when
+		for (int i = 0; i < stalls; i++) timelineStreamService.lendThread();
+
+		//then
+		assertEquals(TimelineStreamInMemoryService.DRAIN_THREADS + TimelineStreamInMemoryService.MAX_LENT_THREADS,
+				timelineStreamService.getDrainThreads());
+
+		// The threads past the max were never lent, so the first returns give none back
+		for (int i = 0; i < 10; i++) timelineStreamService.returnThread();
+		assertEquals(TimelineStreamInMemoryService.DRAIN_THREADS + TimelineStreamInMemoryService.MAX_LENT_THREADS,
+				timelineStreamService.getDrainThreads());
+
+		for (int i = 10; i < stalls; i++) timelineStreamService.returnThread();
+		assertEquals(TimelineStreamInMemoryService.DRAIN_THREADS, timelineStreamService.getDrainThreads());
+	}
+}
@@ -0,0 +1,162 @@
+package com.mpp.twitterclone.services.inmemory;
+
+import com.mpp.twitterclone.model.Trend;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.tweetcontents.TextContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendServiceTest {
+
+	TrendInMemoryService trendService;
+
+	LocalDateTime now;
+
+	@BeforeEach
+	void setUp() {
+		trendService = new TrendInMemoryService();
+
+		now = LocalDateTime.of(2019, 10, 1, 12, 30);
+	}
+
+	void record(String text, int times, LocalDateTime createdAt) {
+		for (int i = 0; i < times; i++) trendService.record(Tweet.builder().text(text).createdAt(createdAt).build());
+	}
+
+	List<String> hashtags(List<Trend> trends) {
+		return trends.stream().map(Trend::getHashtag).collect(Collectors.toList());
+	}
+
+	@Test
+	void findTrends_BurstOverBaseline_RankedByVelocity() {
+		//given
+		// Steady all day - about 10 every five minutes
+		for (int minutes = 5; minutes < 23 * 60; minutes += 5) record("#coffee time", 10, now.minusMinutes(minutes));
+		record("#coffee time", 10, now);
+
+		// Quiet until now
+		record("Release day #Spring #java", 15, now.minusMinutes(1));
+
+		//when
+		trendService.refresh(now);
+		List<Trend> trends = trendService.findTrends(10);
+
+		//then
+		assertEquals(Arrays.asList("java", "spring"), hashtags(trends));
+		assertEquals(15, trends.get(0).getLastFiveMinutes());
+		assertEquals(15, trends.get(0).getLastHour());
+		assertEquals(15, trends.get(0).getLastDay());
+	}
+
+	@Test
+	void findTrends_BelowMinCount_NotTrending() {
+		//given
+		record("#rare", TrendInMemoryService.MIN_COUNT - 1, now);
+
+		//when
+		trendService.refresh(now);
+
+		//then
+		assertTrue(trendService.findTrends(10).isEmpty());
+	}
+
+	@Test
+	void findTrends_OutsideFiveMinutes_NotTrending() {
+		//given
+		record("#yesterday", 50, now.minusMinutes(30));
+
+		//when
+		trendService.refresh(now);
+
+		//then
+		assertTrue(trendService.findTrends(10).isEmpty());
+	}
+
+	@Test
+	void findTrends_BeforeRefresh_PreviousSnapshot() {
+		//given
+		record("#news", 10, now);
+
+		//when
+		List<Trend> trends = trendService.findTrends(10);
+
+		//then
+		assertTrue(trends.isEmpty());
+	}
+
+	@Test
+	void findTrends_SizeGiven_Limited() {
+		//given
+		record("#one #two #three", 10, now);
+		trendService.refresh(now);
+
+		//when
+		List<Trend> trends = trendService.findTrends(2);
+
+		//then
+		assertEquals(2, trends.size());
+	}
+
+	@Test
+	void record_SlotComesRoundAgain_OldCountsCleared() {
+		//given
+		record("#again", 10, now.minusHours(1));
+
+		//when
+		record("#again", 5, now);
+		trendService.refresh(now);
+
+		//then
+		List<Trend> trends = trendService.findTrends(10);
+		assertEquals(1, trends.size());
+		assertEquals(5, trends.get(0).getLastFiveMinutes());
+		assertEquals(5, trends.get(0).getLastHour());
+	}
+
+	@Test
+	void hashtags_TextAndContent_LowercasedOncePerTweet() {
+		//given
+		Tweet tweet = Tweet.builder().text("#Java and #java, not an email a#b or #")
+				.content(Collections.singletonList(new TextContent("#Spring_Boot"))).build();
+
+		//then
+		assertEquals(Arrays.asList("java", "spring_boot"), Arrays.asList(
+				TrendInMemoryService.hashtags(tweet).toArray(new String[0])));
+	}
+
+	@Test
+	void heavyHitters_ManyRareKeys_FrequentKeyKept() {
+		//given
+		HeavyHitters heavyHitters = new HeavyHitters(10);
+
+		//when
+		for (int i = 0; i < 1000; i++) {
+			heavyHitters.add("frequent");
+			heavyHitters.add("rare" + i);
+		}
+
+		//then
+		assertTrue(heavyHitters.keys().contains("frequent"));
+		assertTrue(heavyHitters.keys().size() <= 10);
+	}
+
+	@Test
+	void countMinSketch_ManyKeys_NeverUnderestimates() {
+		//given
+		CountMinSketch sketch = new CountMinSketch(4, 64);
+
+		//when
+		for (int i = 0; i < 500; i++) sketch.add("key" + i, i % 7 + 1);
+
+		//then
+		for (int i = 0; i < 500; i++) assertTrue(sketch.estimate("key" + i) >= i % 7 + 1);
+	}
+}
@@ -0,0 +1,201 @@
+package com.mpp.twitterclone.services.mongo;
+
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BatchLoaderTest {
+
+	public static final String ID = "user1";
+	public static final String USERNAME = "test";
+
+	UserLoader userLoader;
+
+	SimpleMeterRegistry meterRegistry;
+
+	@Mock
+	UserRepository userRepository;
+
+	ServletRequestAttributes requestAttributes;
+
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.initMocks(this);
+
+		meterRegistry = new SimpleMeterRegistry();
+		userLoader = new UserLoader(userRepository, meterRegistry);
+
+		requestAttributes = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(requestAttributes);
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void findByUsername_RepeatedInRequest_LoadedOnce() {
+		//given
+		when(userRepository.findByUsername(anyString()))
+				.thenReturn(Optional.of(User.builder().id(ID).username(USERNAME).build()));
+
+		//when
+		userLoader.findByUsername(USERNAME);
+		userLoader.findByUsername(USERNAME);
+		Optional<User> user = userLoader.findById(ID);
+
+		//then
+		assertEquals(USERNAME, user.get().getUsername());
+		assertEquals(2, BatchLoader.getRoundTripsAvoided());
+
+		verify(userRepository, times(1)).findByUsername(USERNAME);
+		verify(userRepository, never()).findById(anyString());
+	}
+
+	@Test
+	void findAllById_DuplicateAndMemoizedIds_OneQueryForTheRest() {
+		//given
+		when(userRepository.findById(ID)).thenReturn(Optional.of(User.builder().id(ID).build()));
+		when(userRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(
+				User.builder().id("user3").build(), User.builder().id("user2").build()));
+
+		userLoader.findById(ID);
+
+		//when
+		List<User> users = userLoader.findAllById(Arrays.asList("user2", ID, "user3", "user2", "missing"));
+
+		//then
+		assertEquals(4, users.size());
+		assertEquals("user2", users.get(0).getId());
+		assertEquals(ID, users.get(1).getId());
+		assertEquals("user3", users.get(2).getId());
+
+		// 6 loads in 2 queries
+		assertEquals(4, BatchLoader.getRoundTripsAvoided());
+
+		verify(userRepository, times(1)).findAllById(Arrays.asList("user2", "user3", "missing"));
+	}
+
+	@Test
+	void findById_MissingUser_MissRemembered() {
+		//when
+		userLoader.findById(ID);
+		Optional<User> user = userLoader.findById(ID);
+
+		//then
+		assertFalse(user.isPresent());
+
+		verify(userRepository, times(1)).findById(ID);
+	}
+
+	@Test
+	void findById_AfterClear_LoadedAgain() {
+		//given
+		User user = User.builder().id(ID).username(USERNAME).build();
+
+		when(userRepository.findById(anyString())).thenReturn(Optional.of(user));
+
+		userLoader.findById(ID);
+
+		//when
+		userLoader.clear(user);
+		userLoader.findById(ID);
+
+		//then
+		verify(userRepository, times(2)).findById(ID);
+	}
+
+	@Test
+	void findById_OutsideRequest_NotMemoizedButCached() {
+		//given
+		RequestContextHolder.resetRequestAttributes();
+
+		when(userRepository.findById(anyString()))
+				.thenReturn(Optional.of(User.builder().id(ID).username(USERNAME).build()));
+
+		//when
+		userLoader.findById(ID);
+		userLoader.findById(ID);
+
+		//then
+		assertEquals(0, BatchLoader.getRoundTripsAvoided());
+
+		verify(userRepository, times(1)).findById(ID);
+	}
+
+	@Test
+	void findByUsername_LaterRequests_ServedFromCache() {
+		//given
+		when(userRepository.findByUsername(anyString()))
+				.thenReturn(Optional.of(User.builder().id(ID).username(USERNAME).build()));
+
+		userLoader.findByUsername(USERNAME);
+
+		//when
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		Optional<User> user = userLoader.findByUsername(USERNAME);
+
+		//then
+		assertEquals(ID, user.get().getId());
+		assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users.by.username").tag("result", "hit")
+				.functionCounter().count());
+
+		verify(userRepository, times(1)).findByUsername(USERNAME);
+	}
+
+	@Test
+	void findAllById_SomeCached_RestInOneQuery() {
+		//given
+		when(userRepository.findById(ID)).thenReturn(Optional.of(User.builder().id(ID).build()));
+		when(userRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(User.builder().id("user2").build()));
+
+		userLoader.findById(ID);
+
+		//when
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		List<User> users = userLoader.findAllById(Arrays.asList("user2", ID));
+
+		//then
+		assertEquals(2, users.size());
+		assertEquals("user2", users.get(0).getId());
+		assertEquals(ID, users.get(1).getId());
+
+		verify(userRepository, times(1)).findAllById(Arrays.asList("user2"));
+	}
+
+	@Test
+	void findByUsername_ClearedInEarlierRequest_LoadedAgain() {
+		//given
+		User user = User.builder().id(ID).username(USERNAME).build();
+
+		when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
+
+		userLoader.findByUsername(USERNAME);
+		userLoader.clear(user);
+
+		//when
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		userLoader.findByUsername(USERNAME);
+
+		//then
+		verify(userRepository, times(2)).findByUsername(USERNAME);
+	}
+}
@@ -11,6 +11,8 @@ import com.mpp.twitterclone.repositories.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,10 +22,13 @@ import java.util.HashSet;
 
 /**
  * Created by Jonathan on 9/13/2019.
+ *
+ * Runs ahead of the other context refresh listeners, so the in-memory indexes loaded on it see the seeded data.
  */
 
 @Slf4j
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class TwitterCloneBootstrap implements ApplicationListener<ContextRefreshedEvent> {
 
 	private final FavoriteRepository favoriteRepository;
@@ -0,0 +1,9 @@
+package com.mpp.twitterclone.enums;
+
+/**
+ * What a leaderboard counts - every change so far, or only those of the current day
+ */
+
+public enum LeaderboardWindow {
+	ALL_TIME, DAY
+}
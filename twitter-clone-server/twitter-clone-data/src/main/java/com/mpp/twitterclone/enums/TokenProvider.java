@@ -8,6 +8,7 @@ public enum TokenProvider {
 	SECRET_KEY("Twitter-Clone-MPP-Project-1"),
 	TOKEN_HEADER("Authorization"),
 	TOKEN_PREFIX("Bearer "),
+	TOKEN_SUBPROTOCOL("bearer"), // WebSocket clients that can't set headers send "bearer, <token>" as subprotocols
 	TOKEN_VALIDITY_DURATION("604800000"); // Parse to Integer before use. Valid for 1 week.
 
 	String val;
@@ -0,0 +1,41 @@
+package com.mpp.twitterclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tweet in its thread - the tweets it replies to, root first, and a tree of the replies under it, each level
+ * oldest first and cut to a number of replies
+ */
+
+@Data
+@Builder
+public class Conversation {
+
+	@Builder.Default
+	private List<Tweet> ancestors = new ArrayList<>();
+
+	private Tweet tweet;
+
+	@Builder.Default
+	private List<Reply> replies = new ArrayList<>();
+
+	// Whether the tweet has more direct replies than listed
+	private boolean moreReplies;
+
+	@Data
+	@AllArgsConstructor
+	public static class Reply {
+
+		private Tweet tweet;
+
+		private List<Reply> replies;
+
+		// Whether the reply has more replies than listed, also when its level is past the depth
+		private boolean moreReplies;
+	}
+}
@@ -0,0 +1,59 @@
+package com.mpp.twitterclone.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset paginated list with the encoded cursors of its neighbouring pages
+ */
+
+@Data
+@Builder
+public class CursorPage<T> {
+
+	@Builder.Default
+	private List<T> content = new ArrayList<>();
+
+	// Cursor of the page with older items, null on the last page
+	private String next;
+
+	// Cursor of the page with newer items, null on the first page
+	private String previous;
+
+	/**
+	 * Build a page out of at most size + 1 rows fetched in the direction of the cursor - newest first for
+	 * the first page and NEXT cursors, oldest first for PREVIOUS cursors. The extra row only tells whether
+	 * there is another page in that direction.
+	 */
+	public static <T> CursorPage<T> of(List<T> rows, PageCursor cursor, int size,
+	                                   Function<T, LocalDateTime> createdAt, Function<T, String> id) {
+		boolean backwards = cursor != null && cursor.isPrevious();
+		boolean hasMore = rows.size() > size;
+
+		List<T> content = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+		if (backwards) Collections.reverse(content);
+
+		CursorPageBuilder<T> page = CursorPage.<T>builder().content(content);
+
+		if (content.isEmpty()) return page.build();
+
+		T first = content.get(0);
+		T last = content.get(content.size() - 1);
+
+		// Older items exist past the last one when there are more rows forward, or when we came back from them
+		if (backwards || hasMore)
+			page.next(PageCursor.next(createdAt.apply(last), id.apply(last)).encode());
+
+		// Newer items exist before the first one when there are more rows backwards, or when we came from them
+		if (backwards ? hasMore : cursor != null)
+			page.previous(PageCursor.previous(createdAt.apply(first), id.apply(first)).encode());
+
+		return page.build();
+	}
+}
@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -17,6 +19,8 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Document(collection = "favorites")
+@CompoundIndex(name = "user_id_tweet_id", // A favorite is recorded once - see favoriteTweet()
+		def = "{'user_id': 1, 'tweet_id': 1}", unique = true)
 public class Favorite {
 	@Id
 	private String id;
@@ -29,6 +33,7 @@ public class Favorite {
 	@Field(value = "tweet_id")
 	private String tweetId;
 
+	@Indexed // Daily leaderboards - see LeaderboardInMemoryService
 	@Field(value = "created_at")
 	@CreatedDate
 	@Builder.Default
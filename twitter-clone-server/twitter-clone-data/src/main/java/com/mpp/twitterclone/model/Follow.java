@@ -4,6 +4,9 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -17,6 +20,14 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Document(collection = "follows")
+@CompoundIndexes({ // Keyset pagination of follower/following lists - see PageCursor
+		@CompoundIndex(name = "follower_user_id_followed_user_id", // A follow is recorded once - see followUser()
+				def = "{'follower_user_id': 1, 'followed_user_id': 1}", unique = true),
+		@CompoundIndex(name = "follower_user_id_created_at",
+				def = "{'follower_user_id': 1, 'created_at': -1, '_id': -1}"),
+		@CompoundIndex(name = "followed_user_id_created_at",
+				def = "{'followed_user_id': 1, 'created_at': -1, '_id': -1}")
+})
 public class Follow {
 	@Id
 	private String id;
@@ -29,6 +40,7 @@ public class Follow {
 	@Field(value = "followed_user_id")
 	private String followedUserId;
 
+	@Indexed // Daily leaderboards - see LeaderboardInMemoryService
 	@Field(value = "created_at")
 	@CreatedDate
 	@Builder.Default
@@ -0,0 +1,24 @@
+package com.mpp.twitterclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.hateoas.core.Relation;
+
+/**
+ * A hashtag starting with a typed prefix, and how many tweets used it
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Relation(collectionRelation = "hashtags")
+public class HashtagSuggestion {
+
+	// Lowercased, without the '#'
+	private String hashtag;
+
+	private long count;
+}
@@ -0,0 +1,25 @@
+package com.mpp.twitterclone.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of a fan-out-on-read timeline along with how much work it took to assemble it
+ */
+
+@Data
+@Builder
+public class MergedTimeline {
+
+	@Builder.Default
+	private List<Tweet> tweets = new ArrayList<>();
+
+	// Number of authors whose cursors were merged
+	private int authorFanIn;
+
+	// Number of tweet documents read from the database
+	private int documentsExamined;
+}
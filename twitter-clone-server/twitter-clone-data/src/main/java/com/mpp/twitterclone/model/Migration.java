@@ -0,0 +1,31 @@
+package com.mpp.twitterclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * A one-off data migration that has run to completion, so it isn't run again on the next start
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "migrations")
+public class Migration {
+
+	// Name of the migration
+	@Id
+	private String id;
+
+	@Field(value = "completed_at")
+	@Builder.Default
+	private LocalDateTime completedAt = LocalDateTime.now();
+}
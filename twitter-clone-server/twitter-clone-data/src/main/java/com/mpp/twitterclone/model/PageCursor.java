@@ -0,0 +1,78 @@
+package com.mpp.twitterclone.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position used for cursor based pagination, ordered by (created_at, _id) newest first.
+ *
+ * A NEXT cursor points at older documents than its position and a PREVIOUS cursor at newer ones.
+ * Clients only ever see the opaque encoded form.
+ */
+
+@Data
+@Builder
+public class PageCursor {
+
+	public enum Direction {
+		NEXT, PREVIOUS
+	}
+
+	private static final String SEPARATOR = "|";
+
+	private Direction direction;
+
+	private LocalDateTime createdAt;
+
+	private String id;
+
+	public static PageCursor next(LocalDateTime createdAt, String id) {
+		return PageCursor.builder().direction(Direction.NEXT).createdAt(createdAt).id(id).build();
+	}
+
+	public static PageCursor previous(LocalDateTime createdAt, String id) {
+		return PageCursor.builder().direction(Direction.PREVIOUS).createdAt(createdAt).id(id).build();
+	}
+
+	public boolean isPrevious() {
+		return direction == Direction.PREVIOUS;
+	}
+
+	public String encode() {
+		String value = direction.name().charAt(0) + SEPARATOR + createdAt + SEPARATOR + id;
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the value isn't a cursor produced by encode()
+	 */
+	public static PageCursor decode(String cursor) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+					.split("\\" + SEPARATOR, 3);
+
+			if (parts.length != 3 || parts[2].isEmpty()) throw new IllegalArgumentException("Invalid Cursor");
+
+			Direction direction;
+			switch (parts[0]) {
+				case "N": direction = Direction.NEXT; break;
+				case "P": direction = Direction.PREVIOUS; break;
+				default: throw new IllegalArgumentException("Invalid Cursor");
+			}
+
+			return PageCursor.builder()
+					.direction(direction)
+					.createdAt(LocalDateTime.parse(parts[1]))
+					.id(parts[2])
+					.build();
+		} catch (DateTimeParseException ex) {
+			throw new IllegalArgumentException("Invalid Cursor", ex);
+		}
+	}
+}
@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -17,6 +19,8 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Document(collection = "retweets")
+@CompoundIndex(name = "user_id_tweet_id", // A retweet is recorded once - see retweetTweet()
+		def = "{'user_id': 1, 'tweet_id': 1}", unique = true)
 public class Retweet {
 
 	@Id
@@ -27,9 +31,11 @@ public class Retweet {
 	private String userId;
 
 	@NotEmpty(message = "Tweet ID Cannot be Empty")
+	@Indexed // Users still retweeting a tweet - see TimelineMongoService.removeRetweet()
 	@Field(value = "tweet_id")
 	private String tweetId;
 
+	@Indexed // Daily leaderboards - see LeaderboardInMemoryService
 	@Field(value = "created_at")
 	@CreatedDate
 	@Builder.Default
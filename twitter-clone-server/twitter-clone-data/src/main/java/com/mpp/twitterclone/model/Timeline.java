@@ -0,0 +1,26 @@
+package com.mpp.twitterclone.model;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialized home timeline of a user, keyed by the user ID.
+ *
+ * Entries are kept newest first and bounded by the fan-out service.
+ */
+
+@Data
+@Builder
+@Document(collection = "timelines")
+public class Timeline {
+	@Id
+	private String id;
+
+	@Builder.Default
+	private List<TimelineEntry> entries = new ArrayList<>();
+}
@@ -0,0 +1,34 @@
+package com.mpp.twitterclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single tweet reference inside a materialized home timeline
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntry {
+
+	@Indexed
+	@Field(value = "tweet_id")
+	private String tweetId;
+
+	private String owner;
+
+	// Username of the followed user whose retweet put the tweet on the timeline - null for their own tweets
+	@Field(value = "retweeted_by")
+	private String retweetedBy;
+
+	@Field(value = "created_at")
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,31 @@
+package com.mpp.twitterclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.hateoas.core.Relation;
+
+/**
+ * A trending hashtag - its estimated uses over the recent windows, and how far the last five minutes are above
+ * its usual rate
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Relation(collectionRelation = "trends")
+public class Trend {
+
+	// Lowercased, without the '#'
+	private String hashtag;
+
+	private double score;
+
+	private long lastFiveMinutes;
+
+	private long lastHour;
+
+	private long lastDay;
+}
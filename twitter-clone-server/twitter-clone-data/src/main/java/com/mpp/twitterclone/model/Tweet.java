@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.hateoas.core.Relation;
@@ -20,8 +22,21 @@ import java.util.List;
  */
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Document(collection = "tweets")
+@CompoundIndexes({ // Keyset pagination - see PageCursor
+		@CompoundIndex(name = "created_at", def = "{'created_at': -1, '_id': -1}"),
+		@CompoundIndex(name = "owner_created_at", def = "{'owner': 1, 'created_at': -1, '_id': -1}"),
+		@CompoundIndex(name = "parent_id_created_at", def = "{'parent_id': 1, 'created_at': -1, '_id': -1}"),
+		// Threads - a range of levels of one conversation, oldest first
+		@CompoundIndex(name = "conversation_id_depth_created_at",
+				def = "{'conversation_id': 1, 'depth': 1, 'created_at': 1, '_id': 1}"),
+		// Mentions tab - an entry per mentioned user
+		@CompoundIndex(name = "mentions_created_at", def = "{'mentions': 1, 'created_at': -1, '_id': -1}"),
+		// All-time leaderboards - see LeaderboardInMemoryService
+		@CompoundIndex(name = "favorite_count", def = "{'favorite_count': -1}"),
+		@CompoundIndex(name = "retweet_count", def = "{'retweet_count': -1}")
+})
 @Relation(collectionRelation = "tweets") // To rename the default spring HATEOAS embedded list
 public class Tweet {
 	@Id
@@ -36,9 +51,20 @@ public class Tweet {
 	@NotEmpty(message = "Username is Required")
 	private String owner;
 
+	// Usernames of the users mentioned in the text, set when the tweet is written
+	private List<String> mentions;
+
 	@Field(value = "parent_id")
 	private String parentId;
 
+	// ID of the tweet at the root of the thread - null on the root itself
+	@Field(value = "conversation_id")
+	private String conversationId;
+
+	// Replies between the tweet and the root of its thread
+	@Builder.Default
+	private Integer depth = 0;
+
 	@NotEmpty(message = "Tweet Source is Required")
 	private TweetSource source;
 
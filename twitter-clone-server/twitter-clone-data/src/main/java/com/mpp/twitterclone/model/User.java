@@ -9,6 +9,7 @@ import lombok.Data;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.IndexDirection;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -79,6 +80,7 @@ public class User implements UserDetails {
 
 	private Boolean verified;
 
+	@Indexed(direction = IndexDirection.DESCENDING) // All-time leaderboard - see LeaderboardInMemoryService
 	@Field(value = "followers_count")
 	@Builder.Default
 	private Integer followersCount = 0;
@@ -13,5 +13,5 @@ import java.util.Optional;
 @Repository
 public interface FavoriteRepository extends MongoRepository<Favorite, String> {
 	Optional<Favorite> findByUserIdAndTweetId(String userId, String tweetId);
-	void deleteByUserIdAndAndTweetId(String userId, String tweetId);
+	Long deleteByUserIdAndAndTweetId(String userId, String tweetId);
 }
@@ -10,9 +10,9 @@ import java.util.Optional;
  * Created by Jonathan on 9/12/2019.
  */
 
-public interface FollowRepository extends MongoRepository<Follow, String> {
+public interface FollowRepository extends MongoRepository<Follow, String>, FollowRepositoryCustom {
 	List<Follow> findAllByFollowerUserId(String id);
 	List<Follow> findAllByFollowedUserId(String id);
 	Optional<Follow> findByFollowerUserIdAndFollowedUserId(String followerId, String followedId);
-	void deleteByFollowerUserIdAndAndFollowedUserId(String followerId, String followedId);
+	Long deleteByFollowerUserIdAndAndFollowedUserId(String followerId, String followedId);
 }
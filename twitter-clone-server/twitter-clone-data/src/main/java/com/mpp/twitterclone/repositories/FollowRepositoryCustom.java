@@ -0,0 +1,15 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
+
+import java.util.List;
+
+/**
+ * Keyset pages of follow edges - see {@link PageCursor} for the order of the results
+ */
+
+public interface FollowRepositoryCustom {
+	List<Follow> findFollowersPage(String followedUserId, PageCursor cursor, int limit);
+	List<Follow> findFollowingPage(String followerUserId, PageCursor cursor, int limit);
+}
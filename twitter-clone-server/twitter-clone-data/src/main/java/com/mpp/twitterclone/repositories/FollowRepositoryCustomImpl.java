@@ -0,0 +1,34 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (created_at, _id) queries over follow edges
+ */
+
+public class FollowRepositoryCustomImpl implements FollowRepositoryCustom {
+
+	private final MongoOperations mongoOperations;
+
+	public FollowRepositoryCustomImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Override
+	public List<Follow> findFollowersPage(String followedUserId, PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(where("followedUserId").is(followedUserId), cursor, limit),
+				Follow.class);
+	}
+
+	@Override
+	public List<Follow> findFollowingPage(String followerUserId, PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(where("followerUserId").is(followerUserId), cursor, limit),
+				Follow.class);
+	}
+}
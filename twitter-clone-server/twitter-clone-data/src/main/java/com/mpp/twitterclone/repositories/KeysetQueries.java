@@ -0,0 +1,41 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.PageCursor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Builds (created_at, _id) keyset queries - no skip/offset, so every page is an index range scan
+ */
+
+public final class KeysetQueries {
+
+	private static final String CREATED_AT = "createdAt";
+	private static final String ID = "id";
+
+	private KeysetQueries() {
+	}
+
+	/**
+	 * Query the documents matching the scope that come after the cursor position - newest first for NEXT
+	 * cursors (or no cursor) and oldest first for PREVIOUS cursors.
+	 */
+	public static Query page(Criteria scope, PageCursor cursor, int limit) {
+		boolean backwards = cursor != null && cursor.isPrevious();
+
+		if (cursor != null) {
+			scope.orOperator(
+					backwards ? where(CREATED_AT).gt(cursor.getCreatedAt()) : where(CREATED_AT).lt(cursor.getCreatedAt()),
+					backwards
+							? where(CREATED_AT).is(cursor.getCreatedAt()).and(ID).gt(cursor.getId())
+							: where(CREATED_AT).is(cursor.getCreatedAt()).and(ID).lt(cursor.getId()));
+		}
+
+		return Query.query(scope)
+				.with(Sort.by(backwards ? Sort.Direction.ASC : Sort.Direction.DESC, CREATED_AT, ID))
+				.limit(limit);
+	}
+}
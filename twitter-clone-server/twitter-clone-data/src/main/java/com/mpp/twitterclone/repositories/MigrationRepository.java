@@ -0,0 +1,13 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.Migration;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * One-off data migrations that have completed - see {@link Migration}
+ */
+
+@Repository
+public interface MigrationRepository extends MongoRepository<Migration, String> {
+}
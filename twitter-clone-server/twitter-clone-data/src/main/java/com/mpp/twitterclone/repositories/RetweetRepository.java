@@ -4,6 +4,8 @@ import com.mpp.twitterclone.model.Retweet;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,5 +15,7 @@ import java.util.Optional;
 @Repository
 public interface RetweetRepository extends MongoRepository<Retweet, String> {
 	Optional<Retweet> findByUserIdAndTweetId(String userId, String tweetId);
-	void deleteByUserIdAndAndTweetId(String userId, String tweetId);
+	Long deleteByUserIdAndAndTweetId(String userId, String tweetId);
+	List<Retweet> findAllByTweetId(String tweetId);
+	List<Retweet> findAllByTweetIdInAndUserIdIn(Collection<String> tweetIds, Collection<String> userIds);
 }
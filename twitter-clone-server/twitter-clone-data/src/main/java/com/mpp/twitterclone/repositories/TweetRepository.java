@@ -1,6 +1,7 @@
 package com.mpp.twitterclone.repositories;
 
 import com.mpp.twitterclone.model.Tweet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,7 +12,8 @@ import java.util.List;
  */
 
 @Repository
-public interface TweetRepository extends MongoRepository<Tweet, String> {
+public interface TweetRepository extends MongoRepository<Tweet, String>, TweetRepositoryCustom {
 	List<Tweet> findAllByParentId(String id);
 	List<Tweet> findAllByOwner(String username);
+	List<Tweet> findAllByOwnerOrderByCreatedAtDesc(String username, Pageable pageable);
 }
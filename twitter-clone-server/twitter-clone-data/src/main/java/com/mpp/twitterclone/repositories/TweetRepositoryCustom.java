@@ -0,0 +1,64 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.TweetableContent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tweet queries that can't be expressed as derived queries
+ */
+
+public interface TweetRepositoryCustom {
+
+	/**
+	 * Newest first tweets of an owner that are strictly older than the given (createdAt, id) position.
+	 * A null position starts from the newest tweet.
+	 */
+	List<Tweet> findAllByOwnerOlderThan(String owner, LocalDateTime createdAt, String id, int limit);
+
+	/**
+	 * Keyset pages - see {@link PageCursor} for the order of the results
+	 */
+	List<Tweet> findPage(PageCursor cursor, int limit);
+	List<Tweet> findPageByOwner(String owner, PageCursor cursor, int limit);
+	List<Tweet> findPageByParentId(String parentId, PageCursor cursor, int limit);
+	List<Tweet> findPageByMention(String username, PageCursor cursor, int limit);
+
+	/**
+	 * Replies of a conversation from one depth to another, both included, by depth then oldest first
+	 */
+	List<Tweet> findAllByConversationId(String conversationId, int fromDepth, int toDepth, int limit);
+
+	/**
+	 * Replies of any of the tweets, oldest first
+	 */
+	List<Tweet> findAllByParentIdIn(Collection<String> parentIds, int limit);
+
+	/**
+	 * Replies written before they were given a conversation, read lazily like {@link #streamAll()}
+	 */
+	Stream<Tweet> streamRepliesWithoutConversation();
+
+	void updateConversation(String id, String conversationId, int depth);
+
+	/**
+	 * Set the text, content and mentions of a tweet alone - the counters are left to their $inc updates
+	 */
+	void updateText(String id, String text, List<TweetableContent> content, List<String> mentions);
+
+	/**
+	 * The ID, text, content and creation time of every tweet, oldest first, read lazily like {@link #streamAll()}
+	 */
+	Stream<Tweet> streamAllTextOldestFirst();
+
+	/**
+	 * Every tweet, read lazily from a database cursor in batches of {@link TweetRepositoryCustomImpl#STREAM_BATCH_SIZE}.
+	 * The stream holds the cursor open until it is closed.
+	 */
+	Stream<Tweet> streamAll();
+}
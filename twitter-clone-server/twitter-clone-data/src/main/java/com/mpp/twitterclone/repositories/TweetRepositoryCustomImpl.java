@@ -0,0 +1,113 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.model.TweetableContent;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.StreamUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (created_at, _id), thread and streamed queries over tweets
+ */
+
+public class TweetRepositoryCustomImpl implements TweetRepositoryCustom {
+
+	// Documents per getMore when streaming a whole collection - bounds what a stream holds in memory
+	public static final int STREAM_BATCH_SIZE = 500;
+
+	private final MongoOperations mongoOperations;
+
+	public TweetRepositoryCustomImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Override
+	public List<Tweet> findAllByOwnerOlderThan(String owner, LocalDateTime createdAt, String id, int limit) {
+		return findPageByOwner(owner, createdAt == null ? null : PageCursor.next(createdAt, id), limit);
+	}
+
+	@Override
+	public List<Tweet> findPage(PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(new Criteria(), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public List<Tweet> findPageByOwner(String owner, PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(where("owner").is(owner), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public List<Tweet> findPageByParentId(String parentId, PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(where("parentId").is(parentId), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public List<Tweet> findPageByMention(String username, PageCursor cursor, int limit) {
+		return mongoOperations.find(KeysetQueries.page(where("mentions").is(username), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public List<Tweet> findAllByConversationId(String conversationId, int fromDepth, int toDepth, int limit) {
+		Query query = new Query(where("conversationId").is(conversationId).and("depth").gte(fromDepth).lte(toDepth))
+				.with(Sort.by("depth", "createdAt", "id"))
+				.limit(limit);
+
+		return mongoOperations.find(query, Tweet.class);
+	}
+
+	@Override
+	public List<Tweet> findAllByParentIdIn(Collection<String> parentIds, int limit) {
+		Query query = new Query(where("parentId").in(parentIds))
+				.with(Sort.by("createdAt", "id"))
+				.limit(limit);
+
+		return mongoOperations.find(query, Tweet.class);
+	}
+
+	@Override
+	public Stream<Tweet> streamRepliesWithoutConversation() {
+		Query query = new Query(where("conversationId").is(null).and("parentId").ne(null))
+				.cursorBatchSize(STREAM_BATCH_SIZE);
+
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(query, Tweet.class));
+	}
+
+	@Override
+	public void updateConversation(String id, String conversationId, int depth) {
+		mongoOperations.updateFirst(new Query(where("id").is(id)),
+				new Update().set("conversationId", conversationId).set("depth", depth), Tweet.class);
+	}
+
+	@Override
+	public void updateText(String id, String text, List<TweetableContent> content, List<String> mentions) {
+		mongoOperations.updateFirst(new Query(where("id").is(id)),
+				new Update().set("text", text).set("content", content).set("mentions", mentions), Tweet.class);
+	}
+
+	@Override
+	public Stream<Tweet> streamAllTextOldestFirst() {
+		Query query = new Query()
+				.with(Sort.by("createdAt", "id"))
+				.cursorBatchSize(STREAM_BATCH_SIZE);
+		query.fields().include("text").include("content").include("createdAt");
+
+		return StreamUtils.createStreamFromIterator(mongoOperations.stream(query, Tweet.class));
+	}
+
+	@Override
+	public Stream<Tweet> streamAll() {
+		return StreamUtils.createStreamFromIterator(
+				mongoOperations.stream(new Query().cursorBatchSize(STREAM_BATCH_SIZE), Tweet.class));
+	}
+}
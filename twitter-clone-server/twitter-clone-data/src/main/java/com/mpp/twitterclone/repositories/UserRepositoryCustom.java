@@ -0,0 +1,31 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * User queries that can't be expressed as derived queries
+ */
+
+public interface UserRepositoryCustom {
+
+	/**
+	 * Load the users with the given IDs in a single $in query, with only the fields a user list renders
+	 * (see {@link UserRepositoryCustomImpl#SUMMARY_FIELDS}). The order of the results is unspecified.
+	 */
+	List<User> findAllSummariesById(Collection<String> ids);
+
+	/**
+	 * Set the profile, credentials and roles of a user alone - the follow counters are left to their $inc updates
+	 */
+	void updateProfile(User user);
+
+	/**
+	 * Every user, read lazily from a database cursor in batches of {@link UserRepositoryCustomImpl#STREAM_BATCH_SIZE}.
+	 * The stream holds the cursor open until it is closed.
+	 */
+	Stream<User> streamAll();
+}
@@ -0,0 +1,73 @@
+package com.mpp.twitterclone.repositories;
+
+import com.mpp.twitterclone.model.User;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.StreamUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Projected and streamed user lookups
+ */
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+	// What a follower/following list shows for each user
+	public static final String[] SUMMARY_FIELDS = {
+			"username", "name", "profileImageUrl", "description", "verified", "protect"
+	};
+
+	// Documents per getMore when streaming a whole collection - bounds what a stream holds in memory
+	public static final int STREAM_BATCH_SIZE = 500;
+
+	private final MongoOperations mongoOperations;
+
+	public UserRepositoryCustomImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@Override
+	public List<User> findAllSummariesById(Collection<String> ids) {
+		if (ids.isEmpty()) return Collections.emptyList();
+
+		Query summaries = query(where("id").in(ids));
+		for (String field : SUMMARY_FIELDS) summaries.fields().include(field);
+
+		return mongoOperations.find(summaries, User.class);
+	}
+
+	@Override
+	public void updateProfile(User user) {
+		Update profile = new Update()
+				.set("username", user.getUsername())
+				.set("password", user.getPassword())
+				.set("name", user.getName())
+				.set("email", user.getEmail())
+				.set("gender", user.getGender())
+				.set("dateOfBirth", user.getDateOfBirth())
+				.set("profileBannerUrl", user.getProfileBannerUrl())
+				.set("profileImageUrl", user.getProfileImageUrl())
+				.set("phoneNumber", user.getPhoneNumber())
+				.set("url", user.getUrl())
+				.set("description", user.getDescription())
+				.set("protect", user.getProtect())
+				.set("verified", user.getVerified())
+				.set("roles", user.getRoles());
+
+		mongoOperations.updateFirst(query(where("id").is(user.getId())), profile, User.class);
+	}
+
+	@Override
+	public Stream<User> streamAll() {
+		return StreamUtils.createStreamFromIterator(
+				mongoOperations.stream(new Query().cursorBatchSize(STREAM_BATCH_SIZE), User.class));
+	}
+}
@@ -0,0 +1,13 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.Follow;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking counterpart of {@link com.mpp.twitterclone.repositories.FollowRepository}
+ */
+
+@Repository
+public interface ReactiveFollowRepository extends ReactiveMongoRepository<Follow, String>, ReactiveFollowRepositoryCustom {
+}
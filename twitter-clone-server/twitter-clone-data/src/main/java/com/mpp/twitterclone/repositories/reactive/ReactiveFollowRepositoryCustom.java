@@ -0,0 +1,14 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
+import reactor.core.publisher.Flux;
+
+/**
+ * Keyset pages of follow edges - see {@link PageCursor} for the order of the results
+ */
+
+public interface ReactiveFollowRepositoryCustom {
+	Flux<Follow> findFollowersPage(String followedUserId, PageCursor cursor, int limit);
+	Flux<Follow> findFollowingPage(String followerUserId, PageCursor cursor, int limit);
+}
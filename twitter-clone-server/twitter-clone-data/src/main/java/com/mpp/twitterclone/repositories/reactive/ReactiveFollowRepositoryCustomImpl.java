@@ -0,0 +1,34 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.Follow;
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.repositories.KeysetQueries;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import reactor.core.publisher.Flux;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (created_at, _id) queries over follow edges
+ */
+
+public class ReactiveFollowRepositoryCustomImpl implements ReactiveFollowRepositoryCustom {
+
+	private final ReactiveMongoOperations reactiveMongoOperations;
+
+	public ReactiveFollowRepositoryCustomImpl(ReactiveMongoOperations reactiveMongoOperations) {
+		this.reactiveMongoOperations = reactiveMongoOperations;
+	}
+
+	@Override
+	public Flux<Follow> findFollowersPage(String followedUserId, PageCursor cursor, int limit) {
+		return reactiveMongoOperations.find(KeysetQueries.page(where("followedUserId").is(followedUserId), cursor,
+				limit), Follow.class);
+	}
+
+	@Override
+	public Flux<Follow> findFollowingPage(String followerUserId, PageCursor cursor, int limit) {
+		return reactiveMongoOperations.find(KeysetQueries.page(where("followerUserId").is(followerUserId), cursor,
+				limit), Follow.class);
+	}
+}
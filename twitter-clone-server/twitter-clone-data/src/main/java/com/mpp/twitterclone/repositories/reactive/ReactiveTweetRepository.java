@@ -0,0 +1,13 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.Tweet;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking counterpart of {@link com.mpp.twitterclone.repositories.TweetRepository}
+ */
+
+@Repository
+public interface ReactiveTweetRepository extends ReactiveMongoRepository<Tweet, String>, ReactiveTweetRepositoryCustom {
+}
@@ -0,0 +1,15 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Tweet;
+import reactor.core.publisher.Flux;
+
+/**
+ * Keyset pages - see {@link PageCursor} for the order of the results
+ */
+
+public interface ReactiveTweetRepositoryCustom {
+	Flux<Tweet> findPage(PageCursor cursor, int limit);
+	Flux<Tweet> findPageByOwner(String owner, PageCursor cursor, int limit);
+	Flux<Tweet> findPageByParentId(String parentId, PageCursor cursor, int limit);
+}
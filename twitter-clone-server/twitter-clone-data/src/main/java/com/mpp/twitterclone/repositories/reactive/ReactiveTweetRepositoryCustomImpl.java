@@ -0,0 +1,39 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.PageCursor;
+import com.mpp.twitterclone.model.Tweet;
+import com.mpp.twitterclone.repositories.KeysetQueries;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (created_at, _id) queries over tweets
+ */
+
+public class ReactiveTweetRepositoryCustomImpl implements ReactiveTweetRepositoryCustom {
+
+	private final ReactiveMongoOperations reactiveMongoOperations;
+
+	public ReactiveTweetRepositoryCustomImpl(ReactiveMongoOperations reactiveMongoOperations) {
+		this.reactiveMongoOperations = reactiveMongoOperations;
+	}
+
+	@Override
+	public Flux<Tweet> findPage(PageCursor cursor, int limit) {
+		return reactiveMongoOperations.find(KeysetQueries.page(new Criteria(), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public Flux<Tweet> findPageByOwner(String owner, PageCursor cursor, int limit) {
+		return reactiveMongoOperations.find(KeysetQueries.page(where("owner").is(owner), cursor, limit), Tweet.class);
+	}
+
+	@Override
+	public Flux<Tweet> findPageByParentId(String parentId, PageCursor cursor, int limit) {
+		return reactiveMongoOperations.find(KeysetQueries.page(where("parentId").is(parentId), cursor, limit),
+				Tweet.class);
+	}
+}
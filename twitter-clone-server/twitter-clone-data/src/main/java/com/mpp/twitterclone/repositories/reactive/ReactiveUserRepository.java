@@ -0,0 +1,16 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Non-blocking counterpart of {@link com.mpp.twitterclone.repositories.UserRepository}.
+ *
+ * Reactive Mongo can't resolve the roles @DBRef of a user, so only the custom queries - which leave the
+ * roles out - should be used to read users.
+ */
+
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String>, ReactiveUserRepositoryCustom {
+}
@@ -0,0 +1,20 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * User reads without the roles @DBRef
+ */
+
+public interface ReactiveUserRepositoryCustom {
+	Mono<User> findProfileByUsername(String username);
+
+	/**
+	 * See {@link com.mpp.twitterclone.repositories.UserRepositoryCustom#findAllSummariesById(Collection)}
+	 */
+	Flux<User> findAllSummariesById(Collection<String> ids);
+}
@@ -0,0 +1,44 @@
+package com.mpp.twitterclone.repositories.reactive;
+
+import com.mpp.twitterclone.model.User;
+import com.mpp.twitterclone.repositories.UserRepositoryCustomImpl;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Projected user lookups
+ */
+
+public class ReactiveUserRepositoryCustomImpl implements ReactiveUserRepositoryCustom {
+
+	private final ReactiveMongoOperations reactiveMongoOperations;
+
+	public ReactiveUserRepositoryCustomImpl(ReactiveMongoOperations reactiveMongoOperations) {
+		this.reactiveMongoOperations = reactiveMongoOperations;
+	}
+
+	@Override
+	public Mono<User> findProfileByUsername(String username) {
+		Query profile = query(where("username").is(username));
+		profile.fields().exclude("roles");
+
+		return reactiveMongoOperations.findOne(profile, User.class);
+	}
+
+	@Override
+	public Flux<User> findAllSummariesById(Collection<String> ids) {
+		if (ids.isEmpty()) return Flux.empty();
+
+		Query summaries = query(where("id").in(ids));
+		for (String field : UserRepositoryCustomImpl.SUMMARY_FIELDS) summaries.fields().include(field);
+
+		return reactiveMongoOperations.find(summaries, User.class);
+	}
+}